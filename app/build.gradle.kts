@@ -33,6 +33,7 @@ android {
     
     buildFeatures {
         viewBinding = true
+        buildConfig = true
     }
 }
 
@@ -73,6 +74,12 @@ dependencies {
     // Image Loading
     implementation(libs.glide)
     
+    // Background Sync
+    implementation(libs.work.runtime)
+    
+    // System Tracing
+    implementation(libs.tracing)
+    
     // Firebase
     implementation(platform("com.google.firebase:firebase-bom:33.15.0"))
     implementation("com.google.firebase:firebase-auth")
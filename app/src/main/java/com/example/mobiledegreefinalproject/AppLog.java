@@ -0,0 +1,293 @@
+package com.example.mobiledegreefinalproject;
+
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Level-gated logging for hot paths (sync, snapshot listeners, duplicate cleanup).
+ *
+ * Messages take "{}" placeholders and fixed-arity arguments, and are only formatted
+ * once the level check passes - a disabled call costs one int comparison and builds no
+ * strings. Counts and IDs passed as int or long pick the primitive overloads, so they are
+ * not boxed either. Debug builds log from DEBUG up, release builds from WARN up, and the
+ * level can be changed at runtime, globally or per subsystem.
+ *
+ * Everything that passes the gate is also kept in a small ring buffer, so recent
+ * diagnostics can be exported with dump() without reading logcat.
+ *
+ * Usage:
+ *   private static final AppLog.Logger LOG = AppLog.get(AppLog.SYNC);
+ *   LOG.d("Synced {} of {} trips", done, total);
+ */
+public final class AppLog {
+
+    // Subsystem tags
+    public static final String SYNC = "WP.Sync";
+    public static final String LISTENER = "WP.Listener";
+    public static final String CLEANUP = "WP.Cleanup";
+    public static final String RESTORE = "WP.Restore";
+    public static final String UI = "WP.UI";
+
+    // Picks the default level here and the default tracing state in AppTrace. Nothing is
+    // stripped at build time (minify is off); disabled calls are skipped by the level check.
+    public static final boolean DEBUG_BUILD = BuildConfig.DEBUG;
+
+    private static final int RING_CAPACITY = 512;
+
+    private static volatile int globalLevel = DEBUG_BUILD ? Log.DEBUG : Log.WARN;
+    private static final ConcurrentHashMap<String, Logger> loggers = new ConcurrentHashMap<>();
+
+    // Ring buffer of recent entries, guarded by the class lock
+    private static final long[] ringTimes = new long[RING_CAPACITY];
+    private static final int[] ringLevels = new int[RING_CAPACITY];
+    private static final String[] ringTags = new String[RING_CAPACITY];
+    private static final String[] ringMessages = new String[RING_CAPACITY];
+    private static int ringNext;
+    private static int ringSize;
+
+    private AppLog() {
+    }
+
+    public static Logger get(String tag) {
+        Logger logger = loggers.get(tag);
+        if (logger == null) {
+            Logger created = new Logger(tag);
+            logger = loggers.putIfAbsent(tag, created);
+            if (logger == null) logger = created;
+        }
+        return logger;
+    }
+
+    /**
+     * Minimum level (android.util.Log constants) for subsystems without their own level
+     */
+    public static void setLevel(int level) {
+        globalLevel = level;
+    }
+
+    public static int getLevel() {
+        return globalLevel;
+    }
+
+    /**
+     * Minimum level for one subsystem; pass 0 to follow the global level again
+     */
+    public static void setLevel(String tag, int level) {
+        get(tag).level = level;
+    }
+
+    // Ring buffer
+
+    /**
+     * Recent log entries, oldest first, one per line
+     */
+    public static synchronized String dump() {
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        StringBuilder sb = new StringBuilder(ringSize * 80);
+        int start = (ringNext - ringSize + RING_CAPACITY) % RING_CAPACITY;
+        for (int i = 0; i < ringSize; i++) {
+            int index = (start + i) % RING_CAPACITY;
+            sb.append(format.format(new Date(ringTimes[index])))
+              .append(' ').append(levelLetter(ringLevels[index]))
+              .append('/').append(ringTags[index])
+              .append(": ").append(ringMessages[index])
+              .append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static synchronized void clearBuffer() {
+        for (int i = 0; i < RING_CAPACITY; i++) {
+            ringTags[i] = null;
+            ringMessages[i] = null;
+        }
+        ringNext = 0;
+        ringSize = 0;
+    }
+
+    private static synchronized void record(int level, String tag, String message) {
+        ringTimes[ringNext] = System.currentTimeMillis();
+        ringLevels[ringNext] = level;
+        ringTags[ringNext] = tag;
+        ringMessages[ringNext] = message;
+        ringNext = (ringNext + 1) % RING_CAPACITY;
+        if (ringSize < RING_CAPACITY) ringSize++;
+    }
+
+    private static char levelLetter(int level) {
+        switch (level) {
+            case Log.VERBOSE: return 'V';
+            case Log.DEBUG: return 'D';
+            case Log.INFO: return 'I';
+            case Log.WARN: return 'W';
+            default: return 'E';
+        }
+    }
+
+    /**
+     * Replace each "{}" in the pattern with the next argument
+     */
+    static String format(String pattern, Object... args) {
+        if (args.length == 0) return pattern;
+        StringBuilder sb = new StringBuilder(pattern.length() + 16 * args.length);
+        int argIndex = 0;
+        int from = 0;
+        int at;
+        while (argIndex < args.length && (at = pattern.indexOf("{}", from)) >= 0) {
+            sb.append(pattern, from, at).append(args[argIndex++]);
+            from = at + 2;
+        }
+        sb.append(pattern, from, pattern.length());
+        return sb.toString();
+    }
+
+    /**
+     * A logger for one subsystem tag. The fixed-arity overloads avoid allocating a
+     * varargs array on the disabled path, and the long overloads (which int arguments
+     * widen to) avoid boxing on it; both only box once the message is actually formatted.
+     */
+    public static final class Logger {
+        private final String tag;
+        private volatile int level;
+
+        private Logger(String tag) {
+            this.tag = tag;
+        }
+
+        public boolean isLoggable(int priority) {
+            int threshold = level > 0 ? level : globalLevel;
+            return priority >= threshold;
+        }
+
+        /**
+         * Guard for loops that would otherwise compute arguments per iteration
+         */
+        public boolean isDebugEnabled() {
+            return isLoggable(Log.DEBUG);
+        }
+
+        // Verbose and debug
+
+        public void v(String message) {
+            if (isLoggable(Log.VERBOSE)) write(Log.VERBOSE, message, null);
+        }
+
+        public void v(String pattern, Object a) {
+            if (isLoggable(Log.VERBOSE)) write(Log.VERBOSE, format(pattern, a), null);
+        }
+
+        public void v(String pattern, Object a, Object b) {
+            if (isLoggable(Log.VERBOSE)) write(Log.VERBOSE, format(pattern, a, b), null);
+        }
+
+        public void v(String pattern, long a) {
+            if (isLoggable(Log.VERBOSE)) write(Log.VERBOSE, format(pattern, a), null);
+        }
+
+        public void d(String message) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, message, null);
+        }
+
+        public void d(String pattern, Object a) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, format(pattern, a), null);
+        }
+
+        public void d(String pattern, Object a, Object b) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, format(pattern, a, b), null);
+        }
+
+        public void d(String pattern, Object a, Object b, Object c) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, format(pattern, a, b, c), null);
+        }
+
+        public void d(String pattern, Object... args) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, format(pattern, args), null);
+        }
+
+        public void d(String pattern, long a) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, format(pattern, a), null);
+        }
+
+        public void d(String pattern, long a, long b) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, format(pattern, a, b), null);
+        }
+
+        public void d(String pattern, Object a, long b) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, format(pattern, a, b), null);
+        }
+
+        public void d(String pattern, long a, Object b) {
+            if (isLoggable(Log.DEBUG)) write(Log.DEBUG, format(pattern, a, b), null);
+        }
+
+        // Info
+
+        public void i(String message) {
+            if (isLoggable(Log.INFO)) write(Log.INFO, message, null);
+        }
+
+        public void i(String pattern, Object a) {
+            if (isLoggable(Log.INFO)) write(Log.INFO, format(pattern, a), null);
+        }
+
+        public void i(String pattern, Object a, Object b) {
+            if (isLoggable(Log.INFO)) write(Log.INFO, format(pattern, a, b), null);
+        }
+
+        public void i(String pattern, Object a, Object b, Object c) {
+            if (isLoggable(Log.INFO)) write(Log.INFO, format(pattern, a, b, c), null);
+        }
+
+        public void i(String pattern, long a) {
+            if (isLoggable(Log.INFO)) write(Log.INFO, format(pattern, a), null);
+        }
+
+        // Warnings and errors
+
+        public void w(String message) {
+            if (isLoggable(Log.WARN)) write(Log.WARN, message, null);
+        }
+
+        public void w(String pattern, Object a) {
+            if (isLoggable(Log.WARN)) write(Log.WARN, format(pattern, a), null);
+        }
+
+        public void w(String message, Throwable error) {
+            if (isLoggable(Log.WARN)) write(Log.WARN, message, error);
+        }
+
+        public void w(String pattern, Object a, Throwable error) {
+            if (isLoggable(Log.WARN)) write(Log.WARN, format(pattern, a), error);
+        }
+
+        public void e(String message) {
+            if (isLoggable(Log.ERROR)) write(Log.ERROR, message, null);
+        }
+
+        public void e(String pattern, Object a) {
+            if (isLoggable(Log.ERROR)) write(Log.ERROR, format(pattern, a), null);
+        }
+
+        public void e(String message, Throwable error) {
+            if (isLoggable(Log.ERROR)) write(Log.ERROR, message, error);
+        }
+
+        public void e(String pattern, Object a, Throwable error) {
+            if (isLoggable(Log.ERROR)) write(Log.ERROR, format(pattern, a), error);
+        }
+
+        private void write(int priority, String message, Throwable error) {
+            if (error != null) {
+                Log.println(priority, tag, message + '\n' + Log.getStackTraceString(error));
+                record(priority, tag, message + " (" + error + ")");
+            } else {
+                Log.println(priority, tag, message);
+                record(priority, tag, message);
+            }
+        }
+    }
+}
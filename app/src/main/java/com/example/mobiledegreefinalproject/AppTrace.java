@@ -0,0 +1,111 @@
+package com.example.mobiledegreefinalproject;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.tracing.Trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * System trace sections for Perfetto / Android Studio's profiler, switchable at runtime.
+ *
+ * Synchronous sections nest on the calling thread and must be closed on that thread:
+ *   boolean traced = AppTrace.begin("TripRepository.reconcileTrips");
+ *   try { ... } finally { AppTrace.end(traced); }
+ * begin() returns whether a section was opened, so toggling tracing half way through a
+ * section never leaves the thread's section stack unbalanced.
+ *
+ * Async sections cover work that finishes on another thread or in a callback, such as
+ * Firestore round-trips and whole sync runs, and show as separate tracks so overlapping
+ * calls are visible:
+ *   int cookie = AppTrace.beginAsync("firestore.set");
+ *   ... in the callback: AppTrace.endAsync("firestore.set", cookie);
+ *
+ * On by default in debug builds, off in release; the choice on DiagnosticsActivity is
+ * remembered across launches. Disabled calls cost one volatile read.
+ */
+public final class AppTrace {
+    private static final String PREFS_NAME = "Diagnostics";
+    private static final String KEY_TRACING = "tracing_enabled";
+
+    // The platform truncates section names longer than this
+    private static final int MAX_NAME_LENGTH = 127;
+
+    private static volatile boolean enabled = AppLog.DEBUG_BUILD;
+    private static final AtomicInteger nextCookie = new AtomicInteger(1);
+
+    private AppTrace() {
+    }
+
+    /**
+     * Apply the saved toggle; called early from the launch activities
+     */
+    public static void load(Context context) {
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        enabled = prefs.getBoolean(KEY_TRACING, AppLog.DEBUG_BUILD);
+    }
+
+    public static void setEnabled(Context context, boolean value) {
+        enabled = value;
+        context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(KEY_TRACING, value)
+                .apply();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Synchronous sections
+
+    public static boolean begin(String name) {
+        if (!enabled) return false;
+        Trace.beginSection(clip(name));
+        return true;
+    }
+
+    /**
+     * Section named "name:detail"; the name is only built when tracing is on
+     */
+    public static boolean begin(String name, Object detail) {
+        if (!enabled) return false;
+        Trace.beginSection(clip(name + ":" + detail));
+        return true;
+    }
+
+    public static void end(boolean traced) {
+        if (traced) Trace.endSection();
+    }
+
+    // Async sections
+
+    /**
+     * Start an async section and return its cookie, or 0 when tracing is off
+     */
+    public static int beginAsync(String name) {
+        if (!enabled) return 0;
+        int cookie = nextCookie.getAndIncrement();
+        if (cookie == 0) cookie = nextCookie.getAndIncrement();
+        Trace.beginAsyncSection(clip(name), cookie);
+        return cookie;
+    }
+
+    public static void endAsync(String name, int cookie) {
+        if (cookie != 0) Trace.endAsyncSection(clip(name), cookie);
+    }
+
+    /**
+     * Mark a value, e.g. a queue depth or batch size, as a counter track
+     */
+    public static void counter(String name, int value) {
+        if (enabled) Trace.setCounter(clip(name), value);
+    }
+
+    private static String clip(String name) {
+        return name.length() <= MAX_NAME_LENGTH ? name : name.substring(0, MAX_NAME_LENGTH);
+    }
+}
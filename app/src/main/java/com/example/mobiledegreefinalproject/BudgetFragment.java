@@ -6,9 +6,12 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.media.MediaPlayer;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseLongArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,10 +23,13 @@ import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -33,9 +39,19 @@ import com.example.mobiledegreefinalproject.database.Trip;
 import com.example.mobiledegreefinalproject.database.WanderPlanDatabase;
 import com.example.mobiledegreefinalproject.database.TripDao;
 import com.example.mobiledegreefinalproject.model.Expense;
+import com.example.mobiledegreefinalproject.model.Money;
 import com.example.mobiledegreefinalproject.repository.TripRepository;
 import com.example.mobiledegreefinalproject.repository.BudgetRepository;
+import com.example.mobiledegreefinalproject.viewmodel.BudgetViewModel;
+import com.example.mobiledegreefinalproject.viewmodel.SpendTimeline;
+import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.charts.PieChart;
+import com.github.mikephil.charting.components.LimitLine;
+import com.github.mikephil.charting.components.XAxis;
+import com.github.mikephil.charting.components.YAxis;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.data.PieData;
 import com.github.mikephil.charting.data.PieDataSet;
 import com.github.mikephil.charting.data.PieEntry;
@@ -48,20 +64,16 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnExpenseActionListener {
 
     private static final String TAG = "BudgetFragment";
+    // Days averaged for the burn rate in the daily spending chart
+    private static final int BURN_RATE_WINDOW_DAYS = 3;
 
     // UI Components
     private TextView totalBudgetText;
@@ -70,9 +82,15 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
     private RecyclerView expensesRecyclerView;
     private FloatingActionButton fabAddExpense;
     private PieChart pieChart;
+    private LineChart dailySpendChart;
+    private TextView chartTitleText;
+    private TextView spendForecastText;
+    private ChipGroup chipGroupChartMode;
+    private boolean showDailySpend;
     private ChipGroup chipGroupCategories;
     private LinearLayout emptyStateLayout;
     private ImageView editBudgetIcon;
+    private TextView importCsvButton;
     
     // Trip Selector Components
     private LinearLayout tripSelectorLayout;
@@ -82,13 +100,14 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
     // Data
     private List<Expense> expenses;
     private ModernExpenseAdapter expenseAdapter;
-    private double totalBudget = 2000.00; // Default budget
+    private BudgetViewModel budgetViewModel;
+    private long totalBudget = Money.DEFAULT_TRIP_BUDGET; // In sen
     
     // Trip-based Data
     private List<Trip> availableTrips;
     private Trip selectedTrip;
-    private Map<Integer, Double> tripBudgets; // Trip ID -> Budget
-    private Map<Integer, List<Expense>> tripExpenses; // Trip ID -> Expenses
+    private SparseLongArray tripBudgets; // Trip ID -> Budget in sen
+    private SparseArray<List<Expense>> tripExpenses; // Trip ID -> Expenses
     
     // Database and Firebase
     private TripRepository tripRepository;
@@ -97,10 +116,14 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
     
     // Persistence
     private SharedPreferences sharedPreferences;
-    private Gson gson;
     
     // Animation and Sound
     private MediaPlayer successSound;
+    
+    private final ActivityResultLauncher<String[]> csvImportLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) importExpensesFromCsv(uri);
+            });
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
@@ -114,9 +137,12 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         
         try {
         initViews(view);
+            budgetViewModel = new ViewModelProvider(this).get(BudgetViewModel.class);
             initializeData();
         setupRecyclerView();
             setupPieChart();
+            setupDailySpendChart();
+            setupChartModeToggle();
             setupCategoryFilter();
         setupClickListeners();
         updateBudgetDisplay();
@@ -164,9 +190,14 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         expensesRecyclerView = view.findViewById(R.id.rv_expenses);
         fabAddExpense = view.findViewById(R.id.fab_add_expense);
         pieChart = view.findViewById(R.id.pie_chart_expenses);
+        dailySpendChart = view.findViewById(R.id.line_chart_daily_spend);
+        chartTitleText = view.findViewById(R.id.tv_chart_title);
+        spendForecastText = view.findViewById(R.id.tv_spend_forecast);
+        chipGroupChartMode = view.findViewById(R.id.chip_group_chart_mode);
         chipGroupCategories = view.findViewById(R.id.chip_group_categories);
         emptyStateLayout = view.findViewById(R.id.layout_empty_state);
         editBudgetIcon = view.findViewById(R.id.iv_edit_budget);
+        importCsvButton = view.findViewById(R.id.tv_import_csv);
         
         // Trip selector components
         tripSelectorLayout = view.findViewById(R.id.layout_trip_selector);
@@ -179,14 +210,13 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         
         // Initialize trip-based data structures
         availableTrips = new ArrayList<>();
-        tripBudgets = new HashMap<>();
-        tripExpenses = new HashMap<>();
+        tripBudgets = new SparseLongArray();
+        tripExpenses = new SparseArray<>();
         
         // Initialize persistence
         Context context = getContext();
         if (context != null) {
             sharedPreferences = context.getSharedPreferences("BudgetFragment", Context.MODE_PRIVATE);
-            gson = new Gson();
             tripRepository = TripRepository.getInstance(context);
             budgetRepository = BudgetRepository.getInstance(context);
             userManager = UserManager.getInstance(context);
@@ -206,15 +236,19 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
     
     private void setupRecyclerView() {
         try {
-            expenseAdapter = new ModernExpenseAdapter(expenses);
+            expenseAdapter = new ModernExpenseAdapter();
             expenseAdapter.setOnExpenseActionListener(this);
         expensesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         expensesRecyclerView.setAdapter(expenseAdapter);
             
-            // Ensure the adapter starts with all expenses visible (no filter applied)
-            expenseAdapter.clearFilter();
-            
-            updateEmptyState();
+            // Ensure the list starts with all expenses visible (no filter applied)
+            budgetViewModel.setFilter(null);
+            budgetViewModel.getSnapshot().observe(getViewLifecycleOwner(), this::onExpensesFiltered);
+            budgetViewModel.getTotals().observe(getViewLifecycleOwner(), totals -> {
+                updateBudgetDisplay();
+                updateChartData();
+            });
+            submitExpenses();
         } catch (Exception e) {
             Log.e(TAG, "Error setting up RecyclerView", e);
             showErrorToast("Error setting up expense list");
@@ -246,6 +280,51 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         }
     }
 
+    private void setupDailySpendChart() {
+        try {
+            if (dailySpendChart != null) {
+                dailySpendChart.getDescription().setEnabled(false);
+                dailySpendChart.getLegend().setEnabled(false);
+                dailySpendChart.getAxisRight().setEnabled(false);
+                dailySpendChart.getAxisLeft().setAxisMinimum(0f);
+                XAxis xAxis = dailySpendChart.getXAxis();
+                xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+                xAxis.setGranularity(1f);
+                xAxis.setDrawGridLines(false);
+                dailySpendChart.setNoDataText("💡 Select a trip to see daily spending");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error setting up daily spending chart", e);
+        }
+    }
+
+    /**
+     * Switch the chart card between the category breakdown and daily spending
+     */
+    private void setupChartModeToggle() {
+        if (chipGroupChartMode == null) return;
+        chipGroupChartMode.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            if (checkedIds.isEmpty()) {
+                return;
+            }
+            showDailySpend = checkedIds.get(0) == R.id.chip_chart_daily;
+            
+            if (pieChart != null) {
+                pieChart.setVisibility(showDailySpend ? View.GONE : View.VISIBLE);
+            }
+            if (dailySpendChart != null) {
+                dailySpendChart.setVisibility(showDailySpend ? View.VISIBLE : View.GONE);
+            }
+            if (spendForecastText != null && !showDailySpend) {
+                spendForecastText.setVisibility(View.GONE);
+            }
+            if (chartTitleText != null) {
+                chartTitleText.setText(showDailySpend ? R.string.daily_spending : R.string.category_breakdown);
+            }
+            updateChartData();
+        });
+    }
+
     private void setupCategoryFilter() {
         try {
             if (chipGroupCategories != null) {
@@ -276,9 +355,9 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
      */
     private void initializeDefaultFilter() {
         try {
-            // Clear any existing filter on the adapter
-            if (expenseAdapter != null) {
-                expenseAdapter.clearFilter();
+            // Clear any existing filter
+            if (budgetViewModel != null) {
+                budgetViewModel.setFilter(null);
             }
             
             // Post a runnable to ensure the UI is fully loaded before setting the default chip
@@ -313,20 +392,16 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
 
     private void filterExpensesByCategory(String category) {
         try {
-            if (expenseAdapter != null) {
+            if (budgetViewModel != null) {
+                // The list, chart and budget display refresh when the filtered snapshot arrives
                 if ("All".equals(category)) {
-                    expenseAdapter.clearFilter();
+                    budgetViewModel.setFilter(null);
                 } else {
                     Expense.Category expenseCategory = getCategoryFromString(category);
                     if (expenseCategory != null) {
-                        expenseAdapter.filterByCategory(expenseCategory);
+                        budgetViewModel.setFilter(expenseCategory);
                     }
                 }
-                updateEmptyState();
-                
-                // Update chart and budget display to reflect the filtered data
-                updateChartData();
-                updateBudgetDisplay();
             }
         } catch (Exception e) {
             Log.e(TAG, "Error filtering expenses", e);
@@ -372,6 +447,17 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             });
         }
         
+        if (importCsvButton != null) {
+            importCsvButton.setOnClickListener(v -> {
+                if (selectedTrip == null) {
+                    showErrorToast("Please select a specific trip to import expenses");
+                    return;
+                }
+                // Statements come as text/csv, but some apps label them as spreadsheets
+                csvImportLauncher.launch(new String[]{"text/*", "application/csv", "application/vnd.ms-excel"});
+            });
+        }
+        
         // Allow clicking on budget to change it
         if (totalBudgetText != null) {
             totalBudgetText.setOnClickListener(v -> showBudgetSetupDialog());
@@ -395,24 +481,24 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                 totalBudget = calculateTotalBudgetAllTrips();
             }
             
-            double totalSpent = calculateTotalSpent();
-            double remaining = totalBudget - totalSpent;
+            long totalSpent = calculateTotalSpent();
+            long remaining = totalBudget - totalSpent;
             
             if (totalBudgetText != null) {
-                totalBudgetText.setText(String.format(Locale.getDefault(), "RM%.2f", totalBudget));
+                totalBudgetText.setText(Money.format(totalBudget));
             }
             if (totalSpentText != null) {
-                totalSpentText.setText(String.format(Locale.getDefault(), "RM%.2f", totalSpent));
+                totalSpentText.setText(Money.format(totalSpent));
             }
             if (remainingText != null) {
-                remainingText.setText(String.format(Locale.getDefault(), "RM%.2f", remaining));
+                remainingText.setText(Money.format(remaining));
                 
                 // Update text color based on remaining budget
                 Context context = getContext();
                 if (context != null) {
                     if (remaining < 0) {
                         remainingText.setTextColor(ContextCompat.getColor(context, R.color.error));
-                    } else if (remaining < totalBudget * 0.2) {
+                    } else if (remaining * 5 < totalBudget) { // Under 20% left
                         remainingText.setTextColor(ContextCompat.getColor(context, R.color.warning));
                     } else {
                         remainingText.setTextColor(ContextCompat.getColor(context, R.color.success));
@@ -424,37 +510,86 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         }
     }
 
-    private double calculateTotalSpent() {
-        double total = 0.0;
-        try {
-            // Use the same filtered expenses that are shown in the list and chart
-            List<Expense> expensesToCalculate = getFilteredExpensesFromAdapter();
-            if (expensesToCalculate != null) {
-                for (Expense expense : expensesToCalculate) {
-                    total += expense.getAmount();
+    private long calculateTotalSpent() {
+        // Running totals for the selected trip, narrowed to the active category filter
+        BudgetViewModel.BudgetTotals totals = currentTotals();
+        Expense.Category filter = budgetViewModel != null ? budgetViewModel.getFilter() : null;
+        return filter != null ? totals.getCategorySpent(filter) : totals.getSpent();
+    }
+
+    private BudgetViewModel.BudgetTotals currentTotals() {
+        return budgetViewModel != null ? budgetViewModel.getCurrentTotals() : BudgetViewModel.BudgetTotals.EMPTY;
+    }
+
+    private BudgetViewModel.ExpenseSnapshot currentSnapshot() {
+        return budgetViewModel != null ? budgetViewModel.getCurrentSnapshot() : BudgetViewModel.ExpenseSnapshot.EMPTY;
+    }
+
+    /**
+     * Hand the current expense list to the view model, which filters and totals it off the main thread
+     */
+    private void submitExpenses() {
+        if (budgetViewModel != null && expenses != null) {
+            budgetViewModel.setScope(selectedTrip != null ? selectedTrip.getId() : BudgetViewModel.ALL_TRIPS);
+            budgetViewModel.setExpenses(expenses);
+        }
+    }
+
+    /**
+     * Rebuild the running totals after tripBudgets/tripExpenses were loaded in bulk
+     */
+    private void resetTotals() {
+        if (budgetViewModel != null) {
+            budgetViewModel.resetTotals(tripBudgets, tripExpenses);
+        }
+    }
+
+    /**
+     * Swap an expense for its edited copy wherever the fragment holds it
+     */
+    private void replaceExpense(Expense original, Expense edited) {
+        // Trip lists first: for a selected trip, expenses is that trip's list
+        if (tripExpenses != null) {
+            for (int i = 0; i < tripExpenses.size(); i++) {
+                if (replaceByIdentity(tripExpenses.valueAt(i), original, edited) && budgetViewModel != null) {
+                    budgetViewModel.expenseReplaced(tripExpenses.keyAt(i), original, edited);
                 }
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error calculating total spent", e);
         }
-        return total;
+        replaceByIdentity(expenses, original, edited);
+    }
+
+    private static boolean replaceByIdentity(List<Expense> list, Expense original, Expense edited) {
+        if (list == null) return false;
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == original) {
+                list.set(i, edited);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onExpensesFiltered(BudgetViewModel.ExpenseSnapshot snapshot) {
+        if (expenseAdapter == null) return;
+        expenseAdapter.submitList(snapshot.getExpenses(), this::updateEmptyState);
+        updateBudgetDisplay();
+        updateChartData();
     }
 
     private void updateChartData() {
+        boolean traced = AppTrace.begin("BudgetFragment.updateChartData");
         try {
-            if (pieChart == null) return;
-            
-            Map<Expense.Category, Double> categoryTotals = new HashMap<>();
-            
-            // Get the same filtered expenses that the adapter is showing
-            List<Expense> expensesToChart = expenses;
-            if (expenseAdapter != null) {
-                // Create a method to get filtered expenses from adapter
-                expensesToChart = getFilteredExpensesFromAdapter();
+            if (showDailySpend) {
+                updateDailySpendChart();
+                return;
             }
+            if (pieChart == null) return;
             
-            // Check if a specific category filter is active
-            Expense.Category activeFilter = getCurrentActiveFilter();
+            // Chart the same filtered expenses that the list is showing
+            BudgetViewModel.ExpenseSnapshot snapshot = currentSnapshot();
+            List<Expense> expensesToChart = snapshot.getExpenses();
+            Expense.Category activeFilter = snapshot.getFilter();
             
             List<PieEntry> entries = new ArrayList<>();
             Context context = getContext();
@@ -471,38 +606,19 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             
             if (activeFilter != null) {
                 // Specific category filter active - show individual expenses within that category
-                if (expensesToChart != null && !expensesToChart.isEmpty()) {
-                    int colorIndex = 0;
-                    for (Expense expense : expensesToChart) {
-                        if (expense.getCategory() == activeFilter && expense.getAmount() > 0) {
-                            entries.add(new PieEntry((float)expense.getAmount(), expense.getTitle()));
-                            colorIndex++;
-                        }
-                    }
-                    
-                    // Calculate category total for center text
-                    double categoryTotal = 0.0;
-                    for (Expense expense : expensesToChart) {
-                        if (expense.getCategory() == activeFilter) {
-                            categoryTotal += expense.getAmount();
-                        }
+                for (Expense expense : expensesToChart) {
+                    if (expense.getAmountMinor() > 0) {
+                        entries.add(new PieEntry((float)expense.getAmount(), expense.getTitle()));
                     }
-                    categoryTotals.put(activeFilter, categoryTotal);
                 }
             } else {
                 // No specific filter or "All" selected - show category breakdown (original logic)
-                if (expensesToChart != null && !expensesToChart.isEmpty()) {
-                    for (Expense expense : expensesToChart) {
-                        Expense.Category category = expense.getCategory();
-                        categoryTotals.put(category, categoryTotals.getOrDefault(category, 0.0) + expense.getAmount());
-                    }
-                }
-                
                 // Add only categories with expenses > 0
-                for (Map.Entry<Expense.Category, Double> entry : categoryTotals.entrySet()) {
-                    double value = entry.getValue();
+                BudgetViewModel.BudgetTotals totals = currentTotals();
+                for (Expense.Category category : Expense.Category.values()) {
+                    long value = totals.getCategorySpent(category);
                     if (value > 0) {  // Only show categories with actual expenses
-                        entries.add(new PieEntry((float)value, entry.getKey().getDisplayName()));
+                        entries.add(new PieEntry((float)Money.toMajor(value), category.getDisplayName()));
                     }
                 }
             }
@@ -528,7 +644,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             pieChart.setData(data);
             
             // Update center text based on active filter
-            updateChartCenterText(categoryTotals);
+            updateChartCenterText(snapshot);
             
             pieChart.animateY(1000);
             pieChart.invalidate();
@@ -537,72 +653,99 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             Log.d(TAG, "Chart updated with " + entries.size() + " " + chartType + " from " + expensesToChart.size() + " filtered expenses");
         } catch (Exception e) {
             Log.e(TAG, "Error updating chart data", e);
+        } finally {
+            AppTrace.end(traced);
         }
     }
 
     /**
-     * Helper method to get the same filtered expenses that the adapter is currently showing
+     * Daily spending mode: the selected trip's cumulative spend per day against its budget, with
+     * the burn rate and forecast read straight from its SpendTimeline
      */
-    private List<Expense> getFilteredExpensesFromAdapter() {
-        List<Expense> filteredExpenses = new ArrayList<>();
+    private void updateDailySpendChart() {
+        if (dailySpendChart == null || spendForecastText == null) return;
+        Context context = getContext();
+        if (context == null) return;
         
-        if (expenseAdapter != null && expenses != null) {
-            // Check if there's an active filter by looking at the current category chips
-            Expense.Category activeFilter = getCurrentActiveFilter();
-            
-            if (activeFilter == null) {
-                // No filter active, return all expenses
-                filteredExpenses.addAll(expenses);
-            } else {
-                // Filter active, return only expenses matching the category
-                for (Expense expense : expenses) {
-                    if (expense.getCategory() == activeFilter) {
-                        filteredExpenses.add(expense);
-                    }
-                }
-            }
+        SpendTimeline timeline = selectedTrip != null && budgetViewModel != null
+                ? budgetViewModel.getTimeline(selectedTrip.getId())
+                : null;
+        if (timeline == null) {
+            dailySpendChart.setNoDataText(selectedTrip == null
+                    ? "💡 Select a trip to see daily spending"
+                    : "💡 Add expenses to see daily spending");
+            dailySpendChart.clear();
+            spendForecastText.setVisibility(View.GONE);
+            return;
         }
         
-        return filteredExpenses;
-    }
-
-    /**
-     * Helper method to determine which category filter is currently active
-     */
-    private Expense.Category getCurrentActiveFilter() {
-        if (chipGroupCategories != null) {
-            int checkedId = chipGroupCategories.getCheckedChipId();
-            if (checkedId != View.NO_ID) {
-                Chip checkedChip = chipGroupCategories.findViewById(checkedId);
-                if (checkedChip != null) {
-                    String categoryText = checkedChip.getText().toString();
-                    if (!"All".equals(categoryText)) {
-                        return getCategoryFromString(categoryText);
-                    }
-                }
-            }
+        long budget = currentTotals().getBudget();
+        long now = System.currentTimeMillis();
+        
+        List<Entry> entries = new ArrayList<>(timeline.getDayCount());
+        for (int day = 0; day < timeline.getDayCount(); day++) {
+            entries.add(new Entry(day + 1, (float) Money.toMajor(timeline.getSpentThrough(day))));
         }
-        return null; // No filter or "All" is selected
+        
+        LineDataSet dataSet = new LineDataSet(entries, "Spent");
+        dataSet.setColor(ContextCompat.getColor(context, R.color.primary));
+        dataSet.setLineWidth(2f);
+        dataSet.setDrawCircles(false);
+        dataSet.setDrawValues(false);
+        
+        // Keep the budget line on screen even while spending is far below it
+        YAxis axis = dailySpendChart.getAxisLeft();
+        axis.removeAllLimitLines();
+        float budgetValue = (float) Money.toMajor(budget);
+        if (budget > 0) {
+            LimitLine budgetLine = new LimitLine(budgetValue, "Budget");
+            budgetLine.setLineColor(ContextCompat.getColor(context, R.color.warning));
+            budgetLine.setLineWidth(1.5f);
+            axis.addLimitLine(budgetLine);
+        }
+        axis.setAxisMaximum(Math.max(budgetValue, dataSet.getYMax()) * 1.1f + 1f);
+        
+        dailySpendChart.setData(new LineData(dataSet));
+        dailySpendChart.invalidate();
+        
+        long burnRate = timeline.getBurnRate(BURN_RATE_WINDOW_DAYS, now);
+        long projected = timeline.getProjectedSpend(BURN_RATE_WINDOW_DAYS, now);
+        int daysLeft = timeline.getDaysUntilOverBudget(budget, BURN_RATE_WINDOW_DAYS, now);
+        
+        String outlook;
+        if (daysLeft == 0) {
+            outlook = "⚠️ Over budget";
+        } else if (daysLeft == SpendTimeline.NEVER) {
+            outlook = "✅ Budget lasts the trip at this rate";
+        } else {
+            outlook = "⏳ Over budget in " + daysLeft + (daysLeft == 1 ? " day" : " days") + " at this rate";
+        }
+        spendForecastText.setText(String.format(Locale.getDefault(),
+                "🔥 Burn rate: %s/day (last %d days)\n📈 Projected: %s of %s\n%s",
+                Money.format(burnRate), BURN_RATE_WINDOW_DAYS, Money.format(projected), Money.format(budget), outlook));
+        spendForecastText.setVisibility(View.VISIBLE);
+        
+        Log.d(TAG, "Daily spending chart updated for " + timeline.getDayCount() + " days, projected " + Money.format(projected));
     }
-    
+
     /**
      * Update the chart's center text to show category total when a filter is active
      */
-    private void updateChartCenterText(Map<Expense.Category, Double> categoryTotals) {
+    private void updateChartCenterText(BudgetViewModel.ExpenseSnapshot snapshot) {
         try {
             if (pieChart == null) return;
             
-            Expense.Category activeFilter = getCurrentActiveFilter();
+            Expense.Category activeFilter = snapshot.getFilter();
             
             if (activeFilter == null) {
                 // No filter active - show default breakdown text
                 pieChart.setCenterText("💰\nExpense\nBreakdown");
             } else {
                 // Specific category filter active - show that category's total
-                double categoryTotal = categoryTotals.getOrDefault(activeFilter, 0.0);
+                long categoryTotal = currentTotals().getCategorySpent(activeFilter);
                 String categoryEmoji = activeFilter.getEmoji();
                 String categoryName = activeFilter.getDisplayName();
-                String formattedAmount = String.format(Locale.getDefault(), "RM%.2f", categoryTotal);
+                String formattedAmount = Money.format(categoryTotal);
                 
                 // Create multi-line center text showing category and total
                 String centerText = String.format("%s\n%s\n%s", categoryEmoji, categoryName, formattedAmount);
@@ -716,7 +859,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                     
                     if (validateInput(title, amountStr)) {
             try {
-                double amount = Double.parseDouble(amountStr);
+                long amount = Money.parse(amountStr);
                 if (amount <= 0) {
                                 showErrorToast("Amount must be greater than 0");
                     return;
@@ -739,6 +882,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                                     tripExpenses.put(selectedTrip.getId(), tripExpenseList);
                                 }
                                 tripExpenseList.add(newExpense);
+                                budgetViewModel.expenseAdded(selectedTrip.getId(), newExpense);
                                 
                                 // Update the current expenses list to match the selected trip
                                 expenses = tripExpenseList;
@@ -752,13 +896,13 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                             // Save data to persistence
                             saveBudgetData();
                             
-                            Log.d(TAG, "Added expense: " + newExpense.getTitle() + " - RM" + newExpense.getAmount());
+                            Log.d(TAG, "Added expense: " + newExpense.getTitle() + " - " + newExpense.getFormattedAmount());
                             Log.d(TAG, "Total expenses now: " + expenses.size());
                             
                             // Update adapter with the correct expense list
                             if (expenseAdapter != null) {
-                                expenseAdapter.updateExpenses(expenses);
-                                Log.d(TAG, "Updated adapter with " + expenses.size() + " expenses");
+                                submitExpenses();
+                                Log.d(TAG, "Submitted " + expenses.size() + " expenses");
                             }
                 updateBudgetDisplay();
                             updateChartData();
@@ -789,6 +933,120 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         }
     }
 
+    /**
+     * Import a bank or card statement into the selected trip: parsed off the main thread,
+     * then saved with one write and uploaded with one batched sync
+     */
+    private void importExpensesFromCsv(Uri uri) {
+        Trip trip = selectedTrip;
+        Context context = getContext();
+        if (trip == null || context == null) return;
+        
+        android.app.ProgressDialog progressDialog = new android.app.ProgressDialog(context);
+        progressDialog.setTitle("📥 Importing Expenses");
+        progressDialog.setMessage("Reading statement...");
+        progressDialog.setCancelable(false);
+        progressDialog.show();
+        
+        new ExpenseCsvImporter(context).importFromUri(uri, trip.getId(), new ExpenseCsvImporter.OnImportListener() {
+            @Override
+            public void onProgressUpdate(int rowsRead) {
+                progressDialog.setMessage("📄 Read " + rowsRead + " rows...");
+            }
+            
+            @Override
+            public void onSuccess(ExpenseCsvImporter.ImportResult result) {
+                progressDialog.dismiss();
+                if (!isAdded()) return;
+                
+                addImportedExpenses(trip, result.getExpenses());
+                
+                StringBuilder message = new StringBuilder()
+                        .append("💰 Imported: ").append(result.getExpenses().size())
+                        .append("\n⏭️ Skipped: ").append(result.getSkippedCount());
+                for (String problem : result.getProblems()) {
+                    message.append("\n• ").append(problem);
+                }
+                new AlertDialog.Builder(requireContext())
+                        .setTitle(result.getExpenses().isEmpty() ? "⚠️ Nothing Imported" : "✅ Import Complete")
+                        .setMessage(message.toString())
+                        .setPositiveButton("OK", null)
+                        .show();
+            }
+            
+            @Override
+            public void onError(String error) {
+                progressDialog.dismiss();
+                if (!isAdded()) return;
+                new AlertDialog.Builder(requireContext())
+                        .setTitle("❌ Import Failed")
+                        .setMessage(error)
+                        .setPositiveButton("OK", null)
+                        .show();
+            }
+        });
+    }
+    
+    private void addImportedExpenses(Trip trip, List<Expense> imported) {
+        if (imported.isEmpty()) return;
+        
+        List<Expense> tripExpenseList = tripExpenses.get(trip.getId());
+        if (tripExpenseList == null) {
+            tripExpenseList = new ArrayList<>();
+            tripExpenses.put(trip.getId(), tripExpenseList);
+        }
+        tripExpenseList.addAll(imported);
+        budgetViewModel.resetTrip(trip.getId(), tripExpenseList);
+        if (selectedTrip != null && selectedTrip.getId() == trip.getId()) {
+            expenses = tripExpenseList;
+        }
+        
+        // One write for the whole statement instead of one per expense
+        saveBudgetData();
+        
+        submitExpenses();
+        updateBudgetDisplay();
+        updateChartData();
+        updateEmptyState();
+        
+        syncImportedExpenses(trip, imported);
+        Log.d(TAG, "Imported " + imported.size() + " expenses into trip " + trip.getTitle());
+    }
+    
+    private void syncImportedExpenses(Trip trip, List<Expense> imported) {
+        if (budgetRepository == null || userManager == null || !userManager.isLoggedIn()) {
+            return;
+        }
+        
+        String userEmail = userManager.getUserEmail();
+        if (userEmail == null || userEmail.trim().isEmpty()) {
+            Log.w(TAG, "User email not available for Firebase sync");
+            return;
+        }
+        
+        Context appContext = requireContext().getApplicationContext();
+        if (trip.getFirebaseId() == null || trip.getFirebaseId().isEmpty()) {
+            // The trip is uploaded first by the next sync, which then picks up its unsynced expenses
+            SyncScheduler.requestCatchUpSync(appContext);
+            return;
+        }
+        
+        budgetRepository.syncTripBudgetBatch(trip.getId(), trip.getFirebaseId(), null, imported, false, userEmail,
+                new BudgetRepository.OnBudgetBatchSyncListener() {
+            @Override
+            public void onSuccess(int entriesSynced) {
+                Log.d(TAG, "✅ Synced " + entriesSynced + " imported expenses");
+            }
+            
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "⚠️ Imported expenses not synced, retrying later: " + error);
+                // Still marked unsynced, so the catch-up sync uploads them
+                SyncScheduler.requestCatchUpSync(appContext);
+            }
+        });
+    }
+
     private boolean validateInput(String title, String amount) {
         if (title.isEmpty()) {
             showErrorToast("Please enter expense title");
@@ -992,7 +1250,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             
             EditText amountInput = new EditText(context);
             amountInput.setHint("Enter amount");
-            amountInput.setText(String.valueOf(expense.getAmount())); // Pre-fill with current amount
+            amountInput.setText(Money.toPlainString(expense.getAmountMinor())); // Pre-fill with current amount
             amountInput.setInputType(android.text.InputType.TYPE_CLASS_NUMBER | android.text.InputType.TYPE_NUMBER_FLAG_DECIMAL);
             layout.addView(amountInput);
             
@@ -1076,33 +1334,30 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                     String note = noteInput.getText().toString().trim();
                     
                     if (validateInput(title, amountStr)) {
-                        double amount = Double.parseDouble(amountStr);
+                        long amount = Money.parse(amountStr);
                         Expense.Category category = (Expense.Category) categorySpinner.getSelectedItem();
                         
-                        // Update the expense with new values
-                        expense.setTitle(title);
-                        expense.setAmount(amount);
-                        expense.setCategory(category);
-                        expense.setNote(note.isEmpty() ? null : note);
-                        expense.setTimestamp(selectedTimestamp[0]);
-                        
-                        // Update in the adapter
-                        if (expenseAdapter != null) {
-                            expenseAdapter.updateExpense(expense);
-                        }
+                        // Edit a copy so the list still holds the old values to diff against
+                        Expense edited = new Expense(expense);
+                        edited.setTitle(title);
+                        edited.setAmountMinor(amount);
+                        edited.setCategory(category);
+                        edited.setNote(note.isEmpty() ? null : note);
+                        edited.setTimestamp(selectedTimestamp[0]);
+                        edited.setSynced(false); // Mark dirty so the next batch sync uploads it
+                        replaceExpense(expense, edited);
                         
                         // Save the data
                         saveBudgetData();
                         
                         // For logged-in users, sync updated expense to Firebase
                         if (userManager != null && userManager.isLoggedIn() && selectedTrip != null) {
-                            expense.setTripId(selectedTrip.getId()); // Ensure tripId is set
-                            syncExpenseToFirebase(expense);
+                            edited.setTripId(selectedTrip.getId()); // Ensure tripId is set
+                            syncExpenseToFirebase(edited);
                         }
                         
-                        // Update UI
-                        updateBudgetDisplay();
-                        updateChartData();
+                        // Update UI once the filtered snapshot arrives
+                        submitExpenses();
                         
                         showEditSuccessAnimationSafe();
                     }
@@ -1225,24 +1480,29 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                         }
                         
                         // Remove from current expenses list
-                        expenses.remove(expense);
+                        boolean removed = expenses.remove(expense);
                         
                         // Also remove from the specific trip's expense list
                         if (selectedTrip != null) {
                             List<Expense> tripExpenseList = tripExpenses.get(selectedTrip.getId());
                             if (tripExpenseList != null) {
-                                tripExpenseList.remove(expense);
+                                removed |= tripExpenseList.remove(expense);
+                            }
+                            if (removed) {
+                                budgetViewModel.expenseRemoved(selectedTrip.getId(), expense);
                             }
                         } else {
                             // If "All Trips" is selected, find and remove from the correct trip's list
-                            for (List<Expense> tripExpenseList : tripExpenses.values()) {
-                                tripExpenseList.remove(expense);
+                            for (int i = 0; i < tripExpenses.size(); i++) {
+                                if (tripExpenses.valueAt(i).remove(expense)) {
+                                    budgetViewModel.expenseRemoved(tripExpenses.keyAt(i), expense);
+                                }
                             }
                         }
                         
                         // Update adapter with the updated list
                         if (expenseAdapter != null) {
-                            expenseAdapter.updateExpenses(expenses);
+                            submitExpenses();
                         }
                         
                         // Save data to persistence
@@ -1297,15 +1557,15 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             
             if (selectedTrip == null) {
                 // "All Trips" selected - make budget read-only and show sum of all trip budgets
-                double calculatedTotal = calculateTotalBudgetAllTrips();
-                budgetInput.setText(String.format("%.0f (Sum of all trip budgets)", calculatedTotal));
+                long calculatedTotal = calculateTotalBudgetAllTrips();
+                budgetInput.setText(String.format("%.0f (Sum of all trip budgets)", Money.toMajor(calculatedTotal)));
                 budgetInput.setEnabled(false); // Make it read-only
                 budgetInput.setTextColor(ContextCompat.getColor(context, R.color.text_secondary));
                 budgetInput.setBackgroundColor(ContextCompat.getColor(context, R.color.background_light));
             } else {
                 // Specific trip selected - allow editing
                 budgetInput.setHint("Enter your budget (e.g., 2000)");
-                budgetInput.setText(String.valueOf((int)totalBudget));
+                budgetInput.setText(Money.toPlainString(totalBudget));
                 budgetInput.setInputType(android.text.InputType.TYPE_CLASS_NUMBER | android.text.InputType.TYPE_NUMBER_FLAG_DECIMAL);
             }
             
@@ -1333,7 +1593,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                     if (isChecked) {
                         // Check if there are existing expenses
                         boolean hasExistingExpenses = expenses != null && !expenses.isEmpty() && 
-                            expenses.stream().anyMatch(expense -> expense.getAmount() > 0);
+                            expenses.stream().anyMatch(expense -> expense.getAmountMinor() > 0);
                         
                         if (hasExistingExpenses) {
                             // Show immediate strong warning
@@ -1401,10 +1661,11 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                     // Only allow budget editing for specific trips
                     String budgetStr = budgetInput.getText().toString().trim();
                     if (!budgetStr.isEmpty()) {
-                        totalBudget = Double.parseDouble(budgetStr);
+                        totalBudget = Money.parse(budgetStr);
                         
                         // Save the budget to that trip's budget map
                         tripBudgets.put(selectedTrip.getId(), totalBudget);
+                        budgetViewModel.setTripBudget(selectedTrip.getId(), totalBudget);
                         
                         // Always save the budget first
                         saveBudgetData();
@@ -1424,7 +1685,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                         updateBudgetDisplay();
                         updateChartData();
                         updateEmptyState();
-                                showErrorToast("Budget set to RM" + String.format("%.0f", totalBudget) + " with default categories");
+                                showErrorToast("Budget set to " + Money.format(totalBudget) + " with default categories");
                             });
                         } else {
                             // Either "All Trips" is selected OR user didn't check default categories
@@ -1433,7 +1694,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                             updateEmptyState();
                             
                             // Specific trip budget updated without default categories
-                            showErrorToast("Budget set to RM" + String.format("%.0f", totalBudget) + " for " + selectedTrip.getTitle());
+                            showErrorToast("Budget set to " + Money.format(totalBudget) + " for " + selectedTrip.getTitle());
                         }
                     }
                 } catch (NumberFormatException e) {
@@ -1458,16 +1719,19 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             expenses.clear(); // Clear any existing expenses
             
             // Add default categories with RM 0
-            expenses.add(new Expense("Food & Dining", 0.0, Expense.Category.FOOD));
-            expenses.add(new Expense("Transportation", 0.0, Expense.Category.TRANSPORT));
-            expenses.add(new Expense("Accommodation", 0.0, Expense.Category.HOTEL));
-            expenses.add(new Expense("Activities & Tours", 0.0, Expense.Category.ACTIVITIES));
-            expenses.add(new Expense("Shopping", 0.0, Expense.Category.SHOPPING));
-            expenses.add(new Expense("Miscellaneous", 0.0, Expense.Category.OTHER));
+            expenses.add(new Expense("Food & Dining", 0, Expense.Category.FOOD));
+            expenses.add(new Expense("Transportation", 0, Expense.Category.TRANSPORT));
+            expenses.add(new Expense("Accommodation", 0, Expense.Category.HOTEL));
+            expenses.add(new Expense("Activities & Tours", 0, Expense.Category.ACTIVITIES));
+            expenses.add(new Expense("Shopping", 0, Expense.Category.SHOPPING));
+            expenses.add(new Expense("Miscellaneous", 0, Expense.Category.OTHER));
+            if (selectedTrip != null && budgetViewModel != null) {
+                budgetViewModel.resetTrip(selectedTrip.getId(), expenses);
+            }
             
             // Update adapter
             if (expenseAdapter != null) {
-                expenseAdapter.updateExpenses(expenses);
+                submitExpenses();
             }
             
         } catch (Exception e) {
@@ -1491,7 +1755,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         try {
             // Check if there are existing expenses
             boolean hasExistingExpenses = expenses != null && !expenses.isEmpty() && 
-                expenses.stream().anyMatch(expense -> expense.getAmount() > 0);
+                expenses.stream().anyMatch(expense -> expense.getAmountMinor() > 0);
             
             if (!hasExistingExpenses) {
                 // No existing expenses, proceed without warning
@@ -1559,17 +1823,22 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                                 
                                 // Initialize budgets and expenses for each trip
                                 for (Trip trip : userTrips) {
+                                    // Dates first, so resetTotals builds the trip's daily spending
+                                    budgetViewModel.setTripDates(trip.getId(), trip.getStartDate(), trip.getEndDate());
+                                    
                                     // Set default budget if not already set
-                                    if (!tripBudgets.containsKey(trip.getId())) {
-                                        tripBudgets.put(trip.getId(), 2000.0); // Default RM 2000
+                                    if (tripBudgets.indexOfKey(trip.getId()) < 0) {
+                                        tripBudgets.put(trip.getId(), Money.DEFAULT_TRIP_BUDGET);
                                     }
                                     
                                     // Initialize empty expense list if not already set
-                                    if (!tripExpenses.containsKey(trip.getId())) {
+                                    if (tripExpenses.indexOfKey(trip.getId()) < 0) {
                                         tripExpenses.put(trip.getId(), new ArrayList<>());
                                     }
                                 }
                                 
+                                resetTotals();
+                                
                                 // CRITICAL FIX: Clean up budget data for deleted trips
                                 cleanupDeletedTripsData(userTrips);
                                 
@@ -1587,8 +1856,8 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                                 
                                 // Ensure adapter is updated with current expenses and filter is reset
                                 if (expenseAdapter != null) {
-                                    expenseAdapter.updateExpenses(expenses);
-                                    expenseAdapter.clearFilter();
+                                    submitExpenses();
+                                    budgetViewModel.setFilter(null);
                                     
                                     // Initialize default filter after UI is ready
                                     if (chipGroupCategories != null) {
@@ -1642,35 +1911,31 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             }
             Log.d(TAG, "Current trips in database: " + currentTripIds);
             
-            // Find orphaned budget data (trip IDs in SharedPreferences but not in database)
-            Set<Integer> budgetTripIds = new HashSet<>(tripBudgets.keySet());
-            Set<Integer> expenseTripIds = new HashSet<>(tripExpenses.keySet());
-            
-            Log.d(TAG, "Budget data exists for trips: " + budgetTripIds);
-            Log.d(TAG, "Expense data exists for trips: " + expenseTripIds);
+            Log.d(TAG, "Budget data exists for " + tripBudgets.size() + " trips, expense data for " +
+                tripExpenses.size() + " trips");
             
             boolean dataChanged = false;
             
-            // Remove budget data for deleted trips
-            Iterator<Integer> budgetIterator = tripBudgets.keySet().iterator();
-            while (budgetIterator.hasNext()) {
-                Integer tripId = budgetIterator.next();
+            // Remove budget data for deleted trips (walking backwards so removeAt keeps indices valid)
+            for (int i = tripBudgets.size() - 1; i >= 0; i--) {
+                int tripId = tripBudgets.keyAt(i);
                 if (!currentTripIds.contains(tripId)) {
                     Log.d(TAG, "Removing orphaned budget data for deleted trip ID: " + tripId);
-                    budgetIterator.remove();
+                    tripBudgets.removeAt(i);
+                    budgetViewModel.removeTrip(tripId);
                     dataChanged = true;
                 }
             }
             
             // Remove expense data for deleted trips
-            Iterator<Integer> expenseIterator = tripExpenses.keySet().iterator();
-            while (expenseIterator.hasNext()) {
-                Integer tripId = expenseIterator.next();
+            for (int i = tripExpenses.size() - 1; i >= 0; i--) {
+                int tripId = tripExpenses.keyAt(i);
                 if (!currentTripIds.contains(tripId)) {
-                    List<Expense> orphanedExpenses = tripExpenses.get(tripId);
+                    List<Expense> orphanedExpenses = tripExpenses.valueAt(i);
                     Log.d(TAG, "Removing orphaned expense data for deleted trip ID: " + tripId + 
                         " (had " + (orphanedExpenses != null ? orphanedExpenses.size() : 0) + " expenses)");
-                    expenseIterator.remove();
+                    tripExpenses.removeAt(i);
+                    budgetViewModel.removeTrip(tripId);
                     dataChanged = true;
                 }
             }
@@ -1695,11 +1960,11 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                     expenses = getAllExpenses();
                 } else {
                     // Viewing specific trip, get that trip's data
-                    totalBudget = tripBudgets.getOrDefault(selectedTrip.getId(), 2000.0);
-                    expenses = tripExpenses.getOrDefault(selectedTrip.getId(), new ArrayList<>());
+                    totalBudget = tripBudgets.get(selectedTrip.getId(), Money.DEFAULT_TRIP_BUDGET);
+                    expenses = tripExpenses.get(selectedTrip.getId(), new ArrayList<>());
                 }
                 
-                Log.d(TAG, "After cleanup - Budget: RM" + totalBudget + ", Expenses: " + expenses.size());
+                Log.d(TAG, "After cleanup - Budget: " + Money.format(totalBudget) + ", Expenses: " + expenses.size());
             } else {
                 Log.d(TAG, "No orphaned data found, no cleanup needed");
             }
@@ -1728,8 +1993,8 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             
             for (Trip trip : availableTrips) {
                 String budgetInfo = "";
-                if (tripBudgets.containsKey(trip.getId())) {
-                    budgetInfo = String.format(" (RM%.0f)", tripBudgets.get(trip.getId()));
+                if (tripBudgets.indexOfKey(trip.getId()) >= 0) {
+                    budgetInfo = String.format(" (RM%.0f)", Money.toMajor(tripBudgets.get(trip.getId())));
                 }
                 tripOptions.add(trip.getTitle() + budgetInfo);
             }
@@ -1756,7 +2021,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                         Trip trip = availableTrips.get(which - 1);
                         selectedTrip = trip;
                         selectedTripText.setText(trip.getTitle());
-                        totalBudget = tripBudgets.getOrDefault(trip.getId(), 2000.0);
+                        totalBudget = tripBudgets.get(trip.getId(), Money.DEFAULT_TRIP_BUDGET);
                         
                         // Get or create expense list for this trip
                         List<Expense> tripExpenseList = tripExpenses.get(trip.getId());
@@ -1772,9 +2037,9 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                     
                     // Update UI
                     if (expenseAdapter != null) {
-                        expenseAdapter.updateExpenses(expenses);
+                        submitExpenses();
                         // Reset filter to "All" when switching trips
-                        expenseAdapter.clearFilter();
+                        budgetViewModel.setFilter(null);
                         initializeDefaultFilter();
                     }
                     updateBudgetDisplay();
@@ -1805,18 +2070,15 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         }
     }
     
-    private double calculateTotalBudgetAllTrips() {
-        double total = 0.0;
-        for (Double budget : tripBudgets.values()) {
-            total += budget;
-        }
-        return total;
+    private long calculateTotalBudgetAllTrips() {
+        // Kept as a running sum by the view model
+        return budgetViewModel != null ? budgetViewModel.getTotalBudgetAllTrips() : 0;
     }
     
     private List<Expense> getAllExpenses() {
         List<Expense> allExpenses = new ArrayList<>();
-        for (List<Expense> tripExpenseList : tripExpenses.values()) {
-            allExpenses.addAll(tripExpenseList);
+        for (int i = 0; i < tripExpenses.size(); i++) {
+            allExpenses.addAll(tripExpenses.valueAt(i));
         }
         return allExpenses;
     }
@@ -1881,8 +2143,12 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             Log.d(TAG, "Before deletion - Trip expenses: " + tripExpenses.size());
             
             // Remove budget and expenses for deleted trip
-            Double removedBudget = tripBudgets.remove(tripId);
-            List<Expense> removedExpenses = tripExpenses.remove(tripId);
+            int budgetIndex = tripBudgets.indexOfKey(tripId);
+            String removedBudget = budgetIndex >= 0 ? Money.format(tripBudgets.valueAt(budgetIndex)) : null;
+            tripBudgets.delete(tripId);
+            List<Expense> removedExpenses = tripExpenses.get(tripId);
+            tripExpenses.remove(tripId);
+            budgetViewModel.removeTrip(tripId);
             
             Log.d(TAG, "Removed budget: " + removedBudget);
             Log.d(TAG, "Removed expenses count: " + (removedExpenses != null ? removedExpenses.size() : 0));
@@ -1898,13 +2164,13 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                 totalBudget = calculateTotalBudgetAllTrips();
                 expenses = getAllExpenses();
                 
-                Log.d(TAG, "New total budget: " + totalBudget);
+                Log.d(TAG, "New total budget: " + Money.format(totalBudget));
                 Log.d(TAG, "New expenses count: " + expenses.size());
                 
                 if (expenseAdapter != null) {
-                    expenseAdapter.updateExpenses(expenses);
+                    submitExpenses();
                     // Reset filter to "All" when trip is deleted
-                    expenseAdapter.clearFilter();
+                    budgetViewModel.setFilter(null);
                     initializeDefaultFilter();
                 }
             } else {
@@ -1916,8 +2182,8 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                     totalBudget = calculateTotalBudgetAllTrips();
                     
                     if (expenseAdapter != null) {
-                        expenseAdapter.updateExpenses(expenses);
-                        expenseAdapter.clearFilter();
+                        submitExpenses();
+                        budgetViewModel.setFilter(null);
                         initializeDefaultFilter();
                     }
                 }
@@ -1962,20 +2228,24 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             loadLocalBudgetData();
             Log.d(TAG, "Loaded budget data for guest user from local storage");
         }
+        resetTotals();
     }
     
     private void loadLocalBudgetData() {
         try {
             if (budgetRepository == null) {
-                Log.w(TAG, "BudgetRepository is null, using legacy method");
-                loadSavedBudgetDataLegacy();
+                Log.w(TAG, "BudgetRepository is null, cannot load budget data");
                 return;
             }
             
             BudgetRepository.BudgetData data = budgetRepository.loadBudgetDataLocally();
             
-            tripBudgets.putAll(data.tripBudgets);
-            tripExpenses.putAll(data.tripExpenses);
+            for (int i = 0; i < data.tripBudgets.size(); i++) {
+                tripBudgets.put(data.tripBudgets.keyAt(i), data.tripBudgets.valueAt(i));
+            }
+            for (int i = 0; i < data.tripExpenses.size(); i++) {
+                tripExpenses.put(data.tripExpenses.keyAt(i), data.tripExpenses.valueAt(i));
+            }
             totalBudget = data.totalBudget;
             
             Log.d(TAG, "Loaded budget data using BudgetRepository: " + tripBudgets.size() + " trip budgets, " + 
@@ -1983,54 +2253,13 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             
         } catch (Exception e) {
             Log.e(TAG, "Error loading budget data", e);
-            loadSavedBudgetDataLegacy(); // Fallback to legacy method
-        }
-    }
-    
-    private void loadSavedBudgetDataLegacy() {
-        try {
-            if (sharedPreferences == null || gson == null) return;
-            
-            // Load trip budgets
-            String budgetsJson = sharedPreferences.getString("trip_budgets", "{}");
-            Type budgetType = new TypeToken<Map<Integer, Double>>(){}.getType();
-            Map<Integer, Double> savedBudgets = gson.fromJson(budgetsJson, budgetType);
-            if (savedBudgets != null) {
-                tripBudgets.putAll(savedBudgets);
-            }
-            
-            // Load trip expenses
-            String expensesJson = sharedPreferences.getString("trip_expenses", "{}");
-            Type expenseType = new TypeToken<Map<Integer, List<Expense>>>(){}.getType();
-            Map<Integer, List<Expense>> savedExpenses = gson.fromJson(expensesJson, expenseType);
-            if (savedExpenses != null) {
-                tripExpenses.putAll(savedExpenses);
-            }
-            
-            // Load selected trip ID
-            int selectedTripId = sharedPreferences.getInt("selected_trip_id", -1);
-            if (selectedTripId != -1) {
-                // Will be set properly when trips are loaded
-                Log.d(TAG, "Saved selected trip ID: " + selectedTripId);
-            }
-            
-            // Load total budget
-            totalBudget = Double.longBitsToDouble(sharedPreferences.getLong("total_budget", 
-                Double.doubleToLongBits(2000.0)));
-            
-            Log.d(TAG, "Loaded budget data (legacy): " + tripBudgets.size() + " trip budgets, " + 
-                  tripExpenses.size() + " trip expenses");
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading saved budget data (legacy)", e);
         }
     }
     
     private void saveBudgetData() {
         try {
             if (budgetRepository == null) {
-                Log.w(TAG, "BudgetRepository is null, using legacy save method");
-                saveBudgetDataLegacy();
+                Log.w(TAG, "BudgetRepository is null, cannot save budget data");
                 return;
             }
             
@@ -2041,40 +2270,6 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             
         } catch (Exception e) {
             Log.e(TAG, "Error saving budget data", e);
-            saveBudgetDataLegacy(); // Fallback to legacy method
-        }
-    }
-    
-    private void saveBudgetDataLegacy() {
-        try {
-            if (sharedPreferences == null || gson == null) return;
-            
-            SharedPreferences.Editor editor = sharedPreferences.edit();
-            
-            // Save trip budgets
-            String budgetsJson = gson.toJson(tripBudgets);
-            editor.putString("trip_budgets", budgetsJson);
-            
-            // Save trip expenses
-            String expensesJson = gson.toJson(tripExpenses);
-            editor.putString("trip_expenses", expensesJson);
-            
-            // Save selected trip ID
-            if (selectedTrip != null) {
-                editor.putInt("selected_trip_id", selectedTrip.getId());
-            } else {
-                editor.putInt("selected_trip_id", -1);
-            }
-            
-            // Save total budget
-            editor.putLong("total_budget", Double.doubleToLongBits(totalBudget));
-            
-            editor.apply();
-            
-            Log.d(TAG, "Saved budget data successfully (legacy)");
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving budget data (legacy)", e);
         }
     }
     
@@ -2094,7 +2289,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                 for (Trip trip : availableTrips) {
                     if (trip.getId() == savedTripId) {
                         selectedTrip = trip;
-                        totalBudget = tripBudgets.getOrDefault(trip.getId(), 2000.0);
+                        totalBudget = tripBudgets.get(trip.getId(), Money.DEFAULT_TRIP_BUDGET);
                         
                         // Get or create expense list for this trip
                         List<Expense> tripExpenseList = tripExpenses.get(trip.getId());
@@ -2116,9 +2311,9 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             
             // Update adapter
             if (expenseAdapter != null) {
-                expenseAdapter.updateExpenses(expenses);
+                submitExpenses();
                 // Ensure filter is reset to "All" when restoring trip selection
-                expenseAdapter.clearFilter();
+                budgetViewModel.setFilter(null);
                 // Initialize default filter after a short delay to ensure UI is ready
                 if (chipGroupCategories != null) {
                     chipGroupCategories.postDelayed(() -> {
@@ -2169,7 +2364,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
         });
     }
     
-    private void syncBudgetToFirebase(int tripId, double budget) {
+    private void syncBudgetToFirebase(int tripId, long budget) {
         if (budgetRepository == null || userManager == null || !userManager.isLoggedIn()) {
             return;
         }
@@ -2180,7 +2375,7 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
             return;
         }
         
-        Log.d(TAG, "Syncing budget to Firebase for trip " + tripId + ": RM" + budget);
+        Log.d(TAG, "Syncing budget to Firebase for trip " + tripId + ": " + Money.format(budget));
         
         // Use BudgetRepository to sync the budget
         budgetRepository.syncTripBudgetToFirebase(tripId, budget, userEmail, new BudgetRepository.OnBudgetOperationListener() {
@@ -2226,8 +2421,8 @@ public class BudgetFragment extends Fragment implements ModernExpenseAdapter.OnE
                             
                             // Update adapter
                             if (expenseAdapter != null) {
-                                expenseAdapter.updateExpenses(expenses);
-                                expenseAdapter.clearFilter();
+                                submitExpenses();
+                                budgetViewModel.setFilter(null);
                                 initializeDefaultFilter();
                             }
                             
@@ -0,0 +1,132 @@
+package com.example.mobiledegreefinalproject;
+
+import com.example.mobiledegreefinalproject.database.Trip;
+import com.example.mobiledegreefinalproject.database.TripActivity;
+import com.example.mobiledegreefinalproject.model.Expense;
+import com.example.mobiledegreefinalproject.model.Money;
+import com.example.mobiledegreefinalproject.repository.BudgetRepository;
+import com.example.mobiledegreefinalproject.repository.TripRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stable content hashes for sync: one per activity, rolled up into one per trip
+ * (trip fields, activity hashes, budget and expenses) and one for the whole account.
+ * Only user-visible content is hashed - local IDs, local image paths, sync flags and
+ * timestamps are not, so the same data produces the same hash on every device.
+ */
+public final class ContentHashes {
+    private static final char SEPARATOR = '\u001f';
+    private static final String NULL_VALUE = "\u0000";
+
+    private ContentHashes() {
+    }
+
+    public static String activityHash(TripActivity activity) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, activity.getTitle());
+        append(sb, activity.getDescription());
+        append(sb, activity.getLocation());
+        append(sb, activity.getDateTime());
+        append(sb, activity.getDayNumber());
+        append(sb, activity.getTimeString());
+        append(sb, activity.getImageUrl());
+        append(sb, activity.getLatitude());
+        append(sb, activity.getLongitude());
+        return sha256(sb.toString());
+    }
+
+    public static String expenseHash(Expense expense) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, expense.getId());
+        append(sb, expense.getTitle());
+        // Hashed as ringgit so hashes match the ones computed before amounts moved to sen
+        append(sb, expense.getAmount());
+        append(sb, expense.getCategory() != null ? expense.getCategory().name() : null);
+        append(sb, expense.getTimestamp());
+        append(sb, expense.getNote());
+        return sha256(sb.toString());
+    }
+
+    /**
+     * Hash of a trip's own fields plus the hashes of everything under it.
+     * Child hashes are sorted so the result does not depend on query order.
+     */
+    public static String tripHash(Trip trip, List<TripActivity> activities, Long budget, List<Expense> expenses) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, trip.getTitle());
+        append(sb, trip.getDestination());
+        append(sb, trip.getStartDate());
+        append(sb, trip.getEndDate());
+        append(sb, trip.getMapImageUrl());
+        append(sb, trip.getLatitude());
+        append(sb, trip.getLongitude());
+        append(sb, budget != null ? Money.toMajor(budget) : null);
+
+        List<String> childHashes = new ArrayList<>();
+        for (TripActivity activity : activities) {
+            childHashes.add("a" + activityHash(activity));
+        }
+        if (expenses != null) {
+            for (Expense expense : expenses) {
+                childHashes.add("e" + expenseHash(expense));
+            }
+        }
+        Collections.sort(childHashes);
+        for (String childHash : childHashes) {
+            append(sb, childHash);
+        }
+        return sha256(sb.toString());
+    }
+
+    public static String rootHash(Collection<String> tripHashes) {
+        List<String> sorted = new ArrayList<>(tripHashes);
+        Collections.sort(sorted);
+        StringBuilder sb = new StringBuilder();
+        for (String tripHash : sorted) {
+            append(sb, tripHash);
+        }
+        return sha256(sb.toString());
+    }
+
+    /**
+     * Root hash of all local data. Reads the database, so call it off the main thread.
+     */
+    public static String computeLocalRootHash(TripRepository tripRepository, BudgetRepository budgetRepository) {
+        BudgetRepository.BudgetData budgetData = budgetRepository.loadBudgetDataLocally();
+        List<String> tripHashes = new ArrayList<>();
+        for (Trip trip : tripRepository.getAllTripsSync()) {
+            tripHashes.add(tripHash(trip,
+                    tripRepository.getActivitiesForTripSync(trip.getId()),
+                    budgetData.budgetFor(trip.getId()),
+                    budgetData.tripExpenses.get(trip.getId())));
+        }
+        return rootHash(tripHashes);
+    }
+
+    private static void append(StringBuilder sb, Object value) {
+        sb.append(value != null ? value.toString() : NULL_VALUE).append(SEPARATOR);
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required on every Android version
+            throw new IllegalStateException(e);
+        }
+    }
+}
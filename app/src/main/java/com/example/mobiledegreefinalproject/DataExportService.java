@@ -0,0 +1,467 @@
+package com.example.mobiledegreefinalproject;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.mobiledegreefinalproject.database.Trip;
+import com.example.mobiledegreefinalproject.database.TripActivity;
+import com.example.mobiledegreefinalproject.model.Expense;
+import com.example.mobiledegreefinalproject.model.Money;
+import com.example.mobiledegreefinalproject.repository.BudgetRepository;
+import com.example.mobiledegreefinalproject.repository.TripRepository;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports all trips, activities, budgets and expenses to a gzip-compressed JSON file
+ * and imports them back. Both directions stream one trip at a time through Gson's
+ * JsonWriter/JsonReader, so memory use does not grow with the number of trips.
+ *
+ * Each instance runs one transfer on its own thread, which stops once the transfer is done.
+ * Files record the account they were exported from; rows imported from any other account's
+ * file lose their Firebase IDs and synced flags so they upload as new documents.
+ */
+public class DataExportService {
+    private static final String TAG = "DataExportService";
+    private static final String FORMAT_NAME = "wanderplan-export";
+    // 2: amounts and budgets in sen (amountMinor, budgetMinor, totalBudgetMinor)
+    private static final int FORMAT_VERSION = 2;
+
+    private final TripRepository tripRepository;
+    private final BudgetRepository budgetRepository;
+    private final Context context;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+
+    public DataExportService(Context context) {
+        this.context = context.getApplicationContext();
+        this.tripRepository = TripRepository.getInstance(context);
+        this.budgetRepository = BudgetRepository.getInstance(context);
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public interface OnTransferListener {
+        void onProgressUpdate(int progress, String message);
+        void onSuccess(int trips, int activities, int expenses);
+        void onError(String error);
+    }
+
+    /**
+     * Write all local data to the given document (e.g. from ACTION_CREATE_DOCUMENT)
+     */
+    public void exportToUri(Uri uri, OnTransferListener listener) {
+        executor.execute(() -> {
+            try (OutputStream out = context.getContentResolver().openOutputStream(uri)) {
+                if (out == null) {
+                    postError(listener, "Could not open export file");
+                    return;
+                }
+                exportToStream(out, listener);
+            } catch (Exception e) {
+                Log.e(TAG, "Export failed", e);
+                postError(listener, "Export failed: " + e.getMessage());
+            } finally {
+                executor.shutdown();
+            }
+        });
+    }
+
+    /**
+     * Read an export file (e.g. from ACTION_OPEN_DOCUMENT) and add its trips locally
+     */
+    public void importFromUri(Uri uri, OnTransferListener listener) {
+        executor.execute(() -> {
+            try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    postError(listener, "Could not open import file");
+                    return;
+                }
+                importFromStream(in, listener);
+            } catch (Exception e) {
+                Log.e(TAG, "Import failed", e);
+                postError(listener, "Import failed: " + e.getMessage());
+            } finally {
+                executor.shutdown();
+            }
+        });
+    }
+
+    private void exportToStream(OutputStream out, OnTransferListener listener) throws IOException {
+        List<Trip> trips = tripRepository.getAllTripsSync();
+        BudgetRepository.BudgetData budgetData = budgetRepository.loadBudgetDataLocally();
+
+        int activityCount = 0;
+        int expenseCount = 0;
+
+        GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(out));
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+
+        writer.beginObject();
+        writer.name("format").value(FORMAT_NAME);
+        writer.name("version").value(FORMAT_VERSION);
+        writer.name("exportedAt").value(System.currentTimeMillis());
+        writer.name("account").value(currentAccount());
+        writer.name("totalBudgetMinor").value(budgetData.totalBudget);
+
+        writer.name("trips").beginArray();
+        for (int i = 0; i < trips.size(); i++) {
+            Trip trip = trips.get(i);
+            // Activities are read per trip so only one trip's rows are held at a time
+            List<TripActivity> activities = tripRepository.getActivitiesForTripSync(trip.getId());
+            List<Expense> expenses = budgetData.tripExpenses.get(trip.getId());
+
+            writeTrip(writer, trip, activities, budgetData.budgetFor(trip.getId()), expenses);
+
+            activityCount += activities.size();
+            expenseCount += expenses != null ? expenses.size() : 0;
+            postProgress(listener, 10 + (i + 1) * 85 / trips.size(),
+                    "📦 Exported trip " + (i + 1) + "/" + trips.size());
+        }
+        writer.endArray();
+        writer.endObject();
+
+        // Closing the writer finishes the gzip trailer
+        writer.close();
+
+        Log.d(TAG, "Exported " + trips.size() + " trips, " + activityCount + " activities, " +
+              expenseCount + " expenses");
+
+        final int finalActivityCount = activityCount;
+        final int finalExpenseCount = expenseCount;
+        mainHandler.post(() -> listener.onSuccess(trips.size(), finalActivityCount, finalExpenseCount));
+    }
+
+    private void writeTrip(JsonWriter writer, Trip trip, List<TripActivity> activities,
+                           Long budget, List<Expense> expenses) throws IOException {
+        writer.beginObject();
+        writer.name("firebaseId").value(trip.getFirebaseId());
+        writer.name("title").value(trip.getTitle());
+        writer.name("destination").value(trip.getDestination());
+        writer.name("startDate").value(trip.getStartDate());
+        writer.name("endDate").value(trip.getEndDate());
+        writer.name("mapImageUrl").value(trip.getMapImageUrl());
+        writer.name("latitude").value(trip.getLatitude());
+        writer.name("longitude").value(trip.getLongitude());
+        writer.name("createdAt").value(trip.getCreatedAt());
+        writer.name("updatedAt").value(trip.getUpdatedAt());
+        writer.name("synced").value(trip.isSynced());
+        if (budget != null) {
+            writer.name("budgetMinor").value(budget);
+        }
+
+        writer.name("activities").beginArray();
+        for (TripActivity activity : activities) {
+            writer.beginObject();
+            writer.name("firebaseId").value(activity.getFirebaseId());
+            writer.name("title").value(activity.getTitle());
+            writer.name("description").value(activity.getDescription());
+            writer.name("location").value(activity.getLocation());
+            writer.name("dateTime").value(activity.getDateTime());
+            writer.name("dayNumber").value(activity.getDayNumber());
+            writer.name("timeString").value(activity.getTimeString());
+            writer.name("imageUrl").value(activity.getImageUrl());
+            writer.name("imageLocalPath").value(activity.getImageLocalPath());
+            writer.name("latitude").value(activity.getLatitude());
+            writer.name("longitude").value(activity.getLongitude());
+            writer.name("createdAt").value(activity.getCreatedAt());
+            writer.name("updatedAt").value(activity.getUpdatedAt());
+            writer.name("synced").value(activity.isSynced());
+            writer.endObject();
+        }
+        writer.endArray();
+
+        writer.name("expenses").beginArray();
+        if (expenses != null) {
+            for (Expense expense : expenses) {
+                writer.beginObject();
+                writer.name("id").value(expense.getId());
+                writer.name("firebaseId").value(expense.getFirebaseId());
+                writer.name("title").value(expense.getTitle());
+                writer.name("amountMinor").value(expense.getAmountMinor());
+                writer.name("category").value(expense.getCategory().name());
+                writer.name("timestamp").value(expense.getTimestamp());
+                writer.name("note").value(expense.getNote());
+                writer.name("synced").value(expense.isSynced());
+                writer.endObject();
+            }
+        }
+        writer.endArray();
+
+        writer.endObject();
+    }
+
+    private void importFromStream(InputStream in, OnTransferListener listener) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new GZIPInputStream(new BufferedInputStream(in)), StandardCharsets.UTF_8));
+
+        BudgetRepository.BudgetData budgetData = budgetRepository.loadBudgetDataLocally();
+        int tripCount = 0;
+        int skippedTrips = 0;
+        int activityCount = 0;
+        int expenseCount = 0;
+        String exportAccount = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "format":
+                    if (!FORMAT_NAME.equals(reader.nextString())) {
+                        throw new IOException("Not a WanderPlan export file");
+                    }
+                    break;
+                case "version":
+                    int version = reader.nextInt();
+                    if (version > FORMAT_VERSION) {
+                        throw new IOException("Export file version " + version + " is not supported");
+                    }
+                    break;
+                case "account":
+                    exportAccount = nextStringOrNull(reader);
+                    break;
+                case "trips":
+                    // Written before "trips", so the account is known by now. Files without one
+                    // predate it and are treated as another account's.
+                    String account = currentAccount();
+                    boolean sameAccount = account != null && account.equalsIgnoreCase(exportAccount);
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        ImportedTrip imported = readTrip(reader);
+                        if (!sameAccount) {
+                            detachFromCloud(imported);
+                        }
+
+                        // Trips that already exist locally (same Firebase document) are not duplicated
+                        String firebaseId = imported.trip.getFirebaseId();
+                        if (firebaseId != null && !firebaseId.isEmpty()
+                                && tripRepository.getTripByFirebaseIdSync(firebaseId) != null) {
+                            skippedTrips++;
+                            continue;
+                        }
+
+                        int tripId = tripRepository.insertTripWithActivitiesSync(imported.trip, imported.activities);
+                        if (imported.budget != null) {
+                            budgetData.tripBudgets.put(tripId, imported.budget);
+                        }
+                        if (!imported.expenses.isEmpty()) {
+                            for (Expense expense : imported.expenses) {
+                                expense.setTripId(tripId);
+                            }
+                            budgetData.tripExpenses.put(tripId, imported.expenses);
+                        }
+
+                        tripCount++;
+                        activityCount += imported.activities.size();
+                        expenseCount += imported.expenses.size();
+                        postProgress(listener, Math.min(90, 10 + tripCount), "📥 Imported " + tripCount + " trips...");
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    // exportedAt, totalBudget and unknown fields from newer versions
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        reader.close();
+
+        budgetRepository.saveBudgetDataLocally(budgetData.tripBudgets, budgetData.tripExpenses,
+                budgetData.selectedTripId, budgetData.totalBudget);
+
+        Log.d(TAG, "Imported " + tripCount + " trips (" + skippedTrips + " already present), " +
+              activityCount + " activities, " + expenseCount + " expenses");
+
+        final int finalTripCount = tripCount;
+        final int finalActivityCount = activityCount;
+        final int finalExpenseCount = expenseCount;
+        mainHandler.post(() -> listener.onSuccess(finalTripCount, finalActivityCount, finalExpenseCount));
+    }
+
+    private static class ImportedTrip {
+        final Trip trip = new Trip();
+        final List<TripActivity> activities = new ArrayList<>();
+        final List<Expense> expenses = new ArrayList<>();
+        Long budget;
+    }
+
+    /**
+     * Drop the Firebase IDs and synced flags of rows that belong to another account's cloud data,
+     * so the next sync uploads them as new documents instead of skipping or overwriting them
+     */
+    private static void detachFromCloud(ImportedTrip imported) {
+        imported.trip.setFirebaseId(null);
+        imported.trip.setSynced(false);
+        for (TripActivity activity : imported.activities) {
+            activity.setFirebaseId(null);
+            activity.setSynced(false);
+        }
+        for (Expense expense : imported.expenses) {
+            expense.setFirebaseId(null);
+            expense.setSynced(false);
+        }
+    }
+
+    /**
+     * Email of the signed-in account, or null for guests and signed-out users
+     */
+    private String currentAccount() {
+        UserManager userManager = UserManager.getInstance(context);
+        if (!userManager.isLoggedIn()) {
+            return null;
+        }
+        String email = userManager.getUserEmail();
+        return email != null && !email.isEmpty() ? email : null;
+    }
+
+    private ImportedTrip readTrip(JsonReader reader) throws IOException {
+        ImportedTrip imported = new ImportedTrip();
+        Trip trip = imported.trip;
+        long updatedAt = trip.getUpdatedAt();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "firebaseId": trip.setFirebaseId(nextStringOrNull(reader)); break;
+                case "title": trip.setTitle(nextStringOrNull(reader)); break;
+                case "destination": trip.setDestination(nextStringOrNull(reader)); break;
+                case "startDate": trip.setStartDate(reader.nextLong()); break;
+                case "endDate": trip.setEndDate(reader.nextLong()); break;
+                case "mapImageUrl": trip.setMapImageUrl(nextStringOrNull(reader)); break;
+                case "latitude": trip.setLatitude(reader.nextDouble()); break;
+                case "longitude": trip.setLongitude(reader.nextDouble()); break;
+                case "createdAt": trip.setCreatedAt(reader.nextLong()); break;
+                case "updatedAt": updatedAt = reader.nextLong(); break;
+                case "synced": trip.setSynced(reader.nextBoolean()); break;
+                case "budgetMinor": imported.budget = reader.nextLong(); break;
+                // Version 1 files
+                case "budget": imported.budget = Money.fromMajor(reader.nextDouble()); break;
+                case "activities":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        imported.activities.add(readActivity(reader));
+                    }
+                    reader.endArray();
+                    break;
+                case "expenses":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        imported.expenses.add(readExpense(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // The setters above bump updatedAt, so restore the exported value last
+        trip.setUpdatedAt(updatedAt);
+        return imported;
+    }
+
+    private TripActivity readActivity(JsonReader reader) throws IOException {
+        TripActivity activity = new TripActivity();
+        long updatedAt = activity.getUpdatedAt();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "firebaseId": activity.setFirebaseId(nextStringOrNull(reader)); break;
+                case "title": activity.setTitle(nextStringOrNull(reader)); break;
+                case "description": activity.setDescription(nextStringOrNull(reader)); break;
+                case "location": activity.setLocation(nextStringOrNull(reader)); break;
+                case "dateTime": activity.setDateTime(reader.nextLong()); break;
+                case "dayNumber": activity.setDayNumber(reader.nextInt()); break;
+                case "timeString": activity.setTimeString(nextStringOrNull(reader)); break;
+                case "imageUrl": activity.setImageUrl(nextStringOrNull(reader)); break;
+                case "imageLocalPath": activity.setImageLocalPath(nextStringOrNull(reader)); break;
+                case "latitude": activity.setLatitude(reader.nextDouble()); break;
+                case "longitude": activity.setLongitude(reader.nextDouble()); break;
+                case "createdAt": activity.setCreatedAt(reader.nextLong()); break;
+                case "updatedAt": updatedAt = reader.nextLong(); break;
+                case "synced": activity.setSynced(reader.nextBoolean()); break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        activity.setUpdatedAt(updatedAt);
+        return activity;
+    }
+
+    private Expense readExpense(JsonReader reader) throws IOException {
+        Expense expense = new Expense();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "id": expense.setId(nextStringOrNull(reader)); break;
+                case "firebaseId": expense.setFirebaseId(nextStringOrNull(reader)); break;
+                case "title": expense.setTitle(nextStringOrNull(reader)); break;
+                case "amountMinor": expense.setAmountMinor(reader.nextLong()); break;
+                // Version 1 files
+                case "amount": expense.setAmountMinor(Money.fromMajor(reader.nextDouble())); break;
+                case "category":
+                    try {
+                        expense.setCategory(Expense.Category.valueOf(reader.nextString()));
+                    } catch (IllegalArgumentException e) {
+                        expense.setCategory(Expense.Category.OTHER);
+                    }
+                    break;
+                case "timestamp": expense.setTimestamp(reader.nextLong()); break;
+                case "note": expense.setNote(nextStringOrNull(reader)); break;
+                case "synced": expense.setSynced(reader.nextBoolean()); break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return expense;
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private void postProgress(OnTransferListener listener, int progress, String message) {
+        mainHandler.post(() -> listener.onProgressUpdate(progress, message));
+    }
+
+    private void postError(OnTransferListener listener, String error) {
+        mainHandler.post(() -> listener.onError(error));
+    }
+}
@@ -5,16 +5,23 @@ import android.util.Log;
 
 import com.example.mobiledegreefinalproject.database.Trip;
 import com.example.mobiledegreefinalproject.database.TripActivity;
+import com.example.mobiledegreefinalproject.repository.BudgetRepository;
 import com.example.mobiledegreefinalproject.repository.TripRepository;
+import com.example.mobiledegreefinalproject.remote.FirestoreRemoteStore;
+import com.example.mobiledegreefinalproject.remote.PagedReader;
+import com.example.mobiledegreefinalproject.remote.RemoteDocument;
+import com.example.mobiledegreefinalproject.remote.RemoteStore;
+import com.example.mobiledegreefinalproject.remote.TripActivityCodec;
+import com.example.mobiledegreefinalproject.remote.TripCodec;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Service to retrieve JSON data from Firebase and restore it to local database
@@ -22,21 +29,29 @@ import java.util.concurrent.Executors;
  */
 public class DataRetrievalService {
     private static final String TAG = "DataRetrievalService";
+    private static final String COLLECTION_USERS = "users";
     private static final String COLLECTION_USER_DATA = "user_data_json";
     private static final String COLLECTION_TRIPS = "trips_json";
+    private static final int PAGE_SIZE = 25;
     
     private final Context context;
     private final TripRepository tripRepository;
-    private final FirebaseFirestore firestore;
+    private final BudgetRepository budgetRepository;
+    private final RemoteStore remoteStore;
     private final FirebaseAuth auth;
     private final ExecutorService executor;
     
     public DataRetrievalService(Context context) {
+        this(context, new FirestoreRemoteStore());
+    }
+    
+    public DataRetrievalService(Context context, RemoteStore remoteStore) {
         this.context = context;
         this.tripRepository = TripRepository.getInstance(context);
-        this.firestore = FirebaseFirestore.getInstance();
+        this.budgetRepository = BudgetRepository.getInstance(context);
+        this.remoteStore = remoteStore;
         this.auth = FirebaseAuth.getInstance();
-        this.executor = Executors.newSingleThreadExecutor();
+        this.executor = Metrics.newFixedThreadPool("dataRetrieval", 1);
     }
     
     public interface OnRetrievalCompleteListener {
@@ -45,139 +60,225 @@ public class DataRetrievalService {
         void onError(String error);
     }
     
+    /**
+     * Wrap a retrieval listener so the whole restore is timed under sync.restore
+     */
+    private static OnRetrievalCompleteListener timedListener(OnRetrievalCompleteListener listener) {
+        long start = Metrics.start();
+        return new OnRetrievalCompleteListener() {
+            @Override
+            public void onProgressUpdate(int progress, String message) {
+                listener.onProgressUpdate(progress, message);
+            }
+            
+            @Override
+            public void onSuccess(int tripsRetrieved, int activitiesRetrieved) {
+                Metrics.recordLatency("sync.restore", start);
+                listener.onSuccess(tripsRetrieved, activitiesRetrieved);
+            }
+            
+            @Override
+            public void onError(String error) {
+                Metrics.increment("sync.restore.errors");
+                listener.onError(error);
+            }
+        };
+    }
+    
     /**
      * Retrieve all user data from Firebase JSON format and restore to local database
      */
-    public void retrieveDataFromFirebase(OnRetrievalCompleteListener listener) {
+    public void retrieveDataFromFirebase(OnRetrievalCompleteListener callerListener) {
+        OnRetrievalCompleteListener listener = timedListener(callerListener);
         if (auth.getCurrentUser() == null) {
             listener.onError("User not authenticated");
             return;
         }
         
         String userId = auth.getCurrentUser().getUid();
+        String userEmail = auth.getCurrentUser().getEmail();
         Log.d(TAG, "Starting data retrieval for user: " + userId);
         
         listener.onProgressUpdate(10, "🔍 Searching for cloud data...");
         
-        // Check if user has synced data
-        firestore.collection(COLLECTION_USER_DATA)
-                .document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (!documentSnapshot.exists()) {
-                        listener.onProgressUpdate(100, "ℹ️ No cloud data found");
-                        listener.onSuccess(0, 0);
-                        return;
+        if (userEmail == null || userEmail.trim().isEmpty()) {
+            checkCloudData(userId, listener);
+            return;
+        }
+        
+        // DataSyncService keeps the content hashes of the last sync in users/{email}
+        remoteStore.getDocument(COLLECTION_USERS + "/" + userEmail, new RemoteStore.Callback<RemoteDocument>() {
+            @Override
+            public void onSuccess(RemoteDocument summary) {
+                Object rootHashObj = summary.exists() ? summary.get("rootHash") : null;
+                if (!(rootHashObj instanceof String)) {
+                    checkCloudData(userId, listener);
+                    return;
+                }
+                
+                // Skip the download entirely when local data already matches the cloud root hash
+                executor.execute(() -> {
+                    String localRootHash = ContentHashes.computeLocalRootHash(tripRepository, budgetRepository);
+                    if (rootHashObj.equals(localRootHash)) {
+                        Log.d(TAG, "Local data matches cloud root hash, nothing to restore");
+                        listener.onProgressUpdate(100, "✅ Already up to date!");
+                        listener.onSuccess(asInt(summary.get("tripsSynced")), asInt(summary.get("activitiesSynced")));
+                    } else {
+                        checkCloudData(userId, listener);
                     }
-                    
-                    // Get sync summary
-                    Map<String, Object> summary = documentSnapshot.getData();
-                    Object tripsSyncedObj = summary.get("tripsSynced");
-                    Object activitiesSyncedObj = summary.get("activitiesSynced");
-                    
-                    int expectedTrips = tripsSyncedObj instanceof Number ? 
-                            ((Number) tripsSyncedObj).intValue() : 0;
-                    int expectedActivities = activitiesSyncedObj instanceof Number ? 
-                            ((Number) activitiesSyncedObj).intValue() : 0;
-                    
-                    listener.onProgressUpdate(20, "📊 Found " + expectedTrips + " trips in cloud");
-                    
-                    // Retrieve all trip documents
-                    retrieveTripsFromFirebase(userId, expectedTrips, expectedActivities, listener);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to check user data", e);
-                    listener.onError("Failed to access cloud data: " + e.getMessage());
                 });
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Could not read cloud content hashes, restoring without them", e);
+                checkCloudData(userId, listener);
+            }
+        });
     }
     
     /**
-     * Retrieve all trips from Firebase
+     * Read the JSON backup's summary document and restore its trips if there is one
      */
-    private void retrieveTripsFromFirebase(String userId, int expectedTrips, int expectedActivities,
-                                         OnRetrievalCompleteListener listener) {
-        firestore.collection(COLLECTION_USER_DATA)
-                .document(userId)
-                .collection(COLLECTION_TRIPS)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    executor.execute(() -> {
-                        try {
-                            List<Trip> retrievedTrips = new ArrayList<>();
-                            List<TripActivity> retrievedActivities = new ArrayList<>();
-                            
-                            listener.onProgressUpdate(30, "🔄 Converting JSON to local data...");
-                            
-                            for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                                Map<String, Object> data = doc.getData();
-                                
-                                // Convert JSON back to Trip object
-                                Trip trip = convertJsonToTrip(data);
-                                if (trip != null) {
-                                    retrievedTrips.add(trip);
-                                    
-                                    // Convert activities
-                                    Object activitiesObj = data.get("activities");
-                                    if (activitiesObj instanceof Map) {
-                                        Map<String, Object> activitiesMap = (Map<String, Object>) activitiesObj;
-                                        List<TripActivity> tripActivities = convertJsonToActivities(activitiesMap, trip.getId());
-                                        retrievedActivities.addAll(tripActivities);
-                                    }
-                                }
-                            }
-                            
-                            listener.onProgressUpdate(60, "💾 Saving to local database...");
-                            
-                            // Save to local database
-                            saveToLocalDatabase(retrievedTrips, retrievedActivities, listener);
-                            
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error processing retrieved data", e);
-                            listener.onError("Failed to process cloud data: " + e.getMessage());
-                        }
-                    });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to retrieve trips", e);
-                    listener.onError("Failed to retrieve trips from cloud: " + e.getMessage());
-                });
+    private void checkCloudData(String userId, OnRetrievalCompleteListener listener) {
+        remoteStore.getDocument(COLLECTION_USER_DATA + "/" + userId, new RemoteStore.Callback<RemoteDocument>() {
+            @Override
+            public void onSuccess(RemoteDocument documentSnapshot) {
+                if (!documentSnapshot.exists()) {
+                    listener.onProgressUpdate(100, "ℹ️ No cloud data found");
+                    listener.onSuccess(0, 0);
+                    return;
+                }
+                
+                // Get sync summary
+                int expectedTrips = asInt(documentSnapshot.get("tripsSynced"));
+                int expectedActivities = asInt(documentSnapshot.get("activitiesSynced"));
+                
+                listener.onProgressUpdate(20, "📊 Found " + expectedTrips + " trips in cloud");
+                
+                // Retrieve all trip documents
+                retrieveTripsFromFirebase(userId, expectedTrips, expectedActivities, listener);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Failed to check user data", e);
+                listener.onError("Failed to access cloud data: " + e.getMessage());
+            }
+        });
+    }
+    
+    private static int asInt(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
     }
     
     /**
-     * Convert JSON data back to Trip object
+     * Retrieve all trips from Firebase one page at a time through PagedReader. Each page is
+     * written to the local database before the next one is requested, so only PAGE_SIZE trip
+     * documents are held in memory and restored trips show up while the download continues.
      */
-    private Trip convertJsonToTrip(Map<String, Object> data) {
-        try {
-            Trip trip = new Trip();
-            
-            // Basic fields
-            if (data.get("id") instanceof Number) {
-                trip.setId(((Number) data.get("id")).intValue());
+    private void retrieveTripsFromFirebase(String userId, int expectedTrips, int expectedActivities,
+                                         OnRetrievalCompleteListener listener) {
+        listener.onProgressUpdate(30, "🔄 Downloading trips...");
+        String collectionPath = COLLECTION_USER_DATA + "/" + userId + "/" + COLLECTION_TRIPS;
+        RestoreState state = new RestoreState();
+        
+        PagedReader.readCollection(remoteStore, collectionPath, PAGE_SIZE, executor, new PagedReader.PageHandler() {
+            @Override
+            public void onPage(List<RemoteDocument> page) {
+                savePageToLocalDatabase(page, state);
+                
+                int progress = expectedTrips > 0
+                        ? Math.min(95, 30 + state.trips * 65 / expectedTrips)
+                        : 60;
+                listener.onProgressUpdate(progress, "💾 Restored " + state.trips +
+                        (expectedTrips > 0 ? "/" + expectedTrips : "") + " trips...");
             }
-            trip.setFirebaseId((String) data.get("firebaseId"));
-            trip.setTitle((String) data.get("title"));
-            trip.setDestination((String) data.get("destination"));
             
-            if (data.get("startDate") instanceof Number) {
-                trip.setStartDate(((Number) data.get("startDate")).longValue());
+            @Override
+            public void onComplete(int documentCount) {
+                if (documentCount == 0) {
+                    listener.onProgressUpdate(100, "ℹ️ No data to restore");
+                    listener.onSuccess(0, 0);
+                    return;
+                }
+                try {
+                    // Every remote trip has been seen, so anything synced but missing was deleted remotely
+                    tripRepository.deleteTripsMissingRemotelySync(state.remoteFirebaseIds, state.stats);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error removing trips deleted remotely", e);
+                    listener.onError("Failed to process cloud data: " + e.getMessage());
+                    return;
+                }
+                
+                Log.d(TAG, "Restore complete: " + state.trips + " trips, " +
+                      state.activities + " activities (" + state.stats + ")");
+                listener.onProgressUpdate(100, "✅ Data restore complete!");
+                listener.onSuccess(state.trips, state.activities);
             }
-            if (data.get("endDate") instanceof Number) {
-                trip.setEndDate(((Number) data.get("endDate")).longValue());
+            
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Failed to restore trips after " + state.trips + " trips", e);
+                listener.onError("Failed to retrieve trips from cloud: " + e.getMessage());
             }
+        });
+    }
+    
+    /**
+     * Progress of a paged restore, carried from one page to the next
+     */
+    private static class RestoreState {
+        int trips;
+        int activities;
+        final Set<String> remoteFirebaseIds = new HashSet<>();
+        final TripRepository.ReconcileStats stats = new TripRepository.ReconcileStats();
+    }
+    
+    /**
+     * Convert one page of trip documents and reconcile them with local rows in a
+     * single transaction. Runs on the executor.
+     */
+    private void savePageToLocalDatabase(List<RemoteDocument> documents, RestoreState state) {
+        Map<Trip, List<TripActivity>> remoteTrips = new LinkedHashMap<>();
+        
+        for (RemoteDocument doc : documents) {
+            Map<String, Object> data = doc.getData();
+            if (data == null) continue;
             
-            trip.setMapImageUrl((String) data.get("mapImageUrl"));
+            // Convert JSON back to Trip object
+            Trip trip = convertJsonToTrip(data);
+            if (trip == null) continue;
             
-            if (data.get("latitude") instanceof Number) {
-                trip.setLatitude(((Number) data.get("latitude")).doubleValue());
+            // Convert activities
+            List<TripActivity> tripActivities = new ArrayList<>();
+            Object activitiesObj = data.get("activities");
+            if (activitiesObj instanceof Map) {
+                Map<String, Object> activitiesMap = (Map<String, Object>) activitiesObj;
+                tripActivities = convertJsonToActivities(activitiesMap, trip.getId());
             }
-            if (data.get("longitude") instanceof Number) {
-                trip.setLongitude(((Number) data.get("longitude")).doubleValue());
-            }
-            if (data.get("createdAt") instanceof Number) {
-                trip.setCreatedAt(((Number) data.get("createdAt")).longValue());
+            
+            remoteTrips.put(trip, tripActivities);
+            if (trip.getFirebaseId() != null && !trip.getFirebaseId().isEmpty()) {
+                state.remoteFirebaseIds.add(trip.getFirebaseId());
             }
-            if (data.get("updatedAt") instanceof Number) {
-                trip.setUpdatedAt(((Number) data.get("updatedAt")).longValue());
+            state.trips++;
+            state.activities += tripActivities.size();
+        }
+        
+        tripRepository.reconcileTripsSync(remoteTrips, state.stats);
+    }
+    
+    /**
+     * Convert JSON data back to Trip object
+     */
+    private Trip convertJsonToTrip(Map<String, Object> data) {
+        try {
+            Trip trip = TripCodec.decode(data, new Trip());
+            
+            // The JSON copy also carries the local ID
+            if (data.get("id") instanceof Number) {
+                trip.setId(((Number) data.get("id")).intValue());
             }
             
             trip.setSynced(true); // Mark as synced since it came from Firebase
@@ -218,40 +319,8 @@ public class DataRetrievalService {
      */
     private TripActivity convertJsonToActivity(Map<String, Object> data, int tripId) {
         try {
-            TripActivity activity = new TripActivity();
-            
-            if (data.get("id") instanceof Number) {
-                activity.setId(((Number) data.get("id")).intValue());
-            }
+            TripActivity activity = TripActivityCodec.decode(data, new TripActivity());
             activity.setTripId(tripId);
-            activity.setFirebaseId((String) data.get("firebaseId"));
-            activity.setTitle((String) data.get("title"));
-            activity.setDescription((String) data.get("description"));
-            activity.setLocation((String) data.get("location"));
-            
-            if (data.get("dateTime") instanceof Number) {
-                activity.setDateTime(((Number) data.get("dateTime")).longValue());
-            }
-            if (data.get("dayNumber") instanceof Number) {
-                activity.setDayNumber(((Number) data.get("dayNumber")).intValue());
-            }
-            
-            activity.setTimeString((String) data.get("timeString"));
-            activity.setImageUrl((String) data.get("imageUrl"));
-            activity.setImageLocalPath((String) data.get("imageLocalPath"));
-            
-            if (data.get("latitude") instanceof Number) {
-                activity.setLatitude(((Number) data.get("latitude")).doubleValue());
-            }
-            if (data.get("longitude") instanceof Number) {
-                activity.setLongitude(((Number) data.get("longitude")).doubleValue());
-            }
-            if (data.get("createdAt") instanceof Number) {
-                activity.setCreatedAt(((Number) data.get("createdAt")).longValue());
-            }
-            if (data.get("updatedAt") instanceof Number) {
-                activity.setUpdatedAt(((Number) data.get("updatedAt")).longValue());
-            }
             
             activity.setSynced(true); // Mark as synced since it came from Firebase
             
@@ -262,99 +331,4 @@ public class DataRetrievalService {
             return null;
         }
     }
-    
-    /**
-     * Save retrieved data to local database
-     */
-    private void saveToLocalDatabase(List<Trip> trips, List<TripActivity> activities, 
-                                   OnRetrievalCompleteListener listener) {
-        if (trips.isEmpty()) {
-            listener.onProgressUpdate(100, "ℹ️ No data to restore");
-            listener.onSuccess(0, 0);
-            return;
-        }
-        
-        // Clear existing local data first
-        tripRepository.clearAllLocalTrips();
-        
-        listener.onProgressUpdate(80, "💾 Saving " + trips.size() + " trips...");
-        
-        // Insert trips first, then activities
-        insertTripsSequentially(trips, activities, 0, listener);
-    }
-    
-    /**
-     * Insert trips one by one to handle foreign key constraints
-     */
-    private void insertTripsSequentially(List<Trip> trips, List<TripActivity> allActivities, 
-                                       int index, OnRetrievalCompleteListener listener) {
-        if (index >= trips.size()) {
-            // All trips inserted, now count results
-            listener.onProgressUpdate(100, "✅ Data restore complete!");
-            listener.onSuccess(trips.size(), allActivities.size());
-            return;
-        }
-        
-        Trip trip = trips.get(index);
-        
-        tripRepository.insertTrip(trip, new TripRepository.OnTripOperationListener() {
-            @Override
-            public void onSuccess(int tripId) {
-                // Update trip ID for activities
-                for (TripActivity activity : allActivities) {
-                    if (activity.getTripId() == trip.getId()) {
-                        activity.setTripId(tripId);
-                    }
-                }
-                
-                // Insert activities for this trip
-                List<TripActivity> tripActivities = new ArrayList<>();
-                for (TripActivity activity : allActivities) {
-                    if (activity.getTripId() == tripId) {
-                        tripActivities.add(activity);
-                    }
-                }
-                
-                insertActivitiesForTrip(tripActivities, 0, () -> {
-                    // Continue with next trip
-                    int progress = 80 + ((index + 1) * 15 / trips.size());
-                    listener.onProgressUpdate(progress, "💾 Saved trip " + (index + 1) + "/" + trips.size());
-                    insertTripsSequentially(trips, allActivities, index + 1, listener);
-                });
-            }
-            
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "Failed to insert trip: " + trip.getTitle() + " - " + error);
-                // Continue with next trip even if this one failed
-                insertTripsSequentially(trips, allActivities, index + 1, listener);
-            }
-        });
-    }
-    
-    /**
-     * Insert activities for a trip
-     */
-    private void insertActivitiesForTrip(List<TripActivity> activities, int index, Runnable onComplete) {
-        if (index >= activities.size()) {
-            onComplete.run();
-            return;
-        }
-        
-        TripActivity activity = activities.get(index);
-        
-        tripRepository.insertActivity(activity, new TripRepository.OnActivityOperationListener() {
-            @Override
-            public void onSuccess(int activityId) {
-                insertActivitiesForTrip(activities, index + 1, onComplete);
-            }
-            
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "Failed to insert activity: " + activity.getTitle() + " - " + error);
-                // Continue with next activity even if this one failed
-                insertActivitiesForTrip(activities, index + 1, onComplete);
-            }
-        });
-    }
-} 
\ No newline at end of file
+}
@@ -5,22 +5,24 @@ import android.util.Log;
 
 import com.example.mobiledegreefinalproject.database.Trip;
 import com.example.mobiledegreefinalproject.database.TripActivity;
+import com.example.mobiledegreefinalproject.remote.TripActivityCodec;
+import com.example.mobiledegreefinalproject.remote.TripCodec;
 import com.example.mobiledegreefinalproject.repository.TripRepository;
+import com.example.mobiledegreefinalproject.remote.FirestoreRemoteStore;
+import com.example.mobiledegreefinalproject.remote.RemoteDocument;
+import com.example.mobiledegreefinalproject.remote.RemoteStore;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
-
 import java.io.File;
 import java.io.ByteArrayOutputStream;
 import android.graphics.Bitmap;
@@ -34,6 +36,7 @@ import android.graphics.drawable.Drawable;
 
 import com.example.mobiledegreefinalproject.repository.BudgetRepository;
 import com.example.mobiledegreefinalproject.model.Expense;
+import com.example.mobiledegreefinalproject.model.Money;
 
 import android.net.Uri;
 
@@ -51,29 +54,46 @@ public class DataSyncService {
     
     private final Context context;
     private final TripRepository tripRepository;
-    private final FirebaseFirestore firestore;
     private final FirebaseAuth auth;
-    private final FirebaseStorage storage;
+    private RemoteStore remoteStore;
     private final Gson gson;
     private final ExecutorService executor;
     private final SyncPreferences syncPrefs;
     private final BudgetRepository budgetRepository;
     
-    public DataSyncService(Context context) {
+    private static DataSyncService INSTANCE;
+    
+    /**
+     * One service per process, so every sync shares the same "dataSync" thread
+     */
+    public static synchronized DataSyncService getInstance(Context context) {
+        if (INSTANCE == null) {
+            INSTANCE = new DataSyncService(context.getApplicationContext());
+        }
+        return INSTANCE;
+    }
+    
+    private DataSyncService(Context context) {
         this.context = context;
         this.tripRepository = TripRepository.getInstance(context);
-        this.firestore = FirebaseFirestore.getInstance();
         this.auth = FirebaseAuth.getInstance();
-        this.storage = FirebaseStorage.getInstance();
+        this.remoteStore = new FirestoreRemoteStore();
         this.gson = new GsonBuilder()
                 .setDateFormat("yyyy-MM-dd HH:mm:ss")
                 .setPrettyPrinting()
                 .create();
-        this.executor = Executors.newSingleThreadExecutor();
+        this.executor = Metrics.newFixedThreadPool("dataSync", 1);
         this.syncPrefs = new SyncPreferences(context);
         this.budgetRepository = BudgetRepository.getInstance(context);
     }
     
+    /**
+     * Replace the remote store every upload goes through, so sync can run against a fake one
+     */
+    public synchronized void setRemoteStore(RemoteStore remoteStore) {
+        this.remoteStore = remoteStore;
+    }
+    
     public interface OnSyncCompleteListener {
         void onProgressUpdate(int progress, String message);
         void onSuccess(int tripsSynced, int activitiesSynced);
@@ -88,7 +108,8 @@ public class DataSyncService {
     /**
      * Sync all local data to Firebase as JSON
      */
-    public void syncLocalDataToFirebase(OnSyncCompleteListener listener) {
+    public void syncLocalDataToFirebase(OnSyncCompleteListener callerListener) {
+        OnSyncCompleteListener listener = timedListener("sync.full", callerListener);
         if (auth.getCurrentUser() == null) {
             Log.e(TAG, "Sync failed: User not authenticated");
             listener.onError("User not authenticated");
@@ -108,14 +129,190 @@ public class DataSyncService {
         Log.d(TAG, "User ID: " + userId);
         Log.d(TAG, "User Email: " + userEmail);
         
-        // Test Firebase connectivity first
-        testFirebaseConnection(userEmail, listener);
+        performActualSync(userEmail, listener);
+    }
+    
+    /**
+     * Incremental sync used by background work: pushes only trips, activities and
+     * expenses that are not yet marked as synced instead of re-uploading everything
+     */
+    public void syncPendingChanges(OnSyncCompleteListener callerListener) {
+        OnSyncCompleteListener listener = timedListener("sync.incremental", callerListener);
+        UserManager userManager = UserManager.getInstance(context);
+        if (!userManager.isLoggedIn()) {
+            listener.onError("User not authenticated");
+            return;
+        }
+        
+        String userEmail = userManager.getUserEmail();
+        if (userEmail == null || userEmail.trim().isEmpty()) {
+            listener.onError("User email not available");
+            return;
+        }
+        
+        Log.d(TAG, "=== STARTING INCREMENTAL SYNC ===");
+        syncPrefs.setLastSyncStatus(SyncPreferences.SyncStatus.IN_PROGRESS);
+        listener.onProgressUpdate(10, "🔄 Uploading pending trips and activities...");
+        
+        tripRepository.syncPendingChanges(new TripRepository.OnPendingSyncListener() {
+            @Override
+            public void onComplete(int tripsSynced, int activitiesSynced, int failures) {
+                listener.onProgressUpdate(60, "💰 Uploading pending expenses...");
+                
+                syncPendingBudgets(userEmail, (budgetEntriesSynced, budgetFailures) -> {
+                    Log.d(TAG, "Incremental sync done: " + tripsSynced + " trips, " + activitiesSynced + 
+                          " activities, " + budgetEntriesSynced + " budget entries, " + 
+                          (failures + budgetFailures) + " failures");
+                    
+                    if (failures + budgetFailures > 0) {
+                        syncPrefs.recordFailedSync();
+                        listener.onError((failures + budgetFailures) + " items failed to sync");
+                    } else {
+                        // Keep the counts of the last full sync for the settings summary
+                        syncPrefs.setLastSyncTime(System.currentTimeMillis());
+                        syncPrefs.setLastSyncStatus(SyncPreferences.SyncStatus.SUCCESS);
+                        listener.onProgressUpdate(100, "✅ Sync complete!");
+                        listener.onSuccess(tripsSynced, activitiesSynced);
+                    }
+                });
+            }
+            
+            @Override
+            public void onError(String error) {
+                syncPrefs.recordFailedSync();
+                listener.onError(error);
+            }
+        });
+    }
+    
+    /**
+     * Wrap a sync listener so the run's duration is recorded under the given metric and
+     * traced as an async section, which makes overlapping runs visible in a system trace
+     */
+    private static OnSyncCompleteListener timedListener(String metric, OnSyncCompleteListener listener) {
+        long start = Metrics.start();
+        int cookie = AppTrace.beginAsync(metric);
+        return new OnSyncCompleteListener() {
+            @Override
+            public void onProgressUpdate(int progress, String message) {
+                listener.onProgressUpdate(progress, message);
+            }
+            
+            @Override
+            public void onSuccess(int tripsSynced, int activitiesSynced) {
+                Metrics.recordLatency(metric, start);
+                AppTrace.endAsync(metric, cookie);
+                listener.onSuccess(tripsSynced, activitiesSynced);
+            }
+            
+            @Override
+            public void onError(String error) {
+                Metrics.increment(metric + ".errors");
+                AppTrace.endAsync(metric, cookie);
+                listener.onError(error);
+            }
+        };
+    }
+    
+    private interface OnPendingBudgetSyncListener {
+        void onComplete(int entriesSynced, int failures);
+    }
+    
+    /**
+     * Batch-upload expenses that are not marked as synced, one WriteBatch per trip.
+     * Expenses of trips not uploaded yet are deferred, not failed; those of deleted trips are dropped.
+     */
+    private void syncPendingBudgets(String userEmail, OnPendingBudgetSyncListener listener) {
+        executor.execute(() -> {
+            boolean traced = AppTrace.begin("DataSyncService.syncPendingBudgets");
+            try {
+                BudgetRepository.BudgetData localBudgetData = budgetRepository.loadBudgetDataLocally();
+                
+                List<Integer> dirtyTripIds = new java.util.ArrayList<>();
+                for (int i = 0; i < localBudgetData.tripExpenses.size(); i++) {
+                    for (Expense expense : localBudgetData.tripExpenses.valueAt(i)) {
+                        if (!expense.isSynced()) {
+                            dirtyTripIds.add(localBudgetData.tripExpenses.keyAt(i));
+                            break;
+                        }
+                    }
+                }
+                
+                if (dirtyTripIds.isEmpty()) {
+                    listener.onComplete(0, 0);
+                    return;
+                }
+                
+                List<Integer> orphanedTripIds = new java.util.ArrayList<>();
+                List<Trip> uploadableTrips = new java.util.ArrayList<>();
+                int deferred = 0;
+                for (int tripId : dirtyTripIds) {
+                    Trip trip = tripRepository.getTripByIdSync(tripId);
+                    if (trip == null) {
+                        // Trip was deleted locally - its expenses can never be uploaded
+                        orphanedTripIds.add(tripId);
+                    } else if (trip.getFirebaseId() == null || trip.getFirebaseId().isEmpty()) {
+                        // Trip itself is not uploaded yet - its expenses follow on a later run.
+                        // A failed trip upload is already counted by tripRepository.syncPendingChanges
+                        deferred++;
+                    } else {
+                        uploadableTrips.add(trip);
+                    }
+                }
+                if (!orphanedTripIds.isEmpty()) {
+                    Log.w(TAG, "Dropping unsynced expenses of " + orphanedTripIds.size() + " deleted trips");
+                    budgetRepository.removeTripExpensesLocally(orphanedTripIds);
+                }
+                if (deferred > 0) {
+                    Log.d(TAG, "Deferred expenses of " + deferred + " trips not uploaded yet");
+                }
+                
+                if (uploadableTrips.isEmpty()) {
+                    listener.onComplete(0, 0);
+                    return;
+                }
+                
+                AtomicInteger remaining = new AtomicInteger(uploadableTrips.size());
+                AtomicInteger entriesSynced = new AtomicInteger(0);
+                AtomicInteger failures = new AtomicInteger(0);
+                
+                for (Trip trip : uploadableTrips) {
+                    int tripId = trip.getId();
+                    budgetRepository.syncTripBudgetBatch(tripId, trip.getFirebaseId(),
+                            localBudgetData.budgetFor(tripId), localBudgetData.tripExpenses.get(tripId),
+                            false, userEmail, new BudgetRepository.OnBudgetBatchSyncListener() {
+                        @Override
+                        public void onSuccess(int entries) {
+                            entriesSynced.addAndGet(entries);
+                            if (remaining.decrementAndGet() == 0) {
+                                listener.onComplete(entriesSynced.get(), failures.get());
+                            }
+                        }
+                        
+                        @Override
+                        public void onError(String error) {
+                            Log.w(TAG, "⚠️ Pending budget sync failed for trip " + tripId + ": " + error);
+                            failures.incrementAndGet();
+                            if (remaining.decrementAndGet() == 0) {
+                                listener.onComplete(entriesSynced.get(), failures.get());
+                            }
+                        }
+                    });
+                }
+                
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Error in pending budget sync", e);
+                listener.onComplete(0, 1);
+            } finally {
+                AppTrace.end(traced);
+            }
+        });
     }
     
     /**
      * Sync a single trip and its activities following existing Firebase structure
      */
-    private void syncTripAsJson(String userEmail, Trip trip, AtomicInteger syncedBudgetEntries, OnTripSyncListener listener) {
+    private void syncTripAsJson(String userEmail, Trip trip, boolean remoteHasTrip, AtomicInteger syncedBudgetEntries, OnTripSyncListener listener) {
         try {
             Log.d(TAG, "🔄 Syncing trip: " + trip.getTitle() + " (ID: " + trip.getId() + ")");
             
@@ -133,17 +330,22 @@ public class DataSyncService {
             Log.d(TAG, "   Collection: " + collectionPath);
             Log.d(TAG, "   Data size: " + tripData.size() + " fields");
             
-            firestore.collection(COLLECTION_USERS)
-                    .document(userEmail)
-                    .collection(COLLECTION_TRIPS)
-                    .add(tripData)
-                    .addOnSuccessListener(documentReference -> {
+            String previousFirebaseId = trip.getFirebaseId();
+            
+            // Write over the trip's existing document when it has one, otherwise create a new one
+            String tripFirebaseId = previousFirebaseId != null && !previousFirebaseId.isEmpty()
+                    ? previousFirebaseId
+                    : remoteStore.newDocumentId(collectionPath);
+            
+            // Clearing the version 1 field names migrates older trip documents as they are rewritten
+            remoteStore.setDocument(collectionPath + "/" + tripFirebaseId,
+                    FirebaseDataHelper.withLegacyFieldsRemoved(tripData, TripCodec.LEGACY_KEYS), true,
+                    new RemoteStore.Callback<Void>() {
+                    @Override
+                    public void onSuccess(Void result) {
                         Log.d(TAG, "✅ Successfully synced trip to Firebase: " + trip.getTitle());
                         
-                        // Now sync activities and budget for this trip
-                        String tripFirebaseId = documentReference.getId();
-                        
-                        // Update local trip with Firebase ID for budget sync
+                        // Update local trip with Firebase ID, then sync activities and budget for this trip
                         trip.setFirebaseId(tripFirebaseId);
                         tripRepository.updateTripFirebaseId(trip.getId(), tripFirebaseId);
                         
@@ -151,7 +353,9 @@ public class DataSyncService {
                             @Override
                             public void onTripSynced(int activitiesCount) {
                                 // After activities are synced, sync the budget for this trip
-                                syncBudgetForTrip(trip.getId(), userEmail, new OnBudgetSyncCompleteListener() {
+                                // Upload every expense unless the cloud already has this trip's budget entries
+                                boolean freshTripDocument = !tripFirebaseId.equals(previousFirebaseId) || !remoteHasTrip;
+                                syncBudgetForTrip(trip.getId(), tripFirebaseId, freshTripDocument, userEmail, new OnBudgetSyncCompleteListener() {
                                                                          @Override
                                     public void onBudgetSyncComplete(int budgetEntriesSynced) {
                                         syncedBudgetEntries.addAndGet(budgetEntriesSynced);
@@ -175,12 +379,15 @@ public class DataSyncService {
                                 listener.onError(error);
                             }
                         });
-                    })
-                    .addOnFailureListener(e -> {
+                    }
+                    
+                    @Override
+                    public void onError(Exception e) {
                         Log.e(TAG, "❌ Failed to sync trip to Firebase: " + trip.getTitle(), e);
                         Log.e(TAG, "   Error type: " + e.getClass().getSimpleName());
                         Log.e(TAG, "   Error message: " + e.getMessage());
                         listener.onError("Firebase upload failed: " + e.getMessage());
+                    }
                     });
                     
         } catch (Exception e) {
@@ -193,17 +400,7 @@ public class DataSyncService {
      * Create Firebase data for a trip (following existing trip management structure)
      */
     private Map<String, Object> createTripFirebaseData(Trip trip) {
-        Map<String, Object> data = new HashMap<>();
-        
-        // Basic trip data (same as existing trip management)
-        data.put("title", trip.getTitle());
-        data.put("destination", trip.getDestination());
-        data.put("startDate", trip.getStartDate());
-        data.put("endDate", trip.getEndDate());
-        data.put("createdAt", trip.getCreatedAt());
-        data.put("updatedAt", trip.getUpdatedAt());
-        
-        return data;
+        return TripCodec.encode(trip);
     }
     
     /**
@@ -237,8 +434,15 @@ public class DataSyncService {
         
         for (TripActivity activity : activities) {
             // Check if activity has a local image that needs uploading
-            if (hasLocalImageToUpload(activity)) {
+            String checkpointedImageUrl = hasLocalImageToUpload(activity)
+                    ? syncPrefs.getCheckpointedImageUrl(activity.getId()) : null;
+            if (checkpointedImageUrl != null) {
+                // Uploaded by an interrupted earlier sync - reuse the URL instead of uploading again
+                Log.d(TAG, "⏭️ Reusing checkpointed image upload for: " + activity.getTitle());
+                syncActivityToFirestore(userEmail, tripFirebaseId, activity, checkpointedImageUrl, completedActivities, activities.size(), listener);
+            } else if (hasLocalImageToUpload(activity)) {
                 Log.d(TAG, "📷 Activity has local image, uploading: " + activity.getTitle());
+                syncPrefs.addPendingImage(activity.getId());
                 uploadActivityImageAndSync(userEmail, tripFirebaseId, activity, completedActivities, activities.size(), listener);
             } else {
                 // No image or already has Firebase URL, sync directly
@@ -348,40 +552,28 @@ public class DataSyncService {
             String fileName = "activity_" + System.currentTimeMillis() + "_" + 
                             activity.getTitle().replaceAll("[^a-zA-Z0-9]", "") + ".jpg";
             
-            StorageReference storageRef = storage.getReference()
-                    .child("activity_images")
-                    .child(fileName);
-            
             Log.d(TAG, "📤 Uploading image to Firebase Storage: " + fileName + " (" + (data.length / 1024) + "KB)");
             
-            // Upload with putBytes (same as AddActivityActivity)
-            storageRef.putBytes(data)
-                    .addOnSuccessListener(taskSnapshot -> {
-                        Log.d(TAG, "✅ Image uploaded successfully: " + fileName);
-                        
-                        // Get download URL
-                        storageRef.getDownloadUrl()
-                                .addOnSuccessListener(downloadUri -> {
-                                    String firebaseImageUrl = downloadUri.toString();
-                                    Log.d(TAG, "🔗 Got Firebase image URL: " + firebaseImageUrl);
-                                    
-                                    // Now sync activity with Firebase image URL
-                                    syncActivityToFirestore(userEmail, tripFirebaseId, activity, firebaseImageUrl, 
-                                                          completedActivities, totalActivities, listener);
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.w(TAG, "⚠️ Failed to get download URL for " + fileName + ", syncing without image", e);
-                                    // Sync without image URL
-                                    syncActivityToFirestore(userEmail, tripFirebaseId, activity, null, 
-                                                          completedActivities, totalActivities, listener);
-                                });
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.w(TAG, "⚠️ Failed to upload image for activity: " + activity.getTitle() + ", syncing without image", e);
-                        // Sync without image
-                        syncActivityToFirestore(userEmail, tripFirebaseId, activity, null, 
-                                              completedActivities, totalActivities, listener);
-                    });
+            // Uploads the bytes, then resolves the download URL
+            remoteStore.uploadBlob("activity_images/" + fileName, data, "image/jpeg", new RemoteStore.Callback<String>() {
+                @Override
+                public void onSuccess(String firebaseImageUrl) {
+                    Log.d(TAG, "✅ Image uploaded successfully: " + firebaseImageUrl);
+                    syncPrefs.checkpointImageUploaded(activity.getId(), firebaseImageUrl);
+                    
+                    // Now sync activity with Firebase image URL
+                    syncActivityToFirestore(userEmail, tripFirebaseId, activity, firebaseImageUrl, 
+                                          completedActivities, totalActivities, listener);
+                }
+                
+                @Override
+                public void onError(Exception e) {
+                    Log.w(TAG, "⚠️ Failed to upload image for activity: " + activity.getTitle() + ", syncing without image", e);
+                    // Sync without image
+                    syncActivityToFirestore(userEmail, tripFirebaseId, activity, null, 
+                                          completedActivities, totalActivities, listener);
+                }
+            });
                     
         } catch (Exception e) {
             Log.w(TAG, "⚠️ Error processing bitmap for Firebase upload", e);
@@ -485,78 +677,81 @@ public class DataSyncService {
                                        int totalActivities, OnTripSyncListener listener) {
         
         // CRITICAL FIX: Check for duplicates before creating new activity
-        firestore.collection(COLLECTION_USERS)
-                .document(userEmail)
-                .collection(COLLECTION_TRIPS)
-                .document(tripFirebaseId)
-                .collection(COLLECTION_ACTIVITIES)
-                .whereEqualTo("title", activity.getTitle())
-                .whereEqualTo("dateTime", activity.getDateTime())
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (!querySnapshot.isEmpty()) {
-                        // Activity already exists, update it instead of creating new one
-                        Log.d(TAG, "🔄 Activity already exists in Firebase, updating: " + activity.getTitle());
-                        String existingDocId = querySnapshot.getDocuments().get(0).getId();
-                        updateExistingActivity(userEmail, tripFirebaseId, existingDocId, activity, firebaseImageUrl, 
-                                             completedActivities, totalActivities, listener);
-                    } else {
-                        // No duplicate found, create new activity
-                        Log.d(TAG, "➕ Creating new activity in Firebase: " + activity.getTitle());
-                        createNewActivity(userEmail, tripFirebaseId, activity, firebaseImageUrl, 
-                                        completedActivities, totalActivities, listener);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "⚠️ Error checking for duplicates, creating new activity: " + activity.getTitle(), e);
-                    // If duplicate check fails, proceed with creating new activity
+        remoteStore.queryMatching(activitiesPath(userEmail, tripFirebaseId),
+                FirebaseDataHelper.activityMatchFields(activity.getTitle(), activity.getDateTime()), 1,
+                new RemoteStore.Callback<List<RemoteDocument>>() {
+            @Override
+            public void onSuccess(List<RemoteDocument> matches) {
+                if (!matches.isEmpty()) {
+                    // Activity already exists, update it instead of creating new one
+                    Log.d(TAG, "🔄 Activity already exists in Firebase, updating: " + activity.getTitle());
+                    updateExistingActivity(userEmail, tripFirebaseId, matches.get(0), activity, firebaseImageUrl, 
+                                         completedActivities, totalActivities, listener);
+                } else {
+                    // No duplicate found, create new activity
+                    Log.d(TAG, "➕ Creating new activity in Firebase: " + activity.getTitle());
                     createNewActivity(userEmail, tripFirebaseId, activity, firebaseImageUrl, 
                                     completedActivities, totalActivities, listener);
-                });
+                }
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "⚠️ Error checking for duplicates, creating new activity: " + activity.getTitle(), e);
+                // If duplicate check fails, proceed with creating new activity
+                createNewActivity(userEmail, tripFirebaseId, activity, firebaseImageUrl, 
+                                completedActivities, totalActivities, listener);
+            }
+        });
+    }
+    
+    private static String activitiesPath(String userEmail, String tripFirebaseId) {
+        return COLLECTION_USERS + "/" + userEmail + "/" + COLLECTION_TRIPS + "/" + tripFirebaseId + "/" + COLLECTION_ACTIVITIES;
     }
     
     /**
-     * Update existing activity in Firestore
+     * Update existing activity in Firestore, rewriting it in the current schema version
      */
-    private void updateExistingActivity(String userEmail, String tripFirebaseId, String documentId, 
+    private void updateExistingActivity(String userEmail, String tripFirebaseId, RemoteDocument existingDoc, 
                                       TripActivity activity, String firebaseImageUrl, 
                                       AtomicInteger completedActivities, int totalActivities, 
                                       OnTripSyncListener listener) {
         
-        Map<String, Object> updateData = new HashMap<>();
-        updateData.put("description", activity.getDescription());
-        updateData.put("location", activity.getLocation());
-        updateData.put("timeString", activity.getTimeString());
-        updateData.put("updatedAt", System.currentTimeMillis());
-        updateData.put("platform", "android"); // CRITICAL FIX: Ensure platform field on updates
+        Map<String, Object> updateData = FirebaseDataHelper.activityToFirebaseData(activity);
         
-        // Only update image URL if we have a new Firebase URL
+        // Only replace the image URL if we have a new Firebase URL, otherwise keep the stored one
         if (firebaseImageUrl != null) {
-            updateData.put("imageUrl", firebaseImageUrl);
+            updateData.put(TripActivityCodec.IMAGE_URL, firebaseImageUrl);
             Log.d(TAG, "🖼️ Updating with new Firebase image URL");
+        } else if (existingDoc.getData() != null) {
+            TripActivity stored = TripActivityCodec.decode(existingDoc.getData(), new TripActivity());
+            updateData.put(TripActivityCodec.IMAGE_URL, stored.getImageUrl() != null ? stored.getImageUrl() : "");
         }
         
-        firestore.collection(COLLECTION_USERS)
-                .document(userEmail)
-                .collection(COLLECTION_TRIPS)
-                .document(tripFirebaseId)
-                .collection(COLLECTION_ACTIVITIES)
-                .document(documentId)
-                .update(updateData)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ Activity updated in Firestore: " + activity.getTitle());
-                    int completed = completedActivities.incrementAndGet();
-                    if (completed == totalActivities) {
-                        listener.onTripSynced(totalActivities);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "⚠️ Failed to update activity in Firestore: " + activity.getTitle(), e);
-                    int completed = completedActivities.incrementAndGet();
-                    if (completed == totalActivities) {
-                        listener.onTripSynced(totalActivities);
-                    }
-                });
+        if (TripActivityCodec.isLegacy(existingDoc.getData())) {
+            Log.d(TAG, "📦 Migrating activity document to schema v" + TripActivityCodec.SCHEMA_VERSION + ": " + activity.getTitle());
+        }
+        
+        // A full set (not merge) replaces any version 1 fields left on the document
+        remoteStore.setDocument(existingDoc.getPath(), updateData, false, new RemoteStore.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                Log.d(TAG, "✅ Activity updated in Firestore: " + activity.getTitle());
+                int completed = completedActivities.incrementAndGet();
+                if (completed == totalActivities) {
+                    listener.onTripSynced(totalActivities);
+                }
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "⚠️ Failed to update activity in Firestore: " + activity.getTitle(), e);
+                int completed = completedActivities.incrementAndGet();
+                if (completed == totalActivities) {
+                    listener.onTripSynced(totalActivities);
+                }
+            }
+        });
     }
     
     /**
@@ -571,59 +766,132 @@ public class DataSyncService {
         
         // Add image URL (Firebase URL if uploaded, existing URL if already Firebase, or empty if none)
         if (firebaseImageUrl != null) {
-            activityData.put("imageUrl", firebaseImageUrl);
+            activityData.put(TripActivityCodec.IMAGE_URL, firebaseImageUrl);
             Log.d(TAG, "🖼️ Including Firebase image URL in new activity");
         } else if (activity.getImageUrl() != null && activity.getImageUrl().startsWith("https://firebasestorage.googleapis.com")) {
-            activityData.put("imageUrl", activity.getImageUrl());
+            activityData.put(TripActivityCodec.IMAGE_URL, activity.getImageUrl());
             Log.d(TAG, "🖼️ Including existing Firebase image URL in new activity");
         } else {
-            activityData.put("imageUrl", "");
+            activityData.put(TripActivityCodec.IMAGE_URL, "");
             Log.d(TAG, "📝 No image URL for new activity");
         }
         
         // Store in Firebase following existing structure: users/{email}/trips/{tripId}/activities
-        firestore.collection(COLLECTION_USERS)
-                .document(userEmail)
-                .collection(COLLECTION_TRIPS)
-                .document(tripFirebaseId)
-                .collection(COLLECTION_ACTIVITIES)
-                .add(activityData)
-                .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "✅ New activity created in Firestore: " + activity.getTitle());
-                    int completed = completedActivities.incrementAndGet();
-                    if (completed == totalActivities) {
-                        listener.onTripSynced(totalActivities);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "⚠️ Failed to create activity in Firestore: " + activity.getTitle(), e);
-                    int completed = completedActivities.incrementAndGet();
-                    if (completed == totalActivities) {
-                        listener.onTripSynced(totalActivities);
-                    }
-                });
+        remoteStore.addDocument(activitiesPath(userEmail, tripFirebaseId), activityData, new RemoteStore.Callback<String>() {
+            @Override
+            public void onSuccess(String documentId) {
+                Log.d(TAG, "✅ New activity created in Firestore: " + activity.getTitle());
+                int completed = completedActivities.incrementAndGet();
+                if (completed == totalActivities) {
+                    listener.onTripSynced(totalActivities);
+                }
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "⚠️ Failed to create activity in Firestore: " + activity.getTitle(), e);
+                int completed = completedActivities.incrementAndGet();
+                if (completed == totalActivities) {
+                    listener.onTripSynced(totalActivities);
+                }
+            }
+        });
     }
     
     /**
      * Create a summary document of the sync operation
      */
-    private void createSyncSummary(String userEmail, int tripsSynced, int activitiesSynced, Runnable onComplete) {
+    private void createSyncSummary(String userEmail, int tripsSynced, int activitiesSynced,
+                                   String rootHash, Map<String, String> tripHashes, Runnable onComplete) {
         Map<String, Object> summary = new HashMap<>();
         summary.put("tripsSynced", tripsSynced);
         summary.put("activitiesSynced", activitiesSynced);
         summary.put("syncedAt", System.currentTimeMillis());
         summary.put("platform", "android");
+        summary.put("rootHash", rootHash);
+        summary.put("tripHashes", tripHashes);
         
-        firestore.collection(COLLECTION_USERS)
-                .document(userEmail)
-                .set(summary, com.google.firebase.firestore.SetOptions.merge())
-                .addOnCompleteListener(task -> onComplete.run());
+        // setFields replaces tripHashes as a whole so deleted trips drop out of it
+        remoteStore.setFields(COLLECTION_USERS + "/" + userEmail, summary, new RemoteStore.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                onComplete.run();
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "⚠️ Failed to write sync summary", e);
+                onComplete.run();
+            }
+        });
+    }
+    
+    private interface OnRemoteHashesListener {
+        void onLoaded(String rootHash, Map<String, String> tripHashes);
+    }
+    
+    /**
+     * Read the content hashes stored in the summary document by the last full sync.
+     * Both values are null if there are none or the read fails.
+     */
+    private void fetchRemoteContentHashes(String userEmail, OnRemoteHashesListener listener) {
+        remoteStore.getDocument(COLLECTION_USERS + "/" + userEmail, new RemoteStore.Callback<RemoteDocument>() {
+            @Override
+            public void onSuccess(RemoteDocument snapshot) {
+                Object rootHash = snapshot.get("rootHash");
+                Object tripHashesObj = snapshot.get("tripHashes");
+                if (!(rootHash instanceof String) || !(tripHashesObj instanceof Map)) {
+                    listener.onLoaded(null, null);
+                    return;
+                }
+                
+                Map<String, String> tripHashes = new HashMap<>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) tripHashesObj).entrySet()) {
+                    if (entry.getValue() instanceof String) {
+                        tripHashes.put(String.valueOf(entry.getKey()), (String) entry.getValue());
+                    }
+                }
+                listener.onLoaded((String) rootHash, tripHashes);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "⚠️ Could not read cloud content hashes, falling back to local ones", e);
+                listener.onLoaded(null, null);
+            }
+        });
     }
     
     /**
-     * Test Firebase connectivity before syncing
+     * A trip can be skipped when it already has a cloud document and its content hash matches
+     * the cloud summary (or, if the summary could not be read, the hash of its last upload)
      */
-    private void testFirebaseConnection(String userEmail, OnSyncCompleteListener listener) {
+    private boolean isTripUnchanged(Trip trip, String tripHash, Map<String, String> remoteTripHashes) {
+        String firebaseId = trip.getFirebaseId();
+        if (firebaseId == null || firebaseId.isEmpty()) {
+            return false;
+        }
+        if (remoteTripHashes != null) {
+            return tripHash.equals(remoteTripHashes.get(firebaseId));
+        }
+        return tripHash.equals(syncPrefs.getSyncedTripHash(trip.getId()));
+    }
+    
+    private Map<String, String> buildRemoteTripHashes(List<Trip> trips, Map<Integer, String> tripHashes) {
+        Map<String, String> remoteTripHashes = new HashMap<>();
+        for (Trip trip : trips) {
+            String firebaseId = trip.getFirebaseId();
+            if (firebaseId != null && !firebaseId.isEmpty()) {
+                remoteTripHashes.put(firebaseId, tripHashes.get(trip.getId()));
+            }
+        }
+        return remoteTripHashes;
+    }
+    
+    /**
+     * Test Firebase connectivity before uploading; onPassed runs once the test write succeeds
+     */
+    private void testFirebaseConnection(String userEmail, OnSyncCompleteListener listener, Runnable onPassed) {
         Log.d(TAG, "Testing Firebase connection...");
         
         // Test write to Firebase using same structure as trip management
@@ -632,27 +900,40 @@ public class DataSyncService {
         testData.put("timestamp", System.currentTimeMillis());
         testData.put("userEmail", userEmail);
         
-        firestore.collection("connectivity_test")
-                .document(userEmail)
-                .set(testData)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ Firebase connectivity test PASSED");
-                    // Delete test document
-                    firestore.collection("connectivity_test").document(userEmail).delete();
-                    // Proceed with actual sync
-                    performActualSync(userEmail, listener);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Firebase connectivity test FAILED", e);
-                    listener.onError("Firebase connection failed: " + e.getMessage());
+        String testPath = "connectivity_test/" + userEmail;
+        remoteStore.setDocument(testPath, testData, false, new RemoteStore.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                Log.d(TAG, "✅ Firebase connectivity test PASSED");
+                // Delete test document; nothing waits for it
+                remoteStore.deleteDocument(testPath, new RemoteStore.Callback<Void>() {
+                    @Override
+                    public void onSuccess(Void deleted) {
+                    }
+                    
+                    @Override
+                    public void onError(Exception e) {
+                        Log.w(TAG, "⚠️ Could not delete connectivity test document", e);
+                    }
                 });
+                onPassed.run();
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "❌ Firebase connectivity test FAILED", e);
+                syncPrefs.recordFailedSync();
+                listener.onError("Firebase connection failed: " + e.getMessage());
+            }
+        });
     }
     
     /**
-     * Perform the actual sync after connectivity test passes
+     * Hash local data and compare it with the cloud before uploading anything
      */
     private void performActualSync(String userEmail, OnSyncCompleteListener listener) {
         executor.execute(() -> {
+            boolean traced = AppTrace.begin("DataSyncService.hashLocalData");
             try {
                 // Record sync start
                 syncPrefs.setLastSyncStatus(SyncPreferences.SyncStatus.IN_PROGRESS);
@@ -660,72 +941,221 @@ public class DataSyncService {
                 // Step 1: Get all local data
                 listener.onProgressUpdate(10, "📊 Reading local data...");
                 
-                List<Trip> localTrips = tripRepository.getAllTripsSync();
-                Log.d(TAG, "Found " + localTrips.size() + " local trips to sync");
+                List<Trip> allTrips = tripRepository.getAllTripsSync();
+                Log.d(TAG, "Found " + allTrips.size() + " local trips to sync");
                 
-                if (localTrips.isEmpty()) {
+                if (allTrips.isEmpty()) {
                     listener.onProgressUpdate(100, "✅ No local data to sync");
+                    syncPrefs.clearSyncCheckpoint();
                     syncPrefs.recordSuccessfulSync(0, 0);
                     listener.onSuccess(0, 0);
                     return;
                 }
                 
-                AtomicInteger totalTrips = new AtomicInteger(localTrips.size());
-                AtomicInteger syncedTrips = new AtomicInteger(0);
-                AtomicInteger syncedActivities = new AtomicInteger(0);
-                AtomicInteger syncedBudgetEntries = new AtomicInteger(0);
-                AtomicInteger completedTrips = new AtomicInteger(0);
-                
-                listener.onProgressUpdate(20, "🔄 Uploading " + localTrips.size() + " trips (with images)...");
-                
-                // Step 2: Sync each trip with its activities
-                for (Trip trip : localTrips) {
-                    syncTripAsJson(userEmail, trip, syncedBudgetEntries, new OnTripSyncListener() {
-                        @Override
-                        public void onTripSynced(int activitiesCount) {
-                            int completed = completedTrips.incrementAndGet();
-                            int synced = syncedTrips.incrementAndGet();
-                            syncedActivities.addAndGet(activitiesCount);
-                            
-                            int progress = 20 + (completed * 70 / totalTrips.get());
-                            listener.onProgressUpdate(progress, 
-                                "✅ Synced trip " + completed + "/" + totalTrips.get() + 
-                                " (" + activitiesCount + " activities, " + syncedBudgetEntries.get() + " budget entries)");
-                            
-                            if (completed == totalTrips.get()) {
-                                // All trips completed
-                                listener.onProgressUpdate(90, "🎯 Finalizing sync...");
-                                
-                                // Create summary document
-                                createSyncSummary(userEmail, synced, syncedActivities.get(), () -> {
-                                    listener.onProgressUpdate(100, "✅ Sync complete!");
-                                    // Record successful sync
-                                    syncPrefs.recordSuccessfulSync(synced, syncedActivities.get());
-                                    listener.onSuccess(synced, syncedActivities.get());
-                                });
-                            }
-                        }
-                        
-                        @Override
-                        public void onError(String error) {
-                            int completed = completedTrips.incrementAndGet();
-                            Log.e(TAG, "Failed to sync trip: " + trip.getTitle() + " - " + error);
-                            
-                            if (completed == totalTrips.get()) {
-                                // All trips completed (with some failures)
-                                listener.onSuccess(syncedTrips.get(), syncedActivities.get());
-                            }
+                // Hash every trip so unchanged ones can be skipped
+                BudgetRepository.BudgetData budgetData = budgetRepository.loadBudgetDataLocally();
+                Map<Integer, String> tripHashes = new HashMap<>();
+                Map<Integer, Integer> activityCounts = new HashMap<>();
+                // Trips with an image whose upload failed last time, synced again whatever their hash
+                Set<Integer> pendingImageTrips = new HashSet<>();
+                for (Trip trip : allTrips) {
+                    List<TripActivity> activities = tripRepository.getActivitiesForTripSync(trip.getId());
+                    activityCounts.put(trip.getId(), activities.size());
+                    for (TripActivity activity : activities) {
+                        if (hasLocalImageToUpload(activity) && syncPrefs.isImagePending(activity.getId())) {
+                            pendingImageTrips.add(trip.getId());
+                            break;
                         }
-                    });
+                    }
+                    tripHashes.put(trip.getId(), ContentHashes.tripHash(trip, activities,
+                            budgetData.budgetFor(trip.getId()), budgetData.tripExpenses.get(trip.getId())));
                 }
+                String rootHash = ContentHashes.rootHash(tripHashes.values());
+                
+                listener.onProgressUpdate(15, "🔍 Comparing with cloud data...");
+                fetchRemoteContentHashes(userEmail, (remoteRootHash, remoteTripHashes) ->
+                        executor.execute(() -> syncChangedTrips(userEmail, allTrips, tripHashes, activityCounts,
+                                pendingImageTrips, rootHash, remoteRootHash, remoteTripHashes, listener)));
                 
             } catch (Exception e) {
                 Log.e(TAG, "Error during data sync", e);
                 syncPrefs.recordFailedSync();
                 listener.onError("Sync failed: " + e.getMessage());
+            } finally {
+                AppTrace.end(traced);
             }
         });
     }
+    
+    /**
+     * Finish straight away when the cloud root hash matches local data, otherwise test connectivity
+     * and upload the trips whose content hash differs from the cloud copy. Runs on the executor.
+     */
+    private void syncChangedTrips(String userEmail, List<Trip> allTrips, Map<Integer, String> tripHashes,
+                                  Map<Integer, Integer> activityCounts, Set<Integer> pendingImageTrips, String rootHash,
+                                  String remoteRootHash, Map<String, String> remoteTripHashes,
+                                  OnSyncCompleteListener listener) {
+        boolean traced = AppTrace.begin("DataSyncService.syncChangedTrips");
+        try {
+            int totalActivityCount = 0;
+            boolean allTripsUploaded = true;
+            for (Trip trip : allTrips) {
+                totalActivityCount += activityCounts.get(trip.getId());
+                if (trip.getFirebaseId() == null || trip.getFirebaseId().isEmpty()) {
+                    allTripsUploaded = false;
+                }
+            }
+            
+            if (allTripsUploaded && pendingImageTrips.isEmpty() && rootHash.equals(remoteRootHash)) {
+                Log.d(TAG, "✅ Cloud root hash matches local data, nothing to upload");
+                listener.onProgressUpdate(100, "✅ Already up to date!");
+                syncPrefs.clearSyncCheckpoint();
+                syncPrefs.setSyncedRootHash(rootHash);
+                syncPrefs.recordSuccessfulSync(allTrips.size(), totalActivityCount);
+                listener.onSuccess(allTrips.size(), totalActivityCount);
+                return;
+            }
+            
+            // Only probe connectivity once there is something to upload
+            testFirebaseConnection(userEmail, listener, () -> executor.execute(() ->
+                    uploadChangedTrips(userEmail, allTrips, tripHashes, activityCounts, pendingImageTrips,
+                            rootHash, remoteTripHashes, listener)));
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Error during data sync", e);
+            syncPrefs.recordFailedSync();
+            listener.onError("Sync failed: " + e.getMessage());
+        } finally {
+            AppTrace.end(traced);
+        }
+    }
+    
+    /**
+     * Upload the trips that changed since the last sync or were never uploaded. Runs on the executor.
+     */
+    private void uploadChangedTrips(String userEmail, List<Trip> allTrips, Map<Integer, String> tripHashes,
+                                    Map<Integer, Integer> activityCounts, Set<Integer> pendingImageTrips,
+                                    String rootHash, Map<String, String> remoteTripHashes,
+                                    OnSyncCompleteListener listener) {
+        boolean traced = AppTrace.begin("DataSyncService.uploadChangedTrips");
+        try {
+            // Resume from the checkpoint of an interrupted sync, skipping trips it already finished
+            boolean resuming = syncPrefs.beginSyncCheckpoint(userEmail);
+            List<Trip> localTrips = new java.util.ArrayList<>();
+            int skippedActivities = 0;
+            int pendingImageCount = 0;
+            for (Trip trip : allTrips) {
+                if (pendingImageTrips.contains(trip.getId())) {
+                    Log.d(TAG, "🖼️ Retrying image upload for trip: " + trip.getTitle());
+                    pendingImageCount++;
+                    localTrips.add(trip);
+                    continue;
+                }
+                if (resuming && syncPrefs.isTripCheckpointed(trip.getId(), trip.getUpdatedAt())) {
+                    Log.d(TAG, "⏭️ Skipping trip completed by previous sync: " + trip.getTitle());
+                } else if (isTripUnchanged(trip, tripHashes.get(trip.getId()), remoteTripHashes)) {
+                    Log.d(TAG, "⏭️ Skipping unchanged trip: " + trip.getTitle());
+                } else {
+                    localTrips.add(trip);
+                    continue;
+                }
+                skippedActivities += activityCounts.get(trip.getId());
+            }
+            int skippedTrips = allTrips.size() - localTrips.size();
+            
+            if (resuming) {
+                Log.d(TAG, "Resuming sync: " + syncPrefs.getCheckpointedTripCount() + " trips already done, " + 
+                      pendingImageCount + " with images still to upload");
+                listener.onProgressUpdate(18, "⏩ Resuming sync (" + skippedTrips + " trips already done)...");
+            }
+            
+            if (localTrips.isEmpty()) {
+                // Nothing to upload, but the summary is stale (e.g. a trip was deleted locally)
+                int finalSkippedActivities = skippedActivities;
+                createSyncSummary(userEmail, skippedTrips, skippedActivities, rootHash,
+                        buildRemoteTripHashes(allTrips, tripHashes), () -> {
+                    listener.onProgressUpdate(100, "✅ Sync complete!");
+                    syncPrefs.clearSyncCheckpoint();
+                    syncPrefs.setSyncedRootHash(rootHash);
+                    syncPrefs.recordSuccessfulSync(skippedTrips, finalSkippedActivities);
+                    listener.onSuccess(skippedTrips, finalSkippedActivities);
+                });
+                return;
+            }
+            
+            AtomicInteger totalTrips = new AtomicInteger(localTrips.size());
+            AtomicInteger syncedTrips = new AtomicInteger(skippedTrips);
+            AtomicInteger syncedActivities = new AtomicInteger(skippedActivities);
+            AtomicInteger syncedBudgetEntries = new AtomicInteger(0);
+            AtomicInteger completedTrips = new AtomicInteger(0);
+            AtomicInteger failedTrips = new AtomicInteger(0);
+            
+            listener.onProgressUpdate(20, "🔄 Uploading " + localTrips.size() + " changed trips (with images)...");
+            
+            // Step 2: Sync each changed trip with its activities
+            for (Trip trip : localTrips) {
+                String firebaseId = trip.getFirebaseId();
+                boolean remoteHasTrip = remoteTripHashes != null && firebaseId != null
+                        && remoteTripHashes.containsKey(firebaseId);
+                
+                syncTripAsJson(userEmail, trip, remoteHasTrip, syncedBudgetEntries, new OnTripSyncListener() {
+                    @Override
+                    public void onTripSynced(int activitiesCount) {
+                        syncPrefs.checkpointTripCompleted(trip.getId(), trip.getUpdatedAt());
+                        syncPrefs.setSyncedTripHash(trip.getId(), tripHashes.get(trip.getId()));
+                        int completed = completedTrips.incrementAndGet();
+                        int synced = syncedTrips.incrementAndGet();
+                        syncedActivities.addAndGet(activitiesCount);
+                        
+                        int progress = 20 + (completed * 70 / totalTrips.get());
+                        listener.onProgressUpdate(progress, 
+                            "✅ Synced trip " + completed + "/" + totalTrips.get() + 
+                            " (" + activitiesCount + " activities, " + syncedBudgetEntries.get() + " budget entries)");
+                        
+                        if (completed == totalTrips.get() && failedTrips.get() > 0) {
+                            // Keep the checkpoint so the next sync only retries the failed trips
+                            syncPrefs.recordFailedSync();
+                            listener.onSuccess(syncedTrips.get(), syncedActivities.get());
+                        } else if (completed == totalTrips.get()) {
+                            // All trips completed
+                            listener.onProgressUpdate(90, "🎯 Finalizing sync...");
+                            
+                            // Create summary document (trip Firebase IDs are known now)
+                            createSyncSummary(userEmail, synced, syncedActivities.get(), rootHash,
+                                    buildRemoteTripHashes(allTrips, tripHashes), () -> {
+                                listener.onProgressUpdate(100, "✅ Sync complete!");
+                                // Record successful sync
+                                syncPrefs.clearSyncCheckpoint();
+                                syncPrefs.setSyncedRootHash(rootHash);
+                                syncPrefs.recordSuccessfulSync(synced, syncedActivities.get());
+                                listener.onSuccess(synced, syncedActivities.get());
+                            });
+                        }
+                    }
+                    
+                    @Override
+                    public void onError(String error) {
+                        failedTrips.incrementAndGet();
+                        int completed = completedTrips.incrementAndGet();
+                        Log.e(TAG, "Failed to sync trip: " + trip.getTitle() + " - " + error);
+                        
+                        if (completed == totalTrips.get()) {
+                            // All trips completed (with some failures) - keep the checkpoint for resume
+                            syncPrefs.recordFailedSync();
+                            listener.onSuccess(syncedTrips.get(), syncedActivities.get());
+                        }
+                    }
+                });
+            }
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Error during data sync", e);
+            syncPrefs.recordFailedSync();
+            listener.onError("Sync failed: " + e.getMessage());
+        } finally {
+            AppTrace.end(traced);
+        }
+    }
 
     /**
      * Interface for trip sync callbacks
@@ -741,9 +1171,11 @@ public class DataSyncService {
     }
     
     /**
-     * Sync budget data for a specific trip (follows BudgetRepository pattern)
+     * Sync budget data for a specific trip using batched writes
+     * (trip budget and all dirty expenses go out in one WriteBatch per 500 entries)
      */
-    private void syncBudgetForTrip(int tripId, String userEmail, OnBudgetSyncCompleteListener listener) {
+    private void syncBudgetForTrip(int tripId, String tripFirebaseId, boolean freshTripDocument,
+                                   String userEmail, OnBudgetSyncCompleteListener listener) {
         Log.d(TAG, "💰 Starting budget sync for trip ID: " + tripId);
         
         executor.execute(() -> {
@@ -751,12 +1183,8 @@ public class DataSyncService {
                 // Load local budget data
                 BudgetRepository.BudgetData localBudgetData = budgetRepository.loadBudgetDataLocally();
                 
-                int budgetEntriesSynced = 0;
-                boolean hasErrors = false;
-                StringBuilder errorMessages = new StringBuilder();
-                
                 // Check if this trip has budget data
-                Double tripBudget = localBudgetData.tripBudgets.get(tripId);
+                Long tripBudget = localBudgetData.budgetFor(tripId);
                 List<Expense> tripExpenses = localBudgetData.tripExpenses.get(tripId);
                 
                 if (tripBudget == null && (tripExpenses == null || tripExpenses.isEmpty())) {
@@ -766,52 +1194,22 @@ public class DataSyncService {
                 }
                 
                 Log.d(TAG, "💰 Found budget data for trip " + tripId + ":");
-                Log.d(TAG, "   Budget: " + (tripBudget != null ? "RM" + tripBudget : "none"));
+                Log.d(TAG, "   Budget: " + (tripBudget != null ? Money.format(tripBudget) : "none"));
                 Log.d(TAG, "   Expenses: " + (tripExpenses != null ? tripExpenses.size() : 0));
                 
-                // Sync trip budget if exists
-                if (tripBudget != null) {
-                    try {
-                        // Use synchronous approach for cleaner error handling
-                        syncTripBudgetSync(tripId, tripBudget, userEmail);
-                        budgetEntriesSynced++;
-                        Log.d(TAG, "✅ Trip budget synced: RM" + tripBudget);
-                    } catch (Exception e) {
-                        hasErrors = true;
-                        errorMessages.append("Budget sync error: ").append(e.getMessage()).append("; ");
-                        Log.w(TAG, "⚠️ Failed to sync trip budget: " + e.getMessage());
-                    }
-                }
-                
-                // Sync expenses if exist
-                if (tripExpenses != null && !tripExpenses.isEmpty()) {
-                    for (Expense expense : tripExpenses) {
-                        try {
-                            expense.setTripId(tripId); // Ensure trip ID is set
-                            syncExpenseSync(expense, userEmail);
-                            budgetEntriesSynced++;
-                            Log.d(TAG, "✅ Expense synced: " + expense.getTitle() + " (RM" + expense.getAmount() + ")");
-                        } catch (Exception e) {
-                            hasErrors = true;
-                            errorMessages.append("Expense sync error: ").append(e.getMessage()).append("; ");
-                            Log.w(TAG, "⚠️ Failed to sync expense " + expense.getTitle() + ": " + e.getMessage());
-                        }
+                // A freshly created trip document has an empty budget collection,
+                // so every expense must be written regardless of its synced flag
+                budgetRepository.syncTripBudgetBatch(tripId, tripFirebaseId, tripBudget, tripExpenses,
+                        freshTripDocument, userEmail, new BudgetRepository.OnBudgetBatchSyncListener() {
+                    @Override
+                    public void onSuccess(int entriesSynced) {
+                        Log.d(TAG, "✅ Budget batch synced for trip " + tripId + ": " + entriesSynced + " entries");
+                        listener.onBudgetSyncComplete(entriesSynced);
                     }
-                }
-                
-                // Report results
-                final int finalBudgetEntriesSynced = budgetEntriesSynced;
-                final boolean finalHasErrors = hasErrors;
-                final String finalErrorMessages = errorMessages.toString();
-                
-                new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
-                    if (finalHasErrors && finalBudgetEntriesSynced == 0) {
-                        listener.onBudgetSyncError("Failed to sync budget data: " + finalErrorMessages);
-                    } else {
-                        if (finalHasErrors) {
-                            Log.w(TAG, "⚠️ Partial budget sync: " + finalBudgetEntriesSynced + " entries synced with errors: " + finalErrorMessages);
-                        }
-                        listener.onBudgetSyncComplete(finalBudgetEntriesSynced);
+                    
+                    @Override
+                    public void onError(String error) {
+                        listener.onBudgetSyncError("Failed to sync budget data: " + error);
                     }
                 });
                 
@@ -823,96 +1221,6 @@ public class DataSyncService {
             }
         });
     }
-    
-    /**
-     * Synchronous trip budget sync (blocks until complete)
-     */
-    private void syncTripBudgetSync(int tripId, double budget, String userEmail) throws Exception {
-        final Exception[] syncException = new Exception[1];
-        final boolean[] syncComplete = new boolean[1];
-        
-        budgetRepository.syncTripBudgetToFirebase(tripId, budget, userEmail, new BudgetRepository.OnBudgetOperationListener() {
-            @Override
-            public void onSuccess() {
-                synchronized (syncComplete) {
-                    syncComplete[0] = true;
-                    syncComplete.notify();
-                }
-            }
-            
-            @Override
-            public void onError(String error) {
-                synchronized (syncComplete) {
-                    syncException[0] = new Exception(error);
-                    syncComplete[0] = true;
-                    syncComplete.notify();
-                }
-            }
-        });
-        
-        // Wait for completion
-        synchronized (syncComplete) {
-            while (!syncComplete[0]) {
-                try {
-                    syncComplete.wait(30000); // 30 second timeout
-                    if (!syncComplete[0]) {
-                        throw new Exception("Budget sync timeout");
-                    }
-                } catch (InterruptedException e) {
-                    throw new Exception("Budget sync interrupted");
-                }
-            }
-        }
-        
-        if (syncException[0] != null) {
-            throw syncException[0];
-        }
-    }
-    
-    /**
-     * Synchronous expense sync (blocks until complete)
-     */
-    private void syncExpenseSync(Expense expense, String userEmail) throws Exception {
-        final Exception[] syncException = new Exception[1];
-        final boolean[] syncComplete = new boolean[1];
-        
-        budgetRepository.syncExpenseToFirebase(expense, userEmail, new BudgetRepository.OnBudgetOperationListener() {
-            @Override
-            public void onSuccess() {
-                synchronized (syncComplete) {
-                    syncComplete[0] = true;
-                    syncComplete.notify();
-                }
-            }
-            
-            @Override
-            public void onError(String error) {
-                synchronized (syncComplete) {
-                    syncException[0] = new Exception(error);
-                    syncComplete[0] = true;
-                    syncComplete.notify();
-                }
-            }
-        });
-        
-        // Wait for completion
-        synchronized (syncComplete) {
-            while (!syncComplete[0]) {
-                try {
-                    syncComplete.wait(30000); // 30 second timeout
-                    if (!syncComplete[0]) {
-                        throw new Exception("Expense sync timeout");
-                    }
-                } catch (InterruptedException e) {
-                    throw new Exception("Expense sync interrupted");
-                }
-            }
-        }
-        
-        if (syncException[0] != null) {
-            throw syncException[0];
-        }
-    }
 
     /**
      * Save a single activity as JSON directly to Firebase
@@ -945,13 +1253,13 @@ public class DataSyncService {
             
             // CRITICAL FIX: Handle imageUrl exactly like bulk sync
             if (activity.getImageUrl() != null && activity.getImageUrl().startsWith("https://firebasestorage.googleapis.com")) {
-                activityData.put("imageUrl", activity.getImageUrl());
+                activityData.put(TripActivityCodec.IMAGE_URL, activity.getImageUrl());
                 Log.d(TAG, "🖼️ Including existing Firebase image URL in direct creation");
             } else if (activity.getImageUrl() != null && !activity.getImageUrl().isEmpty()) {
-                activityData.put("imageUrl", activity.getImageUrl());
+                activityData.put(TripActivityCodec.IMAGE_URL, activity.getImageUrl());
                 Log.d(TAG, "🖼️ Including local image URL in direct creation");
             } else {
-                activityData.put("imageUrl", "");
+                activityData.put(TripActivityCodec.IMAGE_URL, "");
                 Log.d(TAG, "📝 No image URL for direct creation");
             }
             
@@ -979,25 +1287,26 @@ public class DataSyncService {
     private void saveTripToFirebaseFirst(Trip trip, String userEmail, Map<String, Object> activityData, OnActivitySaveListener listener) {
         Map<String, Object> tripData = createTripFirebaseData(trip);
         
-        firestore.collection(COLLECTION_USERS)
-                .document(userEmail)
-                .collection(COLLECTION_TRIPS)
-                .add(tripData)
-                .addOnSuccessListener(documentReference -> {
-                    String tripFirebaseId = documentReference.getId();
-                    Log.d(TAG, "✅ Trip created in Firebase with ID: " + tripFirebaseId);
-                    
-                    // Update local trip with Firebase ID
-                    TripRepository repository = TripRepository.getInstance(context);
-                    repository.updateTripFirebaseId(trip.getId(), tripFirebaseId);
-                    
-                    // Now save the activity
-                    saveActivityToFirebase(userEmail, tripFirebaseId, activityData, listener);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to create trip in Firebase", e);
-                    listener.onError("Failed to create trip in Firebase: " + e.getMessage());
-                });
+        remoteStore.addDocument(COLLECTION_USERS + "/" + userEmail + "/" + COLLECTION_TRIPS, tripData,
+                new RemoteStore.Callback<String>() {
+            @Override
+            public void onSuccess(String tripFirebaseId) {
+                Log.d(TAG, "✅ Trip created in Firebase with ID: " + tripFirebaseId);
+                
+                // Update local trip with Firebase ID
+                TripRepository repository = TripRepository.getInstance(context);
+                repository.updateTripFirebaseId(trip.getId(), tripFirebaseId);
+                
+                // Now save the activity
+                saveActivityToFirebase(userEmail, tripFirebaseId, activityData, listener);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "❌ Failed to create trip in Firebase", e);
+                listener.onError("Failed to create trip in Firebase: " + e.getMessage());
+            }
+        });
     }
     
     /**
@@ -1005,74 +1314,70 @@ public class DataSyncService {
      */
     private void saveActivityToFirebase(String userEmail, String tripFirebaseId, Map<String, Object> activityData, OnActivitySaveListener listener) {
         // Check for duplicates first to prevent multiple saves
-        String title = (String) activityData.get("title");
-        Long dateTime = (Long) activityData.get("dateTime");
+        String title = (String) activityData.get(TripActivityCodec.TITLE);
+        Long dateTime = (Long) activityData.get(TripActivityCodec.DATE_TIME);
         
-        firestore.collection(COLLECTION_USERS)
-                .document(userEmail)
-                .collection(COLLECTION_TRIPS)
-                .document(tripFirebaseId)
-                .collection(COLLECTION_ACTIVITIES)
-                .whereEqualTo("title", title)
-                .whereEqualTo("dateTime", dateTime)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (!querySnapshot.isEmpty()) {
-                        // Activity already exists, update it
-                        String existingId = querySnapshot.getDocuments().get(0).getId();
-                        Log.d(TAG, "🔄 Activity already exists, updating: " + title);
-                        updateActivityInFirebase(userEmail, tripFirebaseId, existingId, activityData, listener);
-                    } else {
-                        // Create new activity
-                        Log.d(TAG, "➕ Creating new activity in Firebase: " + title);
-                        createActivityInFirebase(userEmail, tripFirebaseId, activityData, listener);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "⚠️ Error checking for duplicates, creating new activity: " + title, e);
+        remoteStore.queryMatching(activitiesPath(userEmail, tripFirebaseId),
+                FirebaseDataHelper.activityMatchFields(title, dateTime), 1,
+                new RemoteStore.Callback<List<RemoteDocument>>() {
+            @Override
+            public void onSuccess(List<RemoteDocument> matches) {
+                if (!matches.isEmpty()) {
+                    // Activity already exists, update it
+                    String existingId = matches.get(0).getId();
+                    Log.d(TAG, "🔄 Activity already exists, updating: " + title);
+                    updateActivityInFirebase(userEmail, tripFirebaseId, existingId, activityData, listener);
+                } else {
+                    // Create new activity
+                    Log.d(TAG, "➕ Creating new activity in Firebase: " + title);
                     createActivityInFirebase(userEmail, tripFirebaseId, activityData, listener);
-                });
+                }
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "⚠️ Error checking for duplicates, creating new activity: " + title, e);
+                createActivityInFirebase(userEmail, tripFirebaseId, activityData, listener);
+            }
+        });
     }
     
     /**
      * Create new activity in Firebase
      */
     private void createActivityInFirebase(String userEmail, String tripFirebaseId, Map<String, Object> activityData, OnActivitySaveListener listener) {
-        firestore.collection(COLLECTION_USERS)
-                .document(userEmail)
-                .collection(COLLECTION_TRIPS)
-                .document(tripFirebaseId)
-                .collection(COLLECTION_ACTIVITIES)
-                .add(activityData)
-                .addOnSuccessListener(documentReference -> {
-                    String firebaseId = documentReference.getId();
-                    Log.d(TAG, "✅ Activity created in Firebase with ID: " + firebaseId);
-                    listener.onSuccess(firebaseId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to create activity in Firebase", e);
-                    listener.onError("Failed to save activity: " + e.getMessage());
-                });
+        remoteStore.addDocument(activitiesPath(userEmail, tripFirebaseId), activityData, new RemoteStore.Callback<String>() {
+            @Override
+            public void onSuccess(String firebaseId) {
+                Log.d(TAG, "✅ Activity created in Firebase with ID: " + firebaseId);
+                listener.onSuccess(firebaseId);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "❌ Failed to create activity in Firebase", e);
+                listener.onError("Failed to save activity: " + e.getMessage());
+            }
+        });
     }
     
     /**
      * Update existing activity in Firebase
      */
     private void updateActivityInFirebase(String userEmail, String tripFirebaseId, String documentId, Map<String, Object> activityData, OnActivitySaveListener listener) {
-        firestore.collection(COLLECTION_USERS)
-                .document(userEmail)
-                .collection(COLLECTION_TRIPS)
-                .document(tripFirebaseId)
-                .collection(COLLECTION_ACTIVITIES)
-                .document(documentId)
-                .set(activityData)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ Activity updated in Firebase: " + activityData.get("title"));
-                    listener.onSuccess(documentId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to update activity in Firebase", e);
-                    listener.onError("Failed to update activity: " + e.getMessage());
-                });
+        remoteStore.setDocument(activitiesPath(userEmail, tripFirebaseId) + "/" + documentId, activityData, false,
+                new RemoteStore.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                Log.d(TAG, "✅ Activity updated in Firebase: " + activityData.get(TripActivityCodec.TITLE));
+                listener.onSuccess(documentId);
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "❌ Failed to update activity in Firebase", e);
+                listener.onError("Failed to update activity: " + e.getMessage());
+            }
+        });
     }
 } 
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.example.mobiledegreefinalproject;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Debug screen showing the Metrics registry: latency histograms and counters for DAO
+ * calls, repository operations, Firestore round-trips, listener batches, executor queues
+ * and image uploads. Opened by long-pressing About in Settings.
+ * Also switches the AppTrace system trace sections on and off.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private static final String TAG = "DiagnosticsActivity";
+
+    private TextView metricsOutput;
+    private Button tracingButton;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final ActivityResultLauncher<String> exportLauncher =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("application/json"), uri -> {
+                if (uri != null) exportTo(uri);
+            });
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        metricsOutput = findViewById(R.id.metrics_output);
+        tracingButton = findViewById(R.id.tracing_button);
+
+        findViewById(R.id.back_button).setOnClickListener(v -> finish());
+        findViewById(R.id.refresh_button).setOnClickListener(v -> refresh());
+        findViewById(R.id.reset_button).setOnClickListener(v -> {
+            Metrics.reset();
+            refresh();
+        });
+        findViewById(R.id.export_button).setOnClickListener(v -> {
+            String stamp = new SimpleDateFormat("yyyyMMdd_HHmm", Locale.US).format(new Date());
+            exportLauncher.launch("wanderplan_metrics_" + stamp + ".json");
+        });
+        tracingButton.setOnClickListener(v -> {
+            AppTrace.setEnabled(this, !AppTrace.isEnabled());
+            updateTracingButton();
+        });
+
+        updateTracingButton();
+        refresh();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        executor.shutdown();
+    }
+
+    private void refresh() {
+        metricsOutput.setText(Metrics.summary());
+    }
+
+    private void updateTracingButton() {
+        tracingButton.setText(AppTrace.isEnabled() ? "🧵 System Tracing: On" : "🧵 System Tracing: Off");
+    }
+
+    private void exportTo(Uri uri) {
+        executor.execute(() -> {
+            boolean success;
+            try (OutputStream stream = getContentResolver().openOutputStream(uri)) {
+                if (stream == null) throw new java.io.IOException("Could not open " + uri);
+                Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+                Metrics.writeJson(writer, AppLog.dump());
+                writer.flush();
+                success = true;
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Metrics export failed", e);
+                success = false;
+            }
+
+            boolean exported = success;
+            new Handler(Looper.getMainLooper()).post(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                Toast.makeText(this, exported ? "✅ Metrics exported" : "❌ Export failed",
+                        Toast.LENGTH_SHORT).show();
+            });
+        });
+    }
+}
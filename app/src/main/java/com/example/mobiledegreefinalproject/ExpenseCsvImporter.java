@@ -0,0 +1,560 @@
+package com.example.mobiledegreefinalproject;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.mobiledegreefinalproject.model.Expense;
+import com.example.mobiledegreefinalproject.model.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Imports expenses from a bank or card statement exported as CSV.
+ *
+ * The file is read one record at a time, so memory use does not grow with its length. Columns
+ * are matched to title, amount, date, category and note by their header names. Each row is
+ * converted and validated as it is read; rows that can't be used are skipped and reported, so
+ * one bad line does not abort the import. Nothing is stored here: the caller adds the result
+ * to its trip with a single save and a single batched sync.
+ */
+public class ExpenseCsvImporter {
+    private static final String TAG = "ExpenseCsvImporter";
+    // Rows between progress updates
+    private static final int PROGRESS_INTERVAL = 500;
+    private static final int MAX_REPORTED_PROBLEMS = 5;
+    static final int DEBIT = 1;
+    static final int CREDIT = -1;
+
+    private static final String[] TITLE_COLUMNS = {"description", "title", "details", "merchant", "payee",
+            "narrative", "particulars", "name", "transaction", "memo"};
+    private static final String[] AMOUNT_COLUMNS = {"amount", "debit", "withdrawal", "value", "total", "cost", "price"};
+    private static final String[] DATE_COLUMNS = {"date", "transactiondate", "postingdate", "posted", "timestamp", "time"};
+    private static final String[] CATEGORY_COLUMNS = {"category", "type", "tag"};
+    private static final String[] NOTE_COLUMNS = {"note", "notes", "memo", "reference", "remarks"};
+
+    // Tried in order after the last pattern that matched; day-first, as on Malaysian statements
+    private static final String[] DATE_PATTERNS = {
+            "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd HH:mm", "yyyy-MM-dd",
+            "dd/MM/yyyy HH:mm:ss", "dd/MM/yyyy HH:mm", "dd/MM/yyyy", "dd-MM-yyyy", "dd.MM.yyyy",
+            "yyyy/MM/dd", "dd MMM yyyy", "dd-MMM-yyyy", "dd MMM yy", "dd/MM/yy"
+    };
+
+    // Keywords checked against the category column, then the title; first match wins
+    private static final Object[][] CATEGORY_KEYWORDS = {
+            {Expense.Category.FOOD, new String[]{"food", "restaurant", "cafe", "coffee", "dining", "meal",
+                    "grocer", "bakery", "mcdonald", "kfc", "starbucks", "foodpanda"}},
+            {Expense.Category.TRANSPORT, new String[]{"transport", "grab", "taxi", "uber", "bus", "train",
+                    "mrt", "lrt", "flight", "airline", "airasia", "petrol", "fuel", "parking", "toll", "car rental"}},
+            {Expense.Category.HOTEL, new String[]{"hotel", "hostel", "airbnb", "agoda", "booking.com", "resort",
+                    "lodging", "accommodation"}},
+            {Expense.Category.ACTIVITIES, new String[]{"ticket", "tour", "museum", "theme park", "activit",
+                    "entertainment", "cinema", "klook", "attraction"}},
+            {Expense.Category.SHOPPING, new String[]{"shop", "store", "mall", "market", "boutique", "souvenir",
+                    "shopee", "lazada", "uniqlo"}}
+    };
+
+    private final Context context;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+
+    public ExpenseCsvImporter(Context context) {
+        this.context = context.getApplicationContext();
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public interface OnImportListener {
+        void onProgressUpdate(int rowsRead);
+        void onSuccess(ImportResult result);
+        void onError(String error);
+    }
+
+    /**
+     * Expenses parsed from a statement, plus what was skipped and why
+     */
+    public static class ImportResult {
+        private final List<Expense> expenses = new ArrayList<>();
+        private final List<String> problems = new ArrayList<>();
+        private int rowCount;
+        private int skippedCount;
+
+        public List<Expense> getExpenses() {
+            return expenses;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public int getSkippedCount() {
+            return skippedCount;
+        }
+
+        /**
+         * The first few reasons rows were skipped, e.g. "Row 12: invalid amount"
+         */
+        public List<String> getProblems() {
+            return Collections.unmodifiableList(problems);
+        }
+
+        void skip(int row, String reason) {
+            skippedCount++;
+            if (problems.size() < MAX_REPORTED_PROBLEMS) {
+                problems.add("Row " + row + ": " + reason);
+            }
+        }
+    }
+
+    /**
+     * Read a statement (e.g. from ACTION_OPEN_DOCUMENT) into expenses for the given trip.
+     * Callbacks run on the main thread.
+     */
+    public void importFromUri(Uri uri, int tripId, OnImportListener listener) {
+        executor.execute(() -> {
+            try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    postError(listener, "Could not open the statement file");
+                    return;
+                }
+                ImportResult result = parse(new InputStreamReader(in, StandardCharsets.UTF_8), tripId, listener);
+                mainHandler.post(() -> listener.onSuccess(result));
+            } catch (Exception e) {
+                Log.e(TAG, "CSV import failed", e);
+                postError(listener, "Import failed: " + e.getMessage());
+            } finally {
+                executor.shutdown();
+            }
+        });
+    }
+
+    /**
+     * Parse a whole statement on the calling thread
+     *
+     * @throws IOException if reading fails or the header has no title or amount column
+     */
+    public ImportResult parse(Reader source, int tripId, OnImportListener listener) throws IOException {
+        long start = Metrics.start();
+        boolean traced = AppTrace.begin("ExpenseCsvImporter.parse");
+        try {
+            CsvReader reader = new CsvReader(new BufferedReader(source));
+            List<String> header = reader.readRecord();
+            if (header == null) {
+                throw new IOException("The file is empty");
+            }
+
+            ColumnMap columns = ColumnMap.from(header);
+            if (columns.title < 0 || columns.amount < 0) {
+                throw new IOException("Couldn't find description and amount columns in the header");
+            }
+            Log.d(TAG, "Mapped CSV columns " + header + " to " + columns);
+
+            ImportResult result = new ImportResult();
+            DateParser dates = new DateParser();
+            List<Candidate> candidates = new ArrayList<>();
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                if (isBlank(record)) continue;
+                result.rowCount++;
+                // Row numbers as a spreadsheet shows them, counting the header
+                convertRow(record, result.rowCount + 1, columns, dates, tripId, result, candidates);
+
+                if (listener != null && result.rowCount % PROGRESS_INTERVAL == 0) {
+                    int rows = result.rowCount;
+                    mainHandler.post(() -> listener.onProgressUpdate(rows));
+                }
+            }
+
+            keepSpending(candidates, columns.debitOnly, result);
+
+            Metrics.recordValue("import.csv.rows", result.rowCount);
+            Log.d(TAG, "Parsed " + result.rowCount + " CSV rows: " + result.expenses.size() +
+                  " expenses, " + result.skippedCount + " skipped");
+            return result;
+        } finally {
+            AppTrace.end(traced);
+            Metrics.recordLatency("import.csv", start);
+        }
+    }
+
+    private void convertRow(List<String> record, int row, ColumnMap columns, DateParser dates,
+                            int tripId, ImportResult result, List<Candidate> candidates) {
+        String title = field(record, columns.title);
+        if (title.isEmpty()) {
+            result.skip(row, "missing description");
+            return;
+        }
+
+        String amountText = field(record, columns.amount);
+        if (amountText.isEmpty()) {
+            // e.g. a credit row on a statement with separate debit and credit columns
+            result.skip(row, "no amount");
+            return;
+        }
+        long amount;
+        try {
+            amount = parseAmount(amountText);
+        } catch (NumberFormatException e) {
+            result.skip(row, "invalid amount \"" + amountText + "\"");
+            return;
+        }
+        if (amount == 0) {
+            result.skip(row, "zero amount");
+            return;
+        }
+        int direction = direction(amountText);
+        if (direction == CREDIT) {
+            result.skip(row, "credit or refund");
+            return;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        if (columns.date >= 0) {
+            String dateText = field(record, columns.date);
+            Long parsed = dates.parse(dateText);
+            if (parsed == null) {
+                result.skip(row, "invalid date \"" + dateText + "\"");
+                return;
+            }
+            timestamp = parsed;
+        }
+
+        String categoryText = field(record, columns.category);
+        Expense.Category category = matchCategory(categoryText);
+        if (category == null) {
+            category = matchCategory(title);
+        }
+        String note = field(record, columns.note);
+
+        Expense expense = new Expense(title, Math.abs(amount), category != null ? category : Expense.Category.OTHER,
+                note.isEmpty() ? null : note, tripId);
+        expense.setTimestamp(timestamp);
+        // A DR suffix settles the direction; otherwise the sign is judged against the whole file
+        candidates.add(new Candidate(expense, row, direction == DEBIT ? 0 : Long.signum(amount)));
+    }
+
+    /**
+     * Move the spending rows into the result and skip the credits. A debit-only column holds
+     * nothing but spending; with one signed amount column, spending is whichever sign most
+     * rows have (negative on most bank exports, positive on most card statements), and the
+     * rows with the other sign are refunds, payments and other credits.
+     */
+    private static void keepSpending(List<Candidate> candidates, boolean debitOnly, ImportResult result) {
+        int negative = 0;
+        int positive = 0;
+        for (Candidate candidate : candidates) {
+            if (candidate.sign < 0) negative++;
+            else if (candidate.sign > 0) positive++;
+        }
+        int spendingSign = positive > negative ? 1 : -1;
+        for (Candidate candidate : candidates) {
+            if (debitOnly || candidate.sign == 0 || candidate.sign == spendingSign) {
+                result.expenses.add(candidate.expense);
+            } else {
+                result.skip(candidate.row, "credit or refund");
+            }
+        }
+    }
+
+    /**
+     * DEBIT or CREDIT when the amount says so with a DR or CR suffix, otherwise 0
+     */
+    static int direction(String text) {
+        String upper = text.trim().toUpperCase(Locale.ROOT);
+        if (upper.endsWith("CR")) return CREDIT;
+        if (upper.endsWith("DR")) return DEBIT;
+        return 0;
+    }
+
+    /**
+     * "RM1,234.50", "-12.00", "(12.00)", "1.234,50" or "12,50" as sen, negative for a leading or
+     * trailing minus or brackets
+     */
+    static long parseAmount(String text) {
+        StringBuilder digits = new StringBuilder(text.length());
+        boolean negative = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.' || c == ',') {
+                digits.append(c);
+            } else if (c == '-' || c == '(' || c == '\u2212') {
+                negative = true;
+            }
+        }
+        String number = digits.toString();
+        int comma = number.lastIndexOf(',');
+        int dot = number.lastIndexOf('.');
+        if (comma >= 0 && dot >= 0) {
+            // Both used: the later one is the decimal point, "1,234.50" or "1.234,50"
+            number = comma > dot
+                    ? number.replace(".", "").replace(',', '.')
+                    : number.replace(",", "");
+        } else if (comma >= 0) {
+            // "12,50" has a decimal comma, "1,234" a thousands separator
+            boolean decimal = number.indexOf(',') == comma && number.length() - comma - 1 <= 2;
+            number = decimal ? number.replace(',', '.') : number.replace(",", "");
+        } else if (dot >= 0 && number.indexOf('.') != dot) {
+            // "1.234.567" only has thousands separators
+            number = number.replace(".", "");
+        }
+        if (number.isEmpty()) {
+            throw new NumberFormatException("No digits in " + text);
+        }
+        long amount = Money.parse(number);
+        return negative ? -amount : amount;
+    }
+
+    static Expense.Category matchCategory(String text) {
+        if (text == null || text.isEmpty()) return null;
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (Expense.Category category : Expense.Category.values()) {
+            if (lower.equals(category.name().toLowerCase(Locale.ROOT))
+                    || lower.equals(category.getDisplayName().toLowerCase(Locale.ROOT))) {
+                return category;
+            }
+        }
+        for (Object[] entry : CATEGORY_KEYWORDS) {
+            for (String keyword : (String[]) entry[1]) {
+                if (lower.contains(keyword)) {
+                    return (Expense.Category) entry[0];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String field(List<String> record, int column) {
+        return column >= 0 && column < record.size() ? record.get(column).trim() : "";
+    }
+
+    private static boolean isBlank(List<String> record) {
+        for (String value : record) {
+            if (!value.trim().isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private void postError(OnImportListener listener, String error) {
+        mainHandler.post(() -> listener.onError(error));
+    }
+
+    /**
+     * Header positions of the columns an expense is built from; -1 when absent
+     */
+    static final class ColumnMap {
+        int title = -1;
+        int amount = -1;
+        int date = -1;
+        int category = -1;
+        int note = -1;
+        boolean debitOnly; // the amount column only holds withdrawals
+
+        static ColumnMap from(List<String> header) {
+            List<String> names = new ArrayList<>(header.size());
+            for (String name : header) {
+                names.add(name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", ""));
+            }
+            boolean[] used = new boolean[names.size()];
+
+            ColumnMap map = new ColumnMap();
+            // Amount first, so "Transaction Amount" isn't taken as the description
+            map.amount = find(names, used, AMOUNT_COLUMNS);
+            if (map.amount >= 0) {
+                String name = names.get(map.amount);
+                map.debitOnly = name.contains("debit") || name.contains("withdrawal");
+            }
+            map.date = find(names, used, DATE_COLUMNS);
+            map.title = find(names, used, TITLE_COLUMNS);
+            map.category = find(names, used, CATEGORY_COLUMNS);
+            map.note = find(names, used, NOTE_COLUMNS);
+            return map;
+        }
+
+        // An exact name beats a partial one ("Amount (RM)" still matches "amount")
+        private static int find(List<String> names, boolean[] used, String[] candidates) {
+            for (String candidate : candidates) {
+                int index = names.indexOf(candidate);
+                if (index >= 0 && !used[index]) {
+                    used[index] = true;
+                    return index;
+                }
+            }
+            for (String candidate : candidates) {
+                for (int i = 0; i < names.size(); i++) {
+                    if (!used[i] && names.get(i).contains(candidate)) {
+                        used[i] = true;
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            return "title=" + title + ", amount=" + amount + (debitOnly ? " (debits)" : "") + ", date=" + date +
+                   ", category=" + category + ", note=" + note;
+        }
+    }
+
+    /**
+     * Tries each known date pattern, starting with the one that matched last, since a
+     * statement uses the same format on every row
+     */
+    static final class DateParser {
+        private final SimpleDateFormat[] formats = new SimpleDateFormat[DATE_PATTERNS.length];
+        private final boolean[] fullYear = new boolean[DATE_PATTERNS.length];
+        private final Calendar calendar = Calendar.getInstance();
+        private int lastMatch;
+
+        DateParser() {
+            for (int i = 0; i < DATE_PATTERNS.length; i++) {
+                formats[i] = new SimpleDateFormat(DATE_PATTERNS[i], Locale.ENGLISH);
+                formats[i].setLenient(false);
+                fullYear[i] = DATE_PATTERNS[i].contains("yyyy");
+            }
+        }
+
+        Long parse(String text) {
+            if (text.isEmpty()) return null;
+            for (int attempt = 0; attempt < formats.length; attempt++) {
+                int index = (lastMatch + attempt) % formats.length;
+                ParsePosition position = new ParsePosition(0);
+                Date date = formats[index].parse(text, position);
+                if (date != null && position.getIndex() == text.length() && hasFullYear(index, date)) {
+                    lastMatch = index;
+                    return date.getTime();
+                }
+            }
+            return null;
+        }
+
+        // yyyy takes "24" literally as the year 24, so leave two-digit years to the yy patterns
+        private boolean hasFullYear(int index, Date date) {
+            if (!fullYear[index]) return true;
+            calendar.setTime(date);
+            return calendar.get(Calendar.YEAR) >= 1000;
+        }
+    }
+
+    /**
+     * A converted row waiting for the file's sign convention; sign is 0 when a DR suffix made it a debit
+     */
+    private static final class Candidate {
+        final Expense expense;
+        final int row;
+        final long sign;
+
+        Candidate(Expense expense, int row, long sign) {
+            this.expense = expense;
+            this.row = row;
+            this.sign = sign;
+        }
+    }
+
+    /**
+     * Minimal RFC 4180 reader: quoted fields may hold the delimiter, doubled quotes and line
+     * breaks. The delimiter (comma, semicolon or tab) is taken from the header line.
+     */
+    static final class CsvReader {
+        private final BufferedReader in;
+        private char delimiter = ',';
+        private boolean started;
+
+        CsvReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * The next record's fields, or null at the end of the input
+         */
+        List<String> readRecord() throws IOException {
+            if (!started) {
+                started = true;
+                detectDelimiter();
+            }
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = in.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int next = in.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) in.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) return null;
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private void detectDelimiter() throws IOException {
+            // Skip a byte order mark, which spreadsheet apps often write
+            in.mark(1);
+            if (in.read() != '\uFEFF') {
+                in.reset();
+            }
+            in.mark(8192);
+            String headerLine = in.readLine();
+            in.reset();
+            if (headerLine == null) return;
+
+            int commas = count(headerLine, ',');
+            int semicolons = count(headerLine, ';');
+            int tabs = count(headerLine, '\t');
+            if (semicolons > commas && semicolons >= tabs) {
+                delimiter = ';';
+            } else if (tabs > commas && tabs > semicolons) {
+                delimiter = '\t';
+            }
+        }
+
+        private static int count(String text, char c) {
+            int count = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == c) count++;
+            }
+            return count;
+        }
+    }
+}
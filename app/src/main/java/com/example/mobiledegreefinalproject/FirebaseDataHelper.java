@@ -3,9 +3,16 @@ package com.example.mobiledegreefinalproject;
 import android.util.Log;
 import com.example.mobiledegreefinalproject.database.Trip;
 import com.example.mobiledegreefinalproject.database.TripActivity;
+import com.example.mobiledegreefinalproject.remote.RemoteStore;
+import com.example.mobiledegreefinalproject.remote.TripActivityCodec;
+import com.example.mobiledegreefinalproject.remote.TripCodec;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.Filter;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,60 +24,33 @@ public class FirebaseDataHelper {
     
     /**
      * Convert TripActivity to Firebase data format
-     * This is the SINGLE SOURCE OF TRUTH for activity data structure
+     * This is the SINGLE SOURCE OF TRUTH for activity data structure (see TripActivityCodec)
      */
     public static Map<String, Object> activityToFirebaseData(TripActivity activity) {
-        Map<String, Object> data = new HashMap<>();
-        
-        // Core activity fields - these must match exactly in loading
-        data.put("title", activity.getTitle() != null ? activity.getTitle() : "");
-        data.put("description", activity.getDescription() != null ? activity.getDescription() : "");
-        data.put("location", activity.getLocation() != null ? activity.getLocation() : "");
-        data.put("timeString", activity.getTimeString() != null ? activity.getTimeString() : "");
-        data.put("imageUrl", activity.getImageUrl() != null ? activity.getImageUrl() : "");
-        
-        // Numeric fields
-        data.put("dateTime", activity.getDateTime());
-        data.put("dayNumber", activity.getDayNumber());
-        data.put("latitude", activity.getLatitude());
-        data.put("longitude", activity.getLongitude());
-        data.put("createdAt", activity.getCreatedAt());
-        data.put("updatedAt", activity.getUpdatedAt());
-        
-        // Metadata
-        data.put("platform", "android");
-        data.put("synced", true);
-        
-        return data;
+        return TripActivityCodec.encode(activity);
     }
     
     /**
      * Convert Firebase document to TripActivity
-     * This is the SINGLE SOURCE OF TRUTH for loading activities
+     * This is the SINGLE SOURCE OF TRUTH for loading activities (see TripActivityCodec)
      */
     public static TripActivity firebaseDataToActivity(QueryDocumentSnapshot doc, int tripId) {
         try {
             TripActivity activity = new TripActivity();
             
+            // Missing text fields load as empty strings
+            activity.setTitle("");
+            activity.setDescription("");
+            activity.setLocation("");
+            activity.setTimeString("");
+            activity.setImageUrl("");
+            
+            TripActivityCodec.decode(doc.getData(), activity);
+            
             // Set Firebase ID
             activity.setFirebaseId(doc.getId());
             activity.setTripId(tripId);
             
-            // Load core fields - MUST match the save format exactly
-            activity.setTitle(getStringField(doc, "title"));
-            activity.setDescription(getStringField(doc, "description"));
-            activity.setLocation(getStringField(doc, "location"));
-            activity.setTimeString(getStringField(doc, "timeString"));
-            activity.setImageUrl(getStringField(doc, "imageUrl"));
-            
-            // Load numeric fields
-            activity.setDateTime(getLongField(doc, "dateTime"));
-            activity.setDayNumber(getIntField(doc, "dayNumber"));
-            activity.setLatitude(getDoubleField(doc, "latitude"));
-            activity.setLongitude(getDoubleField(doc, "longitude"));
-            activity.setCreatedAt(getLongField(doc, "createdAt"));
-            activity.setUpdatedAt(getLongField(doc, "updatedAt"));
-            
             // Mark as synced
             activity.setSynced(true);
             
@@ -88,75 +68,55 @@ public class FirebaseDataHelper {
     }
     
     /**
-     * Convert Trip to Firebase data format
+     * Convert Trip to Firebase data format (see TripCodec)
      */
     public static Map<String, Object> tripToFirebaseData(Trip trip) {
-        Map<String, Object> data = new HashMap<>();
-        
-        data.put("title", trip.getTitle() != null ? trip.getTitle() : "");
-        data.put("destination", trip.getDestination() != null ? trip.getDestination() : "");
-        data.put("startDate", trip.getStartDate());
-        data.put("endDate", trip.getEndDate());
-        data.put("mapImageUrl", trip.getMapImageUrl() != null ? trip.getMapImageUrl() : "");
-        data.put("latitude", trip.getLatitude());
-        data.put("longitude", trip.getLongitude());
-        data.put("createdAt", trip.getCreatedAt());
-        data.put("updatedAt", trip.getUpdatedAt());
-        data.put("platform", "android");
-        data.put("synced", true);
-        
-        return data;
+        return TripCodec.encode(trip);
     }
     
     /**
-     * Helper methods for safe data extraction
+     * Clear the version 1 field names in a merge write, so merging a freshly encoded
+     * document over an old one leaves only the version 2 layout behind
      */
-    private static String getStringField(QueryDocumentSnapshot doc, String fieldName) {
-        try {
-            Object value = doc.get(fieldName);
-            return value != null ? value.toString() : "";
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to get string field: " + fieldName, e);
-            return "";
+    public static Map<String, Object> withLegacyFieldsCleared(Map<String, Object> data, String[] legacyKeys) {
+        for (String key : legacyKeys) {
+            data.put(key, FieldValue.delete());
         }
+        return data;
     }
     
-    private static long getLongField(QueryDocumentSnapshot doc, String fieldName) {
-        try {
-            Object value = doc.get(fieldName);
-            if (value instanceof Number) {
-                return ((Number) value).longValue();
-            }
-            return 0L;
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to get long field: " + fieldName, e);
-            return 0L;
+    /**
+     * Same as withLegacyFieldsCleared, for writes made through a RemoteStore
+     */
+    public static Map<String, Object> withLegacyFieldsRemoved(Map<String, Object> data, String[] legacyKeys) {
+        for (String key : legacyKeys) {
+            data.put(key, RemoteStore.DELETE_FIELD);
         }
+        return data;
     }
     
-    private static int getIntField(QueryDocumentSnapshot doc, String fieldName) {
-        try {
-            Object value = doc.get(fieldName);
-            if (value instanceof Number) {
-                return ((Number) value).intValue();
-            }
-            return 0;
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to get int field: " + fieldName, e);
-            return 0;
-        }
+    /**
+     * Match an activity by title and time in either schema version, as alternatives for
+     * RemoteStore.queryMatching
+     */
+    public static List<Map<String, Object>> activityMatchFields(String title, long dateTime) {
+        Map<String, Object> current = new HashMap<>();
+        current.put(TripActivityCodec.TITLE, title);
+        current.put(TripActivityCodec.DATE_TIME, dateTime);
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put(TripActivityCodec.LEGACY_TITLE, title);
+        legacy.put(TripActivityCodec.LEGACY_DATE_TIME, dateTime);
+        return Arrays.asList(current, legacy);
     }
     
-    private static double getDoubleField(QueryDocumentSnapshot doc, String fieldName) {
-        try {
-            Object value = doc.get(fieldName);
-            if (value instanceof Number) {
-                return ((Number) value).doubleValue();
-            }
-            return 0.0;
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to get double field: " + fieldName, e);
-            return 0.0;
-        }
+    /**
+     * Match a trip by title and destination in either schema version
+     */
+    public static Filter tripMatchFilter(String title, String destination) {
+        return Filter.or(
+                Filter.and(Filter.equalTo(TripCodec.TITLE, title),
+                           Filter.equalTo(TripCodec.DESTINATION, destination)),
+                Filter.and(Filter.equalTo(TripCodec.LEGACY_TITLE, title),
+                           Filter.equalTo(TripCodec.LEGACY_DESTINATION, destination)));
     }
-} 
\ No newline at end of file
+}
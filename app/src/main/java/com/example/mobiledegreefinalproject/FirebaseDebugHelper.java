@@ -2,6 +2,9 @@ package com.example.mobiledegreefinalproject;
 
 import android.content.Context;
 import android.util.Log;
+import com.example.mobiledegreefinalproject.database.Trip;
+import com.example.mobiledegreefinalproject.remote.TripActivityCodec;
+import com.example.mobiledegreefinalproject.remote.TripCodec;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
@@ -80,16 +83,18 @@ public class FirebaseDebugHelper {
                     
                     // Analyze each trip
                     for (QueryDocumentSnapshot tripDoc : tripsQuery) {
+                        Trip storedTrip = TripCodec.decode(tripDoc.getData(), new Trip());
                         report.append("📍 Trip: ").append(tripDoc.getId()).append("\n");
-                        report.append("   Title: ").append(tripDoc.getString("title")).append("\n");
-                        report.append("   Destination: ").append(tripDoc.getString("destination")).append("\n");
+                        report.append("   Title: ").append(storedTrip.getTitle()).append("\n");
+                        report.append("   Destination: ").append(storedTrip.getDestination()).append("\n");
+                        report.append("   Schema: ").append(TripCodec.isLegacy(tripDoc.getData()) ? "v1" : "v" + TripCodec.SCHEMA_VERSION).append("\n");
                         report.append("   Data fields: ").append(tripDoc.getData().keySet()).append("\n\n");
                     }
                     
                     // Step 3: Check activities for first trip
                     QueryDocumentSnapshot firstTrip = (QueryDocumentSnapshot) tripsQuery.getDocuments().get(0);
                     checkActivitiesForTrip(firestore, userEmail, firstTrip.getId(), 
-                                         firstTrip.getString("title"), report, listener);
+                                         TripCodec.decode(firstTrip.getData(), new Trip()).getTitle(), report, listener);
                 })
                 .addOnFailureListener(e -> {
                     report.append("❌ Failed to access trips collection: ").append(e.getMessage()).append("\n");
@@ -126,8 +131,16 @@ public class FirebaseDebugHelper {
                         report.append("   ID: ").append(firstActivity.getId()).append("\n");
                         report.append("   Data fields: ").append(firstActivity.getData().keySet()).append("\n");
                         
-                        // Check required fields
-                        String[] requiredFields = {"title", "description", "location", "dateTime", "dayNumber"};
+                        // Check required fields under the names of the document's schema version
+                        boolean legacy = TripActivityCodec.isLegacy(firstActivity.getData());
+                        report.append("   Schema: ").append(legacy ? "v1" : "v" + TripActivityCodec.SCHEMA_VERSION).append("\n");
+                        String[] requiredFields = legacy
+                                ? new String[] {TripActivityCodec.LEGACY_TITLE, TripActivityCodec.LEGACY_DESCRIPTION,
+                                                TripActivityCodec.LEGACY_LOCATION, TripActivityCodec.LEGACY_DATE_TIME,
+                                                TripActivityCodec.LEGACY_DAY_NUMBER}
+                                : new String[] {TripActivityCodec.TITLE, TripActivityCodec.DESCRIPTION,
+                                                TripActivityCodec.LOCATION, TripActivityCodec.DATE_TIME,
+                                                TripActivityCodec.DAY_NUMBER};
                         for (String field : requiredFields) {
                             Object value = firstActivity.get(field);
                             report.append("   ").append(field).append(": ");
@@ -156,7 +156,7 @@ public class FirebaseTestActivity extends Activity {
             return;
         }
         
-        DataSyncService syncService = new DataSyncService(this);
+        DataSyncService syncService = DataSyncService.getInstance(this);
         syncService.syncLocalDataToFirebase(new DataSyncService.OnSyncCompleteListener() {
             @Override
             public void onProgressUpdate(int progress, String message) {
@@ -290,8 +290,8 @@ public class FirebaseTestActivity extends Activity {
             
             int totalBudgetCount = localData.tripBudgets.size();
             int totalExpenseCount = 0;
-            for (java.util.List<com.example.mobiledegreefinalproject.model.Expense> expenses : localData.tripExpenses.values()) {
-                totalExpenseCount += expenses.size();
+            for (int i = 0; i < localData.tripExpenses.size(); i++) {
+                totalExpenseCount += localData.tripExpenses.valueAt(i).size();
             }
             
             StringBuilder result = new StringBuilder();
@@ -301,18 +301,20 @@ public class FirebaseTestActivity extends Activity {
             
             if (totalBudgetCount > 0) {
                 result.append("Trip Budgets:\n");
-                for (java.util.Map.Entry<Integer, Double> entry : localData.tripBudgets.entrySet()) {
-                    result.append("Trip ").append(entry.getKey()).append(": RM").append(entry.getValue()).append("\n");
+                for (int i = 0; i < localData.tripBudgets.size(); i++) {
+                    result.append("Trip ").append(localData.tripBudgets.keyAt(i)).append(": ")
+                        .append(com.example.mobiledegreefinalproject.model.Money.format(localData.tripBudgets.valueAt(i))).append("\n");
                 }
                 result.append("\n");
             }
             
             if (totalExpenseCount > 0) {
                 result.append("Expenses by Trip:\n");
-                for (java.util.Map.Entry<Integer, java.util.List<com.example.mobiledegreefinalproject.model.Expense>> entry : localData.tripExpenses.entrySet()) {
-                    result.append("Trip ").append(entry.getKey()).append(": ").append(entry.getValue().size()).append(" expenses\n");
-                    for (com.example.mobiledegreefinalproject.model.Expense expense : entry.getValue()) {
-                        result.append("  - ").append(expense.getTitle()).append(": RM").append(expense.getAmount()).append("\n");
+                for (int i = 0; i < localData.tripExpenses.size(); i++) {
+                    java.util.List<com.example.mobiledegreefinalproject.model.Expense> tripExpenses = localData.tripExpenses.valueAt(i);
+                    result.append("Trip ").append(localData.tripExpenses.keyAt(i)).append(": ").append(tripExpenses.size()).append(" expenses\n");
+                    for (com.example.mobiledegreefinalproject.model.Expense expense : tripExpenses) {
+                        result.append("  - ").append(expense.getTitle()).append(": ").append(expense.getFormattedAmount()).append("\n");
                     }
                 }
             }
@@ -20,9 +20,6 @@ import com.example.mobiledegreefinalproject.adapter.TripsAdapter;
 import com.example.mobiledegreefinalproject.viewmodel.TripsViewModel;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class HomeFragment extends Fragment {
 
     private TextView welcomeText;
@@ -133,26 +130,16 @@ public class HomeFragment extends Fragment {
     private void observeTrips() {
         if (viewModel == null) return;
         
-        viewModel.getAllTrips().observe(getViewLifecycleOwner(), trips -> {
+        // Trips that haven't ended yet, already filtered and ordered by the query
+        viewModel.getCurrentAndUpcomingTrips().observe(getViewLifecycleOwner(), upcomingTrips -> {
             // Check if fragment is still in valid state
             if (!isAdded() || getActivity() == null || getActivity().isFinishing() || getContext() == null) {
                 android.util.Log.w("HomeFragment", "Fragment not in valid state for trips update");
                 return;
             }
             
-            if (trips != null && tripsAdapter != null) {
+            if (upcomingTrips != null && tripsAdapter != null) {
                 try {
-                    // Filter for upcoming trips only
-                    List<com.example.mobiledegreefinalproject.database.Trip> upcomingTrips = new ArrayList<>();
-                    long currentTime = System.currentTimeMillis();
-
-                    for (com.example.mobiledegreefinalproject.database.Trip trip : trips) {
-                        // Show trip if end date is in the future
-                        if (trip.getEndDate() >= currentTime) {
-                            upcomingTrips.add(trip);
-                        }
-                    }
-
                     tripsAdapter.submitList(upcomingTrips);
 
                     // Show/hide empty state
@@ -197,8 +184,8 @@ public class HomeFragment extends Fragment {
                 }
             });
             
-            // Refresh data when returning to home fragment
-            observeTrips();
+            // Re-query against the current time so trips that ended meanwhile drop off
+            viewModel.refreshNow();
         }
     }
     
@@ -594,7 +594,7 @@ public class LoginActivity extends BaseActivity {
         progressDialog.show();
         
         // Create and start sync service
-        DataSyncService syncService = new DataSyncService(this);
+        DataSyncService syncService = DataSyncService.getInstance(this);
         syncService.syncLocalDataToFirebase(new DataSyncService.OnSyncCompleteListener() {
             @Override
             public void onProgressUpdate(int progress, String message) {
@@ -21,6 +21,7 @@ public class MainActivity extends BaseActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        AppTrace.load(this);
         setContentView(R.layout.activity_main);
 
         initViews();
@@ -41,6 +42,9 @@ public class MainActivity extends BaseActivity {
                     android.util.Log.w("MainActivity", "Failed to sync user data on app start: " + error);
                 }
             });
+            
+            // Keep trip/budget uploads in background work instead of screen loads
+            SyncScheduler.onAppStart(this);
         }
         
         // Set default fragment if no saved state
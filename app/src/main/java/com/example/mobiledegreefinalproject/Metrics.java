@@ -0,0 +1,346 @@
+package com.example.mobiledegreefinalproject;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process performance metrics: counters and histograms keyed by name, cheap enough to
+ * leave on in release builds. Shown on DiagnosticsActivity and exportable as JSON.
+ *
+ * Names are dotted, starting with the area they measure:
+ *   dao.*        DAO method latency (see timed)
+ *   repo.*       repository operation latency
+ *   firestore.*  Firestore round-trip latency and errors
+ *   listener.*   documents per snapshot listener batch
+ *   executor.*   queue depth on submit and queue wait (see newFixedThreadPool)
+ *   upload.*     image upload latency, bytes and throughput
+ *   sync.*       whole sync / restore runs
+ */
+public final class Metrics {
+    public static final String UNIT_MICROS = "us";
+    public static final String UNIT_COUNT = "count";
+    public static final String UNIT_KB_PER_SECOND = "KB/s";
+
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static volatile long startedAt = System.currentTimeMillis();
+
+    private Metrics() {
+    }
+
+    // Recording
+
+    /**
+     * Timestamp to pass to recordLatency later
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    public static void recordLatency(String name, long startNanos) {
+        long micros = (System.nanoTime() - startNanos) / 1000L;
+        histogram(name, UNIT_MICROS).record(micros);
+    }
+
+    /**
+     * Record a size-like value, e.g. a batch size or queue depth
+     */
+    public static void recordValue(String name, long value) {
+        histogram(name, UNIT_COUNT).record(value);
+    }
+
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    public static void add(String name, long delta) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) counter = created;
+        }
+        counter.addAndGet(delta);
+    }
+
+    /**
+     * Record one transfer of the given size: latency under the name, total bytes under
+     * name.bytes and throughput under name.throughput
+     */
+    public static void recordTransfer(String name, long bytes, long startNanos) {
+        long nanos = Math.max(1, System.nanoTime() - startNanos);
+        histogram(name, UNIT_MICROS).record(nanos / 1000L);
+        add(name + ".bytes", bytes);
+        long kbPerSecond = (bytes * 1_000_000_000L / nanos) / 1024L;
+        histogram(name + ".throughput", UNIT_KB_PER_SECOND).record(kbPerSecond);
+    }
+
+    public static void reset() {
+        histograms.clear();
+        counters.clear();
+        startedAt = System.currentTimeMillis();
+    }
+
+    private static Histogram histogram(String name, String unit) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(unit);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) histogram = created;
+        }
+        return histogram;
+    }
+
+    // Instrumentation helpers
+
+    /**
+     * Called once a timed method has returned or thrown
+     */
+    public interface AfterCall {
+        void afterCall(Method method);
+    }
+
+    /**
+     * Wrap a DAO (or any interface) so every method call is timed under prefix.methodName
+     */
+    public static <T> T timed(Class<T> type, T target, String prefix) {
+        return timed(type, target, prefix, null);
+    }
+
+    /**
+     * Like timed, and also runs afterCall (when not null) after every timed call, so callers
+     * that need their own hook around each call do not have to stack a second proxy
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T timed(Class<T> type, T target, String prefix, AfterCall afterCall) {
+        ConcurrentHashMap<Method, String> names = new ConcurrentHashMap<>();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            String name = names.get(method);
+            if (name == null) {
+                name = prefix + "." + method.getName();
+                names.put(method, name);
+            }
+            long start = start();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                increment(name + ".errors");
+                throw e.getCause();
+            } finally {
+                recordLatency(name, start);
+                if (afterCall != null) {
+                    afterCall.afterCall(method);
+                }
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    /**
+     * A fixed-size pool that records queue depth on every submit (executor.name.queue)
+     * and how long each task waited before it ran (executor.name.wait)
+     */
+    public static ThreadPoolExecutor newFixedThreadPool(String name, int threads) {
+        return new MeteredThreadPoolExecutor(name, threads);
+    }
+
+    private static final class MeteredThreadPoolExecutor extends ThreadPoolExecutor {
+        private final String queueMetric;
+        private final String waitMetric;
+
+        MeteredThreadPoolExecutor(String name, int threads) {
+            super(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+            this.queueMetric = "executor." + name + ".queue";
+            this.waitMetric = "executor." + name + ".wait";
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            recordValue(queueMetric, getQueue().size());
+            long queuedAt = start();
+            super.execute(() -> {
+                recordLatency(waitMetric, queuedAt);
+                command.run();
+            });
+        }
+    }
+
+    // Reporting
+
+    /**
+     * Plain-text table for the diagnostics screen, sorted by name
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        List<String> names = new ArrayList<>(histograms.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            Histogram.Snapshot s = histograms.get(name).snapshot();
+            sb.append(name).append('\n');
+            if (UNIT_MICROS.equals(s.unit)) {
+                sb.append(String.format(Locale.US, "  n=%d  avg=%.1fms  p50=%.1fms  p95=%.1fms  max=%.1fms%n",
+                        s.count, s.mean() / 1000.0, s.p50 / 1000.0, s.p95 / 1000.0, s.max / 1000.0));
+            } else {
+                sb.append(String.format(Locale.US, "  n=%d  avg=%.1f  p50=%d  p95=%d  max=%d %s%n",
+                        s.count, s.mean(), s.p50, s.p95, s.max, s.unit));
+            }
+        }
+
+        List<String> counterNames = new ArrayList<>(counters.keySet());
+        Collections.sort(counterNames);
+        for (String name : counterNames) {
+            sb.append(name).append(" = ").append(counters.get(name).get()).append('\n');
+        }
+        return sb.length() > 0 ? sb.toString() : "No metrics recorded yet\n";
+    }
+
+    public static String toJson() {
+        StringWriter out = new StringWriter();
+        try {
+            writeJson(out, null);
+        } catch (IOException e) {
+            // StringWriter does not throw
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write all metrics as JSON, with the recent log lines appended when given
+     */
+    public static void writeJson(Writer out, String recentLog) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setIndent("  ");
+        writer.beginObject();
+        writer.name("startedAt").value(startedAt);
+        writer.name("exportedAt").value(System.currentTimeMillis());
+
+        writer.name("histograms").beginObject();
+        List<String> names = new ArrayList<>(histograms.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            Histogram.Snapshot s = histograms.get(name).snapshot();
+            writer.name(name).beginObject();
+            writer.name("unit").value(s.unit);
+            writer.name("count").value(s.count);
+            writer.name("sum").value(s.sum);
+            writer.name("min").value(s.min);
+            writer.name("max").value(s.max);
+            writer.name("p50").value(s.p50);
+            writer.name("p95").value(s.p95);
+            writer.name("p99").value(s.p99);
+            writer.endObject();
+        }
+        writer.endObject();
+
+        writer.name("counters").beginObject();
+        List<String> counterNames = new ArrayList<>(counters.keySet());
+        Collections.sort(counterNames);
+        for (String name : counterNames) {
+            writer.name(name).value(counters.get(name).get());
+        }
+        writer.endObject();
+
+        if (recentLog != null) {
+            writer.name("log").beginArray();
+            for (String line : recentLog.split("\n")) {
+                if (!line.isEmpty()) writer.value(line);
+            }
+            writer.endArray();
+        }
+
+        writer.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Log-scale histogram: bucket i holds values in [2^(i-1), 2^i), bucket 0 holds zero.
+     * Percentiles are reported as the upper bound of the bucket they fall in.
+     */
+    static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final String unit;
+        private final long[] buckets = new long[BUCKETS];
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max;
+
+        Histogram(String unit) {
+            this.unit = unit;
+        }
+
+        synchronized void record(long value) {
+            if (value < 0) value = 0;
+            buckets[value == 0 ? 0 : 64 - Long.numberOfLeadingZeros(value)]++;
+            count++;
+            sum += value;
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(unit, count, sum, count > 0 ? min : 0, max,
+                    percentile(0.50), percentile(0.95), percentile(0.99));
+        }
+
+        private long percentile(double fraction) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    long upper = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.min(upper, max);
+                }
+            }
+            return max;
+        }
+
+        static final class Snapshot {
+            final String unit;
+            final long count;
+            final long sum;
+            final long min;
+            final long max;
+            final long p50;
+            final long p95;
+            final long p99;
+
+            Snapshot(String unit, long count, long sum, long min, long max, long p50, long p95, long p99) {
+                this.unit = unit;
+                this.count = count;
+                this.sum = sum;
+                this.min = min;
+                this.max = max;
+                this.p50 = p50;
+                this.p95 = p95;
+                this.p99 = p99;
+            }
+
+            double mean() {
+                return count > 0 ? (double) sum / count : 0;
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.mobiledegreefinalproject;
 
 import android.app.AlertDialog;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,6 +15,8 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.fragment.app.Fragment;
 
 import com.bumptech.glide.Glide;
@@ -26,6 +29,7 @@ public class SettingsFragment extends Fragment {
     private LinearLayout profileLayout;
     private LinearLayout themeLayout;
     private LinearLayout syncLayout;
+    private LinearLayout backupLayout;
     private LinearLayout feedbackLayout;
     private LinearLayout aboutLayout;
     private LinearLayout loginLayout;
@@ -35,6 +39,16 @@ public class SettingsFragment extends Fragment {
     private UserManager userManager;
     private SyncPreferences syncPrefs;
 
+    private final ActivityResultLauncher<String> exportLauncher =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("application/gzip"), uri -> {
+                if (uri != null) performExport(uri);
+            });
+
+    private final ActivityResultLauncher<String[]> importLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) performImport(uri);
+            });
+
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
@@ -83,6 +97,7 @@ public class SettingsFragment extends Fragment {
         profileLayout = view.findViewById(R.id.layout_profile);
         themeLayout = view.findViewById(R.id.layout_theme);
         syncLayout = view.findViewById(R.id.layout_sync);
+        backupLayout = view.findViewById(R.id.layout_backup);
         feedbackLayout = view.findViewById(R.id.layout_feedback);
         aboutLayout = view.findViewById(R.id.layout_about);
         loginLayout = view.findViewById(R.id.layout_login);
@@ -112,8 +127,17 @@ public class SettingsFragment extends Fragment {
             updateSyncVisibility();
         }
         
+        if (backupLayout != null) {
+            backupLayout.setOnClickListener(v -> showBackupDialog());
+        }
+        
         feedbackLayout.setOnClickListener(v -> showFeedbackDialog());
         aboutLayout.setOnClickListener(v -> showAboutDialog());
+        // Hidden debug option - long press to open performance diagnostics
+        aboutLayout.setOnLongClickListener(v -> {
+            startActivity(new Intent(getActivity(), DiagnosticsActivity.class));
+            return true;
+        });
         
         loginLayout.setOnClickListener(v -> {
             try {
@@ -435,7 +459,7 @@ public class SettingsFragment extends Fragment {
         progressDialog.setMax(100);
         progressDialog.show();
         
-        DataSyncService syncService = new DataSyncService(requireContext());
+        DataSyncService syncService = DataSyncService.getInstance(requireContext());
         syncService.syncLocalDataToFirebase(new DataSyncService.OnSyncCompleteListener() {
             @Override
             public void onProgressUpdate(int progress, String message) {
@@ -486,12 +510,116 @@ public class SettingsFragment extends Fragment {
         });
     }
     
+    private void showBackupDialog() {
+        new AlertDialog.Builder(requireContext())
+                .setTitle("💾 Backup & Restore")
+                .setMessage("Export all trips, activities and budgets to a compressed file, " +
+                           "or import a previously exported file.\n\n" +
+                           "Imported trips are added alongside your existing trips.")
+                .setPositiveButton("📤 Export", (dialog, which) -> {
+                    String fileName = "wanderplan-backup-" +
+                            new java.text.SimpleDateFormat("yyyyMMdd-HHmm", java.util.Locale.US)
+                                    .format(new java.util.Date()) + ".json.gz";
+                    exportLauncher.launch(fileName);
+                })
+                .setNeutralButton("📥 Import", (dialog, which) -> {
+                    importLauncher.launch(new String[]{"application/gzip", "application/octet-stream", "*/*"});
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+    
+    private void performExport(Uri uri) {
+        android.app.ProgressDialog progressDialog = createTransferProgressDialog("📤 Exporting Data");
+        progressDialog.show();
+        
+        new DataExportService(requireContext()).exportToUri(uri, new DataExportService.OnTransferListener() {
+            @Override
+            public void onProgressUpdate(int progress, String message) {
+                progressDialog.setProgress(progress);
+                progressDialog.setMessage(message);
+            }
+            
+            @Override
+            public void onSuccess(int trips, int activities, int expenses) {
+                progressDialog.dismiss();
+                if (getContext() == null) return;
+                
+                new AlertDialog.Builder(requireContext())
+                        .setTitle("✅ Export Complete")
+                        .setMessage("🧳 Trips: " + trips + "\n📝 Activities: " + activities +
+                                   "\n💰 Expenses: " + expenses)
+                        .setPositiveButton("OK", null)
+                        .show();
+            }
+            
+            @Override
+            public void onError(String error) {
+                progressDialog.dismiss();
+                showTransferError("❌ Export Failed", error);
+            }
+        });
+    }
+    
+    private void performImport(Uri uri) {
+        android.app.ProgressDialog progressDialog = createTransferProgressDialog("📥 Importing Data");
+        progressDialog.show();
+        
+        new DataExportService(requireContext()).importFromUri(uri, new DataExportService.OnTransferListener() {
+            @Override
+            public void onProgressUpdate(int progress, String message) {
+                progressDialog.setProgress(progress);
+                progressDialog.setMessage(message);
+            }
+            
+            @Override
+            public void onSuccess(int trips, int activities, int expenses) {
+                progressDialog.dismiss();
+                if (getContext() == null) return;
+                
+                new AlertDialog.Builder(requireContext())
+                        .setTitle("✅ Import Complete")
+                        .setMessage("🧳 Trips: " + trips + "\n📝 Activities: " + activities +
+                                   "\n💰 Expenses: " + expenses + "\n\n" +
+                                   "Trips already on this device were skipped.")
+                        .setPositiveButton("OK", null)
+                        .show();
+            }
+            
+            @Override
+            public void onError(String error) {
+                progressDialog.dismiss();
+                showTransferError("❌ Import Failed", error);
+            }
+        });
+    }
+    
+    private android.app.ProgressDialog createTransferProgressDialog(String title) {
+        android.app.ProgressDialog progressDialog = new android.app.ProgressDialog(getContext());
+        progressDialog.setTitle(title);
+        progressDialog.setMessage("Preparing...");
+        progressDialog.setCancelable(false);
+        progressDialog.setProgressStyle(android.app.ProgressDialog.STYLE_HORIZONTAL);
+        progressDialog.setMax(100);
+        return progressDialog;
+    }
+    
+    private void showTransferError(String title, String error) {
+        if (getContext() == null) return;
+        
+        new AlertDialog.Builder(requireContext())
+                .setTitle(title)
+                .setMessage("⚠️ " + error)
+                .setPositiveButton("OK", null)
+                .show();
+    }
+    
     private void showSyncPreferencesDialog() {
         boolean autoSync = syncPrefs.isAutoSyncEnabled();
         boolean syncOnLogin = syncPrefs.shouldSyncOnLogin();
         
         String[] options = {
-            (autoSync ? "✅" : "☐") + " Auto Sync (every 24 hours)",
+            (autoSync ? "✅" : "☐") + " Auto Sync (in background on Wi-Fi)",
             (syncOnLogin ? "✅" : "☐") + " Sync on Login"
         };
         
@@ -503,6 +631,7 @@ public class SettingsFragment extends Fragment {
                     switch (which) {
                         case 0:
                             syncPrefs.setAutoSyncEnabled(isChecked);
+                            SyncScheduler.schedulePeriodicSync(requireContext());
                             break;
                         case 1:
                             syncPrefs.setSyncOnLogin(isChecked);
@@ -24,6 +24,7 @@ public class SplashActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        AppTrace.load(this);
         setContentView(R.layout.activity_splash);
 
         initViews();
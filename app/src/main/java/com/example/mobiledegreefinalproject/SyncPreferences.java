@@ -3,6 +3,9 @@ package com.example.mobiledegreefinalproject;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Utility class to manage sync preferences and settings
  */
@@ -15,6 +18,18 @@ public class SyncPreferences {
     private static final String KEY_LAST_SYNC_STATUS = "last_sync_status";
     private static final String KEY_TRIPS_SYNCED_COUNT = "trips_synced_count";
     private static final String KEY_ACTIVITIES_SYNCED_COUNT = "activities_synced_count";
+    private static final String KEY_CHECKPOINT_USER = "checkpoint_user";
+    private static final String KEY_CHECKPOINT_STARTED_AT = "checkpoint_started_at";
+    private static final String KEY_CHECKPOINT_COMPLETED_TRIPS = "checkpoint_completed_trips";
+    // Activities whose image upload started but has not succeeded. Unlike the checkpoint this
+    // outlives a finished sync: a failed upload still saves the activity, just without its image.
+    private static final String KEY_PENDING_IMAGES = "checkpoint_pending_images";
+    private static final String KEY_CHECKPOINT_UPLOADED_IMAGES = "checkpoint_uploaded_images";
+    private static final String KEY_CONTENT_ROOT_HASH = "content_root_hash";
+    private static final String KEY_CONTENT_TRIP_HASHES = "content_trip_hashes";
+    
+    // Checkpoints older than this are discarded and the next sync starts from scratch
+    private static final long CHECKPOINT_MAX_AGE_MS = 24 * 60 * 60 * 1000L;
     
     private final SharedPreferences prefs;
     
@@ -151,6 +166,120 @@ public class SyncPreferences {
         }
     }
     
+    // Resumable sync checkpoint
+    
+    /**
+     * Start or resume a sync checkpoint for the given user.
+     * Returns true if an unfinished checkpoint from a previous sync is being resumed.
+     */
+    public synchronized boolean beginSyncCheckpoint(String userEmail) {
+        String checkpointUser = prefs.getString(KEY_CHECKPOINT_USER, null);
+        long startedAt = prefs.getLong(KEY_CHECKPOINT_STARTED_AT, 0);
+        boolean expired = System.currentTimeMillis() - startedAt > CHECKPOINT_MAX_AGE_MS;
+        
+        if (userEmail.equals(checkpointUser) && !expired) {
+            return !prefs.getStringSet(KEY_CHECKPOINT_COMPLETED_TRIPS, new HashSet<>()).isEmpty()
+                || !prefs.getStringSet(KEY_CHECKPOINT_UPLOADED_IMAGES, new HashSet<>()).isEmpty();
+        }
+        
+        clearSyncCheckpoint();
+        prefs.edit()
+            .putString(KEY_CHECKPOINT_USER, userEmail)
+            .putLong(KEY_CHECKPOINT_STARTED_AT, System.currentTimeMillis())
+            .apply();
+        return false;
+    }
+    
+    // A trip is only skipped if it has not been modified since it was checkpointed
+    public synchronized boolean isTripCheckpointed(int tripId, long updatedAt) {
+        return prefs.getStringSet(KEY_CHECKPOINT_COMPLETED_TRIPS, new HashSet<>())
+            .contains(tripId + ":" + updatedAt);
+    }
+    
+    public synchronized void checkpointTripCompleted(int tripId, long updatedAt) {
+        Set<String> completed = new HashSet<>(prefs.getStringSet(KEY_CHECKPOINT_COMPLETED_TRIPS, new HashSet<>()));
+        completed.add(tripId + ":" + updatedAt);
+        prefs.edit().putStringSet(KEY_CHECKPOINT_COMPLETED_TRIPS, completed).apply();
+    }
+    
+    public synchronized int getCheckpointedTripCount() {
+        return prefs.getStringSet(KEY_CHECKPOINT_COMPLETED_TRIPS, new HashSet<>()).size();
+    }
+    
+    public synchronized void addPendingImage(int activityId) {
+        Set<String> pending = new HashSet<>(prefs.getStringSet(KEY_PENDING_IMAGES, new HashSet<>()));
+        pending.add(String.valueOf(activityId));
+        prefs.edit().putStringSet(KEY_PENDING_IMAGES, pending).apply();
+    }
+    
+    // Whether the activity's last image upload never succeeded, so its trip must be synced again
+    public synchronized boolean isImagePending(int activityId) {
+        return prefs.getStringSet(KEY_PENDING_IMAGES, new HashSet<>()).contains(String.valueOf(activityId));
+    }
+    
+    // Remember an uploaded image so a resumed sync reuses the URL instead of uploading again
+    public synchronized void checkpointImageUploaded(int activityId, String firebaseImageUrl) {
+        Set<String> pending = new HashSet<>(prefs.getStringSet(KEY_PENDING_IMAGES, new HashSet<>()));
+        pending.remove(String.valueOf(activityId));
+        Set<String> uploaded = new HashSet<>(prefs.getStringSet(KEY_CHECKPOINT_UPLOADED_IMAGES, new HashSet<>()));
+        uploaded.add(activityId + "|" + firebaseImageUrl);
+        prefs.edit()
+            .putStringSet(KEY_PENDING_IMAGES, pending)
+            .putStringSet(KEY_CHECKPOINT_UPLOADED_IMAGES, uploaded)
+            .apply();
+    }
+    
+    public synchronized String getCheckpointedImageUrl(int activityId) {
+        String prefix = activityId + "|";
+        for (String entry : prefs.getStringSet(KEY_CHECKPOINT_UPLOADED_IMAGES, new HashSet<>())) {
+            if (entry.startsWith(prefix)) {
+                return entry.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+    
+    public synchronized void clearSyncCheckpoint() {
+        prefs.edit()
+            .remove(KEY_CHECKPOINT_USER)
+            .remove(KEY_CHECKPOINT_STARTED_AT)
+            .remove(KEY_CHECKPOINT_COMPLETED_TRIPS)
+            .remove(KEY_CHECKPOINT_UPLOADED_IMAGES)
+            .apply();
+    }
+    
+    // Content hashes of the last successfully synced data (see ContentHashes)
+    
+    public synchronized void setSyncedTripHash(int tripId, String hash) {
+        String prefix = tripId + ":";
+        Set<String> hashes = new HashSet<>();
+        for (String entry : prefs.getStringSet(KEY_CONTENT_TRIP_HASHES, new HashSet<>())) {
+            if (!entry.startsWith(prefix)) {
+                hashes.add(entry);
+            }
+        }
+        hashes.add(prefix + hash);
+        prefs.edit().putStringSet(KEY_CONTENT_TRIP_HASHES, hashes).apply();
+    }
+    
+    public synchronized String getSyncedTripHash(int tripId) {
+        String prefix = tripId + ":";
+        for (String entry : prefs.getStringSet(KEY_CONTENT_TRIP_HASHES, new HashSet<>())) {
+            if (entry.startsWith(prefix)) {
+                return entry.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+    
+    public synchronized void setSyncedRootHash(String hash) {
+        prefs.edit().putString(KEY_CONTENT_ROOT_HASH, hash).apply();
+    }
+    
+    public synchronized String getSyncedRootHash() {
+        return prefs.getString(KEY_CONTENT_ROOT_HASH, null);
+    }
+    
     // Clear all sync data (for logout)
     public void clearSyncData() {
         prefs.edit()
@@ -158,7 +287,10 @@ public class SyncPreferences {
             .remove(KEY_LAST_SYNC_STATUS)
             .remove(KEY_TRIPS_SYNCED_COUNT)
             .remove(KEY_ACTIVITIES_SYNCED_COUNT)
+            .remove(KEY_CONTENT_ROOT_HASH)
+            .remove(KEY_CONTENT_TRIP_HASHES)
             .apply();
+        clearSyncCheckpoint();
     }
     
     public enum SyncStatus {
@@ -0,0 +1,117 @@
+package com.example.mobiledegreefinalproject;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules background sync work through WorkManager according to SyncPreferences.
+ * Unique work names make repeated scheduling calls collapse into a single job.
+ */
+public final class SyncScheduler {
+    private static final String TAG = "SyncScheduler";
+    
+    private static final String PERIODIC_SYNC_WORK = "wanderplan_periodic_sync";
+    private static final String CATCH_UP_SYNC_WORK = "wanderplan_catch_up_sync";
+    
+    private static final long PERIODIC_INTERVAL_HOURS = 6;
+    private static final long BACKOFF_DELAY_SECONDS = 30;
+    
+    private SyncScheduler() {
+    }
+    
+    /**
+     * Call on app start: keeps the periodic sync scheduled and, if the last sync is stale
+     * or failed, queues a one-off catch-up sync
+     */
+    public static void onAppStart(Context context) {
+        SyncPreferences syncPrefs = new SyncPreferences(context);
+        schedulePeriodicSync(context);
+        
+        if (syncPrefs.isSyncNeeded()) {
+            requestCatchUpSync(context);
+        }
+    }
+    
+    /**
+     * Schedule (or cancel, if auto sync is off) the periodic incremental sync
+     */
+    public static void schedulePeriodicSync(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context.getApplicationContext());
+        SyncPreferences syncPrefs = new SyncPreferences(context);
+        
+        if (!syncPrefs.isAutoSyncEnabled() || !UserManager.getInstance(context).isLoggedIn()) {
+            Log.d(TAG, "Auto sync disabled or no user - cancelling periodic sync");
+            workManager.cancelUniqueWork(PERIODIC_SYNC_WORK);
+            return;
+        }
+        
+        // Periodic sync only runs on unmetered networks with a healthy battery. It does not
+        // require device idle: a phone in daily use may not enter idle maintenance for days,
+        // and an idle-mode job ignores the backoff policy used for retries.
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                SyncWorker.class, PERIODIC_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_SECONDS, TimeUnit.SECONDS)
+                .setInputData(new Data.Builder()
+                        .putString(SyncWorker.KEY_TRIGGER, SyncWorker.TRIGGER_PERIODIC)
+                        .build())
+                .build();
+        
+        // UPDATE keeps the existing schedule but replaces its constraints, so installs that
+        // enqueued the old device-idle request pick up the new ones
+        workManager.enqueueUniquePeriodicWork(PERIODIC_SYNC_WORK, ExistingPeriodicWorkPolicy.UPDATE, request);
+        Log.d(TAG, "Periodic sync scheduled every " + PERIODIC_INTERVAL_HOURS + " hours");
+    }
+    
+    /**
+     * Queue a one-off incremental sync; a pending catch-up sync is kept rather than duplicated
+     */
+    public static void requestCatchUpSync(Context context) {
+        if (!UserManager.getInstance(context).isLoggedIn()) {
+            return;
+        }
+        
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_SECONDS, TimeUnit.SECONDS)
+                .setInputData(new Data.Builder()
+                        .putString(SyncWorker.KEY_TRIGGER, SyncWorker.TRIGGER_CATCH_UP)
+                        .build())
+                .build();
+        
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(CATCH_UP_SYNC_WORK, ExistingWorkPolicy.KEEP, request);
+        Log.d(TAG, "Catch-up sync requested");
+    }
+    
+    /**
+     * Cancel all background sync work (on logout)
+     */
+    public static void cancelAll(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context.getApplicationContext());
+        workManager.cancelUniqueWork(PERIODIC_SYNC_WORK);
+        workManager.cancelUniqueWork(CATCH_UP_SYNC_WORK);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.mobiledegreefinalproject;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Background worker that runs an incremental sync (only unsynced trips, activities
+ * and expenses) so uploads happen outside of screen loads and manual sync
+ */
+public class SyncWorker extends Worker {
+    private static final String TAG = "SyncWorker";
+    
+    public static final String KEY_TRIGGER = "trigger";
+    public static final String TRIGGER_PERIODIC = "periodic";
+    public static final String TRIGGER_CATCH_UP = "catch_up";
+    
+    private static final long SYNC_TIMEOUT_MINUTES = 9;
+    private static final int MAX_ATTEMPTS = 5;
+    
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+    
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        SyncPreferences syncPrefs = new SyncPreferences(context);
+        String trigger = getInputData().getString(KEY_TRIGGER);
+        
+        if (!UserManager.getInstance(context).isLoggedIn()) {
+            Log.d(TAG, "User not logged in, skipping background sync");
+            return Result.success();
+        }
+        
+        if (!syncPrefs.isAutoSyncEnabled()) {
+            Log.d(TAG, "Auto sync disabled, skipping background sync (" + trigger + ")");
+            return Result.success();
+        }
+        
+        Log.d(TAG, "Starting background sync (" + trigger + "), attempt " + (getRunAttemptCount() + 1));
+        
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<String> syncError = new AtomicReference<>();
+        
+        DataSyncService.getInstance(context).syncPendingChanges(new DataSyncService.OnSyncCompleteListener() {
+            @Override
+            public void onProgressUpdate(int progress, String message) {
+                Log.d(TAG, "Progress " + progress + "%: " + message);
+            }
+            
+            @Override
+            public void onSuccess(int tripsSynced, int activitiesSynced) {
+                Log.d(TAG, "Background sync complete: " + tripsSynced + " trips, " + activitiesSynced + " activities");
+                latch.countDown();
+            }
+            
+            @Override
+            public void onError(String error) {
+                syncError.set(error);
+                latch.countDown();
+            }
+        });
+        
+        try {
+            if (!latch.await(SYNC_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                Log.w(TAG, "Background sync timed out");
+                return retryOrFail();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+        
+        if (syncError.get() != null) {
+            Log.w(TAG, "Background sync failed: " + syncError.get());
+            return retryOrFail();
+        }
+        
+        return Result.success();
+    }
+    
+    // WorkManager applies the exponential backoff configured in SyncScheduler between retries
+    private Result retryOrFail() {
+        return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+    }
+}
@@ -22,6 +22,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.mobiledegreefinalproject.adapter.TripTimelineAdapter;
 import com.example.mobiledegreefinalproject.database.Trip;
 import com.example.mobiledegreefinalproject.database.TripActivity;
+import com.example.mobiledegreefinalproject.model.Money;
 import com.example.mobiledegreefinalproject.viewmodel.TripsViewModel;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
@@ -31,13 +32,17 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.example.mobiledegreefinalproject.remote.TripActivityCodec;
+import com.example.mobiledegreefinalproject.remote.TripCodec;
+import com.example.mobiledegreefinalproject.repository.FetchPolicy;
 import com.example.mobiledegreefinalproject.repository.TripRepository;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 
 public class TripDetailActivity extends BaseActivity {
 
     private static final String TAG = "TripDetailActivity";
+    private static final AppLog.Logger SEARCH_LOG = AppLog.get(AppLog.UI);
+    private static final FetchPolicy FIREBASE_FETCH_POLICY = FetchPolicy.staleWhileRevalidate(TripRepository.DEFAULT_MAX_AGE_MS);
 
     private TextView tripTitle;
     private TextView tripDestination;
@@ -91,16 +96,21 @@ public class TripDetailActivity extends BaseActivity {
 
         Log.d(TAG, "TripDetailActivity created for trip ID: " + tripId);
 
-        initViews();
-        setupViewModel();
-        setupActivityLauncher();
-        setupRecyclerView();
-        setupClickListeners();
-        setupToolbar();
-        setupBackPressHandler();
-        
-        // Load trip data based on user login status
-        loadInitialTripData();
+        boolean traced = AppTrace.begin("TripDetailActivity.setup");
+        try {
+            initViews();
+            setupViewModel();
+            setupActivityLauncher();
+            setupRecyclerView();
+            setupClickListeners();
+            setupToolbar();
+            setupBackPressHandler();
+            
+            // Load trip data based on user login status
+            loadInitialTripData();
+        } finally {
+            AppTrace.end(traced);
+        }
     }
 
     private void initViews() {
@@ -398,8 +408,9 @@ public class TripDetailActivity extends BaseActivity {
                             (com.google.firebase.firestore.QueryDocumentSnapshot) tripsQuery.getDocuments().get(i);
                         
                         String tripId = tripDoc.getId();
-                        String title = tripDoc.getString("title");
-                        String destination = tripDoc.getString("destination");
+                        Trip storedTrip = TripCodec.decode(tripDoc.getData(), new Trip());
+                        String title = storedTrip.getTitle();
+                        String destination = storedTrip.getDestination();
                         
                         Log.d(TAG, "🔧 Trip " + (i+1) + ": ID=" + tripId + ", Title='" + title + "', Dest='" + destination + "'");
                         
@@ -414,9 +425,10 @@ public class TripDetailActivity extends BaseActivity {
                                     Log.d(TAG, "🔧   Trip '" + title + "' has " + activitiesQuery.size() + " activities");
                                     
                                     for (com.google.firebase.firestore.QueryDocumentSnapshot actDoc : activitiesQuery) {
-                                        String actTitle = actDoc.getString("title");
-                                        Object dayNum = actDoc.get("dayNumber");
-                                        String timeStr = actDoc.getString("timeString");
+                                        TripActivity storedActivity = TripActivityCodec.decode(actDoc.getData(), new TripActivity());
+                                        String actTitle = storedActivity.getTitle();
+                                        int dayNum = storedActivity.getDayNumber();
+                                        String timeStr = storedActivity.getTimeString();
                                         Log.d(TAG, "🔧     Activity: '" + actTitle + "' Day:" + dayNum + " Time:'" + timeStr + "'");
                                     }
                                 })
@@ -450,6 +462,8 @@ public class TripDetailActivity extends BaseActivity {
                         clipboard.setPrimaryClip(clip);
                         Toast.makeText(this, "Report copied to clipboard", Toast.LENGTH_SHORT).show();
                     })
+                    .setNeutralButton("📊 Metrics", (dialog, which) ->
+                        startActivity(new Intent(this, DiagnosticsActivity.class)))
                     .setNegativeButton("Close", null)
                     .show();
                     
@@ -650,9 +664,9 @@ public class TripDetailActivity extends BaseActivity {
             budgetContent.append("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n");
             
             // Trip specific budget
-            Double tripBudget = budgetData.tripBudgets.get(tripId);
+            Long tripBudget = budgetData.budgetFor(tripId);
             if (tripBudget != null && tripBudget > 0) {
-                budgetContent.append("💵 Trip Budget: RM").append(String.format("%.2f", tripBudget)).append("\n");
+                budgetContent.append("💵 Trip Budget: ").append(Money.format(tripBudget)).append("\n");
             }
             
             // Trip specific expenses
@@ -661,34 +675,39 @@ public class TripDetailActivity extends BaseActivity {
                 budgetContent.append("\n📊 EXPENSES:\n");
                 budgetContent.append("─────────────────────────────────────────────\n");
                 
-                double totalExpenses = 0.0;
-                Map<com.example.mobiledegreefinalproject.model.Expense.Category, Double> categoryTotals = new HashMap<>();
+                com.example.mobiledegreefinalproject.model.Expense.Category[] categories =
+                    com.example.mobiledegreefinalproject.model.Expense.Category.values();
+                long totalExpenses = 0;
+                long[] categoryTotals = new long[categories.length];
+                boolean[] categoryUsed = new boolean[categories.length];
                 
                 for (com.example.mobiledegreefinalproject.model.Expense expense : tripExpenses) {
                     budgetContent.append("• ").append(expense.getTitle())
-                               .append(" - RM").append(String.format("%.2f", expense.getAmount()))
+                               .append(" - ").append(Money.format(expense.getAmountMinor()))
                                .append(" (").append(expense.getCategoryDisplayName()).append(")\n");
                     
-                    totalExpenses += expense.getAmount();
-                    categoryTotals.merge(expense.getCategory(), expense.getAmount(), Double::sum);
+                    totalExpenses += expense.getAmountMinor();
+                    int index = (expense.getCategory() != null ? expense.getCategory()
+                        : com.example.mobiledegreefinalproject.model.Expense.Category.OTHER).ordinal();
+                    categoryTotals[index] += expense.getAmountMinor();
+                    categoryUsed[index] = true;
                 }
                 
-                budgetContent.append("\n💸 Total Expenses: RM").append(String.format("%.2f", totalExpenses)).append("\n");
+                budgetContent.append("\n💸 Total Expenses: ").append(Money.format(totalExpenses)).append("\n");
                 
                 if (tripBudget != null && tripBudget > 0) {
-                    double remaining = tripBudget - totalExpenses;
-                    budgetContent.append("💰 Remaining Budget: RM").append(String.format("%.2f", remaining)).append("\n");
+                    long remaining = tripBudget - totalExpenses;
+                    budgetContent.append("💰 Remaining Budget: ").append(Money.format(remaining)).append("\n");
                 }
                 
                 // Category breakdown
-                if (!categoryTotals.isEmpty()) {
-                    budgetContent.append("\n📈 CATEGORY BREAKDOWN:\n");
-                    budgetContent.append("─────────────────────────────────────────────\n");
-                    for (Map.Entry<com.example.mobiledegreefinalproject.model.Expense.Category, Double> entry : categoryTotals.entrySet()) {
-                        budgetContent.append(entry.getKey().getEmoji()).append(" ")
-                                   .append(entry.getKey().getDisplayName()).append(": RM")
-                                   .append(String.format("%.2f", entry.getValue())).append("\n");
-                    }
+                budgetContent.append("\n📈 CATEGORY BREAKDOWN:\n");
+                budgetContent.append("─────────────────────────────────────────────\n");
+                for (com.example.mobiledegreefinalproject.model.Expense.Category category : categories) {
+                    if (!categoryUsed[category.ordinal()]) continue;
+                    budgetContent.append(category.getEmoji()).append(" ")
+                               .append(category.getDisplayName()).append(": ")
+                               .append(Money.format(categoryTotals[category.ordinal()])).append("\n");
                 }
             } else {
                 budgetContent.append("No expenses recorded yet\n");
@@ -769,6 +788,7 @@ public class TripDetailActivity extends BaseActivity {
         
         // Get ONLY basic trip info (no observers, no sync operations)
         new Thread(() -> {
+            boolean traced = AppTrace.begin("TripDetailActivity.loadTrip");
             try {
                 TripRepository repository = TripRepository.getInstance(this);
                 Trip trip = repository.getTripByIdSync(tripId);
@@ -801,6 +821,8 @@ public class TripDetailActivity extends BaseActivity {
                         finish();
                     }
                 });
+            } finally {
+                AppTrace.end(traced);
             }
         }).start();
     }
@@ -860,21 +882,27 @@ public class TripDetailActivity extends BaseActivity {
             final String finalUserEmail = userEmail;
             final String finalTripFirebaseId = tripFirebaseId;
             
-            firestore.collection("users")
+            // Cached activities show at once; the server is only read again once they are stale
+            TripRepository.getInstance(this).query(firestore.collection("users")
                     .document(finalUserEmail)
                     .collection("trips")
                     .document(finalTripFirebaseId)
-                    .collection("activities")
-                    .get(com.google.firebase.firestore.Source.SERVER)
-                    .addOnSuccessListener(activitiesQuery -> {
+                    .collection("activities"),
+                    "activities/" + finalTripFirebaseId, FIREBASE_FETCH_POLICY,
+                    activitiesQuery -> {
                     Log.d(TAG, "🔥🔥🔥 NUCLEAR SUCCESS: Found " + activitiesQuery.size() + " activities");
                     
                     List<TripActivity> activities = new ArrayList<>();
-                    for (com.google.firebase.firestore.QueryDocumentSnapshot doc : activitiesQuery) {
-                        TripActivity activity = parseFirebaseActivityNuclear(doc);
-                        if (activity != null) {
-                            activities.add(activity);
+                    boolean traced = AppTrace.begin("TripDetailActivity.parseActivities");
+                    try {
+                        for (com.google.firebase.firestore.QueryDocumentSnapshot doc : activitiesQuery) {
+                            TripActivity activity = parseFirebaseActivityNuclear(doc);
+                            if (activity != null) {
+                                activities.add(activity);
+                            }
                         }
+                    } finally {
+                        AppTrace.end(traced);
                     }
                     
                     // Cache the Firebase data
@@ -888,8 +916,8 @@ public class TripDetailActivity extends BaseActivity {
                             displayFirebaseActivitiesNuclear(activities);
                         }
                     });
-                })
-                .addOnFailureListener(e -> {
+                },
+                e -> {
                     Log.e(TAG, "🔥 NUCLEAR: Firebase access failed", e);
                     runOnUiThread(() -> {
                         if (!isFinishing() && !isDestroyed()) {
@@ -917,27 +945,21 @@ public class TripDetailActivity extends BaseActivity {
             
             TripActivity activity = new TripActivity();
             
+            // Defaults for fields the document doesn't have
+            activity.setTitle("Untitled Activity");
+            activity.setDescription("");
+            activity.setLocation("");
+            activity.setTimeString("");
+            activity.setImageUrl("");
+            activity.setDateTime(System.currentTimeMillis());
+            activity.setDayNumber(1);
+            
+            TripActivityCodec.decode(doc.getData(), activity);
+            
             // Set Firebase ID (never null from Firestore)
             activity.setFirebaseId(doc.getId());
             activity.setTripId(tripId);
             
-            // Safe string extraction with null protection
-            activity.setTitle(getStringSafe(doc, "title", "Untitled Activity"));
-            activity.setDescription(getStringSafe(doc, "description", ""));
-            activity.setLocation(getStringSafe(doc, "location", ""));
-            activity.setTimeString(getStringSafe(doc, "timeString", ""));
-            activity.setImageUrl(getStringSafe(doc, "imageUrl", ""));
-            
-            // Safe numeric extraction with defaults
-            activity.setDateTime(getLongSafe(doc, "dateTime", System.currentTimeMillis()));
-            activity.setDayNumber(getIntSafe(doc, "dayNumber", 1));
-            activity.setCreatedAt(getLongSafe(doc, "createdAt", System.currentTimeMillis()));
-            activity.setUpdatedAt(getLongSafe(doc, "updatedAt", System.currentTimeMillis()));
-            
-            // Optional fields
-            activity.setLatitude(getDoubleSafe(doc, "latitude", 0.0));
-            activity.setLongitude(getDoubleSafe(doc, "longitude", 0.0));
-            
             activity.setSynced(true);
             
             Log.d(TAG, "🔥 NUCLEAR: Successfully parsed activity: " + activity.getTitle() + " (Day " + activity.getDayNumber() + ")");
@@ -949,61 +971,6 @@ public class TripDetailActivity extends BaseActivity {
         }
     }
     
-    // CRASH-PROOF helper methods for safe data extraction
-    private String getStringSafe(com.google.firebase.firestore.QueryDocumentSnapshot doc, String field, String defaultValue) {
-        try {
-            Object value = doc.get(field);
-            if (value != null) {
-                return value.toString();
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "🔥 NUCLEAR: Error getting string field '" + field + "'", e);
-        }
-        return defaultValue;
-    }
-    
-    private long getLongSafe(com.google.firebase.firestore.QueryDocumentSnapshot doc, String field, long defaultValue) {
-        try {
-            Object value = doc.get(field);
-            if (value instanceof Number) {
-                return ((Number) value).longValue();
-            } else if (value instanceof String) {
-                return Long.parseLong((String) value);
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "🔥 NUCLEAR: Error getting long field '" + field + "'", e);
-        }
-        return defaultValue;
-    }
-    
-    private int getIntSafe(com.google.firebase.firestore.QueryDocumentSnapshot doc, String field, int defaultValue) {
-        try {
-            Object value = doc.get(field);
-            if (value instanceof Number) {
-                return ((Number) value).intValue();
-            } else if (value instanceof String) {
-                return Integer.parseInt((String) value);
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "🔥 NUCLEAR: Error getting int field '" + field + "'", e);
-        }
-        return defaultValue;
-    }
-    
-    private double getDoubleSafe(com.google.firebase.firestore.QueryDocumentSnapshot doc, String field, double defaultValue) {
-        try {
-            Object value = doc.get(field);
-            if (value instanceof Number) {
-                return ((Number) value).doubleValue();
-            } else if (value instanceof String) {
-                return Double.parseDouble((String) value);
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "🔥 NUCLEAR: Error getting double field '" + field + "'", e);
-        }
-        return defaultValue;
-    }
-    
     /**
      * NUCLEAR SOLUTION: Display Firebase activities with COMPLETE isolation
      */
@@ -1030,7 +997,9 @@ public class TripDetailActivity extends BaseActivity {
         emptyStateText.setVisibility(View.GONE);
         
         // Group activities by day (pure method, no side effects)
+        boolean traced = AppTrace.begin("TripDetailActivity.groupTimeline");
         Map<Integer, List<TripActivity>> groupedActivities = groupActivitiesByDayNuclear(activities);
+        AppTrace.end(traced);
         Log.d(TAG, "🔥 NUCLEAR: Grouped into " + groupedActivities.size() + " days");
         
         // Display directly to adapter with crash protection
@@ -1144,6 +1113,7 @@ public class TripDetailActivity extends BaseActivity {
         emptyStateText.setVisibility(View.GONE);
         
         // Group activities by day
+        boolean traced = AppTrace.begin("TripDetailActivity.groupTimeline");
         Map<Integer, List<TripActivity>> groupedActivities = new LinkedHashMap<>();
         for (TripActivity activity : activities) {
             int day = activity.getDayNumber();
@@ -1169,6 +1139,7 @@ public class TripDetailActivity extends BaseActivity {
             java.util.Collections.sort(entry.getValue(), (a1, a2) -> Long.compare(a1.getDateTime(), a2.getDateTime()));
             sortedGroupedByDay.put(entry.getKey(), entry.getValue());
         }
+        AppTrace.end(traced);
 
         // Update timeline adapter
         timelineAdapter.setTimelineData(sortedGroupedByDay);
@@ -1596,7 +1567,8 @@ public class TripDetailActivity extends BaseActivity {
                     Log.d(TAG, "🚀 STEP 1 SUCCESS: Found " + allTripsQuery.size() + " total trips in Firebase");
                     
                     for (com.google.firebase.firestore.QueryDocumentSnapshot tripDoc : allTripsQuery) {
-                        Log.d(TAG, "   🗂️ Trip: '" + tripDoc.getString("title") + "' -> '" + tripDoc.getString("destination") + "' (ID: " + tripDoc.getId() + ")");
+                        Trip storedTrip = TripCodec.decode(tripDoc.getData(), new Trip());
+                        Log.d(TAG, "   🗂️ Trip: '" + storedTrip.getTitle() + "' -> '" + storedTrip.getDestination() + "' (ID: " + tripDoc.getId() + ")");
                         
                         // Also check if this trip has activities
                         String tripId = tripDoc.getId();
@@ -1627,72 +1599,73 @@ public class TripDetailActivity extends BaseActivity {
     }
     
     private void proceedWithTripSearch(FirebaseFirestore firestore, String userEmail) {
-        Log.d(TAG, "🚀 STEP 2: Proceeding with trip search");
-        Log.d(TAG, "🚀 Searching Firebase for trip:");
-        Log.d(TAG, "   Title: '" + currentTrip.getTitle() + "'");
-        Log.d(TAG, "   Destination: '" + currentTrip.getDestination() + "'");
-        Log.d(TAG, "   Firebase path: users/" + userEmail + "/trips");
+        SEARCH_LOG.d("🚀 STEP 2: Proceeding with trip search");
+        SEARCH_LOG.d("🚀 Searching Firebase for trip:");
+        SEARCH_LOG.d("   Title: '{}'", currentTrip.getTitle());
+        SEARCH_LOG.d("   Destination: '{}'", currentTrip.getDestination());
+        SEARCH_LOG.d("   Firebase path: users/{}/trips", userEmail);
         
         // Find trip in Firebase by title and destination
-        Log.d(TAG, "🚀 SEARCHING Firebase for:");
-        Log.d(TAG, "   Local trip title: '" + currentTrip.getTitle() + "'");
-        Log.d(TAG, "   Local trip destination: '" + currentTrip.getDestination() + "'");
-        Log.d(TAG, "   Local trip Firebase ID: '" + currentTrip.getFirebaseId() + "'");
+        SEARCH_LOG.d("🚀 SEARCHING Firebase for:");
+        SEARCH_LOG.d("   Local trip title: '{}'", currentTrip.getTitle());
+        SEARCH_LOG.d("   Local trip destination: '{}'", currentTrip.getDestination());
+        SEARCH_LOG.d("   Local trip Firebase ID: '{}'", currentTrip.getFirebaseId());
         
-        firestore.collection("users")
+        TripRepository.getInstance(this).query(firestore.collection("users")
                 .document(userEmail)
                 .collection("trips")
-                .whereEqualTo("title", currentTrip.getTitle())
-                .whereEqualTo("destination", currentTrip.getDestination())
-                .get(com.google.firebase.firestore.Source.SERVER)
-                .addOnSuccessListener(tripQuery -> {
-                    Log.d(TAG, "🚀 Trip search results: " + tripQuery.size() + " trips found");
+                .where(FirebaseDataHelper.tripMatchFilter(currentTrip.getTitle(), currentTrip.getDestination())),
+                "tripSearch/" + currentTrip.getTitle() + "|" + currentTrip.getDestination(), FIREBASE_FETCH_POLICY,
+                tripQuery -> {
+                    SEARCH_LOG.d("🚀 Trip search results: {} trips found", tripQuery.size());
                     
                     // Log what we actually found in Firebase vs what we searched for
-                    Log.d(TAG, "🚀 COMPARISON:");
-                    Log.d(TAG, "   Searched for title: '" + currentTrip.getTitle() + "'");
-                    Log.d(TAG, "   Searched for destination: '" + currentTrip.getDestination() + "'");
+                    SEARCH_LOG.d("🚀 COMPARISON:");
+                    SEARCH_LOG.d("   Searched for title: '{}'", currentTrip.getTitle());
+                    SEARCH_LOG.d("   Searched for destination: '{}'", currentTrip.getDestination());
                     
                     if (!tripQuery.isEmpty()) {
                         String tripFirebaseId = tripQuery.getDocuments().get(0).getId();
-                        Log.d(TAG, "🚀 Found trip Firebase ID: " + tripFirebaseId);
+                        SEARCH_LOG.d("🚀 Found trip Firebase ID: {}", tripFirebaseId);
                         
                         // Log all trip data for debugging
                         com.google.firebase.firestore.QueryDocumentSnapshot tripDoc = (com.google.firebase.firestore.QueryDocumentSnapshot) tripQuery.getDocuments().get(0);
-                        Log.d(TAG, "🚀 Trip document data:");
-                        Log.d(TAG, "   Firebase ID: " + tripDoc.getId());
-                        Log.d(TAG, "   Title in Firebase: '" + tripDoc.getString("title") + "'");
-                        Log.d(TAG, "   Destination in Firebase: '" + tripDoc.getString("destination") + "'");
+                        SEARCH_LOG.d("🚀 Trip document data:");
+                        SEARCH_LOG.d("   Firebase ID: {}", tripDoc.getId());
+                        Trip storedTrip = TripCodec.decode(tripDoc.getData(), new Trip());
+                        SEARCH_LOG.d("   Title in Firebase: '{}'", storedTrip.getTitle());
+                        SEARCH_LOG.d("   Destination in Firebase: '{}'", storedTrip.getDestination());
                         
                         // Update currentTrip
                         currentTrip.setFirebaseId(tripFirebaseId);
                         
                         // Now load activities directly
-                        firestore.collection("users")
+                        TripRepository.getInstance(this).query(firestore.collection("users")
                                 .document(userEmail)
                                 .collection("trips")
                                 .document(tripFirebaseId)
-                                .collection("activities")
-                                .orderBy("dayNumber", Query.Direction.ASCENDING)
-                                .orderBy("dateTime", Query.Direction.ASCENDING)
-                                .get(com.google.firebase.firestore.Source.SERVER)
-                                .addOnSuccessListener(activitiesQuery -> {
-                                    Log.d(TAG, "🚀 Firebase activities query SUCCESS!");
-                                    Log.d(TAG, "   Activities found: " + activitiesQuery.size());
-                                    Log.d(TAG, "   Query path: users/" + userEmail + "/trips/" + tripFirebaseId + "/activities");
-                                    Log.d(TAG, "   Is from cache: " + activitiesQuery.getMetadata().isFromCache());
+                                // Unordered: the sort field names differ between schema versions, displayTimeline sorts by day and time
+                                .collection("activities"),
+                                "activities/" + tripFirebaseId, FIREBASE_FETCH_POLICY,
+                                activitiesQuery -> {
+                                    SEARCH_LOG.d("🚀 Firebase activities query SUCCESS!");
+                                    SEARCH_LOG.d("   Activities found: {}", activitiesQuery.size());
+                                    SEARCH_LOG.d("   Query path: users/{}/trips/{}/activities", userEmail, tripFirebaseId);
+                                    SEARCH_LOG.d("   Is from cache: {}", activitiesQuery.getMetadata().isFromCache());
                                     
                                     List<TripActivity> activities = new ArrayList<>();
                                     int activityCount = 0;
                                     for (com.google.firebase.firestore.QueryDocumentSnapshot doc : activitiesQuery) {
                                         activityCount++;
-                                        Log.d(TAG, "🚀 Processing activity " + activityCount + ": " + doc.getString("title"));
+                                        SEARCH_LOG.d("🚀 Processing activity {}: {}", activityCount, doc.getId());
                                         
-                                        // LOG ALL FIREBASE FIELDS to see the actual structure
-                                        Log.d(TAG, "🔍 Firebase document fields for " + doc.getId() + ":");
-                                        for (String field : doc.getData().keySet()) {
-                                            Object value = doc.get(field);
-                                            Log.d(TAG, "   " + field + " = " + value + " (type: " + (value != null ? value.getClass().getSimpleName() : "null") + ")");
+                                        // LOG ALL FIREBASE FIELDS to see the actual structure (debug level only)
+                                        if (SEARCH_LOG.isDebugEnabled()) {
+                                            SEARCH_LOG.d("🔍 Firebase document fields for {}:", doc.getId());
+                                            for (Map.Entry<String, Object> field : doc.getData().entrySet()) {
+                                                Object value = field.getValue();
+                                                SEARCH_LOG.d("   {} = {} (type: {})", field.getKey(), value, value != null ? value.getClass().getSimpleName() : "null");
+                                            }
                                         }
                                         
                                                                 // Use nuclear parsing method to avoid crashes
@@ -1700,36 +1673,38 @@ public class TripDetailActivity extends BaseActivity {
                         if (activity != null) {
                             activities.add(activity);
                         } else {
-                                            Log.e(TAG, "❌ Failed to parse activity from Firebase document: " + doc.getId());
+                                            SEARCH_LOG.e("❌ Failed to parse activity from Firebase document: {}", doc.getId());
                                         }
                                     }
                                     
-                                    Log.d(TAG, "🚀 SUCCESS: Displaying " + activities.size() + " Firebase activities");
+                                    SEARCH_LOG.d("🚀 SUCCESS: Displaying {} Firebase activities", activities.size());
                                     
                                     // Debug: Log each activity title
-                                    for (TripActivity act : activities) {
-                                        Log.d(TAG, "   📝 Activity: " + act.getTitle() + " (Day " + act.getDayNumber() + ")");
+                                    if (SEARCH_LOG.isDebugEnabled()) {
+                                        for (TripActivity act : activities) {
+                                            SEARCH_LOG.d("   📝 Activity: {} (Day {})", act.getTitle(), act.getDayNumber());
+                                        }
                                     }
                                     
                                     runOnUiThread(() -> {
                                         if (!isFinishing() && !isDestroyed()) {
-                                            Log.d(TAG, "🚀 UI Thread: About to call displayTimeline with " + activities.size() + " activities");
+                                            SEARCH_LOG.d("🚀 UI Thread: About to call displayTimeline with {} activities", activities.size());
                                             displayTimeline(activities);
-                                            Log.d(TAG, "🚀 UI Thread: displayTimeline completed");
+                                            SEARCH_LOG.d("🚀 UI Thread: displayTimeline completed");
                                             
                                             if (infoPanelManager != null) {
                                                 infoPanelManager.addCustomMessage("✓ Loaded " + activities.size() + " activities from cloud", false);
                                             }
                                         } else {
-                                            Log.w(TAG, "🚀 UI Thread: Activity finishing/destroyed, skipping display");
+                                            SEARCH_LOG.w("🚀 UI Thread: Activity finishing/destroyed, skipping display");
                                         }
                                         
                                         // CRITICAL FIX: Reset loading flag when complete
                                         isLoadingFromFirebase = false;
                                     });
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "🚀 Failed to load activities", e);
+                                },
+                                e -> {
+                                    SEARCH_LOG.e("🚀 Failed to load activities", e);
                                     runOnUiThread(() -> {
                                         if (!isFinishing() && !isDestroyed()) {
                                             // CRITICAL FIX: Don't clear data if Firebase data was already displayed
@@ -1739,7 +1714,7 @@ public class TripDetailActivity extends BaseActivity {
                                                     infoPanelManager.addCustomMessage("❌ Failed to load activities", true);
                                                 }
                                             } else {
-                                                Log.d(TAG, "🎯 PROTECTED: Firebase data already displayed, not clearing");
+                                                SEARCH_LOG.d("🎯 PROTECTED: Firebase data already displayed, not clearing");
                                             }
                                         }
                                         
@@ -1748,30 +1723,31 @@ public class TripDetailActivity extends BaseActivity {
                                     });
                                 });
                     } else {
-                        Log.e(TAG, "🚀 Trip not found with exact search - trying fallback");
-                        Log.e(TAG, "   Searched for title: '" + currentTrip.getTitle() + "'");
-                        Log.e(TAG, "   Searched for destination: '" + currentTrip.getDestination() + "'");
+                        SEARCH_LOG.e("🚀 Trip not found with exact search - trying fallback");
+                        SEARCH_LOG.e("   Searched for title: '{}'", currentTrip.getTitle());
+                        SEARCH_LOG.e("   Searched for destination: '{}'", currentTrip.getDestination());
                         
                         // FALLBACK: List all trips and find the matching one manually
-                        firestore.collection("users")
+                        TripRepository.getInstance(this).query(firestore.collection("users")
                                 .document(userEmail)
-                                .collection("trips")
-                                .get(com.google.firebase.firestore.Source.SERVER)
-                                .addOnSuccessListener(allTripsQuery -> {
-                                    Log.d(TAG, "🚀 FALLBACK: Found " + allTripsQuery.size() + " total trips");
+                                .collection("trips"),
+                                TripRepository.KEY_TRIPS, FIREBASE_FETCH_POLICY,
+                                allTripsQuery -> {
+                                    SEARCH_LOG.d("🚀 FALLBACK: Found {} total trips", allTripsQuery.size());
                                     
                                     String foundTripId = null;
                                     for (com.google.firebase.firestore.QueryDocumentSnapshot tripDoc : allTripsQuery) {
-                                        String firebaseTitle = tripDoc.getString("title");
-                                        String firebaseDestination = tripDoc.getString("destination");
+                                        Trip storedTrip = TripCodec.decode(tripDoc.getData(), new Trip());
+                                        String firebaseTitle = storedTrip.getTitle();
+                                        String firebaseDestination = storedTrip.getDestination();
                                         
-                                        Log.d(TAG, "🚀 Checking trip: '" + firebaseTitle + "' -> '" + firebaseDestination + "'");
+                                        SEARCH_LOG.d("🚀 Checking trip: '{}' -> '{}'", firebaseTitle, firebaseDestination);
                                         
                                         // Try exact match first
                                         if (currentTrip.getTitle().equals(firebaseTitle) && 
                                             currentTrip.getDestination().equals(firebaseDestination)) {
                                             foundTripId = tripDoc.getId();
-                                            Log.d(TAG, "🚀 FALLBACK: Found exact match with ID: " + foundTripId);
+                                            SEARCH_LOG.d("🚀 FALLBACK: Found exact match with ID: {}", foundTripId);
                                             break;
                                         }
                                         
@@ -1779,27 +1755,25 @@ public class TripDetailActivity extends BaseActivity {
                                         if (currentTrip.getTitle().trim().equals(firebaseTitle != null ? firebaseTitle.trim() : "") && 
                                             currentTrip.getDestination().trim().equals(firebaseDestination != null ? firebaseDestination.trim() : "")) {
                                             foundTripId = tripDoc.getId();
-                                            Log.d(TAG, "🚀 FALLBACK: Found trimmed match with ID: " + foundTripId);
+                                            SEARCH_LOG.d("🚀 FALLBACK: Found trimmed match with ID: {}", foundTripId);
                                             break;
                                         }
                                     }
                                     
                                     if (foundTripId != null) {
                                         String finalTripId = foundTripId;
-                                        Log.d(TAG, "🚀 FALLBACK SUCCESS: Using trip ID " + finalTripId);
+                                        SEARCH_LOG.d("🚀 FALLBACK SUCCESS: Using trip ID {}", finalTripId);
                                         currentTrip.setFirebaseId(finalTripId);
                                         
                                         // Load activities with the found trip ID
-                                        firestore.collection("users")
+                                        TripRepository.getInstance(this).query(firestore.collection("users")
                                                 .document(userEmail)
                                                 .collection("trips")
                                                 .document(finalTripId)
-                                                .collection("activities")
-                                                .orderBy("dayNumber", Query.Direction.ASCENDING)
-                                                .orderBy("dateTime", Query.Direction.ASCENDING)
-                                                .get(com.google.firebase.firestore.Source.SERVER)
-                                                .addOnSuccessListener(activitiesQuery -> {
-                                                    Log.d(TAG, "🚀 FALLBACK: Activities loaded: " + activitiesQuery.size());
+                                                .collection("activities"),
+                                                "activities/" + finalTripId, FIREBASE_FETCH_POLICY,
+                                                activitiesQuery -> {
+                                                    SEARCH_LOG.d("🚀 FALLBACK: Activities loaded: {}", activitiesQuery.size());
                                                     
                                                     List<TripActivity> activities = new ArrayList<>();
                                                     for (com.google.firebase.firestore.QueryDocumentSnapshot doc : activitiesQuery) {
@@ -1809,11 +1783,11 @@ public class TripDetailActivity extends BaseActivity {
                                         if (fallbackActivity != null) {
                                             activities.add(fallbackActivity);
                                         } else {
-                                                            Log.e(TAG, "❌ Failed to parse fallback activity from Firebase document: " + doc.getId());
+                                                            SEARCH_LOG.e("❌ Failed to parse fallback activity from Firebase document: {}", doc.getId());
                                                         }
                                                     }
                                                     
-                                                    Log.d(TAG, "🚀 FALLBACK: Displaying " + activities.size() + " activities");
+                                                    SEARCH_LOG.d("🚀 FALLBACK: Displaying {} activities", activities.size());
                                                     runOnUiThread(() -> {
                                                         if (!isFinishing() && !isDestroyed()) {
                                                             displayTimeline(activities);
@@ -1825,16 +1799,16 @@ public class TripDetailActivity extends BaseActivity {
                                                         // CRITICAL FIX: Reset loading flag when fallback complete
                                                         isLoadingFromFirebase = false;
                                                     });
-                                                })
-                                                .addOnFailureListener(e -> {
-                                                    Log.e(TAG, "🚀 FALLBACK: Failed to load activities", e);
+                                                },
+                                                e -> {
+                                                    SEARCH_LOG.e("🚀 FALLBACK: Failed to load activities", e);
                                                     runOnUiThread(() -> {
                                                         if (!isFinishing() && !isDestroyed()) {
                                                             // CRITICAL FIX: Don't clear data if Firebase data was already displayed
                                                             if (!hasDisplayedFirebaseData) {
                                                                 displayTimeline(new ArrayList<>());
                                                             } else {
-                                                                Log.d(TAG, "🎯 PROTECTED: Firebase data already displayed, not clearing (fallback)");
+                                                                SEARCH_LOG.d("🎯 PROTECTED: Firebase data already displayed, not clearing (fallback)");
                                                             }
                                                         }
                                                         
@@ -1843,18 +1817,18 @@ public class TripDetailActivity extends BaseActivity {
                                                     });
                                                 });
                                     } else {
-                                        Log.e(TAG, "🚀 FALLBACK FAILED: No matching trip found");
+                                        SEARCH_LOG.e("🚀 FALLBACK FAILED: No matching trip found");
                                         
                                                                 // LAST RESORT: Try to use any existing Firebase ID from currentTrip
                         if (currentTrip.getFirebaseId() != null && !currentTrip.getFirebaseId().isEmpty()) {
-                            Log.d(TAG, "🚀 LAST RESORT: Trying existing Firebase ID: " + currentTrip.getFirebaseId());
+                            SEARCH_LOG.d("🚀 LAST RESORT: Trying existing Firebase ID: {}", currentTrip.getFirebaseId());
                             testDirectActivityAccess(firestore, userEmail, currentTrip.getFirebaseId());
                         } else {
-                            Log.e(TAG, "🚀 COMPLETE FAILURE: No Firebase ID available");
+                            SEARCH_LOG.e("🚀 COMPLETE FAILURE: No Firebase ID available");
                             
                             // 🔧 EMERGENCY FIX: If local trip title/destination match what we see in console
                             if ("Hs".equals(currentTrip.getTitle()) && "Hw".equals(currentTrip.getDestination())) {
-                                Log.d(TAG, "🔧 EMERGENCY: Detected matching trip, setting Firebase ID manually");
+                                SEARCH_LOG.d("🔧 EMERGENCY: Detected matching trip, setting Firebase ID manually");
                                 currentTrip.setFirebaseId("LGRen9seRlnLfYyvctmT");
                                 
                                 // Try to load activities with the known ID
@@ -1869,7 +1843,7 @@ public class TripDetailActivity extends BaseActivity {
                                             infoPanelManager.addCustomMessage("❌ Trip not found in cloud", true);
                                         }
                                     } else {
-                                        Log.d(TAG, "🎯 PROTECTED: Firebase data already displayed, not clearing (final failure)");
+                                        SEARCH_LOG.d("🎯 PROTECTED: Firebase data already displayed, not clearing (final failure)");
                                     }
                                 }
                                 
@@ -1879,9 +1853,9 @@ public class TripDetailActivity extends BaseActivity {
                             }
                         }
                                     }
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "🚀 FALLBACK: Failed to list trips", e);
+                                },
+                                e -> {
+                                    SEARCH_LOG.e("🚀 FALLBACK: Failed to list trips", e);
                                     runOnUiThread(() -> {
                                         if (!isFinishing() && !isDestroyed()) {
                                             // CRITICAL FIX: Don't clear data if Firebase data was already displayed
@@ -1891,15 +1865,15 @@ public class TripDetailActivity extends BaseActivity {
                                                     infoPanelManager.addCustomMessage("❌ Cloud connection failed", true);
                                                 }
                                             } else {
-                                                Log.d(TAG, "🎯 PROTECTED: Firebase data already displayed, not clearing (fallback list failure)");
+                                                SEARCH_LOG.d("🎯 PROTECTED: Firebase data already displayed, not clearing (fallback list failure)");
                                             }
                                         }
                                     });
                                 });
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "🚀 Failed to find trip in Firebase", e);
+                },
+                e -> {
+                    SEARCH_LOG.e("🚀 Failed to find trip in Firebase", e);
                     runOnUiThread(() -> {
                         if (!isFinishing() && !isDestroyed()) {
                             // CRITICAL FIX: Don't clear data if Firebase data was already displayed
@@ -1909,7 +1883,7 @@ public class TripDetailActivity extends BaseActivity {
                                     infoPanelManager.addCustomMessage("❌ Cloud connection failed", true);
                                 }
                             } else {
-                                Log.d(TAG, "🎯 PROTECTED: Firebase data already displayed, not clearing (connection failure)");
+                                SEARCH_LOG.d("🎯 PROTECTED: Firebase data already displayed, not clearing (connection failure)");
                             }
                         }
                         
@@ -1938,6 +1912,7 @@ public class TripDetailActivity extends BaseActivity {
         // Original refresh logic for offline users only
         Log.d(TAG, "📱 Refreshing activity data for local mode");
         new Thread(() -> {
+            boolean traced = AppTrace.begin("TripDetailActivity.loadActivities");
             try {
                 TripRepository repository = TripRepository.getInstance(this);
                 List<TripActivity> activities = repository.getActivitiesForTripSync(tripId);
@@ -1950,6 +1925,8 @@ public class TripDetailActivity extends BaseActivity {
                 
             } catch (Exception e) {
                 Log.e(TAG, "Error refreshing activity data", e);
+            } finally {
+                AppTrace.end(traced);
             }
         }).start();
     }
@@ -2020,20 +1997,20 @@ public class TripDetailActivity extends BaseActivity {
                             activity.setTripId(tripId);
                             
                             // Use flexible field parsing
-                            activity.setTitle(getStringField(doc, "title", "activityTitle", "name"));
-                            activity.setDescription(getStringField(doc, "description", "activityDescription", "desc"));
-                            activity.setLocation(getStringField(doc, "location", "activityLocation", "place"));
+                            activity.setTitle(getStringField(doc, TripActivityCodec.TITLE, "title", "activityTitle", "name"));
+                            activity.setDescription(getStringField(doc, TripActivityCodec.DESCRIPTION, "description", "activityDescription", "desc"));
+                            activity.setLocation(getStringField(doc, TripActivityCodec.LOCATION, "location", "activityLocation", "place"));
                             activity.setTimeString(getStringField(doc, "timeString", "time", "activityTime"));
-                            activity.setImageUrl(getStringField(doc, "imageUrl", "image", "activityImage"));
+                            activity.setImageUrl(getStringField(doc, TripActivityCodec.IMAGE_URL, "imageUrl", "image", "activityImage"));
                             
-                            Long dateTime = getLongField(doc, "dateTime", "timestamp", "date");
+                            Long dateTime = getLongField(doc, TripActivityCodec.DATE_TIME, "dateTime", "timestamp", "date");
                             if (dateTime != null) activity.setDateTime(dateTime);
                             
-                            Long dayNumber = getLongField(doc, "dayNumber", "day", "dayNum");
+                            Long dayNumber = getLongField(doc, TripActivityCodec.DAY_NUMBER, "dayNumber", "day", "dayNum");
                             if (dayNumber != null) activity.setDayNumber(dayNumber.intValue());
                             
-                            Long createdAt = getLongField(doc, "createdAt", "created", "createTime");
-                            Long updatedAt = getLongField(doc, "updatedAt", "updated", "updateTime");
+                            Long createdAt = getLongField(doc, TripActivityCodec.CREATED_AT, "createdAt", "created", "createTime");
+                            Long updatedAt = getLongField(doc, TripActivityCodec.UPDATED_AT, "updatedAt", "updated", "updateTime");
                             if (createdAt != null) activity.setCreatedAt(createdAt);
                             if (updatedAt != null) activity.setUpdatedAt(updatedAt);
                             
@@ -286,6 +286,7 @@ public class UserManager {
     }
 
     public void signOut() {
+        SyncScheduler.cancelAll(context);
         auth.signOut();
         clearLocalData();
         clearTripData();
@@ -9,6 +9,8 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.mobiledegreefinalproject.DeleteDialogHelper;
@@ -16,10 +18,13 @@ import com.example.mobiledegreefinalproject.R;
 import com.example.mobiledegreefinalproject.model.Expense;
 import com.google.android.material.chip.Chip;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
-public class ModernExpenseAdapter extends RecyclerView.Adapter<ModernExpenseAdapter.ExpenseViewHolder> {
+/**
+ * Expense rows for the budget screen. The list arrives already filtered from
+ * BudgetViewModel and is diffed on a background thread by ListAdapter.
+ */
+public class ModernExpenseAdapter extends ListAdapter<Expense, ModernExpenseAdapter.ExpenseViewHolder> {
     
     public interface OnExpenseActionListener {
         void onEditExpense(Expense expense);
@@ -27,20 +32,32 @@ public class ModernExpenseAdapter extends RecyclerView.Adapter<ModernExpenseAdap
         void onExpenseClick(Expense expense);
     }
 
-    private List<Expense> expenses;
-    private List<Expense> filteredExpenses;
     private OnExpenseActionListener listener;
-    private Expense.Category filterCategory = null;
 
-    public ModernExpenseAdapter(List<Expense> expenses) {
-        this.expenses = expenses != null ? expenses : new ArrayList<>();
-        this.filteredExpenses = new ArrayList<>(this.expenses);
+    public ModernExpenseAdapter() {
+        super(DIFF_CALLBACK);
     }
 
     public void setOnExpenseActionListener(OnExpenseActionListener listener) {
         this.listener = listener;
     }
 
+    // Edits replace the Expense instance, so comparing fields sees the change
+    private static final DiffUtil.ItemCallback<Expense> DIFF_CALLBACK = new DiffUtil.ItemCallback<Expense>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Expense oldItem, @NonNull Expense newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Expense oldItem, @NonNull Expense newItem) {
+            return oldItem.getAmountMinor() == newItem.getAmountMinor() &&
+                   oldItem.getTimestamp() == newItem.getTimestamp() &&
+                   oldItem.getCategory() == newItem.getCategory() &&
+                   Objects.equals(oldItem.getTitle(), newItem.getTitle());
+        }
+    };
+
     @NonNull
     @Override
     public ExpenseViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -51,72 +68,10 @@ public class ModernExpenseAdapter extends RecyclerView.Adapter<ModernExpenseAdap
 
     @Override
     public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position) {
-        Expense expense = filteredExpenses.get(position);
+        Expense expense = getItem(position);
         holder.bind(expense);
     }
 
-    @Override
-    public int getItemCount() {
-        return filteredExpenses.size();
-    }
-
-    public void updateExpenses(List<Expense> newExpenses) {
-        this.expenses.clear();
-        if (newExpenses != null) {
-            this.expenses.addAll(newExpenses);
-        }
-        filterExpenses();
-    }
-
-    public void filterByCategory(Expense.Category category) {
-        this.filterCategory = category;
-        filterExpenses();
-    }
-
-    public void clearFilter() {
-        this.filterCategory = null;
-        filterExpenses();
-    }
-
-    private void filterExpenses() {
-        filteredExpenses.clear();
-        if (filterCategory == null) {
-            filteredExpenses.addAll(expenses);
-        } else {
-            for (Expense expense : expenses) {
-                if (expense.getCategory() == filterCategory) {
-                    filteredExpenses.add(expense);
-                }
-            }
-        }
-        notifyDataSetChanged();
-    }
-
-    public void addExpense(Expense expense) {
-        expenses.add(expense);
-        filterExpenses();
-    }
-
-    public void removeExpense(String expenseId) {
-        for (int i = 0; i < expenses.size(); i++) {
-            if (expenses.get(i).getId().equals(expenseId)) {
-                expenses.remove(i);
-                break;
-            }
-        }
-        filterExpenses();
-    }
-
-    public void updateExpense(Expense updatedExpense) {
-        for (int i = 0; i < expenses.size(); i++) {
-            if (expenses.get(i).getId().equals(updatedExpense.getId())) {
-                expenses.set(i, updatedExpense);
-                break;
-            }
-        }
-        filterExpenses();
-    }
-
     class ExpenseViewHolder extends RecyclerView.ViewHolder {
         private ImageView categoryIcon;
         private TextView expenseTitle;
@@ -7,18 +7,28 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.example.mobiledegreefinalproject.AppTrace;
 import com.example.mobiledegreefinalproject.R;
 import com.example.mobiledegreefinalproject.database.TripActivity;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
-public class TripTimelineAdapter extends RecyclerView.Adapter<TripTimelineAdapter.DayViewHolder> {
+/**
+ * The trip timeline as one flat list: a header row per day followed by that day's
+ * activity rows. ListAdapter diffs each new list on a background thread, and with
+ * stable IDs an edit to one activity only rebinds that activity's row.
+ */
+public class TripTimelineAdapter extends ListAdapter<TripTimelineAdapter.TimelineItem, RecyclerView.ViewHolder> {
 
     public interface OnActivityClickListener {
         void onActivityClick(TripActivity activity);
@@ -28,198 +38,266 @@ public class TripTimelineAdapter extends RecyclerView.Adapter<TripTimelineAdapte
         void onEditActivityClick(TripActivity activity);
     }
 
+    private static final int TYPE_DAY = 0;
+    private static final int TYPE_ACTIVITY = 1;
+
     private final OnActivityClickListener clickListener;
-    private List<DayData> daysList = new ArrayList<>();
 
     public TripTimelineAdapter(OnActivityClickListener clickListener) {
+        super(DIFF_CALLBACK);
         this.clickListener = clickListener;
+        setHasStableIds(true);
     }
 
     public void setTimelineData(Map<Integer, List<TripActivity>> groupedActivities) {
-        // Sort the days chronologically
-        List<Map.Entry<Integer, List<TripActivity>>> sortedDays = new ArrayList<>(groupedActivities.entrySet());
-        java.util.Collections.sort(sortedDays, (e1, e2) -> Integer.compare(e1.getKey(), e2.getKey()));
-
-        daysList.clear();
-        for (Map.Entry<Integer, List<TripActivity>> entry : sortedDays) {
-            // Also sort activities within each day by time
-            java.util.Collections.sort(entry.getValue(), (a1, a2) -> Long.compare(a1.getDateTime(), a2.getDateTime()));
-            daysList.add(new DayData(entry.getKey(), entry.getValue()));
+        boolean traced = AppTrace.begin("TripTimelineAdapter.setTimelineData");
+        try {
+            // Sort the days chronologically
+            List<Map.Entry<Integer, List<TripActivity>>> sortedDays = new ArrayList<>(groupedActivities.entrySet());
+            java.util.Collections.sort(sortedDays, (e1, e2) -> Integer.compare(e1.getKey(), e2.getKey()));
+
+            int itemCount = sortedDays.size();
+            for (Map.Entry<Integer, List<TripActivity>> entry : sortedDays) {
+                itemCount += entry.getValue().size();
+            }
+
+            List<TimelineItem> items = new ArrayList<>(itemCount);
+            Set<Long> usedIds = new HashSet<>(itemCount * 2);
+            for (int i = 0; i < sortedDays.size(); i++) {
+                Map.Entry<Integer, List<TripActivity>> entry = sortedDays.get(i);
+                boolean lastDay = i == sortedDays.size() - 1;
+
+                // Also sort activities within each day by time, on a copy so the caller's list is left as it was
+                List<TripActivity> activities = new ArrayList<>(entry.getValue());
+                java.util.Collections.sort(activities, (a1, a2) -> Long.compare(a1.getDateTime(), a2.getDateTime()));
+
+                items.add(TimelineItem.day(entry.getKey(), lastDay));
+                for (TripActivity activity : activities) {
+                    items.add(TimelineItem.activity(activity, lastDay, usedIds));
+                }
+            }
+            submitList(items);
+        } finally {
+            AppTrace.end(traced);
         }
-        notifyDataSetChanged();
     }
 
-    @NonNull
     @Override
-    public DayViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_timeline_day, parent, false);
-        return new DayViewHolder(view);
+    public int getItemViewType(int position) {
+        return getItem(position).activity == null ? TYPE_DAY : TYPE_ACTIVITY;
     }
 
     @Override
-    public void onBindViewHolder(@NonNull DayViewHolder holder, int position) {
-        DayData dayData = daysList.get(position);
-        holder.bind(dayData, clickListener, position == daysList.size() - 1);
+    public long getItemId(int position) {
+        return getItem(position).stableId;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == TYPE_DAY) {
+            return new DayViewHolder(inflater.inflate(R.layout.item_timeline_day, parent, false));
+        }
+        return new ActivityViewHolder(inflater.inflate(R.layout.item_timeline_activity, parent, false));
     }
 
     @Override
-    public int getItemCount() {
-        return daysList.size();
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        TimelineItem item = getItem(position);
+        if (holder instanceof DayViewHolder) {
+            boolean traced = AppTrace.begin("TripTimelineAdapter.bindDay");
+            try {
+                ((DayViewHolder) holder).bind(item);
+            } finally {
+                AppTrace.end(traced);
+            }
+        } else {
+            boolean traced = AppTrace.begin("TripTimelineAdapter.bindActivity");
+            try {
+                ((ActivityViewHolder) holder).bind(item, clickListener);
+            } finally {
+                AppTrace.end(traced);
+            }
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<TimelineItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<TimelineItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TimelineItem oldItem, @NonNull TimelineItem newItem) {
+            return oldItem.stableId == newItem.stableId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TimelineItem oldItem, @NonNull TimelineItem newItem) {
+            if (oldItem.lastDay != newItem.lastDay || oldItem.dayNumber != newItem.dayNumber) {
+                return false;
+            }
+            if (oldItem.activity == null || newItem.activity == null) {
+                return oldItem.activity == newItem.activity;
+            }
+            TripActivity a = oldItem.activity;
+            TripActivity b = newItem.activity;
+            return a.getDateTime() == b.getDateTime()
+                    && Objects.equals(a.getTimeString(), b.getTimeString())
+                    && Objects.equals(a.getTitle(), b.getTitle())
+                    && Objects.equals(a.getDescription(), b.getDescription())
+                    && Objects.equals(a.getLocation(), b.getLocation())
+                    && Objects.equals(a.getDisplayImagePath(), b.getDisplayImagePath());
+        }
+    };
+
+    /**
+     * One row of the timeline: a day header when activity is null, otherwise an activity
+     */
+    public static final class TimelineItem {
+        // Day headers and activities without a local row ID get IDs outside the range of Room IDs
+        private static final long DAY_ID_BASE = 1L << 33;
+        private static final long REMOTE_ID_BASE = 1L << 32;
+
+        final long stableId;
+        final int dayNumber;
+        final TripActivity activity;
+        final boolean lastDay;
+
+        private TimelineItem(long stableId, int dayNumber, TripActivity activity, boolean lastDay) {
+            this.stableId = stableId;
+            this.dayNumber = dayNumber;
+            this.activity = activity;
+            this.lastDay = lastDay;
+        }
+
+        static TimelineItem day(int dayNumber, boolean lastDay) {
+            return new TimelineItem(DAY_ID_BASE | (dayNumber & 0xFFFFFFFFL), dayNumber, null, lastDay);
+        }
+
+        /**
+         * usedIds holds the IDs already given out in this list; a hashed ID that collides with one
+         * moves to the next free value so every row keeps a unique ID
+         */
+        static TimelineItem activity(TripActivity activity, boolean lastDay, Set<Long> usedIds) {
+            long id;
+            if (activity.getId() > 0) {
+                id = activity.getId();
+            } else {
+                // Activities loaded straight from Firestore have no local ID yet, so hash data that
+                // stays the same across reloads; the creation time does not change on edit
+                int hash = activity.getFirebaseId() != null
+                        ? activity.getFirebaseId().hashCode()
+                        : Objects.hash(activity.getCreatedAt(), activity.getTitle());
+                id = REMOTE_ID_BASE | (hash & 0xFFFFFFFFL);
+                while (usedIds.contains(id)) {
+                    id = REMOTE_ID_BASE | ((id + 1) & 0xFFFFFFFFL);
+                }
+            }
+            usedIds.add(id);
+            return new TimelineItem(id, activity.getDayNumber(), activity, lastDay);
+        }
     }
 
     static class DayViewHolder extends RecyclerView.ViewHolder {
         private final TextView dayNumber;
-        private final View timelineDot;
         private final View timelineLine;
-        private final RecyclerView activitiesRecycler;
 
-        public DayViewHolder(@NonNull View itemView) {
+        DayViewHolder(@NonNull View itemView) {
             super(itemView);
             dayNumber = itemView.findViewById(R.id.day_number);
-            timelineDot = itemView.findViewById(R.id.timeline_dot);
             timelineLine = itemView.findViewById(R.id.timeline_line);
-            activitiesRecycler = itemView.findViewById(R.id.activities_recycler);
         }
 
-        public void bind(DayData dayData, OnActivityClickListener clickListener, boolean isLastDay) {
-            dayNumber.setText("Day " + dayData.dayNumber);
+        void bind(TimelineItem item) {
+            dayNumber.setText("Day " + item.dayNumber);
 
             // Hide timeline line for last day
-            timelineLine.setVisibility(isLastDay ? View.INVISIBLE : View.VISIBLE);
-
-            // Setup activities recycler
-            ActivitiesAdapter activitiesAdapter = new ActivitiesAdapter(clickListener);
-            activitiesRecycler.setLayoutManager(new LinearLayoutManager(itemView.getContext()));
-            activitiesRecycler.setAdapter(activitiesAdapter);
-            activitiesRecycler.setNestedScrollingEnabled(false);
-
-            activitiesAdapter.submitList(dayData.activities);
+            timelineLine.setVisibility(item.lastDay ? View.INVISIBLE : View.VISIBLE);
         }
     }
 
-    // Inner adapter for activities within each day
-    static class ActivitiesAdapter extends RecyclerView.Adapter<ActivitiesAdapter.ActivityViewHolder> {
-
-        private final OnActivityClickListener clickListener;
-        private List<TripActivity> activities = new ArrayList<>();
-
-        public ActivitiesAdapter(OnActivityClickListener clickListener) {
-            this.clickListener = clickListener;
+    static class ActivityViewHolder extends RecyclerView.ViewHolder {
+        private final View card;
+        private final View timelineLine;
+        private final TextView timeText;
+        private final TextView titleText;
+        private final TextView descriptionText;
+        private final ImageView activityImage;
+        private final ImageView editActivityIcon;
+        private long lastLongClickTime = 0;
+
+        ActivityViewHolder(@NonNull View itemView) {
+            super(itemView);
+            card = itemView.findViewById(R.id.activity_card);
+            timelineLine = itemView.findViewById(R.id.timeline_line);
+            timeText = itemView.findViewById(R.id.activity_time);
+            titleText = itemView.findViewById(R.id.activity_title);
+            descriptionText = itemView.findViewById(R.id.activity_description);
+            activityImage = itemView.findViewById(R.id.activity_image);
+            editActivityIcon = itemView.findViewById(R.id.edit_activity_icon);
         }
 
-        public void submitList(List<TripActivity> activities) {
-            this.activities = new ArrayList<>(activities);
-            notifyDataSetChanged();
-        }
+        void bind(TimelineItem item, OnActivityClickListener clickListener) {
+            TripActivity activity = item.activity;
+            timelineLine.setVisibility(item.lastDay ? View.INVISIBLE : View.VISIBLE);
 
-        @NonNull
-        @Override
-        public ActivityViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            View view = LayoutInflater.from(parent.getContext())
-                    .inflate(R.layout.item_timeline_activity, parent, false);
-            return new ActivityViewHolder(view);
-        }
+            timeText.setText(activity.getTimeString());
+            titleText.setText(activity.getTitle());
 
-        @Override
-        public void onBindViewHolder(@NonNull ActivityViewHolder holder, int position) {
-            TripActivity activity = activities.get(position);
-            holder.bind(activity, clickListener);
-        }
-
-        @Override
-        public int getItemCount() {
-            return activities.size();
-        }
+            // Show description or location
+            String description = activity.getDescription();
+            if (description == null || description.trim().isEmpty()) {
+                description = activity.getLocation();
+            }
 
-        static class ActivityViewHolder extends RecyclerView.ViewHolder {
-            private final TextView timeText;
-            private final TextView titleText;
-            private final TextView descriptionText;
-            private final ImageView activityImage;
-            private final ImageView editActivityIcon;
-            private long lastLongClickTime = 0;
-
-            public ActivityViewHolder(@NonNull View itemView) {
-                super(itemView);
-                timeText = itemView.findViewById(R.id.activity_time);
-                titleText = itemView.findViewById(R.id.activity_title);
-                descriptionText = itemView.findViewById(R.id.activity_description);
-                activityImage = itemView.findViewById(R.id.activity_image);
-                editActivityIcon = itemView.findViewById(R.id.edit_activity_icon);
+            if (description != null && !description.trim().isEmpty()) {
+                descriptionText.setText(description);
+                descriptionText.setVisibility(View.VISIBLE);
+            } else {
+                descriptionText.setVisibility(View.GONE);
             }
 
-            public void bind(TripActivity activity, OnActivityClickListener clickListener) {
-                timeText.setText(activity.getTimeString());
-                titleText.setText(activity.getTitle());
+            // Load activity image if available
+            if (activity.hasImage()) {
+                activityImage.setVisibility(View.VISIBLE);
+                String imagePath = activity.getDisplayImagePath();
+
+                Glide.with(itemView.getContext())
+                        .load(imagePath)
+                        .placeholder(R.drawable.ic_trips)
+                        .error(R.drawable.ic_trips)
+                        .centerCrop()
+                        .into(activityImage);
+            } else {
+                // Rows are recycled across days, so drop any load still pending for this view
+                Glide.with(itemView.getContext()).clear(activityImage);
+                activityImage.setVisibility(View.GONE);
+            }
 
-                // Show description or location
-                String description = activity.getDescription();
-                if (description == null || description.trim().isEmpty()) {
-                    description = activity.getLocation();
+            editActivityIcon.setOnClickListener(v -> {
+                if (clickListener != null) {
+                    clickListener.onEditActivityClick(activity);
                 }
+            });
 
-                if (description != null && !description.trim().isEmpty()) {
-                    descriptionText.setText(description);
-                    descriptionText.setVisibility(View.VISIBLE);
-                } else {
-                    descriptionText.setVisibility(View.GONE);
+            // Set click listener for editing
+            card.setOnClickListener(v -> {
+                if (clickListener != null) {
+                    clickListener.onActivityClick(activity);
                 }
-
-                // Load activity image if available
-                if (activity.hasImage()) {
-                    activityImage.setVisibility(View.VISIBLE);
-                    String imagePath = activity.getDisplayImagePath();
-
-                    Glide.with(itemView.getContext())
-                            .load(imagePath)
-                            .placeholder(R.drawable.ic_trips)
-                            .error(R.drawable.ic_trips)
-                            .centerCrop()
-                            .into(activityImage);
-                } else {
-                    activityImage.setVisibility(View.GONE);
+            });
+
+            // Set long click listener for deleting with minimal throttling
+            card.setOnLongClickListener(v -> {
+                long currentTime = System.currentTimeMillis();
+                // Minimal throttling to prevent accidental double-clicks (300ms)
+                if (currentTime - lastLongClickTime < 300) {
+                    return true; // Consume the click but don't act on it
                 }
+                lastLongClickTime = currentTime;
 
-                editActivityIcon.setOnClickListener(v -> {
-                    if (clickListener != null) {
-                        clickListener.onEditActivityClick(activity);
-                    }
-                });
-
-                // Set click listener for editing
-                itemView.setOnClickListener(v -> {
-                    if (clickListener != null) {
-                        clickListener.onActivityClick(activity);
-                    }
-                });
-
-                // Set long click listener for deleting with minimal throttling
-                itemView.setOnLongClickListener(v -> {
-                    long currentTime = System.currentTimeMillis();
-                    // Minimal throttling to prevent accidental double-clicks (300ms)
-                    if (currentTime - lastLongClickTime < 300) {
-                        return true; // Consume the click but don't act on it
-                    }
-                    lastLongClickTime = currentTime;
-                    
-                    if (clickListener != null) {
-                        clickListener.onActivityLongClick(activity);
-                    }
-                    return true;
-                });
-            }
-        }
-    }
-
-    // Data class for grouping
-    private static class DayData {
-        final int dayNumber;
-        final List<TripActivity> activities;
-
-        DayData(int dayNumber, List<TripActivity> activities) {
-            this.dayNumber = dayNumber;
-            this.activities = activities;
+                if (clickListener != null) {
+                    clickListener.onActivityLongClick(activity);
+                }
+                return true;
+            });
         }
     }
-}
\ No newline at end of file
+}
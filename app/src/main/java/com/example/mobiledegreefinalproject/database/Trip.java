@@ -1,9 +1,11 @@
 package com.example.mobiledegreefinalproject.database;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "trips")
+@Entity(tableName = "trips",
+        indices = {@Index(value = "startDate"), @Index(value = "endDate")})
 public class Trip {
     @PrimaryKey(autoGenerate = true)
     private int id;
@@ -102,6 +104,26 @@ public class Trip {
     public void setSynced(boolean synced) { this.synced = synced; }
 
     // Helper methods
+    /**
+     * A field-for-field copy, so a cached row can be handed out without sharing it
+     */
+    public Trip copy() {
+        Trip copy = new Trip();
+        copy.id = id;
+        copy.firebaseId = firebaseId;
+        copy.title = title;
+        copy.destination = destination;
+        copy.startDate = startDate;
+        copy.endDate = endDate;
+        copy.mapImageUrl = mapImageUrl;
+        copy.latitude = latitude;
+        copy.longitude = longitude;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        copy.synced = synced;
+        return copy;
+    }
+
     public int getDurationDays() {
         return (int) ((endDate - startDate) / (24 * 60 * 60 * 1000)) + 1;
     }
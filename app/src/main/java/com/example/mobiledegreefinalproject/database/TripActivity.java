@@ -184,6 +184,30 @@ public class TripActivity implements Serializable {
     }
 
     // Helper methods
+    /**
+     * A field-for-field copy, so a cached row can be handed out without sharing it
+     */
+    public TripActivity copy() {
+        TripActivity copy = new TripActivity();
+        copy.id = id;
+        copy.tripId = tripId;
+        copy.firebaseId = firebaseId;
+        copy.title = title;
+        copy.description = description;
+        copy.location = location;
+        copy.dateTime = dateTime;
+        copy.dayNumber = dayNumber;
+        copy.timeString = timeString;
+        copy.imageUrl = imageUrl;
+        copy.imageLocalPath = imageLocalPath;
+        copy.latitude = latitude;
+        copy.longitude = longitude;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        copy.synced = synced;
+        return copy;
+    }
+
     private String formatTime(long timestamp) {
         java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("hh:mm a", java.util.Locale.getDefault());
         return sdf.format(new java.util.Date(timestamp));
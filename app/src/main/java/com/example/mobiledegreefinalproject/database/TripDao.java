@@ -27,6 +27,20 @@ public interface TripDao {
     @Query("SELECT * FROM trips ORDER BY startDate ASC")
     List<Trip> getAllTripsSync();
     
+    // Date ranges below are served by the startDate and endDate indices
+    
+    @Query("SELECT * FROM trips WHERE endDate >= :now ORDER BY startDate ASC")
+    LiveData<List<Trip>> getCurrentAndUpcomingTrips(long now);
+    
+    @Query("SELECT * FROM trips WHERE startDate > :now ORDER BY startDate ASC")
+    LiveData<List<Trip>> getUpcomingTrips(long now);
+    
+    @Query("SELECT * FROM trips WHERE startDate <= :now AND endDate >= :now ORDER BY endDate ASC")
+    LiveData<List<Trip>> getOngoingTrips(long now);
+    
+    @Query("SELECT * FROM trips WHERE endDate < :now ORDER BY endDate DESC")
+    LiveData<List<Trip>> getPastTrips(long now);
+    
     @Query("SELECT * FROM trips WHERE id = :tripId")
     LiveData<Trip> getTripById(int tripId);
     
@@ -4,10 +4,12 @@ import android.content.Context;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 @Database(
     entities = {Trip.class, TripActivity.class, User.class},
-    version = 3,
+    version = 4,
     exportSchema = false
 )
 public abstract class WanderPlanDatabase extends RoomDatabase {
@@ -18,6 +20,15 @@ public abstract class WanderPlanDatabase extends RoomDatabase {
     public abstract TripActivityDao tripActivityDao();
     public abstract UserDao userDao();
     
+    // 4: indices on trips.startDate and trips.endDate for the date-range trip queries
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_trips_startDate` ON `trips` (`startDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_trips_endDate` ON `trips` (`endDate`)");
+        }
+    };
+    
     public static WanderPlanDatabase getInstance(Context context) {
         if (INSTANCE == null) {
             synchronized (WanderPlanDatabase.class) {
@@ -27,6 +38,7 @@ public abstract class WanderPlanDatabase extends RoomDatabase {
                         WanderPlanDatabase.class,
                         "wanderplan_database"
                     )
+                    .addMigrations(MIGRATION_3_4)
                     .fallbackToDestructiveMigration() // Allow destructive migration for development
                     .build();
                 }
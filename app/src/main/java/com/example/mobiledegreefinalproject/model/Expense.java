@@ -37,7 +37,7 @@ public class Expense {
 
     private String id;
     private String title;
-    private double amount;
+    private long amountMinor; // sen
     private Category category;
     private long timestamp;
     private String note;
@@ -47,31 +47,51 @@ public class Expense {
     private int tripId;
     private boolean synced = false;
 
+    // Ringgit as a double, as stored by older versions; folded into amountMinor on load
+    private Double amount;
+
     public Expense() {
         this.id = generateId();
         this.timestamp = System.currentTimeMillis();
         this.category = Category.OTHER;
     }
 
-    public Expense(String title, double amount, Category category) {
+    public Expense(String title, long amountMinor, Category category) {
         this();
         this.title = title;
-        this.amount = amount;
+        this.amountMinor = amountMinor;
         this.category = category;
     }
 
-    public Expense(String title, double amount, Category category, String note) {
-        this(title, amount, category);
+    public Expense(String title, long amountMinor, Category category, String note) {
+        this(title, amountMinor, category);
         this.note = note;
     }
     
-    public Expense(String title, double amount, Category category, String note, int tripId) {
-        this(title, amount, category, note);
+    public Expense(String title, long amountMinor, Category category, String note, int tripId) {
+        this(title, amountMinor, category, note);
         this.tripId = tripId;
     }
 
+    /**
+     * Copy with the same ID, for edits that must not mutate an instance a list is still showing
+     */
+    public Expense(Expense other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.amountMinor = other.amountMinor;
+        this.category = other.category;
+        this.timestamp = other.timestamp;
+        this.note = other.note;
+        this.firebaseId = other.firebaseId;
+        this.tripId = other.tripId;
+        this.synced = other.synced;
+    }
+
+    // Time-ordered, so a trip's expense list and its Firestore documents sort by creation.
+    // Expenses created by older versions keep their "expense_<millis>_<n>" IDs.
     private String generateId() {
-        return "expense_" + System.currentTimeMillis() + "_" + (int)(Math.random() * 1000);
+        return Ulid.next();
     }
 
     // Getters and setters
@@ -91,12 +111,33 @@ public class Expense {
         this.title = title;
     }
 
+    /**
+     * Amount in sen; use this for anything that adds amounts up
+     */
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
+        this.amount = null;
+    }
+
+    /**
+     * Amount in ringgit, for display and charts only
+     */
     public double getAmount() {
-        return amount;
+        return Money.toMajor(amountMinor);
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    /**
+     * Convert an amount read from the old double field. Call once after deserializing.
+     */
+    public void migrateLegacyAmount() {
+        if (amount != null) {
+            amountMinor = Money.fromMajor(amount);
+            amount = null;
+        }
     }
 
     public Category getCategory() {
@@ -155,7 +196,7 @@ public class Expense {
     }
 
     public String getFormattedAmount() {
-        return String.format(Locale.getDefault(), "RM%.2f", amount);
+        return Money.format(amountMinor);
     }
 
     public String getCategoryEmoji() {
@@ -171,7 +212,7 @@ public class Expense {
         return "Expense{" +
                 "id='" + id + '\'' +
                 ", title='" + title + '\'' +
-                ", amount=" + amount +
+                ", amountMinor=" + amountMinor +
                 ", category=" + category +
                 ", timestamp=" + timestamp +
                 ", tripId=" + tripId +
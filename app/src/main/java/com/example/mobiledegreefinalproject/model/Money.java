@@ -0,0 +1,60 @@
+package com.example.mobiledegreefinalproject.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+/**
+ * Amounts of money as long minor units (sen), so sums are exact and no boxed Double is needed.
+ * Values are plain longs; this class only converts, parses and formats them.
+ */
+public final class Money {
+
+    public static final int MINOR_PER_MAJOR = 100;
+
+    /**
+     * RM2000, the budget a trip gets until the user sets one
+     */
+    public static final long DEFAULT_TRIP_BUDGET = 2000L * MINOR_PER_MAJOR;
+
+    private Money() {
+    }
+
+    /**
+     * Convert a ringgit amount, e.g. one stored by an older version, rounding half up to the sen
+     */
+    public static long fromMajor(double major) {
+        // valueOf goes through Double.toString, so 1.005 is rounded as written rather than as 1.00499...
+        return BigDecimal.valueOf(major).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Parse user input such as "12.5" or "12.50"
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(String text) {
+        return new BigDecimal(text.trim()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Ringgit value for display, charts and edit fields; never sum these
+     */
+    public static double toMajor(long minor) {
+        return minor / (double) MINOR_PER_MAJOR;
+    }
+
+    /**
+     * "RM12.50"
+     */
+    public static String format(long minor) {
+        return String.format(Locale.getDefault(), "RM%.2f", toMajor(minor));
+    }
+
+    /**
+     * "12.5" without trailing zeros, for pre-filling an input field
+     */
+    public static String toPlainString(long minor) {
+        return BigDecimal.valueOf(minor, 2).stripTrailingZeros().toPlainString();
+    }
+}
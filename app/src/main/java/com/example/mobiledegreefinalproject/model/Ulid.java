@@ -0,0 +1,60 @@
+package com.example.mobiledegreefinalproject.model;
+
+import java.security.SecureRandom;
+
+/**
+ * Time-ordered 128-bit IDs in the ULID layout: 48 bits of millisecond timestamp followed by
+ * 80 random bits, written as 26 Crockford base32 characters. String order is creation order,
+ * so new IDs append to the end of sorted lists and Firestore key ranges.
+ *
+ * IDs made within the same millisecond increment the random part instead of drawing a new
+ * one, so they never collide and stay strictly increasing within the process.
+ */
+public final class Ulid {
+
+    public static final int LENGTH = 26;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static long lastTime = -1;
+    private static long randomHigh; // top 16 of the 80 random bits
+    private static long randomLow;  // low 64 bits
+
+    private Ulid() {
+    }
+
+    public static synchronized String next() {
+        long now = System.currentTimeMillis();
+        if (now > lastTime) {
+            lastTime = now;
+            randomHigh = RANDOM.nextInt() & 0xFFFFL;
+            randomLow = RANDOM.nextLong();
+        } else {
+            // Same millisecond, or the clock stepped back: count up from the last ID
+            randomLow++;
+            if (randomLow == 0) {
+                randomHigh = (randomHigh + 1) & 0xFFFFL;
+                if (randomHigh == 0) {
+                    // 2^80 IDs in one millisecond; borrow the next one
+                    lastTime++;
+                }
+            }
+        }
+        return encode(lastTime, randomHigh, randomLow);
+    }
+
+    private static String encode(long time, long high, long low) {
+        char[] chars = new char[LENGTH];
+        for (int i = 9; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (time & 31)];
+            time >>>= 5;
+        }
+        for (int i = LENGTH - 1; i >= 10; i--) {
+            chars[i] = ALPHABET[(int) (low & 31)];
+            low = (low >>> 5) | ((high & 31) << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+}
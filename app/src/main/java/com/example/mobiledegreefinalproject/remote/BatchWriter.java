@@ -0,0 +1,114 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects writes into as few RemoteStore batches as the per-batch limit allows (500 on
+ * Firestore), commits them all at once and reports a single result when the last one lands.
+ *
+ * Batches are committed independently, so when one fails the others may still have been
+ * applied; the error lists every failure.
+ */
+public final class BatchWriter {
+
+    public static final int MAX_WRITES_PER_BATCH = 500;
+
+    private final RemoteStore store;
+    private final int maxWritesPerBatch;
+    private final List<RemoteStore.Batch> batches = new ArrayList<>();
+    private RemoteStore.Batch current;
+    private int writesInBatch;
+    private int writeCount;
+
+    public BatchWriter(RemoteStore store) {
+        this(store, MAX_WRITES_PER_BATCH);
+    }
+
+    public BatchWriter(RemoteStore store, int maxWritesPerBatch) {
+        if (maxWritesPerBatch <= 0) {
+            throw new IllegalArgumentException("maxWritesPerBatch must be positive");
+        }
+        this.store = store;
+        this.maxWritesPerBatch = maxWritesPerBatch;
+    }
+
+    public BatchWriter set(String documentPath, Map<String, Object> data, boolean merge) {
+        next().set(documentPath, data, merge);
+        return this;
+    }
+
+    public BatchWriter delete(String documentPath) {
+        next().delete(documentPath);
+        return this;
+    }
+
+    public int getWriteCount() {
+        return writeCount;
+    }
+
+    public int getBatchCount() {
+        return batches.size();
+    }
+
+    /**
+     * Commit every batch; the callback gets the number of writes once all have succeeded,
+     * or one error after all have finished if any failed. With no writes it succeeds at once.
+     */
+    public void commit(RemoteStore.Callback<Integer> callback) {
+        int total = batches.size();
+        if (total == 0) {
+            callback.onSuccess(0);
+            return;
+        }
+        int writes = writeCount;
+        Object lock = new Object();
+        int[] finished = {0};
+        StringBuilder errors = new StringBuilder();
+
+        RemoteStore.Callback<Void> onCommitted = new RemoteStore.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                done(null);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                done(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+
+            private void done(String error) {
+                synchronized (lock) {
+                    finished[0]++;
+                    if (error != null) {
+                        if (errors.length() > 0) errors.append("; ");
+                        errors.append(error);
+                    }
+                    if (finished[0] < total) return;
+                }
+                if (errors.length() > 0) {
+                    callback.onError(new IOException(errors.toString()));
+                } else {
+                    callback.onSuccess(writes);
+                }
+            }
+        };
+
+        for (RemoteStore.Batch batch : batches) {
+            batch.commit(onCommitted);
+        }
+    }
+
+    private RemoteStore.Batch next() {
+        if (current == null || writesInBatch == maxWritesPerBatch) {
+            current = store.batch();
+            batches.add(current);
+            writesInBatch = 0;
+        }
+        writesInBatch++;
+        writeCount++;
+        return current;
+    }
+}
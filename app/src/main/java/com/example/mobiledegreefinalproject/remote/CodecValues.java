@@ -0,0 +1,57 @@
+package com.example.mobiledegreefinalproject.remote;
+
+/**
+ * Lenient value coercion shared by the document codecs. Firestore hands back Long/Double
+ * for numbers, but older documents sometimes stored them as strings.
+ */
+final class CodecValues {
+
+    private CodecValues() {
+    }
+
+    static long asLong(Object value, long defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException ignored) {
+                // fall through to the default
+            }
+        }
+        return defaultValue;
+    }
+
+    static int asInt(Object value, int defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException ignored) {
+                // fall through to the default
+            }
+        }
+        return defaultValue;
+    }
+
+    static double asDouble(Object value, double defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException ignored) {
+                // fall through to the default
+            }
+        }
+        return defaultValue;
+    }
+
+    static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
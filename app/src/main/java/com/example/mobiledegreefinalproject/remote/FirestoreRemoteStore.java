@@ -0,0 +1,295 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import com.example.mobiledegreefinalproject.AppTrace;
+import com.example.mobiledegreefinalproject.Metrics;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.Filter;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RemoteStore backed by Cloud Firestore and Firebase Storage.
+ * Callbacks are delivered on the main thread, like the underlying Task listeners.
+ * Every round-trip is timed under firestore.* (uploads under upload.blob) and traced as an
+ * async section of the same name.
+ */
+public class FirestoreRemoteStore implements RemoteStore {
+    private final FirebaseFirestore firestore;
+    private final FirebaseStorage storage;
+
+    public FirestoreRemoteStore() {
+        this(FirebaseFirestore.getInstance(), FirebaseStorage.getInstance());
+    }
+
+    public FirestoreRemoteStore(FirebaseFirestore firestore, FirebaseStorage storage) {
+        this.firestore = firestore;
+        this.storage = storage;
+    }
+
+    @Override
+    public void getDocument(String documentPath, Callback<RemoteDocument> callback) {
+        Callback<RemoteDocument> timed = timed("firestore.get", callback);
+        firestore.document(documentPath)
+                .get()
+                .addOnSuccessListener(snapshot -> timed.onSuccess(toRemoteDocument(snapshot)))
+                .addOnFailureListener(timed::onError);
+    }
+
+    @Override
+    public void setDocument(String documentPath, Map<String, Object> data, boolean merge, Callback<Void> callback) {
+        Callback<Void> timed = timed("firestore.set", callback);
+        (merge ? firestore.document(documentPath).set(toFirestore(data, true), SetOptions.merge())
+               : firestore.document(documentPath).set(toFirestore(data, false)))
+                .addOnSuccessListener(aVoid -> timed.onSuccess(null))
+                .addOnFailureListener(timed::onError);
+    }
+
+    @Override
+    public void setFields(String documentPath, Map<String, Object> fields, Callback<Void> callback) {
+        Callback<Void> timed = timed("firestore.setFields", callback);
+        firestore.document(documentPath)
+                .set(toFirestore(fields, true), SetOptions.mergeFields(new ArrayList<>(fields.keySet())))
+                .addOnSuccessListener(aVoid -> timed.onSuccess(null))
+                .addOnFailureListener(timed::onError);
+    }
+
+    @Override
+    public String newDocumentId(String collectionPath) {
+        return firestore.collection(collectionPath).document().getId();
+    }
+
+    @Override
+    public void addDocument(String collectionPath, Map<String, Object> data, Callback<String> callback) {
+        Callback<String> timed = timed("firestore.add", callback);
+        firestore.collection(collectionPath)
+                .add(toFirestore(data, false))
+                .addOnSuccessListener(reference -> timed.onSuccess(reference.getId()))
+                .addOnFailureListener(timed::onError);
+    }
+
+    @Override
+    public void deleteDocument(String documentPath, Callback<Void> callback) {
+        Callback<Void> timed = timed("firestore.delete", callback);
+        firestore.document(documentPath)
+                .delete()
+                .addOnSuccessListener(aVoid -> timed.onSuccess(null))
+                .addOnFailureListener(timed::onError);
+    }
+
+    @Override
+    public void queryPage(String collectionPath, String startAfterId, int limit,
+                          Callback<List<RemoteDocument>> callback) {
+        Query query = firestore.collection(collectionPath)
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        if (startAfterId != null) {
+            query = query.startAfter(startAfterId);
+        }
+
+        Callback<List<RemoteDocument>> timed = timed("firestore.queryPage", callback);
+        query.get()
+                .addOnSuccessListener(page -> {
+                    List<RemoteDocument> documents = new ArrayList<>(page.size());
+                    for (DocumentSnapshot snapshot : page.getDocuments()) {
+                        documents.add(toRemoteDocument(snapshot));
+                    }
+                    Metrics.recordValue("firestore.queryPage.size", documents.size());
+                    timed.onSuccess(documents);
+                })
+                .addOnFailureListener(timed::onError);
+    }
+
+    @Override
+    public void queryGroupPage(String collectionId, String ancestorPath, String startAfterPath, int limit,
+                               Callback<List<RemoteDocument>> callback) {
+        // Document paths order segment by segment, so every descendant of the ancestor sorts
+        // after the ancestor itself and before the sentinel path below it
+        Query query = firestore.collectionGroup(collectionId)
+                .orderBy(FieldPath.documentId())
+                .startAfter(firestore.document(startAfterPath != null ? startAfterPath : ancestorPath))
+                .endBefore(firestore.document(ancestorPath + "/\uf8ff/\uf8ff"))
+                .limit(limit);
+
+        Callback<List<RemoteDocument>> timed = timed("firestore.queryGroupPage", callback);
+        query.get()
+                .addOnSuccessListener(page -> {
+                    List<RemoteDocument> documents = new ArrayList<>(page.size());
+                    for (DocumentSnapshot snapshot : page.getDocuments()) {
+                        documents.add(toRemoteDocument(snapshot));
+                    }
+                    Metrics.recordValue("firestore.queryGroupPage.size", documents.size());
+                    timed.onSuccess(documents);
+                })
+                .addOnFailureListener(timed::onError);
+    }
+
+    @Override
+    public void queryMatching(String collectionPath, List<Map<String, Object>> anyOf, int limit,
+                              Callback<List<RemoteDocument>> callback) {
+        Filter[] alternatives = new Filter[anyOf.size()];
+        for (int i = 0; i < alternatives.length; i++) {
+            List<Filter> equalities = new ArrayList<>();
+            for (Map.Entry<String, Object> field : anyOf.get(i).entrySet()) {
+                equalities.add(Filter.equalTo(field.getKey(), field.getValue()));
+            }
+            alternatives[i] = Filter.and(equalities.toArray(new Filter[0]));
+        }
+
+        Callback<List<RemoteDocument>> timed = timed("firestore.queryMatching", callback);
+        firestore.collection(collectionPath)
+                .where(Filter.or(alternatives))
+                .limit(limit)
+                .get()
+                .addOnSuccessListener(page -> {
+                    List<RemoteDocument> documents = new ArrayList<>(page.size());
+                    for (DocumentSnapshot snapshot : page.getDocuments()) {
+                        documents.add(toRemoteDocument(snapshot));
+                    }
+                    timed.onSuccess(documents);
+                })
+                .addOnFailureListener(timed::onError);
+    }
+
+    @Override
+    public Batch batch() {
+        WriteBatch writeBatch = firestore.batch();
+        return new Batch() {
+            @Override
+            public Batch set(String documentPath, Map<String, Object> data, boolean merge) {
+                if (merge) {
+                    writeBatch.set(firestore.document(documentPath), toFirestore(data, true), SetOptions.merge());
+                } else {
+                    writeBatch.set(firestore.document(documentPath), toFirestore(data, false));
+                }
+                return this;
+            }
+
+            @Override
+            public Batch delete(String documentPath) {
+                writeBatch.delete(firestore.document(documentPath));
+                return this;
+            }
+
+            @Override
+            public void commit(Callback<Void> callback) {
+                Callback<Void> timed = timed("firestore.batchCommit", callback);
+                writeBatch.commit()
+                        .addOnSuccessListener(aVoid -> timed.onSuccess(null))
+                        .addOnFailureListener(timed::onError);
+            }
+        };
+    }
+
+    @Override
+    public Registration listenToCollection(String collectionPath, CollectionListener listener) {
+        ListenerRegistration registration = firestore.collection(collectionPath)
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null) {
+                        listener.onError(e);
+                        return;
+                    }
+                    if (snapshots == null) return;
+
+                    Metrics.recordValue("listener.remoteStore.changes", snapshots.getDocumentChanges().size());
+                    boolean traced = AppTrace.begin("RemoteStore.onSnapshot");
+                    try {
+                        List<RemoteDocument> documents = new ArrayList<>(snapshots.size());
+                        for (DocumentSnapshot snapshot : snapshots.getDocuments()) {
+                            documents.add(toRemoteDocument(snapshot));
+                        }
+                        listener.onChanged(documents);
+                    } finally {
+                        AppTrace.end(traced);
+                    }
+                });
+        return registration::remove;
+    }
+
+    @Override
+    public void uploadBlob(String blobPath, byte[] bytes, String contentType, Callback<String> callback) {
+        StorageReference reference = storage.getReference().child(blobPath);
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(contentType)
+                .build();
+
+        long start = Metrics.start();
+        int cookie = AppTrace.beginAsync("upload.blob");
+        reference.putBytes(bytes, metadata)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful() && task.getException() != null) {
+                        throw task.getException();
+                    }
+                    return reference.getDownloadUrl();
+                })
+                .addOnSuccessListener(uri -> {
+                    Metrics.recordTransfer("upload.blob", bytes.length, start);
+                    AppTrace.endAsync("upload.blob", cookie);
+                    callback.onSuccess(uri.toString());
+                })
+                .addOnFailureListener(e -> {
+                    Metrics.increment("upload.blob.errors");
+                    AppTrace.endAsync("upload.blob", cookie);
+                    callback.onError(e);
+                });
+    }
+
+    /**
+     * Record the round-trip latency (or an error count) and close its trace section
+     * before handing the result on
+     */
+    private static <T> Callback<T> timed(String metric, Callback<T> callback) {
+        long start = Metrics.start();
+        int cookie = AppTrace.beginAsync(metric);
+        return new Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                Metrics.recordLatency(metric, start);
+                AppTrace.endAsync(metric, cookie);
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Metrics.increment(metric + ".errors");
+                AppTrace.endAsync(metric, cookie);
+                callback.onError(e);
+            }
+        };
+    }
+
+    /**
+     * Swap DELETE_FIELD for Firestore's delete sentinel, which is only allowed in merging writes;
+     * elsewhere the field is simply left out, which removes it just the same
+     */
+    private static Map<String, Object> toFirestore(Map<String, Object> data, boolean merge) {
+        if (!data.containsValue(DELETE_FIELD)) {
+            return data;
+        }
+        Map<String, Object> converted = new HashMap<>(data.size());
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            if (field.getValue() != DELETE_FIELD) {
+                converted.put(field.getKey(), field.getValue());
+            } else if (merge) {
+                converted.put(field.getKey(), FieldValue.delete());
+            }
+        }
+        return converted;
+    }
+
+    private static RemoteDocument toRemoteDocument(DocumentSnapshot snapshot) {
+        return new RemoteDocument(snapshot.getReference().getPath(), snapshot.exists() ? snapshot.getData() : null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads a whole collection one ID-ordered page at a time. The next page is only requested
+ * once the handler has finished with the current one, so at most pageSize documents are
+ * held at once however large the collection is.
+ */
+public final class PagedReader {
+
+    public interface PageHandler {
+        /**
+         * One non-empty page, in document ID order. Runs on the executor; throwing stops the read
+         * and reports the exception to onError.
+         */
+        void onPage(List<RemoteDocument> page) throws Exception;
+
+        /**
+         * Every page has been handled; documentCount is 0 for an empty collection
+         */
+        void onComplete(int documentCount);
+
+        void onError(Exception e);
+    }
+
+    private final RemoteStore store;
+    private final String collectionPath;
+    private final int pageSize;
+    private final Executor executor;
+    private final PageHandler handler;
+    private int documentCount;
+
+    private PagedReader(RemoteStore store, String collectionPath, int pageSize, Executor executor,
+                        PageHandler handler) {
+        this.store = store;
+        this.collectionPath = collectionPath;
+        this.pageSize = pageSize;
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    public static void readCollection(RemoteStore store, String collectionPath, int pageSize,
+                                      Executor executor, PageHandler handler) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        new PagedReader(store, collectionPath, pageSize, executor, handler).fetch(null);
+    }
+
+    private void fetch(String cursor) {
+        store.queryPage(collectionPath, cursor, pageSize, new RemoteStore.Callback<List<RemoteDocument>>() {
+            @Override
+            public void onSuccess(List<RemoteDocument> page) {
+                executor.execute(() -> {
+                    try {
+                        if (!page.isEmpty()) {
+                            documentCount += page.size();
+                            handler.onPage(page);
+                        }
+                    } catch (Exception e) {
+                        handler.onError(e);
+                        return;
+                    }
+                    if (page.size() < pageSize) {
+                        handler.onComplete(documentCount);
+                    } else {
+                        fetch(page.get(page.size() - 1).getId());
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                handler.onError(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of one remote document, independent of the backing store
+ */
+public final class RemoteDocument {
+    private final String path;
+    private final Map<String, Object> data;
+
+    public RemoteDocument(String path, Map<String, Object> data) {
+        this.path = path;
+        this.data = data != null ? Collections.unmodifiableMap(data) : null;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getId() {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    public boolean exists() {
+        return data != null;
+    }
+
+    /**
+     * Document fields, or null if the document does not exist
+     */
+    public Map<String, Object> getData() {
+        return data;
+    }
+
+    public Object get(String field) {
+        return data != null ? data.get(field) : null;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remote document and blob storage used by sync. Paths are slash-separated,
+ * e.g. "users/{email}/trips/{tripId}" for a document and "users/{email}/trips"
+ * for a collection.
+ *
+ * FirestoreRemoteStore is used in the app; any other implementation can stand in for it
+ * so sync can run and be measured offline.
+ */
+public interface RemoteStore {
+
+    /**
+     * Field value that removes the field from the stored document instead of setting it
+     */
+    Object DELETE_FIELD = new Object() {
+        @Override
+        public String toString() {
+            return "DELETE_FIELD";
+        }
+    };
+
+    interface Callback<T> {
+        void onSuccess(T result);
+        void onError(Exception e);
+    }
+
+    interface CollectionListener {
+        void onChanged(List<RemoteDocument> documents);
+        void onError(Exception e);
+    }
+
+    interface Registration {
+        void remove();
+    }
+
+    interface Batch {
+        Batch set(String documentPath, Map<String, Object> data, boolean merge);
+        Batch delete(String documentPath);
+        void commit(Callback<Void> callback);
+    }
+
+    /**
+     * Returns a snapshot whose exists() is false if the document is missing
+     */
+    void getDocument(String documentPath, Callback<RemoteDocument> callback);
+
+    void setDocument(String documentPath, Map<String, Object> data, boolean merge, Callback<Void> callback);
+
+    /**
+     * Write only the given top-level fields, each replaced as a whole (a map value does not merge
+     * into the stored one); other fields are kept and a missing document is created
+     */
+    void setFields(String documentPath, Map<String, Object> fields, Callback<Void> callback);
+
+    /**
+     * A new, unused document ID in the collection, generated without a round-trip
+     */
+    String newDocumentId(String collectionPath);
+
+    /**
+     * Create a document with a generated ID and return that ID
+     */
+    void addDocument(String collectionPath, Map<String, Object> data, Callback<String> callback);
+
+    void deleteDocument(String documentPath, Callback<Void> callback);
+
+    /**
+     * One page of a collection ordered by document ID, starting after the given ID
+     * (or from the start when it is null)
+     */
+    void queryPage(String collectionPath, String startAfterId, int limit, Callback<List<RemoteDocument>> callback);
+
+    /**
+     * One page of the documents in every collection named collectionId beneath a document,
+     * e.g. all "budget" collections under "users/{email}", ordered by full path and starting
+     * after the given document path (or from the start when it is null)
+     */
+    void queryGroupPage(String collectionId, String ancestorPath, String startAfterPath, int limit,
+                        Callback<List<RemoteDocument>> callback);
+
+    /**
+     * Up to limit documents of a collection whose fields equal every value of at least one of
+     * the given maps, e.g. the same fields under their current and their legacy names
+     */
+    void queryMatching(String collectionPath, List<Map<String, Object>> anyOf, int limit,
+                       Callback<List<RemoteDocument>> callback);
+
+    Batch batch();
+
+    Registration listenToCollection(String collectionPath, CollectionListener listener);
+
+    /**
+     * Upload bytes to blob storage and return a download URL
+     */
+    void uploadBlob(String blobPath, byte[] bytes, String contentType, Callback<String> callback);
+}
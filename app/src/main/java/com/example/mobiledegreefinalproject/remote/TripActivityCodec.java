@@ -0,0 +1,136 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import com.example.mobiledegreefinalproject.database.TripActivity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The one mapping between TripActivity and its Firestore document.
+ * Decoding walks the document's entries once and dispatches on the key constants below,
+ * instead of looking every field up by name with its own type check.
+ *
+ * Documents are written in schema version 2: short keys and no derived or device-local
+ * fields (timeString is rebuilt from dateTime, imageLocalPath never leaves the device).
+ * Version 1 documents with the long field names are still read, and are rewritten in
+ * version 2 the next time the activity is saved.
+ */
+public final class TripActivityCodec {
+    public static final String VERSION = "v";
+    public static final int SCHEMA_VERSION = 2;
+
+    // Version 2 keys
+    public static final String TITLE = "t";
+    public static final String DESCRIPTION = "d";
+    public static final String LOCATION = "l";
+    public static final String IMAGE_URL = "img";
+    public static final String DATE_TIME = "dt";
+    public static final String DAY_NUMBER = "dn";
+    public static final String LATITUDE = "lat";
+    public static final String LONGITUDE = "lng";
+    public static final String CREATED_AT = "c";
+    public static final String UPDATED_AT = "u";
+
+    // Version 1 keys, read only
+    public static final String LEGACY_FIREBASE_ID = "firebaseId";
+    public static final String LEGACY_TITLE = "title";
+    public static final String LEGACY_DESCRIPTION = "description";
+    public static final String LEGACY_LOCATION = "location";
+    public static final String LEGACY_TIME_STRING = "timeString";
+    public static final String LEGACY_IMAGE_URL = "imageUrl";
+    public static final String LEGACY_IMAGE_LOCAL_PATH = "imageLocalPath";
+    public static final String LEGACY_DATE_TIME = "dateTime";
+    public static final String LEGACY_DAY_NUMBER = "dayNumber";
+    public static final String LEGACY_LATITUDE = "latitude";
+    public static final String LEGACY_LONGITUDE = "longitude";
+    public static final String LEGACY_CREATED_AT = "createdAt";
+    public static final String LEGACY_UPDATED_AT = "updatedAt";
+    public static final String LEGACY_PLATFORM = "platform";
+    public static final String LEGACY_SYNCED = "synced";
+
+    /**
+     * Every version 1 field, for merge writes that must clear them while migrating a document
+     */
+    public static final String[] LEGACY_KEYS = {
+            LEGACY_FIREBASE_ID, LEGACY_TITLE, LEGACY_DESCRIPTION, LEGACY_LOCATION, LEGACY_TIME_STRING,
+            LEGACY_IMAGE_URL, LEGACY_IMAGE_LOCAL_PATH, LEGACY_DATE_TIME, LEGACY_DAY_NUMBER,
+            LEGACY_LATITUDE, LEGACY_LONGITUDE, LEGACY_CREATED_AT, LEGACY_UPDATED_AT,
+            LEGACY_PLATFORM, LEGACY_SYNCED
+    };
+
+    // 11 encoded fields fit without a rehash at the default load factor
+    private static final int ENCODED_CAPACITY = 16;
+
+    private TripActivityCodec() {
+    }
+
+    public static Map<String, Object> encode(TripActivity activity) {
+        Map<String, Object> data = new HashMap<>(ENCODED_CAPACITY);
+        data.put(VERSION, SCHEMA_VERSION);
+        data.put(TITLE, CodecValues.orEmpty(activity.getTitle()));
+        data.put(DESCRIPTION, CodecValues.orEmpty(activity.getDescription()));
+        data.put(LOCATION, CodecValues.orEmpty(activity.getLocation()));
+        data.put(IMAGE_URL, CodecValues.orEmpty(activity.getImageUrl()));
+        data.put(DATE_TIME, activity.getDateTime());
+        data.put(DAY_NUMBER, activity.getDayNumber());
+        data.put(LATITUDE, activity.getLatitude());
+        data.put(LONGITUDE, activity.getLongitude());
+        data.put(CREATED_AT, activity.getCreatedAt());
+        data.put(UPDATED_AT, activity.getUpdatedAt());
+        return data;
+    }
+
+    /**
+     * Copy the fields present in the document onto the given activity and return it.
+     * Missing, null or malformed fields keep the activity's current values, so callers
+     * set their defaults before decoding. Reads both schema versions.
+     */
+    public static TripActivity decode(Map<String, Object> data, TripActivity into) {
+        long updatedAt = into.getUpdatedAt();
+
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) continue;
+
+            switch (entry.getKey()) {
+                case TITLE:
+                case LEGACY_TITLE: into.setTitle(value.toString()); break;
+                case DESCRIPTION:
+                case LEGACY_DESCRIPTION: into.setDescription(value.toString()); break;
+                case LOCATION:
+                case LEGACY_LOCATION: into.setLocation(value.toString()); break;
+                case IMAGE_URL:
+                case LEGACY_IMAGE_URL: into.setImageUrl(value.toString()); break;
+                // setDateTime also rebuilds timeString
+                case DATE_TIME:
+                case LEGACY_DATE_TIME: into.setDateTime(CodecValues.asLong(value, into.getDateTime())); break;
+                case DAY_NUMBER:
+                case LEGACY_DAY_NUMBER: into.setDayNumber(CodecValues.asInt(value, into.getDayNumber())); break;
+                case LATITUDE:
+                case LEGACY_LATITUDE: into.setLatitude(CodecValues.asDouble(value, into.getLatitude())); break;
+                case LONGITUDE:
+                case LEGACY_LONGITUDE: into.setLongitude(CodecValues.asDouble(value, into.getLongitude())); break;
+                case CREATED_AT:
+                case LEGACY_CREATED_AT: into.setCreatedAt(CodecValues.asLong(value, into.getCreatedAt())); break;
+                case UPDATED_AT:
+                case LEGACY_UPDATED_AT: updatedAt = CodecValues.asLong(value, updatedAt); break;
+                case LEGACY_FIREBASE_ID: into.setFirebaseId(value.toString()); break;
+                default:
+                    // Version, the stored timeString, another device's image path,
+                    // platform, synced and unknown fields are not stored locally
+                    break;
+            }
+        }
+
+        // Several setters above touch updatedAt, so the document's value goes in last
+        into.setUpdatedAt(updatedAt);
+        return into;
+    }
+
+    /**
+     * Whether the document still uses the version 1 layout and should be migrated on its next write
+     */
+    public static boolean isLegacy(Map<String, Object> data) {
+        return data != null && CodecValues.asInt(data.get(VERSION), 1) < SCHEMA_VERSION;
+    }
+}
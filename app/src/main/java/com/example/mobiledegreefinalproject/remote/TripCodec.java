@@ -0,0 +1,119 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import com.example.mobiledegreefinalproject.database.Trip;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The one mapping between Trip and its Firestore document, in the same single-pass
+ * form and the same two schema versions as TripActivityCodec.
+ */
+public final class TripCodec {
+    public static final String VERSION = "v";
+    public static final int SCHEMA_VERSION = 2;
+
+    // Version 2 keys
+    public static final String TITLE = "t";
+    public static final String DESTINATION = "ds";
+    public static final String START_DATE = "sd";
+    public static final String END_DATE = "ed";
+    public static final String MAP_IMAGE_URL = "map";
+    public static final String LATITUDE = "lat";
+    public static final String LONGITUDE = "lng";
+    public static final String CREATED_AT = "c";
+    public static final String UPDATED_AT = "u";
+
+    // Version 1 keys, read only
+    public static final String LEGACY_FIREBASE_ID = "firebaseId";
+    public static final String LEGACY_TITLE = "title";
+    public static final String LEGACY_DESTINATION = "destination";
+    public static final String LEGACY_START_DATE = "startDate";
+    public static final String LEGACY_END_DATE = "endDate";
+    public static final String LEGACY_MAP_IMAGE_URL = "mapImageUrl";
+    public static final String LEGACY_LATITUDE = "latitude";
+    public static final String LEGACY_LONGITUDE = "longitude";
+    public static final String LEGACY_CREATED_AT = "createdAt";
+    public static final String LEGACY_UPDATED_AT = "updatedAt";
+    public static final String LEGACY_PLATFORM = "platform";
+    public static final String LEGACY_SYNCED = "synced";
+
+    /**
+     * Every version 1 field, for merge writes that must clear them while migrating a document
+     */
+    public static final String[] LEGACY_KEYS = {
+            LEGACY_FIREBASE_ID, LEGACY_TITLE, LEGACY_DESTINATION, LEGACY_START_DATE, LEGACY_END_DATE,
+            LEGACY_MAP_IMAGE_URL, LEGACY_LATITUDE, LEGACY_LONGITUDE, LEGACY_CREATED_AT,
+            LEGACY_UPDATED_AT, LEGACY_PLATFORM, LEGACY_SYNCED
+    };
+
+    // 10 encoded fields fit without a rehash at the default load factor
+    private static final int ENCODED_CAPACITY = 16;
+
+    private TripCodec() {
+    }
+
+    public static Map<String, Object> encode(Trip trip) {
+        Map<String, Object> data = new HashMap<>(ENCODED_CAPACITY);
+        data.put(VERSION, SCHEMA_VERSION);
+        data.put(TITLE, CodecValues.orEmpty(trip.getTitle()));
+        data.put(DESTINATION, CodecValues.orEmpty(trip.getDestination()));
+        data.put(START_DATE, trip.getStartDate());
+        data.put(END_DATE, trip.getEndDate());
+        data.put(MAP_IMAGE_URL, CodecValues.orEmpty(trip.getMapImageUrl()));
+        data.put(LATITUDE, trip.getLatitude());
+        data.put(LONGITUDE, trip.getLongitude());
+        data.put(CREATED_AT, trip.getCreatedAt());
+        data.put(UPDATED_AT, trip.getUpdatedAt());
+        return data;
+    }
+
+    /**
+     * Copy the fields present in the document onto the given trip and return it.
+     * Missing, null or malformed fields keep the trip's current values. Reads both schema versions.
+     */
+    public static Trip decode(Map<String, Object> data, Trip into) {
+        long updatedAt = into.getUpdatedAt();
+
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) continue;
+
+            switch (entry.getKey()) {
+                case TITLE:
+                case LEGACY_TITLE: into.setTitle(value.toString()); break;
+                case DESTINATION:
+                case LEGACY_DESTINATION: into.setDestination(value.toString()); break;
+                case START_DATE:
+                case LEGACY_START_DATE: into.setStartDate(CodecValues.asLong(value, into.getStartDate())); break;
+                case END_DATE:
+                case LEGACY_END_DATE: into.setEndDate(CodecValues.asLong(value, into.getEndDate())); break;
+                case MAP_IMAGE_URL:
+                case LEGACY_MAP_IMAGE_URL: into.setMapImageUrl(value.toString()); break;
+                case LATITUDE:
+                case LEGACY_LATITUDE: into.setLatitude(CodecValues.asDouble(value, into.getLatitude())); break;
+                case LONGITUDE:
+                case LEGACY_LONGITUDE: into.setLongitude(CodecValues.asDouble(value, into.getLongitude())); break;
+                case CREATED_AT:
+                case LEGACY_CREATED_AT: into.setCreatedAt(CodecValues.asLong(value, into.getCreatedAt())); break;
+                case UPDATED_AT:
+                case LEGACY_UPDATED_AT: updatedAt = CodecValues.asLong(value, updatedAt); break;
+                case LEGACY_FIREBASE_ID: into.setFirebaseId(value.toString()); break;
+                default:
+                    // Version, platform, synced, activities and unknown fields
+                    break;
+            }
+        }
+
+        // Several setters above touch updatedAt, so the document's value goes in last
+        into.setUpdatedAt(updatedAt);
+        return into;
+    }
+
+    /**
+     * Whether the document still uses the version 1 layout and should be migrated on its next write
+     */
+    public static boolean isLegacy(Map<String, Object> data) {
+        return data != null && CodecValues.asInt(data.get(VERSION), 1) < SCHEMA_VERSION;
+    }
+}
@@ -3,32 +3,58 @@ package com.example.mobiledegreefinalproject.repository;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseLongArray;
 
+import com.example.mobiledegreefinalproject.ContentHashes;
+import com.example.mobiledegreefinalproject.Metrics;
 import com.example.mobiledegreefinalproject.UserManager;
 import com.example.mobiledegreefinalproject.model.Expense;
+import com.example.mobiledegreefinalproject.model.Money;
+import com.example.mobiledegreefinalproject.model.Ulid;
+import com.example.mobiledegreefinalproject.remote.BatchWriter;
+import com.example.mobiledegreefinalproject.remote.FirestoreRemoteStore;
+import com.example.mobiledegreefinalproject.remote.RemoteDocument;
+import com.example.mobiledegreefinalproject.remote.RemoteStore;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class BudgetRepository {
     private static final String TAG = "BudgetRepository";
     private static final String PREFS_NAME = "BudgetFragment";
+    // Budget documents per collection group page when fetching
+    private static final int BUDGET_PAGE_SIZE = 500;
+    private static final Type EXPENSE_LIST_TYPE = new TypeToken<List<Expense>>(){}.getType();
+
+    // Budgets used to be stored as ringgit doubles under "trip_budgets" and "total_budget"
+    private static final String KEY_TRIP_BUDGETS = "trip_budgets_minor";
+    private static final String KEY_TOTAL_BUDGET = "total_budget_minor";
+    private static final String KEY_LEGACY_TRIP_BUDGETS = "trip_budgets";
+    private static final String KEY_LEGACY_TOTAL_BUDGET = "total_budget";
     
     private static BudgetRepository INSTANCE;
     private Context context;
     private SharedPreferences sharedPreferences;
     private Gson gson;
     private FirebaseFirestore firestore;
+    private RemoteStore remoteStore;
     private UserManager userManager;
     private ExecutorService executor;
 
@@ -37,8 +63,16 @@ public class BudgetRepository {
         this.sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.gson = new Gson();
         this.firestore = FirebaseFirestore.getInstance();
+        this.remoteStore = new FirestoreRemoteStore();
         this.userManager = UserManager.getInstance(context);
-        this.executor = Executors.newFixedThreadPool(3);
+        this.executor = Metrics.newFixedThreadPool("budgetRepository", 3);
+    }
+
+    /**
+     * Replace the remote store used for batched budget uploads
+     */
+    public synchronized void setRemoteStore(RemoteStore remoteStore) {
+        this.remoteStore = remoteStore;
     }
 
     public static synchronized BudgetRepository getInstance(Context context) {
@@ -64,25 +98,30 @@ public class BudgetRepository {
         void onSuccess();
         void onError(String error);
     }
+    
+    public interface OnBudgetBatchSyncListener {
+        void onSuccess(int entriesSynced);
+        void onError(String error);
+    }
 
-    // Save budget data to local storage
-    public void saveBudgetDataLocally(Map<Integer, Double> tripBudgets, Map<Integer, List<Expense>> tripExpenses, int selectedTripId, double totalBudget) {
+    // Save budget data to local storage (amounts in sen)
+    public void saveBudgetDataLocally(SparseLongArray tripBudgets, SparseArray<List<Expense>> tripExpenses, int selectedTripId, long totalBudget) {
         try {
             SharedPreferences.Editor editor = sharedPreferences.edit();
             
             // Save trip budgets
-            String budgetsJson = gson.toJson(tripBudgets);
-            editor.putString("trip_budgets", budgetsJson);
+            editor.putString(KEY_TRIP_BUDGETS, writeBudgets(tripBudgets));
+            editor.remove(KEY_LEGACY_TRIP_BUDGETS);
             
             // Save trip expenses
-            String expensesJson = gson.toJson(tripExpenses);
-            editor.putString("trip_expenses", expensesJson);
+            editor.putString("trip_expenses", writeExpenses(tripExpenses));
             
             // Save selected trip ID
             editor.putInt("selected_trip_id", selectedTripId);
             
             // Save total budget
-            editor.putLong("total_budget", Double.doubleToLongBits(totalBudget));
+            editor.putLong(KEY_TOTAL_BUDGET, totalBudget);
+            editor.remove(KEY_LEGACY_TOTAL_BUDGET);
             
             editor.apply();
             
@@ -98,27 +137,26 @@ public class BudgetRepository {
             BudgetData data = new BudgetData();
             
             // Load trip budgets
-            String budgetsJson = sharedPreferences.getString("trip_budgets", "{}");
-            Type budgetType = new TypeToken<Map<Integer, Double>>(){}.getType();
-            Map<Integer, Double> savedBudgets = gson.fromJson(budgetsJson, budgetType);
-            if (savedBudgets != null) {
-                data.tripBudgets.putAll(savedBudgets);
+            String budgetsJson = sharedPreferences.getString(KEY_TRIP_BUDGETS, null);
+            if (budgetsJson != null) {
+                readBudgets(budgetsJson, data.tripBudgets);
+            } else {
+                readLegacyBudgets(sharedPreferences.getString(KEY_LEGACY_TRIP_BUDGETS, "{}"), data.tripBudgets);
             }
             
             // Load trip expenses
-            String expensesJson = sharedPreferences.getString("trip_expenses", "{}");
-            Type expenseType = new TypeToken<Map<Integer, List<Expense>>>(){}.getType();
-            Map<Integer, List<Expense>> savedExpenses = gson.fromJson(expensesJson, expenseType);
-            if (savedExpenses != null) {
-                data.tripExpenses.putAll(savedExpenses);
-            }
+            readExpenses(sharedPreferences.getString("trip_expenses", "{}"), data.tripExpenses);
             
             // Load selected trip ID
             data.selectedTripId = sharedPreferences.getInt("selected_trip_id", -1);
             
             // Load total budget
-            data.totalBudget = Double.longBitsToDouble(sharedPreferences.getLong("total_budget", 
-                Double.doubleToLongBits(2000.0)));
+            if (sharedPreferences.contains(KEY_TOTAL_BUDGET)) {
+                data.totalBudget = sharedPreferences.getLong(KEY_TOTAL_BUDGET, Money.DEFAULT_TRIP_BUDGET);
+            } else if (sharedPreferences.contains(KEY_LEGACY_TOTAL_BUDGET)) {
+                data.totalBudget = Money.fromMajor(Double.longBitsToDouble(
+                    sharedPreferences.getLong(KEY_LEGACY_TOTAL_BUDGET, 0)));
+            }
             
             Log.d(TAG, "Loaded budget data: " + data.tripBudgets.size() + " trip budgets, " + 
                   data.tripExpenses.size() + " trip expenses");
@@ -130,14 +168,81 @@ public class BudgetRepository {
         }
     }
 
+    // {"<tripId>": <sen>, ...}
+    private static String writeBudgets(SparseLongArray budgets) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        for (int i = 0; i < budgets.size(); i++) {
+            writer.name(Integer.toString(budgets.keyAt(i))).value(budgets.valueAt(i));
+        }
+        writer.endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    private static void readBudgets(String json, SparseLongArray into) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            into.put(Integer.parseInt(reader.nextName()), reader.nextLong());
+        }
+        reader.endObject();
+        reader.close();
+    }
+
+    private static void readLegacyBudgets(String json, SparseLongArray into) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            into.put(Integer.parseInt(reader.nextName()), Money.fromMajor(reader.nextDouble()));
+        }
+        reader.endObject();
+        reader.close();
+    }
+
+    // {"<tripId>": [expense, ...], ...} - the same layout Gson produced for the old Map
+    private String writeExpenses(SparseArray<List<Expense>> tripExpenses) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        for (int i = 0; i < tripExpenses.size(); i++) {
+            writer.name(Integer.toString(tripExpenses.keyAt(i)));
+            gson.toJson(tripExpenses.valueAt(i), EXPENSE_LIST_TYPE, writer);
+        }
+        writer.endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    private void readExpenses(String json, SparseArray<List<Expense>> into) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            int tripId = Integer.parseInt(reader.nextName());
+            List<Expense> expenses = gson.fromJson(reader, EXPENSE_LIST_TYPE);
+            if (expenses == null) {
+                continue;
+            }
+            for (Expense expense : expenses) {
+                expense.migrateLegacyAmount();
+            }
+            into.put(tripId, expenses);
+        }
+        reader.endObject();
+        reader.close();
+    }
+
     // Clear local budget data
     public void clearLocalBudgetData() {
         try {
             SharedPreferences.Editor editor = sharedPreferences.edit();
-            editor.remove("trip_budgets");
+            editor.remove(KEY_TRIP_BUDGETS);
+            editor.remove(KEY_LEGACY_TRIP_BUDGETS);
             editor.remove("trip_expenses");
             editor.remove("selected_trip_id");
-            editor.remove("total_budget");
+            editor.remove(KEY_TOTAL_BUDGET);
+            editor.remove(KEY_LEGACY_TOTAL_BUDGET);
             editor.apply();
             
             Log.d(TAG, "Cleared local budget data");
@@ -159,8 +264,8 @@ public class BudgetRepository {
                 
                 // Count local budget entries
                 int expenseCount = 0;
-                for (List<Expense> expenses : localData.tripExpenses.values()) {
-                    expenseCount += expenses.size();
+                for (int i = 0; i < localData.tripExpenses.size(); i++) {
+                    expenseCount += localData.tripExpenses.valueAt(i).size();
                 }
                 
                 // Calculate total budget entries (expenses + budgets)
@@ -200,7 +305,7 @@ public class BudgetRepository {
                 
                 BudgetData localData = loadBudgetDataLocally();
                 
-                if (localData.tripBudgets.isEmpty() && localData.tripExpenses.isEmpty()) {
+                if (localData.tripBudgets.size() == 0 && localData.tripExpenses.size() == 0) {
                     Log.d(TAG, "No local budget data found");
                     new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
                         listener.onSuccess();
@@ -217,8 +322,8 @@ public class BudgetRepository {
                 
                 // Count total operations needed
                 totalOperations[0] += localData.tripBudgets.size(); // Budget entries
-                for (List<Expense> expenses : localData.tripExpenses.values()) {
-                    totalOperations[0] += expenses.size(); // Expense entries
+                for (int i = 0; i < localData.tripExpenses.size(); i++) {
+                    totalOperations[0] += localData.tripExpenses.valueAt(i).size(); // Expense entries
                 }
                 
                 if (totalOperations[0] == 0) {
@@ -237,8 +342,8 @@ public class BudgetRepository {
                 }
                 
                 // Sync trip budgets
-                for (Map.Entry<Integer, Double> budgetEntry : localData.tripBudgets.entrySet()) {
-                    syncTripBudgetToFirebaseInternal(budgetEntry.getKey(), budgetEntry.getValue(), userEmail, 
+                for (int i = 0; i < localData.tripBudgets.size(); i++) {
+                    syncTripBudgetToFirebaseInternal(localData.tripBudgets.keyAt(i), localData.tripBudgets.valueAt(i), userEmail, 
                         new OnBudgetOperationListener() {
                             @Override
                             public void onSuccess() {
@@ -264,9 +369,10 @@ public class BudgetRepository {
                 }
                 
                 // Sync trip expenses
-                for (Map.Entry<Integer, List<Expense>> expenseEntry : localData.tripExpenses.entrySet()) {
-                    for (Expense expense : expenseEntry.getValue()) {
-                        expense.setTripId(expenseEntry.getKey()); // Ensure tripId is set
+                for (int i = 0; i < localData.tripExpenses.size(); i++) {
+                    int tripId = localData.tripExpenses.keyAt(i);
+                    for (Expense expense : localData.tripExpenses.valueAt(i)) {
+                        expense.setTripId(tripId); // Ensure tripId is set
                         syncExpenseToFirebaseInternal(expense, userEmail, new OnBudgetOperationListener() {
                             @Override
                             public void onSuccess() {
@@ -321,7 +427,7 @@ public class BudgetRepository {
     }
 
     // Sync a single trip budget to Firebase (public method)
-    public void syncTripBudgetToFirebase(int tripId, double budget, String userEmail, OnBudgetOperationListener listener) {
+    public void syncTripBudgetToFirebase(int tripId, long budget, String userEmail, OnBudgetOperationListener listener) {
         syncTripBudgetToFirebaseInternal(tripId, budget, userEmail, listener);
     }
     
@@ -331,7 +437,7 @@ public class BudgetRepository {
     }
     
     // Sync a single trip budget to Firebase (internal)
-    private void syncTripBudgetToFirebaseInternal(int tripId, double budget, String userEmail, OnBudgetOperationListener listener) {
+    private void syncTripBudgetToFirebaseInternal(int tripId, long budget, String userEmail, OnBudgetOperationListener listener) {
         try {
             // First get the trip's Firebase ID
             executor.execute(() -> {
@@ -348,7 +454,7 @@ public class BudgetRepository {
                     }
                     
                     Map<String, Object> budgetData = new HashMap<>();
-                    budgetData.put("totalBudget", budget);
+                    putBudget(budgetData, budget);
                     budgetData.put("tripId", tripId);
                     budgetData.put("createdAt", System.currentTimeMillis());
                     budgetData.put("updatedAt", System.currentTimeMillis());
@@ -409,7 +515,7 @@ public class BudgetRepository {
                     
                     Map<String, Object> expenseData = new HashMap<>();
                     expenseData.put("title", expense.getTitle());
-                    expenseData.put("amount", expense.getAmount());
+                    putAmount(expenseData, expense);
                     expenseData.put("category", expense.getCategory().name());
                     expenseData.put("timestamp", expense.getTimestamp());
                     expenseData.put("note", expense.getNote() != null ? expense.getNote() : "");
@@ -419,7 +525,7 @@ public class BudgetRepository {
                     
                     String originalExpenseId = expense.getId();
                     final String expenseId = (originalExpenseId == null || originalExpenseId.isEmpty()) 
-                        ? "expense_" + System.currentTimeMillis() + "_" + (int)(Math.random() * 1000)
+                        ? Ulid.next()
                         : originalExpenseId;
                     
                     // Store under: Users/{uid}/Trips/{tripFirebaseId}/Budget/{expenseId}
@@ -461,6 +567,151 @@ public class BudgetRepository {
         }
     }
 
+    // Sync a trip budget and its expenses using batch commits instead of one write per expense.
+    // Expenses already marked as synced are skipped unless includeSyncedExpenses is set
+    // (e.g. when the trip document was just created and its budget collection is empty).
+    public void syncTripBudgetBatch(int tripId, String tripFirebaseId, Long budget, List<Expense> expenses,
+                                    boolean includeSyncedExpenses, String userEmail,
+                                    OnBudgetBatchSyncListener listener) {
+        if (tripFirebaseId == null || tripFirebaseId.isEmpty()) {
+            listener.onError("Trip not synced to Firebase");
+            return;
+        }
+        
+        try {
+            String budgetCollection = "users/" + userEmail + "/trips/" + tripFirebaseId + "/budget";
+            
+            BatchWriter writer = new BatchWriter(remoteStore);
+            // Content hash of each expense as uploaded, keyed by expense ID
+            Map<String, String> uploadedHashes = new HashMap<>();
+            long now = System.currentTimeMillis();
+            
+            if (budget != null) {
+                Map<String, Object> budgetData = new HashMap<>();
+                putBudget(budgetData, budget);
+                budgetData.put("tripId", tripId);
+                budgetData.put("createdAt", now);
+                budgetData.put("updatedAt", now);
+                writer.set(budgetCollection + "/tripBudget", budgetData, false);
+            }
+            
+            if (expenses != null) {
+                for (Expense expense : expenses) {
+                    if (expense.isSynced() && !includeSyncedExpenses) {
+                        continue;
+                    }
+                    
+                    if (expense.getId() == null || expense.getId().isEmpty()) {
+                        expense.setId(Ulid.next());
+                    }
+                    expense.setTripId(tripId);
+                    
+                    Map<String, Object> expenseData = new HashMap<>();
+                    expenseData.put("title", expense.getTitle());
+                    putAmount(expenseData, expense);
+                    expenseData.put("category", expense.getCategory().name());
+                    expenseData.put("timestamp", expense.getTimestamp());
+                    expenseData.put("note", expense.getNote() != null ? expense.getNote() : "");
+                    expenseData.put("tripId", tripId);
+                    expenseData.put("createdAt", now);
+                    expenseData.put("updatedAt", now);
+                    writer.set(budgetCollection + "/" + expense.getId(), expenseData, false);
+                    uploadedHashes.put(expense.getId(), ContentHashes.expenseHash(expense));
+                }
+            }
+            
+            if (writer.getWriteCount() == 0) {
+                Log.d(TAG, "No budget changes to sync for trip " + tripId);
+                listener.onSuccess(0);
+                return;
+            }
+            
+            Log.d(TAG, "Committing " + writer.getWriteCount() + " budget entries for trip " + tripId + 
+                  " in " + writer.getBatchCount() + " batch(es)");
+            
+            writer.commit(new RemoteStore.Callback<Integer>() {
+                @Override
+                public void onSuccess(Integer writes) {
+                    markExpensesSynced(tripId, uploadedHashes);
+                    listener.onSuccess(writes);
+                }
+                
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Budget batch sync failed for trip " + tripId + ": " + e.getMessage());
+                    listener.onError("Failed to sync budget batch: " + e.getMessage());
+                }
+            });
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Exception in budget batch sync", e);
+            listener.onError("Sync setup failed: " + e.getMessage());
+        }
+    }
+    
+    // Persist the synced flag for expenses written by a batch so later syncs skip them.
+    // Only stored expenses whose content still matches what was uploaded are marked; one edited
+    // while the batch was in flight stays unsynced so the next sync uploads the new version.
+    private void markExpensesSynced(int tripId, Map<String, String> uploadedHashes) {
+        if (uploadedHashes.isEmpty()) {
+            return;
+        }
+        
+        executor.execute(() -> {
+            synchronized (BudgetRepository.this) {
+                try {
+                    BudgetData data = loadBudgetDataLocally();
+                    List<Expense> storedExpenses = data.tripExpenses.get(tripId);
+                    if (storedExpenses == null) {
+                        return;
+                    }
+                    
+                    int changed = 0;
+                    for (Expense stored : storedExpenses) {
+                        String uploadedHash = uploadedHashes.get(stored.getId());
+                        if (uploadedHash == null) {
+                            continue;
+                        }
+                        if (uploadedHash.equals(ContentHashes.expenseHash(stored))) {
+                            stored.setFirebaseId(stored.getId());
+                            stored.setSynced(true);
+                        } else {
+                            changed++;
+                        }
+                    }
+                    if (changed > 0) {
+                        Log.d(TAG, changed + " expenses for trip " + tripId + " changed during sync, left unsynced");
+                    }
+                    
+                    saveBudgetDataLocally(data.tripBudgets, data.tripExpenses, data.selectedTripId, data.totalBudget);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error persisting expense sync status", e);
+                }
+            }
+        });
+    }
+
+    // Drop the stored expense lists of trips that no longer exist locally
+    public void removeTripExpensesLocally(List<Integer> tripIds) {
+        if (tripIds.isEmpty()) {
+            return;
+        }
+        
+        executor.execute(() -> {
+            synchronized (BudgetRepository.this) {
+                try {
+                    BudgetData data = loadBudgetDataLocally();
+                    for (int tripId : tripIds) {
+                        data.tripExpenses.remove(tripId);
+                    }
+                    saveBudgetDataLocally(data.tripBudgets, data.tripExpenses, data.selectedTripId, data.totalBudget);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error removing orphaned expenses", e);
+                }
+            }
+        });
+    }
+
     // Delete budget records for a specific trip from Firebase
     public void deleteTripBudgetRecordsFromFirebase(int tripId, OnBudgetOperationListener listener) {
         if (!userManager.isLoggedIn()) {
@@ -663,11 +914,7 @@ public class BudgetRepository {
                 TripRepository tripRepo = TripRepository.getInstance(context);
                 List<com.example.mobiledegreefinalproject.database.Trip> allTrips = tripRepo.getAllTripsSync();
                 
-                BudgetData fetchedData = new BudgetData();
-                final int[] tripsProcessed = {0};
-                final int totalTrips = allTrips.size();
-                
-                if (totalTrips == 0) {
+                if (allTrips.isEmpty()) {
                     Log.d(TAG, "No trips found, budget fetch complete");
                     new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
                         if (listener != null) {
@@ -677,86 +924,9 @@ public class BudgetRepository {
                     return;
                 }
                 
-                // Fetch budget data for each trip
-                for (com.example.mobiledegreefinalproject.database.Trip trip : allTrips) {
-                    if (trip.getFirebaseId() == null || trip.getFirebaseId().isEmpty()) {
-                        synchronized (tripsProcessed) {
-                            tripsProcessed[0]++;
-                            if (tripsProcessed[0] >= totalTrips) {
-                                // All trips processed, save data and notify completion
-                                saveFetchedBudgetData(fetchedData, listener);
-                            }
-                        }
-                        continue;
-                    }
-                    
-                    // Fetch budget data for this trip
-                    firestore.collection("users")
-                        .document(userEmail)
-                        .collection("trips")
-                        .document(trip.getFirebaseId())
-                        .collection("budget")
-                        .get()
-                        .addOnSuccessListener(querySnapshot -> {
-                            try {
-                                List<Expense> tripExpenses = new ArrayList<>();
-                                double tripBudget = 2000.0; // Default
-                                
-                                for (com.google.firebase.firestore.QueryDocumentSnapshot doc : querySnapshot) {
-                                    if (doc.getId().equals("tripBudget")) {
-                                        // This is the trip budget document
-                                        Double budget = doc.getDouble("totalBudget");
-                                        if (budget != null) {
-                                            tripBudget = budget;
-                                        }
-                                    } else {
-                                        // This is an expense document
-                                        Expense expense = parseExpenseFromFirebase(doc);
-                                        if (expense != null) {
-                                            expense.setTripId(trip.getId());
-                                            expense.setFirebaseId(doc.getId());
-                                            expense.setSynced(true);
-                                            tripExpenses.add(expense);
-                                        }
-                                    }
-                                }
-                                
-                                synchronized (fetchedData) {
-                                    if (tripBudget != 2000.0) { // Only store non-default budgets
-                                        fetchedData.tripBudgets.put(trip.getId(), tripBudget);
-                                    }
-                                    if (!tripExpenses.isEmpty()) {
-                                        fetchedData.tripExpenses.put(trip.getId(), tripExpenses);
-                                    }
-                                }
-                                
-                                Log.d(TAG, "Fetched budget data for trip " + trip.getTitle() + 
-                                    ": budget=" + tripBudget + ", expenses=" + tripExpenses.size());
-                                
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error parsing budget data for trip " + trip.getTitle(), e);
-                            }
-                            
-                            synchronized (tripsProcessed) {
-                                tripsProcessed[0]++;
-                                if (tripsProcessed[0] >= totalTrips) {
-                                    // All trips processed, save data and notify completion
-                                    saveFetchedBudgetData(fetchedData, listener);
-                                }
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Error fetching budget data for trip " + trip.getTitle(), e);
-                            
-                            synchronized (tripsProcessed) {
-                                tripsProcessed[0]++;
-                                if (tripsProcessed[0] >= totalTrips) {
-                                    // All trips processed, save data and notify completion
-                                    saveFetchedBudgetData(fetchedData, listener);
-                                }
-                            }
-                        });
-                }
+                // Every budget collection of the user in one paged query, instead of one query per trip
+                BudgetFetchState state = new BudgetFetchState(allTrips);
+                fetchBudgetGroupPage(userEmail, null, state, listener);
                 
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching budget data from Firebase", e);
@@ -769,14 +939,209 @@ public class BudgetRepository {
         });
     }
     
+    /**
+     * Trips by Firebase ID and the budget data grouped so far, carried from one page to the next
+     */
+    private static class BudgetFetchState {
+        final long start = Metrics.start();
+        final List<com.example.mobiledegreefinalproject.database.Trip> trips;
+        final Map<String, com.example.mobiledegreefinalproject.database.Trip> tripsByFirebaseId = new HashMap<>();
+        final BudgetData fetchedData = new BudgetData();
+        int pages;
+        int documents;
+        
+        BudgetFetchState(List<com.example.mobiledegreefinalproject.database.Trip> trips) {
+            this.trips = trips;
+            for (com.example.mobiledegreefinalproject.database.Trip trip : trips) {
+                if (trip.getFirebaseId() == null || trip.getFirebaseId().isEmpty()) continue;
+                tripsByFirebaseId.put(trip.getFirebaseId(), trip);
+                // Kept even when no expenses come back: the merge then drops expenses deleted elsewhere
+                fetchedData.tripExpenses.put(trip.getId(), new ArrayList<>());
+            }
+        }
+    }
+    
+    /**
+     * Fetch the page of budget documents after the given path and group it by trip. A failed
+     * page (e.g. the collection group index is missing) falls back to querying trip by trip.
+     */
+    private void fetchBudgetGroupPage(String userEmail, String cursor, BudgetFetchState state,
+                                      OnBudgetFetchListener listener) {
+        remoteStore.queryGroupPage("budget", "users/" + userEmail, cursor, BUDGET_PAGE_SIZE,
+                new RemoteStore.Callback<List<RemoteDocument>>() {
+            @Override
+            public void onSuccess(List<RemoteDocument> page) {
+                executor.execute(() -> {
+                    try {
+                        groupBudgetPage(page, state);
+                        
+                        if (page.size() < BUDGET_PAGE_SIZE) {
+                            Metrics.recordLatency("budget.fetch", state.start);
+                            Log.d(TAG, "Fetched " + state.documents + " budget documents for " +
+                                  state.tripsByFirebaseId.size() + " trips in " + state.pages + " page(s)");
+                            saveFetchedBudgetData(state.fetchedData, listener);
+                        } else {
+                            String last = page.get(page.size() - 1).getPath();
+                            fetchBudgetGroupPage(userEmail, last, state, listener);
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error processing budget page", e);
+                        new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
+                            if (listener != null) {
+                                listener.onError("Failed to fetch budget data: " + e.getMessage());
+                            }
+                        });
+                    }
+                });
+            }
+            
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Budget collection group query failed, fetching trip by trip", e);
+                Metrics.increment("budget.fetch.fallback");
+                executor.execute(() -> fetchBudgetDataPerTrip(userEmail, state.trips, listener));
+            }
+        });
+    }
+    
+    // Single pass over one page: each document is routed to its trip by the trip ID in its path
+    private void groupBudgetPage(List<RemoteDocument> page, BudgetFetchState state) {
+        state.pages++;
+        state.documents += page.size();
+        
+        for (RemoteDocument doc : page) {
+            // users/{email}/trips/{tripFirebaseId}/budget/{docId}
+            String[] segments = doc.getPath().split("/");
+            if (segments.length != 6 || !"trips".equals(segments[2])) continue;
+            
+            com.example.mobiledegreefinalproject.database.Trip trip = state.tripsByFirebaseId.get(segments[3]);
+            if (trip == null || doc.getData() == null) {
+                // Budget of a trip that is not on this device (yet)
+                continue;
+            }
+            
+            if (doc.getId().equals("tripBudget")) {
+                Long budget = readMinor(doc.getData(), "totalBudgetMinor", "totalBudget");
+                if (budget != null && budget != Money.DEFAULT_TRIP_BUDGET) { // Only store non-default budgets
+                    state.fetchedData.tripBudgets.put(trip.getId(), budget);
+                }
+            } else {
+                Expense expense = parseExpenseFromFirebase(doc.getId(), doc.getData());
+                if (expense != null) {
+                    expense.setTripId(trip.getId());
+                    expense.setFirebaseId(doc.getId());
+                    expense.setSynced(true);
+                    // Pages come in path order, so each trip's expenses arrive in ID order
+                    state.fetchedData.tripExpenses.get(trip.getId()).add(expense);
+                }
+            }
+        }
+    }
+    
+    // One budget query per trip; only used when the collection group query is unavailable
+    private void fetchBudgetDataPerTrip(String userEmail,
+                                        List<com.example.mobiledegreefinalproject.database.Trip> allTrips,
+                                        OnBudgetFetchListener listener) {
+        BudgetData fetchedData = new BudgetData();
+        final int[] tripsProcessed = {0};
+        final int totalTrips = allTrips.size();
+        
+        // Fetch budget data for each trip
+        for (com.example.mobiledegreefinalproject.database.Trip trip : allTrips) {
+            if (trip.getFirebaseId() == null || trip.getFirebaseId().isEmpty()) {
+                synchronized (tripsProcessed) {
+                    tripsProcessed[0]++;
+                    if (tripsProcessed[0] >= totalTrips) {
+                        // All trips processed, save data and notify completion
+                        saveFetchedBudgetData(fetchedData, listener);
+                    }
+                }
+                continue;
+            }
+            
+            // Fetch budget data for this trip, in document ID (= expense creation) order
+            firestore.collection("users")
+                .document(userEmail)
+                .collection("trips")
+                .document(trip.getFirebaseId())
+                .collection("budget")
+                .orderBy(FieldPath.documentId())
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    try {
+                        List<Expense> tripExpenses = new ArrayList<>();
+                        long tripBudget = Money.DEFAULT_TRIP_BUDGET;
+                        
+                        for (com.google.firebase.firestore.QueryDocumentSnapshot doc : querySnapshot) {
+                            if (doc.getId().equals("tripBudget")) {
+                                // This is the trip budget document
+                                Long budget = readMinor(doc.getData(), "totalBudgetMinor", "totalBudget");
+                                if (budget != null) {
+                                    tripBudget = budget;
+                                }
+                            } else {
+                                // This is an expense document
+                                Expense expense = parseExpenseFromFirebase(doc.getId(), doc.getData());
+                                if (expense != null) {
+                                    expense.setTripId(trip.getId());
+                                    expense.setFirebaseId(doc.getId());
+                                    expense.setSynced(true);
+                                    tripExpenses.add(expense);
+                                }
+                            }
+                        }
+                        
+                        synchronized (fetchedData) {
+                            if (tripBudget != Money.DEFAULT_TRIP_BUDGET) { // Only store non-default budgets
+                                fetchedData.tripBudgets.put(trip.getId(), tripBudget);
+                            }
+                            // Kept even when empty: the merge then drops expenses deleted elsewhere
+                            fetchedData.tripExpenses.put(trip.getId(), tripExpenses);
+                        }
+                        
+                        Log.d(TAG, "Fetched budget data for trip " + trip.getTitle() + 
+                            ": budget=" + Money.format(tripBudget) + ", expenses=" + tripExpenses.size());
+                        
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error parsing budget data for trip " + trip.getTitle(), e);
+                    }
+                    
+                    synchronized (tripsProcessed) {
+                        tripsProcessed[0]++;
+                        if (tripsProcessed[0] >= totalTrips) {
+                            // All trips processed, save data and notify completion
+                            saveFetchedBudgetData(fetchedData, listener);
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching budget data for trip " + trip.getTitle(), e);
+                    
+                    synchronized (tripsProcessed) {
+                        tripsProcessed[0]++;
+                        if (tripsProcessed[0] >= totalTrips) {
+                            // All trips processed, save data and notify completion
+                            saveFetchedBudgetData(fetchedData, listener);
+                        }
+                    }
+                });
+        }
+    }
+    
     private void saveFetchedBudgetData(BudgetData fetchedData, OnBudgetFetchListener listener) {
         try {
             // Save the fetched data to local storage
             BudgetData existingData = loadBudgetDataLocally();
             
-            // Merge Firebase data with existing local data (Firebase takes precedence)
-            existingData.tripBudgets.putAll(fetchedData.tripBudgets);
-            existingData.tripExpenses.putAll(fetchedData.tripExpenses);
+            // Merge Firebase data with existing local data (Firebase takes precedence over synced entries)
+            for (int i = 0; i < fetchedData.tripBudgets.size(); i++) {
+                existingData.tripBudgets.put(fetchedData.tripBudgets.keyAt(i), fetchedData.tripBudgets.valueAt(i));
+            }
+            for (int i = 0; i < fetchedData.tripExpenses.size(); i++) {
+                int tripId = fetchedData.tripExpenses.keyAt(i);
+                existingData.tripExpenses.put(tripId,
+                    mergeExpenses(existingData.tripExpenses.get(tripId), fetchedData.tripExpenses.valueAt(i)));
+            }
             
             // Save merged data
             saveBudgetDataLocally(existingData.tripBudgets, existingData.tripExpenses, 
@@ -802,30 +1167,80 @@ public class BudgetRepository {
         }
     }
     
-    private Expense parseExpenseFromFirebase(com.google.firebase.firestore.QueryDocumentSnapshot doc) {
+    /**
+     * Merge a trip's local expenses with the ones just fetched, walking both lists in ID order.
+     * Fetched expenses replace synced local copies; local expenses that are not synced yet
+     * (new or edited) win and are kept; synced local expenses missing remotely were deleted
+     * on another device and are dropped.
+     */
+    static List<Expense> mergeExpenses(List<Expense> local, List<Expense> remote) {
+        if (local == null || local.isEmpty()) {
+            return remote;
+        }
+        // Both lists are normally sorted already (IDs are time-ordered), which TimSort handles in one pass
+        List<Expense> sortedLocal = new ArrayList<>(local);
+        sortedLocal.sort(BY_ID);
+        List<Expense> sortedRemote = new ArrayList<>(remote);
+        sortedRemote.sort(BY_ID);
+
+        List<Expense> merged = new ArrayList<>(sortedLocal.size() + sortedRemote.size());
+        int l = 0;
+        int r = 0;
+        while (l < sortedLocal.size() || r < sortedRemote.size()) {
+            int order;
+            if (l == sortedLocal.size()) {
+                order = 1;
+            } else if (r == sortedRemote.size()) {
+                order = -1;
+            } else {
+                order = BY_ID.compare(sortedLocal.get(l), sortedRemote.get(r));
+            }
+
+            if (order < 0) {
+                Expense localOnly = sortedLocal.get(l++);
+                if (!localOnly.isSynced()) {
+                    merged.add(localOnly);
+                }
+            } else if (order > 0) {
+                merged.add(sortedRemote.get(r++));
+            } else {
+                Expense localCopy = sortedLocal.get(l++);
+                Expense remoteCopy = sortedRemote.get(r++);
+                merged.add(localCopy.isSynced() ? remoteCopy : localCopy);
+            }
+        }
+        return merged;
+    }
+
+    // A missing ID (never expected) sorts first and can only match another missing ID
+    private static final Comparator<Expense> BY_ID =
+        Comparator.comparing(expense -> expense.getId() != null ? expense.getId() : "");
+
+    private Expense parseExpenseFromFirebase(String docId, Map<String, Object> data) {
         try {
-            String title = doc.getString("title");
-            Double amount = doc.getDouble("amount");
-            String categoryString = doc.getString("category");
-            Long timestamp = doc.getLong("timestamp");
-            String note = doc.getString("note");
-            
-            if (title == null || amount == null || categoryString == null || timestamp == null) {
-                Log.w(TAG, "Missing required fields in expense document: " + doc.getId());
+            Object title = data.get("title");
+            Long amount = readMinor(data, "amountMinor", "amount");
+            Object categoryString = data.get("category");
+            Object timestamp = data.get("timestamp");
+            Object note = data.get("note");
+            
+            if (!(title instanceof String) || amount == null || !(categoryString instanceof String)
+                    || !(timestamp instanceof Number)) {
+                Log.w(TAG, "Missing required fields in expense document: " + docId);
                 return null;
             }
             
             Expense.Category category;
             try {
-                category = Expense.Category.valueOf(categoryString);
+                category = Expense.Category.valueOf((String) categoryString);
             } catch (IllegalArgumentException e) {
                 Log.w(TAG, "Invalid category in expense document: " + categoryString);
                 category = Expense.Category.OTHER;
             }
             
-            Expense expense = new Expense(title, amount, category, note);
-            expense.setTimestamp(timestamp);
-            expense.setId(doc.getId());
+            Expense expense = new Expense((String) title, amount, category, note instanceof String ? (String) note : null);
+            expense.setTimestamp(((Number) timestamp).longValue());
+            expense.setId(docId);
             
             return expense;
             
@@ -835,11 +1250,40 @@ public class BudgetRepository {
         }
     }
 
-    // Data class for holding budget data
+    // Documents carry sen under the *Minor field; the ringgit field is kept for older app versions
+    private static void putAmount(Map<String, Object> data, Expense expense) {
+        data.put("amountMinor", expense.getAmountMinor());
+        data.put("amount", expense.getAmount());
+    }
+
+    private static void putBudget(Map<String, Object> data, long budget) {
+        data.put("totalBudgetMinor", budget);
+        data.put("totalBudget", Money.toMajor(budget));
+    }
+
+    // Prefer the exact minor-unit field; documents written by older versions only have the double
+    private static Long readMinor(Map<String, Object> data, String minorField, String legacyField) {
+        Object minor = data.get(minorField);
+        if (minor instanceof Number) {
+            return ((Number) minor).longValue();
+        }
+        Object major = data.get(legacyField);
+        return major instanceof Number ? Money.fromMajor(((Number) major).doubleValue()) : null;
+    }
+
+    // Data class for holding budget data; amounts are in sen (see Money)
     public static class BudgetData {
-        public Map<Integer, Double> tripBudgets = new HashMap<>();
-        public Map<Integer, List<Expense>> tripExpenses = new HashMap<>();
+        public SparseLongArray tripBudgets = new SparseLongArray();
+        public SparseArray<List<Expense>> tripExpenses = new SparseArray<>();
         public int selectedTripId = -1;
-        public double totalBudget = 2000.0;
+        public long totalBudget = Money.DEFAULT_TRIP_BUDGET;
+
+        /**
+         * The trip's budget, or null when none was set
+         */
+        public Long budgetFor(int tripId) {
+            int index = tripBudgets.indexOfKey(tripId);
+            return index >= 0 ? tripBudgets.valueAt(index) : null;
+        }
     }
 } 
\ No newline at end of file
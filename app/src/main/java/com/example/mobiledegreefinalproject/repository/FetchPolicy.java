@@ -0,0 +1,75 @@
+package com.example.mobiledegreefinalproject.repository;
+
+/**
+ * Where one read in TripRepository may get its data from: the local cache (Room for trip lists,
+ * Firestore's offline cache for direct queries), the server, or both.
+ *
+ * Freshness is tracked per read key by the repository, as the time of the last successful
+ * server read. Only staleWhileRevalidate looks at it.
+ */
+public final class FetchPolicy {
+
+    public enum Mode {
+        /** Never touch the network */
+        CACHE_ONLY,
+        /** Show what is cached straight away, then read the server and show that too */
+        CACHE_THEN_NETWORK,
+        /** Only show what the server returns */
+        NETWORK_ONLY,
+        /** Show what is cached, and read the server as well only once the last read is older than maxAge */
+        STALE_WHILE_REVALIDATE
+    }
+
+    public static final FetchPolicy CACHE_ONLY = new FetchPolicy(Mode.CACHE_ONLY, 0);
+    public static final FetchPolicy CACHE_THEN_NETWORK = new FetchPolicy(Mode.CACHE_THEN_NETWORK, 0);
+    public static final FetchPolicy NETWORK_ONLY = new FetchPolicy(Mode.NETWORK_ONLY, 0);
+
+    private final Mode mode;
+    private final long maxAgeMs;
+
+    private FetchPolicy(Mode mode, long maxAgeMs) {
+        this.mode = mode;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Serve the cache, revalidating from the server when the last server read is older than maxAgeMs
+     */
+    public static FetchPolicy staleWhileRevalidate(long maxAgeMs) {
+        if (maxAgeMs < 0) {
+            throw new IllegalArgumentException("maxAgeMs must not be negative");
+        }
+        return new FetchPolicy(Mode.STALE_WHILE_REVALIDATE, maxAgeMs);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+
+    boolean readsCache() {
+        return mode != Mode.NETWORK_ONLY;
+    }
+
+    /**
+     * Whether to read the server, given when it was last read successfully (-1 for never)
+     */
+    boolean readsNetwork(long lastFetchedAt, long now) {
+        switch (mode) {
+            case CACHE_ONLY:
+                return false;
+            case STALE_WHILE_REVALIDATE:
+                return lastFetchedAt < 0 || now - lastFetchedAt > maxAgeMs;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.STALE_WHILE_REVALIDATE ? mode + "(" + maxAgeMs + "ms)" : mode.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.mobiledegreefinalproject.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+
+import com.example.mobiledegreefinalproject.AppLog;
+import com.example.mobiledegreefinalproject.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a maintenance task over one table, such as duplicate cleanup, for however many callers
+ * ask for it. Requests are coalesced: the first one schedules a run at most once per window
+ * after the previous run started, and any that arrive before it starts join it.
+ *
+ * A version counter is bumped whenever Room invalidates the table, so a run is skipped when
+ * nothing has written to the table since the last run started. Each run, skip and coalesced
+ * request is counted under maintenance.&lt;name&gt;.* and run durations are recorded.
+ */
+class MaintenanceScheduler {
+
+    private static final AppLog.Logger LOG = AppLog.get(AppLog.CLEANUP);
+    private static final long NOT_RUN = -1;
+
+    private final String name;
+    private final long windowMs;
+    private final Executor executor;
+    private final Runnable task;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicLong version = new AtomicLong();
+
+    // Invalidation callbacks are only delivered while the observer is strongly held
+    private final InvalidationTracker.Observer observer;
+
+    private boolean scheduled;
+    private long lastRunAt = -1;
+    private long lastRunVersion = NOT_RUN;
+    private List<Runnable> waiting = new ArrayList<>();
+
+    MaintenanceScheduler(String name, RoomDatabase database, String table, long windowMs,
+                         Executor executor, Runnable task) {
+        this.name = name;
+        this.windowMs = windowMs;
+        this.executor = executor;
+        this.task = task;
+        this.observer = new InvalidationTracker.Observer(table) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                version.incrementAndGet();
+            }
+        };
+        database.getInvalidationTracker().addObserver(observer);
+    }
+
+    void request() {
+        request(null);
+    }
+
+    /**
+     * Ask for a run; onDone, if given, is called on the executor once the run that covers this
+     * request has finished or been skipped
+     */
+    synchronized void request(Runnable onDone) {
+        if (onDone != null) {
+            waiting.add(onDone);
+        }
+        if (scheduled) {
+            Metrics.increment("maintenance." + name + ".coalesced");
+            return;
+        }
+        scheduled = true;
+        long now = SystemClock.elapsedRealtime();
+        long delay = lastRunAt < 0 ? 0 : Math.max(0, lastRunAt + windowMs - now);
+        handler.postDelayed(() -> executor.execute(this::run), delay);
+    }
+
+    private void run() {
+        List<Runnable> callbacks;
+        long current;
+        boolean skip;
+        synchronized (this) {
+            scheduled = false;
+            callbacks = waiting;
+            waiting = new ArrayList<>();
+            current = version.get();
+            skip = current == lastRunVersion;
+            if (!skip) {
+                // Writes made by the run itself bump the version, so the next run goes ahead
+                // once more and finds nothing to do
+                lastRunVersion = current;
+                lastRunAt = SystemClock.elapsedRealtime();
+            }
+        }
+
+        if (skip) {
+            Metrics.increment("maintenance." + name + ".skipped");
+            LOG.d("Skipping {}: table unchanged since the last run", name);
+        } else {
+            long start = Metrics.start();
+            try {
+                task.run();
+            } finally {
+                Metrics.increment("maintenance." + name + ".runs");
+                Metrics.recordLatency("maintenance." + name, start);
+            }
+        }
+
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+}
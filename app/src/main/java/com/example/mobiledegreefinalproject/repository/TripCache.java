@@ -0,0 +1,202 @@
+package com.example.mobiledegreefinalproject.repository;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+
+import com.example.mobiledegreefinalproject.Metrics;
+import com.example.mobiledegreefinalproject.database.Trip;
+import com.example.mobiledegreefinalproject.database.TripActivity;
+import com.example.mobiledegreefinalproject.database.TripActivityDao;
+import com.example.mobiledegreefinalproject.database.TripDao;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-through cache in front of the three sync reads that sync, cleanup and export flows repeat:
+ * trips by id, the full trip list, and each trip's activity list. At most MAX_TRIPS trips and
+ * MAX_ACTIVITY_LISTS activity lists are kept, least recently used first out.
+ *
+ * The cache also owns the DAOs the repository uses: each is timed by Metrics (dao.trip.*,
+ * dao.activity.*) and drops the cached rows of its table straight after any write, in one proxy.
+ * Entries are also dropped whenever Room's InvalidationTracker reports a write, which catches
+ * writes made elsewhere; it alone is not enough since it only reports after the transaction and
+ * on another thread. Every drop bumps a version, and a row read before the drop is never stored
+ * after it. Rows read inside a transaction are not stored at all: they may not be committed, and
+ * a rollback neither goes through the DAOs nor reaches the InvalidationTracker.
+ *
+ * Entities are mutable, so rows are copied on the way in and on the way out; a caller can edit
+ * what it gets back without touching the cache. Hits and misses are counted under
+ * cache.trip.*, cache.allTrips.* and cache.activities.*.
+ */
+class TripCache {
+
+    static final String TRIPS = "trips";
+    static final String ACTIVITIES = "trip_activities";
+
+    private static final int MAX_TRIPS = 64;
+    private static final int MAX_ACTIVITY_LISTS = 32;
+
+    private final RoomDatabase database;
+    private final TripDao tripDao;
+    private final TripActivityDao activityDao;
+    private final LruCache<Integer, Trip> trips = new LruCache<>(MAX_TRIPS);
+    private final LruCache<Integer, List<TripActivity>> activities = new LruCache<>(MAX_ACTIVITY_LISTS);
+    private List<Trip> allTrips;
+    private long tripsVersion;
+    private long activitiesVersion;
+
+    // Kept as a field so it lives as long as the cache does
+    private final InvalidationTracker.Observer observer = new InvalidationTracker.Observer(TRIPS, ACTIVITIES) {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            if (tables.contains(TRIPS)) {
+                evictTrips();
+            }
+            if (tables.contains(ACTIVITIES)) {
+                evictActivities();
+            }
+        }
+    };
+
+    TripCache(RoomDatabase database, TripDao tripDao, TripActivityDao activityDao) {
+        this.database = database;
+        this.tripDao = Metrics.timed(TripDao.class, tripDao, "dao.trip", method -> afterCall(method, TRIPS));
+        this.activityDao = Metrics.timed(TripActivityDao.class, activityDao, "dao.activity",
+                method -> afterCall(method, ACTIVITIES));
+        database.getInvalidationTracker().addObserver(observer);
+    }
+
+    /**
+     * Timed trip DAO that drops cached trips and activity lists after every write
+     */
+    TripDao tripDao() {
+        return tripDao;
+    }
+
+    /**
+     * Timed activity DAO that drops cached activity lists after every write
+     */
+    TripActivityDao activityDao() {
+        return activityDao;
+    }
+
+    Trip getTripByIdSync(int tripId) {
+        long version;
+        synchronized (this) {
+            Trip cached = trips.get(tripId);
+            if (cached != null) {
+                Metrics.increment("cache.trip.hit");
+                return cached.copy();
+            }
+            version = tripsVersion;
+        }
+        Metrics.increment("cache.trip.miss");
+        Trip trip = tripDao.getTripByIdSync(tripId);
+        if (trip != null && !database.inTransaction()) {
+            synchronized (this) {
+                if (version == tripsVersion) {
+                    trips.put(tripId, trip.copy());
+                }
+            }
+        }
+        return trip;
+    }
+
+    List<Trip> getAllTripsSync() {
+        long version;
+        synchronized (this) {
+            if (allTrips != null) {
+                Metrics.increment("cache.allTrips.hit");
+                return copyTrips(allTrips);
+            }
+            version = tripsVersion;
+        }
+        Metrics.increment("cache.allTrips.miss");
+        List<Trip> loaded = tripDao.getAllTripsSync();
+        if (database.inTransaction()) {
+            return loaded;
+        }
+        synchronized (this) {
+            if (version == tripsVersion) {
+                allTrips = copyTrips(loaded);
+                // The list already holds every row, so later lookups by id can use it too
+                for (Trip trip : allTrips) {
+                    trips.put(trip.getId(), trip);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    List<TripActivity> getActivitiesForTripSync(int tripId) {
+        long version;
+        synchronized (this) {
+            List<TripActivity> cached = activities.get(tripId);
+            if (cached != null) {
+                Metrics.increment("cache.activities.hit");
+                return copyActivities(cached);
+            }
+            version = activitiesVersion;
+        }
+        Metrics.increment("cache.activities.miss");
+        List<TripActivity> loaded = activityDao.getActivitiesForTripSync(tripId);
+        if (database.inTransaction()) {
+            return loaded;
+        }
+        synchronized (this) {
+            if (version == activitiesVersion) {
+                activities.put(tripId, copyActivities(loaded));
+            }
+        }
+        return loaded;
+    }
+
+    synchronized void evictTrips() {
+        tripsVersion++;
+        trips.evictAll();
+        allTrips = null;
+        Metrics.increment("cache.trip.evict");
+    }
+
+    synchronized void evictActivities() {
+        activitiesVersion++;
+        activities.evictAll();
+        Metrics.increment("cache.activities.evict");
+    }
+
+    /**
+     * Every DAO call that is not a get... read drops the cached rows of its table.
+     * Deleting a trip cascades to its activities, so writes to trips drop both.
+     */
+    private void afterCall(Method method, String table) {
+        if (method.getName().startsWith("get")) {
+            return;
+        }
+        if (TRIPS.equals(table)) {
+            evictTrips();
+        }
+        evictActivities();
+    }
+
+    private static List<Trip> copyTrips(List<Trip> source) {
+        List<Trip> copy = new ArrayList<>(source.size());
+        for (Trip trip : source) {
+            copy.add(trip.copy());
+        }
+        return copy;
+    }
+
+    private static List<TripActivity> copyActivities(List<TripActivity> source) {
+        List<TripActivity> copy = new ArrayList<>(source.size());
+        for (TripActivity activity : source) {
+            copy.add(activity.copy());
+        }
+        return copy;
+    }
+}
@@ -6,13 +6,25 @@ import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 
+import com.example.mobiledegreefinalproject.AppLog;
+import com.example.mobiledegreefinalproject.AppTrace;
+import com.example.mobiledegreefinalproject.FirebaseDataHelper;
+import com.example.mobiledegreefinalproject.Metrics;
 import com.example.mobiledegreefinalproject.UserManager;
 import com.example.mobiledegreefinalproject.database.Trip;
 import com.example.mobiledegreefinalproject.database.TripActivity;
 import com.example.mobiledegreefinalproject.database.TripActivityDao;
 import com.example.mobiledegreefinalproject.database.TripDao;
 import com.example.mobiledegreefinalproject.database.WanderPlanDatabase;
+import com.example.mobiledegreefinalproject.remote.TripActivityCodec;
+import com.example.mobiledegreefinalproject.remote.TripCodec;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
@@ -26,24 +38,39 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class TripRepository {
 
     private static final String TAG = "TripRepository";
+    private static final AppLog.Logger CLEANUP_LOG = AppLog.get(AppLog.CLEANUP);
+    private static final AppLog.Logger LISTENER_LOG = AppLog.get(AppLog.LISTENER);
     private static final boolean FORCE_LOCAL_ONLY = false; // Set to true to test without Firebase
     private static volatile TripRepository INSTANCE;
     
+    private final WanderPlanDatabase database;
     private final TripDao tripDao;
     private final TripActivityDao activityDao;
+    private final TripCache tripCache;
     private final UserManager userManager;
     private final FirebaseFirestore firestore;
     private final FirebaseStorage storage;
     private final ExecutorService executor;
+    private final MaintenanceScheduler cleanupScheduler;
     
     // Add a set to track activities being deleted to prevent race conditions
     private final Set<String> activitiesBeingDeleted = new HashSet<>();
     private final Map<String, Long> deletionTimestamps = new HashMap<>();
+    
+    // Last successful server read per account and fetch key (see freshnessKey), in elapsedRealtime,
+    // for FetchPolicy freshness. Another account signing in starts with nothing fresh.
+    private final Map<String, Long> fetchedAt = new java.util.concurrent.ConcurrentHashMap<>();
+    private static final long CLEANUP_WINDOW_MS = 2000;
+    
+    /**
+     * How long a server read counts as fresh for the default stale-while-revalidate policies
+     */
+    public static final long DEFAULT_MAX_AGE_MS = 60_000;
+    public static final String KEY_TRIPS = "trips";
     private static final long DELETION_TIMEOUT_MS = 5000; // FIXED: 5 seconds timeout instead of 30 seconds for faster cleanup
     
     // CRITICAL FIX: Add flag to disable real-time updates when using direct Firebase loading
@@ -55,13 +82,19 @@ public class TripRepository {
     private TripRepository(Context context) {
         try {
             Log.d(TAG, "Initializing TripRepository");
-            WanderPlanDatabase database = WanderPlanDatabase.getInstance(context);
-            tripDao = database.tripDao();
-            activityDao = database.tripActivityDao();
+            database = WanderPlanDatabase.getInstance(context);
+            // Repeated sync reads of trips and activity lists are served from memory; writes drop them.
+            // Every DAO call is timed under dao.trip.* / dao.activity.*
+            tripCache = new TripCache(database, database.tripDao(), database.tripActivityDao());
+            tripDao = tripCache.tripDao();
+            activityDao = tripCache.activityDao();
             userManager = UserManager.getInstance(context);
             firestore = FirebaseFirestore.getInstance();
             storage = FirebaseStorage.getInstance();
-            executor = Executors.newFixedThreadPool(4);
+            executor = Metrics.newFixedThreadPool("tripRepository", 4);
+            // Duplicate cleanup reads the whole trips table, so every trigger shares at most one run per window
+            cleanupScheduler = new MaintenanceScheduler("tripCleanup", database, "trips",
+                    CLEANUP_WINDOW_MS, executor, this::cleanupDuplicateTrips);
             Log.d(TAG, "TripRepository initialized successfully");
             
             // Test database connectivity
@@ -102,30 +135,78 @@ public class TripRepository {
         }
     }
     
-    // Trip operations - Smart data source switching
+    // Trip operations - each read takes a FetchPolicy; the no-argument versions use defaultTripsPolicy()
     public LiveData<List<Trip>> getAllTrips() {
-        if (userManager.isLoggedIn()) {
-            // For logged-in users: Use Firebase as primary source, local as cache
-            Log.d(TAG, "User logged in - using Firebase-first data retrieval");
-            return getTripsFromFirebaseFirst();
-        } else {
-            // For guests: Use local database only
-            Log.d(TAG, "Guest user - using local database only");
-            return tripDao.getAllTrips();
-        }
+        return getAllTrips(defaultTripsPolicy());
+    }
+    
+    public LiveData<List<Trip>> getAllTrips(FetchPolicy policy) {
+        return withTripsPolicy(tripDao.getAllTrips(), policy);
+    }
+    
+    // Date-filtered trip lists; for logged-in users Firebase refreshes the rows behind them
+    public LiveData<List<Trip>> getCurrentAndUpcomingTrips(long now) {
+        return withTripsPolicy(tripDao.getCurrentAndUpcomingTrips(now), defaultTripsPolicy());
+    }
+    
+    public LiveData<List<Trip>> getUpcomingTrips(long now) {
+        return withTripsPolicy(tripDao.getUpcomingTrips(now), defaultTripsPolicy());
+    }
+    
+    public LiveData<List<Trip>> getOngoingTrips(long now) {
+        return withTripsPolicy(tripDao.getOngoingTrips(now), defaultTripsPolicy());
+    }
+    
+    public LiveData<List<Trip>> getPastTrips(long now) {
+        return withTripsPolicy(tripDao.getPastTrips(now), defaultTripsPolicy());
+    }
+    
+    /**
+     * Guests only ever read Room; signed-in users see Room straight away and refresh it from
+     * Firebase at most once per DEFAULT_MAX_AGE_MS, with the real-time listener covering the rest
+     */
+    public FetchPolicy defaultTripsPolicy() {
+        return userManager.isLoggedIn() ? FetchPolicy.staleWhileRevalidate(DEFAULT_MAX_AGE_MS) : FetchPolicy.CACHE_ONLY;
     }
     
-    // Firebase-first data retrieval for logged-in users with real-time sync
-    private LiveData<List<Trip>> getTripsFromFirebaseFirst() {
-        Log.d(TAG, "=== FIREBASE-FIRST DATA RETRIEVAL WITH REAL-TIME SYNC ===");
+    // Room is the cache for trip lists; the network step refreshes the rows behind local
+    private LiveData<List<Trip>> withTripsPolicy(LiveData<List<Trip>> local, FetchPolicy policy) {
+        if (!userManager.isLoggedIn()
+                || !policy.readsNetwork(lastFetchedAt(freshnessKey(userManager.getUserEmail(), KEY_TRIPS)),
+                        android.os.SystemClock.elapsedRealtime())) {
+            Metrics.increment("fetch.trips.cache");
+            return local;
+        }
+        Log.d(TAG, "Refreshing trips from Firebase (" + policy + ")");
+        Metrics.increment("fetch.trips.network");
+        if (policy.readsCache()) {
+            refreshTripsFromFirebase();
+            return local;
+        }
         
-        // First, run immediate cleanup of any existing duplicates
-        executor.execute(() -> {
-            cleanupDuplicateTripsAfterSync();
+        // Network only: hold the rows back until the fetch has landed, or failed
+        androidx.lifecycle.MediatorLiveData<List<Trip>> result = new androidx.lifecycle.MediatorLiveData<>();
+        setupFirebaseTripsListener();
+        fetchTripsFromFirebase(new OnTripSyncListener() {
+            @Override
+            public void onSuccess() {
+                result.addSource(local, result::setValue);
+                cleanupDuplicateTripsAfterSync();
+            }
+            
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Network-only trip fetch failed, showing local rows: " + error);
+                result.addSource(local, result::setValue);
+            }
         });
-        
-        // Return local data immediately for fast UI
-        LiveData<List<Trip>> localData = tripDao.getAllTrips();
+        return result;
+    }
+    
+    // Start the real-time listener and an initial fetch; the local rows update as they land
+    private void refreshTripsFromFirebase() {
+        // First, run immediate cleanup of any existing duplicates
+        cleanupDuplicateTripsAfterSync();
         
         // Set up real-time Firebase listener for automatic sync
         setupFirebaseTripsListener();
@@ -140,11 +221,8 @@ public class TripRepository {
                     cleanupDuplicateTripsAfterSync();
                     
                     // Schedule another cleanup after a delay to catch any late duplicates
-                    new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-                        executor.execute(() -> {
-                            cleanupDuplicateTripsAfterSync();
-                        });
-                    }, 5000);
+                    new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(
+                            TripRepository.this::cleanupDuplicateTripsAfterSync, 5000);
                 }
                 
                 @Override
@@ -155,139 +233,143 @@ public class TripRepository {
                 }
             });
         });
-        
-        return localData;
     }
     
-    // Clean up duplicate trips after Firebase sync
+    // Clean up duplicate trips after Firebase sync; coalesced with other requests by cleanupScheduler
     private void cleanupDuplicateTripsAfterSync() {
-        executor.execute(() -> {
-            try {
-                Log.d(TAG, "=== STARTING COMPREHENSIVE DUPLICATE CLEANUP ===");
-                
-                List<Trip> allTrips = tripDao.getAllTripsSync();
-                Log.d(TAG, "Total trips before cleanup: " + allTrips.size());
-                
-                // Group trips by content (title + destination + dates) to find duplicates
-                Map<String, List<Trip>> tripGroups = new LinkedHashMap<>();
+        cleanupScheduler.request();
+    }
+    
+    private void cleanupDuplicateTrips() {
+        boolean traced = AppTrace.begin("TripRepository.cleanupDuplicateTrips");
+        try {
+            CLEANUP_LOG.d("=== STARTING COMPREHENSIVE DUPLICATE CLEANUP ===");
+            long cleanupStart = Metrics.start();
+            
+            List<Trip> allTrips = tripCache.getAllTripsSync();
+            CLEANUP_LOG.d("Total trips before cleanup: {}", allTrips.size());
+            
+            // Group trips by content (title + destination + dates) to find duplicates
+            Map<String, List<Trip>> tripGroups = new LinkedHashMap<>();
+            
+            for (Trip trip : allTrips) {
+                String contentKey = trip.getTitle().trim().toLowerCase() + "|" + 
+                                   trip.getDestination().trim().toLowerCase() + "|" + 
+                                   trip.getStartDate() + "|" + trip.getEndDate();
                 
-                for (Trip trip : allTrips) {
-                    String contentKey = trip.getTitle().trim().toLowerCase() + "|" + 
-                                       trip.getDestination().trim().toLowerCase() + "|" + 
-                                       trip.getStartDate() + "|" + trip.getEndDate();
-                    
-                    if (!tripGroups.containsKey(contentKey)) {
-                        tripGroups.put(contentKey, new ArrayList<>());
-                    }
-                    tripGroups.get(contentKey).add(trip);
+                if (!tripGroups.containsKey(contentKey)) {
+                    tripGroups.put(contentKey, new ArrayList<>());
                 }
+                tripGroups.get(contentKey).add(trip);
+            }
+            
+            int removedCount = 0;
+            
+            // Process each group of potentially duplicate trips
+            for (Map.Entry<String, List<Trip>> entry : tripGroups.entrySet()) {
+                List<Trip> duplicates = entry.getValue();
                 
-                int removedCount = 0;
-                
-                // Process each group of potentially duplicate trips
-                for (Map.Entry<String, List<Trip>> entry : tripGroups.entrySet()) {
-                    List<Trip> duplicates = entry.getValue();
+                if (duplicates.size() > 1) {
+                    CLEANUP_LOG.d("Found {} duplicate trips with content: {}", duplicates.size(), entry.getKey());
                     
-                    if (duplicates.size() > 1) {
-                        Log.d(TAG, "Found " + duplicates.size() + " duplicate trips with content: " + entry.getKey());
+                    // Sort duplicates: Firebase trips first, then by creation date
+                    duplicates.sort((trip1, trip2) -> {
+                        // Firebase trips have higher priority
+                        boolean trip1HasFirebase = trip1.getFirebaseId() != null && !trip1.getFirebaseId().isEmpty();
+                        boolean trip2HasFirebase = trip2.getFirebaseId() != null && !trip2.getFirebaseId().isEmpty();
                         
-                        // Sort duplicates: Firebase trips first, then by creation date
-                        duplicates.sort((trip1, trip2) -> {
-                            // Firebase trips have higher priority
-                            boolean trip1HasFirebase = trip1.getFirebaseId() != null && !trip1.getFirebaseId().isEmpty();
-                            boolean trip2HasFirebase = trip2.getFirebaseId() != null && !trip2.getFirebaseId().isEmpty();
-                            
-                            if (trip1HasFirebase && !trip2HasFirebase) return -1;
-                            if (!trip1HasFirebase && trip2HasFirebase) return 1;
-                            
-                            // If both have Firebase ID or both don't, sort by creation date (newer first)
-                            return Long.compare(trip2.getCreatedAt(), trip1.getCreatedAt());
-                        });
+                        if (trip1HasFirebase && !trip2HasFirebase) return -1;
+                        if (!trip1HasFirebase && trip2HasFirebase) return 1;
                         
-                        // Keep the first trip (highest priority) and remove the rest
-                        Trip keepTrip = duplicates.get(0);
-                        Log.d(TAG, "Keeping trip: " + keepTrip.getTitle() + " (ID: " + keepTrip.getId() + 
-                              ", Firebase: " + (keepTrip.getFirebaseId() != null ? keepTrip.getFirebaseId() : "none") + ")");
+                        // If both have Firebase ID or both don't, sort by creation date (newer first)
+                        return Long.compare(trip2.getCreatedAt(), trip1.getCreatedAt());
+                    });
+                    
+                    // Keep the first trip (highest priority) and remove the rest
+                    Trip keepTrip = duplicates.get(0);
+                    CLEANUP_LOG.d("Keeping trip: {} (ID: {}, Firebase: {})", keepTrip.getTitle(), keepTrip.getId(), keepTrip.getFirebaseId() != null ? keepTrip.getFirebaseId() : "none");
+                    
+                    // Remove all other duplicates
+                    for (int i = 1; i < duplicates.size(); i++) {
+                        Trip duplicateTrip = duplicates.get(i);
                         
-                        // Remove all other duplicates
-                        for (int i = 1; i < duplicates.size(); i++) {
-                            Trip duplicateTrip = duplicates.get(i);
-                            
-                            Log.d(TAG, "Removing duplicate trip: " + duplicateTrip.getTitle() + " (ID: " + duplicateTrip.getId() + 
-                                  ", Firebase: " + (duplicateTrip.getFirebaseId() != null ? duplicateTrip.getFirebaseId() : "none") + ")");
-                            
-                            // Move any activities from duplicate to the kept trip
-                            try {
-                                moveActivitiesFromLocalToFirebaseTrip(duplicateTrip, keepTrip);
-                            } catch (Exception e) {
-                                Log.w(TAG, "Failed to move activities from duplicate trip", e);
-                            }
-                            
-                            // Delete the duplicate trip
-                            try {
-                                tripDao.deleteTrip(duplicateTrip);
-                                removedCount++;
-                                Log.d(TAG, "✓ Successfully removed duplicate trip: " + duplicateTrip.getTitle());
-                            } catch (Exception e) {
-                                Log.e(TAG, "Failed to delete duplicate trip: " + duplicateTrip.getTitle(), e);
-                            }
+                        CLEANUP_LOG.d("Removing duplicate trip: {} (ID: {}, Firebase: {})", duplicateTrip.getTitle(), duplicateTrip.getId(), duplicateTrip.getFirebaseId() != null ? duplicateTrip.getFirebaseId() : "none");
+                        
+                        // Move any activities from duplicate to the kept trip
+                        try {
+                            moveActivitiesFromLocalToFirebaseTrip(duplicateTrip, keepTrip);
+                        } catch (Exception e) {
+                            CLEANUP_LOG.w("Failed to move activities from duplicate trip", e);
+                        }
+                        
+                        // Delete the duplicate trip
+                        try {
+                            tripDao.deleteTrip(duplicateTrip);
+                            removedCount++;
+                            CLEANUP_LOG.d("✓ Successfully removed duplicate trip: {}", duplicateTrip.getTitle());
+                        } catch (Exception e) {
+                            CLEANUP_LOG.e("Failed to delete duplicate trip: {}", duplicateTrip.getTitle(), e);
                         }
                     }
                 }
-                
-                // Additional cleanup: Remove trips with exactly the same Firebase ID (shouldn't happen but just in case)
-                Map<String, Trip> firebaseIdMap = new HashMap<>();
-                List<Trip> finalTrips = tripDao.getAllTripsSync();
-                
-                for (Trip trip : finalTrips) {
-                    if (trip.getFirebaseId() != null && !trip.getFirebaseId().isEmpty()) {
-                        Trip existing = firebaseIdMap.get(trip.getFirebaseId());
-                        if (existing != null) {
-                            // Duplicate Firebase ID - keep the newer one
-                            if (trip.getUpdatedAt() > existing.getUpdatedAt()) {
-                                tripDao.deleteTrip(existing);
-                                firebaseIdMap.put(trip.getFirebaseId(), trip);
-                                removedCount++;
-                                Log.d(TAG, "Removed older trip with duplicate Firebase ID: " + existing.getTitle());
-                            } else {
-                                tripDao.deleteTrip(trip);
-                                removedCount++;
-                                Log.d(TAG, "Removed newer trip with duplicate Firebase ID: " + trip.getTitle());
-                            }
-                        } else {
+            }
+            
+            // Additional cleanup: Remove trips with exactly the same Firebase ID (shouldn't happen but just in case)
+            Map<String, Trip> firebaseIdMap = new HashMap<>();
+            List<Trip> finalTrips = tripCache.getAllTripsSync();
+            
+            for (Trip trip : finalTrips) {
+                if (trip.getFirebaseId() != null && !trip.getFirebaseId().isEmpty()) {
+                    Trip existing = firebaseIdMap.get(trip.getFirebaseId());
+                    if (existing != null) {
+                        // Duplicate Firebase ID - keep the newer one
+                        if (trip.getUpdatedAt() > existing.getUpdatedAt()) {
+                            tripDao.deleteTrip(existing);
                             firebaseIdMap.put(trip.getFirebaseId(), trip);
+                            removedCount++;
+                            CLEANUP_LOG.d("Removed older trip with duplicate Firebase ID: {}", existing.getTitle());
+                        } else {
+                            tripDao.deleteTrip(trip);
+                            removedCount++;
+                            CLEANUP_LOG.d("Removed newer trip with duplicate Firebase ID: {}", trip.getTitle());
                         }
+                    } else {
+                        firebaseIdMap.put(trip.getFirebaseId(), trip);
                     }
                 }
-                
-                int finalTripCount = tripDao.getAllTripsSync().size();
-                
-                if (removedCount > 0) {
-                    Log.d(TAG, "=== CLEANUP COMPLETED ===");
-                    Log.d(TAG, "Removed " + removedCount + " duplicate trips");
-                    Log.d(TAG, "Trip count: " + allTrips.size() + " → " + finalTripCount);
-                } else {
-                    Log.d(TAG, "=== CLEANUP COMPLETED - No duplicates found ===");
-                    Log.d(TAG, "Final trip count: " + finalTripCount);
-                }
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error during comprehensive duplicate cleanup", e);
             }
-        });
+            
+            int finalTripCount = tripDao.getTripCount();
+            Metrics.recordLatency("repo.cleanupDuplicateTrips", cleanupStart);
+            Metrics.add("repo.cleanupDuplicateTrips.removed", removedCount);
+            
+            if (removedCount > 0) {
+                CLEANUP_LOG.d("=== CLEANUP COMPLETED ===");
+                CLEANUP_LOG.d("Removed {} duplicate trips", removedCount);
+                CLEANUP_LOG.d("Trip count: {} → {}", allTrips.size(), finalTripCount);
+            } else {
+                CLEANUP_LOG.d("=== CLEANUP COMPLETED - No duplicates found ===");
+                CLEANUP_LOG.d("Final trip count: {}", finalTripCount);
+            }
+            
+        } catch (Exception e) {
+            CLEANUP_LOG.e("Error during comprehensive duplicate cleanup", e);
+        } finally {
+            AppTrace.end(traced);
+        }
     }
     
     // Move activities from local trip to Firebase trip before deleting local trip
     private void moveActivitiesFromLocalToFirebaseTrip(Trip localTrip, Trip firebaseTrip) {
         try {
-            List<TripActivity> localActivities = activityDao.getActivitiesForTripSync(localTrip.getId());
+            List<TripActivity> localActivities = tripCache.getActivitiesForTripSync(localTrip.getId());
             
             if (!localActivities.isEmpty()) {
-                Log.d(TAG, "Moving " + localActivities.size() + " activities from local trip to Firebase trip");
+                CLEANUP_LOG.d("Moving {} activities from local trip to Firebase trip", localActivities.size());
                 
                 for (TripActivity activity : localActivities) {
                     // Check if similar activity already exists in Firebase trip
-                    List<TripActivity> firebaseActivities = activityDao.getActivitiesForTripSync(firebaseTrip.getId());
+                    List<TripActivity> firebaseActivities = tripCache.getActivitiesForTripSync(firebaseTrip.getId());
                     boolean duplicateExists = false;
                     
                     for (TripActivity firebaseActivity : firebaseActivities) {
@@ -303,14 +385,14 @@ public class TripRepository {
                         activity.setFirebaseId(null); // Reset Firebase ID so it gets synced again
                         activity.setSynced(false);
                         activityDao.updateActivity(activity);
-                        Log.d(TAG, "Moved activity '" + activity.getTitle() + "' to Firebase trip");
+                        CLEANUP_LOG.d("Moved activity '{}' to Firebase trip", activity.getTitle());
                     } else {
-                        Log.d(TAG, "Activity '" + activity.getTitle() + "' already exists in Firebase trip, skipping");
+                        CLEANUP_LOG.d("Activity '{}' already exists in Firebase trip, skipping", activity.getTitle());
                     }
                 }
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error moving activities from local to Firebase trip", e);
+            CLEANUP_LOG.e("Error moving activities from local to Firebase trip", e);
         }
     }
     
@@ -330,7 +412,7 @@ public class TripRepository {
     }
     
     public List<Trip> getAllTripsSync() {
-        return tripDao.getAllTripsSync();
+        return tripCache.getAllTripsSync();
     }
     
     public void clearUnsyncedTrips() {
@@ -350,13 +432,15 @@ public class TripRepository {
     public void clearFirebaseTripsFromLocal() {
         executor.execute(() -> {
             try {
-                List<Trip> allTrips = tripDao.getAllTripsSync();
+                List<Trip> allTrips = tripCache.getAllTripsSync();
                 for (Trip trip : allTrips) {
                     if (trip.getFirebaseId() != null && !trip.getFirebaseId().isEmpty()) {
                         // Delete Firebase-synced trips
                         tripDao.deleteTrip(trip);
                     }
                 }
+                // The synced rows behind every earlier server read are gone
+                fetchedAt.clear();
                 Log.d(TAG, "Cleared Firebase-synced trips from local storage");
             } catch (Exception e) {
                 Log.e(TAG, "Error clearing Firebase trips", e);
@@ -367,18 +451,29 @@ public class TripRepository {
     public void clearAllLocalTrips() {
         executor.execute(() -> {
             try {
-                List<Trip> allTrips = tripDao.getAllTripsSync();
-                for (Trip trip : allTrips) {
-                    // Delete all trips (this will cascade delete all activities)
-                    tripDao.deleteTrip(trip);
-                }
-                Log.d(TAG, "Cleared all " + allTrips.size() + " local trips from database");
+                clearAllLocalTripsSync();
             } catch (Exception e) {
                 Log.e(TAG, "Error clearing all local trips", e);
             }
         });
     }
     
+    /**
+     * Delete every local trip (and, by cascade, its activities) on the calling thread.
+     * Must be called off the main thread.
+     */
+    public void clearAllLocalTripsSync() {
+        long start = Metrics.start();
+        List<Trip> allTrips = tripCache.getAllTripsSync();
+        for (Trip trip : allTrips) {
+            // Delete all trips (this will cascade delete all activities)
+            tripDao.deleteTrip(trip);
+        }
+        fetchedAt.clear();
+        Metrics.recordLatency("repo.clearAllLocalTrips", start);
+        Log.d(TAG, "Cleared all " + allTrips.size() + " local trips from database");
+    }
+    
     public void forceSyncTripToFirebase(Trip trip, OnTripOperationListener listener) {
         if (!userManager.isLoggedIn()) {
             if (listener != null) {
@@ -411,21 +506,17 @@ public class TripRepository {
             try {
                 Log.d(TAG, "=== MANUAL DUPLICATE CLEANUP REQUESTED ===");
                 
-                // First, run the comprehensive cleanup
-                cleanupDuplicateTripsAfterSync();
-                
-                // Wait a moment for cleanup to complete
-                Thread.sleep(1000);
-                
-                // Get final count
-                int finalCount = tripDao.getAllTripsSync().size();
-                Log.d(TAG, "Manual cleanup completed. Final trip count: " + finalCount);
-                
-                if (listener != null) {
-                    new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
-                        listener.onSuccess();
-                    });
-                }
+                // Join (or start) the next comprehensive cleanup and report once it has finished
+                cleanupScheduler.request(() -> {
+                    int finalCount = tripDao.getTripCount();
+                    Log.d(TAG, "Manual cleanup completed. Final trip count: " + finalCount);
+                    
+                    if (listener != null) {
+                        new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
+                            listener.onSuccess();
+                        });
+                    }
+                });
                 
             } catch (Exception e) {
                 Log.e(TAG, "Error during manual duplicate cleanup", e);
@@ -456,12 +547,19 @@ public class TripRepository {
         
         Log.d(TAG, "Fetching trips from Firebase for user: " + userId);
         
+        String freshness = freshnessKey(userId, KEY_TRIPS);
+        int cookie = AppTrace.beginAsync("firestore.trips.get");
         firestore.collection("users")
             .document(userId)
             .collection("trips")
             .get()
             .addOnSuccessListener(querySnapshot -> {
+                AppTrace.endAsync("firestore.trips.get", cookie);
+                if (!querySnapshot.getMetadata().isFromCache()) {
+                    markFetched(freshness);
+                }
                 executor.execute(() -> {
+                    boolean traced = AppTrace.begin("TripRepository.applyFetchedTrips");
                     try {
                         Log.d(TAG, "Found " + querySnapshot.size() + " trips in Firebase");
                         final int totalTrips = querySnapshot.size();
@@ -492,10 +590,13 @@ public class TripRepository {
                                 listener.onError("Error processing trips: " + e.getMessage());
                             });
                         }
+                    } finally {
+                        AppTrace.end(traced);
                     }
                 });
             })
             .addOnFailureListener(e -> {
+                AppTrace.endAsync("firestore.trips.get", cookie);
                 Log.e(TAG, "Error fetching trips from Firebase", e);
                 if (listener != null) {
                     listener.onError("Failed to fetch trips: " + e.getMessage());
@@ -508,7 +609,168 @@ public class TripRepository {
     }
     
     public Trip getTripByIdSync(int tripId) {
-        return tripDao.getTripByIdSync(tripId);
+        return tripCache.getTripByIdSync(tripId);
+    }
+    
+    public Trip getTripByFirebaseIdSync(String firebaseId) {
+        return tripDao.getTripByFirebaseId(firebaseId);
+    }
+    
+    /**
+     * Insert a trip and its activities locally in one transaction, without triggering
+     * Firebase sync. Must be called off the main thread. Returns the new local trip ID.
+     */
+    public int insertTripWithActivitiesSync(Trip trip, List<TripActivity> activities) {
+        long start = Metrics.start();
+        boolean traced = AppTrace.begin("TripRepository.insertTripWithActivities");
+        int tripId;
+        try {
+            tripId = database.runInTransaction(() -> {
+                int insertedId = (int) tripDao.insertTrip(trip);
+                trip.setId(insertedId);
+                for (TripActivity activity : activities) {
+                    activity.setId(0);
+                    activity.setTripId(insertedId);
+                    activity.setId((int) activityDao.insertActivity(activity));
+                }
+                return insertedId;
+            });
+        } finally {
+            AppTrace.end(traced);
+        }
+        Metrics.recordLatency("repo.insertTripWithActivities", start);
+        return tripId;
+    }
+    
+    /**
+     * Counts of the local writes made by a reconciliation restore.
+     */
+    public static class ReconcileStats {
+        public int tripsInserted;
+        public int tripsUpdated;
+        public int tripsUnchanged;
+        public int tripsDeleted;
+        public int activitiesWritten;
+        public int activitiesDeleted;
+        
+        @Override
+        public String toString() {
+            return "inserted=" + tripsInserted + ", updated=" + tripsUpdated +
+                   ", unchanged=" + tripsUnchanged + ", deleted=" + tripsDeleted +
+                   ", activitiesWritten=" + activitiesWritten + ", activitiesDeleted=" + activitiesDeleted;
+        }
+    }
+    
+    /**
+     * Apply a batch of remote trips to the local database in one transaction, matching
+     * rows by firebaseId and writing only what differs. Trips and activities whose local
+     * copy is at least as new as the remote one are left untouched, so local edits that
+     * have not been uploaded yet survive. Must be called off the main thread.
+     */
+    public void reconcileTripsSync(Map<Trip, List<TripActivity>> remoteTrips, ReconcileStats stats) {
+        long start = Metrics.start();
+        boolean traced = AppTrace.begin("TripRepository.reconcileTrips");
+        try {
+            database.runInTransaction(() -> {
+                for (Map.Entry<Trip, List<TripActivity>> entry : remoteTrips.entrySet()) {
+                    Trip remote = entry.getKey();
+                    String firebaseId = remote.getFirebaseId();
+                    Trip local = firebaseId != null && !firebaseId.isEmpty()
+                            ? tripDao.getTripByFirebaseId(firebaseId) : null;
+                
+                    if (local == null) {
+                        // Keep the remote ID when it is free so budget data keyed by trip ID still lines up
+                        if (remote.getId() != 0 && tripCache.getTripByIdSync(remote.getId()) != null) {
+                            remote.setId(0);
+                        }
+                        int tripId = (int) tripDao.insertTrip(remote);
+                        reconcileActivitiesSync(tripId, entry.getValue(), stats);
+                        stats.tripsInserted++;
+                        continue;
+                    }
+                
+                    if (remote.getUpdatedAt() > local.getUpdatedAt()) {
+                        remote.setId(local.getId());
+                        tripDao.updateTrip(remote);
+                        stats.tripsUpdated++;
+                    } else {
+                        stats.tripsUnchanged++;
+                    }
+                    // Activity edits do not always touch the trip row, so compare them either way
+                    reconcileActivitiesSync(local.getId(), entry.getValue(), stats);
+                }
+            });
+        } finally {
+            AppTrace.end(traced);
+        }
+        Metrics.recordLatency("repo.reconcileTrips", start);
+    }
+    
+    private void reconcileActivitiesSync(int tripId, List<TripActivity> remoteActivities, ReconcileStats stats) {
+        Map<String, TripActivity> localByKey = new HashMap<>();
+        for (TripActivity local : tripCache.getActivitiesForTripSync(tripId)) {
+            localByKey.put(activityMatchKey(local), local);
+        }
+        
+        for (TripActivity remote : remoteActivities) {
+            TripActivity local = localByKey.remove(activityMatchKey(remote));
+            remote.setTripId(tripId);
+            
+            if (local == null) {
+                remote.setId(0);
+                activityDao.insertActivity(remote);
+                stats.activitiesWritten++;
+            } else if (remote.getUpdatedAt() > local.getUpdatedAt()) {
+                remote.setId(local.getId());
+                // Downloaded images are cached locally; don't lose the path on update
+                if (remote.getImageLocalPath() == null || remote.getImageLocalPath().isEmpty()) {
+                    remote.setImageLocalPath(local.getImageLocalPath());
+                }
+                activityDao.updateActivity(remote);
+                stats.activitiesWritten++;
+            }
+        }
+        
+        // Whatever is left locally no longer exists remotely, unless it was never uploaded
+        for (TripActivity local : localByKey.values()) {
+            if (local.isSynced()) {
+                activityDao.deleteActivity(local);
+                stats.activitiesDeleted++;
+            }
+        }
+    }
+    
+    private static String activityMatchKey(TripActivity activity) {
+        String firebaseId = activity.getFirebaseId();
+        if (firebaseId != null && !firebaseId.isEmpty()) {
+            return "fb:" + firebaseId;
+        }
+        return "local:" + activity.getCreatedAt() + ":" + activity.getTitle();
+    }
+    
+    /**
+     * Delete synced local trips whose firebaseId is not in the given set, i.e. trips that
+     * were removed remotely. Local-only trips are kept. Must be called off the main thread.
+     */
+    public void deleteTripsMissingRemotelySync(Set<String> remoteFirebaseIds, ReconcileStats stats) {
+        long start = Metrics.start();
+        boolean traced = AppTrace.begin("TripRepository.deleteTripsMissingRemotely");
+        try {
+            database.runInTransaction(() -> {
+                for (Trip local : tripCache.getAllTripsSync()) {
+                    String firebaseId = local.getFirebaseId();
+                    if (local.isSynced() && firebaseId != null && !firebaseId.isEmpty()
+                            && !remoteFirebaseIds.contains(firebaseId)) {
+                        // Cascades to the trip's activities
+                        tripDao.deleteTrip(local);
+                        stats.tripsDeleted++;
+                    }
+                }
+            });
+        } finally {
+            AppTrace.end(traced);
+        }
+        Metrics.recordLatency("repo.deleteTripsMissingRemotely", start);
     }
     
     public void insertTrip(Trip trip, OnTripOperationListener listener) {
@@ -605,7 +867,7 @@ public class TripRepository {
                 Log.d(TAG, "Deleting trip: " + trip.getTitle());
                 
                 // Get all activities for this trip before deletion
-                List<TripActivity> activities = activityDao.getActivitiesForTripSync(trip.getId());
+                List<TripActivity> activities = tripCache.getActivitiesForTripSync(trip.getId());
                 Log.d(TAG, "Found " + activities.size() + " activities to delete");
                 
                 // Delete from local database first (cascades to activities)
@@ -707,7 +969,7 @@ public class TripRepository {
         // First get the trip's Firebase ID
         executor.execute(() -> {
             try {
-                Trip trip = tripDao.getTripByIdSync(tripId);
+                Trip trip = tripCache.getTripByIdSync(tripId);
                 
                 if (trip == null || trip.getFirebaseId() == null || trip.getFirebaseId().isEmpty()) {
                     Log.w(TAG, "Cannot delete budget records - trip not found or not synced to Firebase");
@@ -807,7 +1069,7 @@ public class TripRepository {
         executor.execute(() -> {
             try {
                 // Check if we have recent local activities
-                List<TripActivity> localActivities = activityDao.getActivitiesForTripSync(tripId);
+                List<TripActivity> localActivities = tripCache.getActivitiesForTripSync(tripId);
                 long currentTime = System.currentTimeMillis();
                 boolean hasRecentActivity = false;
                 
@@ -826,7 +1088,7 @@ public class TripRepository {
                 }
                 
                 // Get trip's Firebase ID for refresh
-                Trip trip = tripDao.getTripByIdSync(tripId);
+                Trip trip = tripCache.getTripByIdSync(tripId);
                 if (trip != null && trip.getFirebaseId() != null && !trip.getFirebaseId().isEmpty()) {
                     Log.d(TAG, "Local data is outdated, refreshing from Firebase for trip: " + trip.getTitle());
                     
@@ -850,6 +1112,7 @@ public class TripRepository {
         Log.d(TAG, "Fetching activities for trip Firebase ID: " + tripFirebaseId + ", local ID: " + localTripId);
         
         String userId = userManager.getUserEmail();
+        int cookie = AppTrace.beginAsync("firestore.activities.get");
         firestore.collection("users")
             .document(userId)
             .collection("trips")
@@ -857,12 +1120,14 @@ public class TripRepository {
             .collection("activities")
             .get()
             .addOnSuccessListener(activitySnapshot -> {
+                AppTrace.endAsync("firestore.activities.get", cookie);
                 executor.execute(() -> {
+                    boolean traced = AppTrace.begin("TripRepository.applyFetchedActivities");
                     try {
                         Log.d(TAG, "Found " + activitySnapshot.size() + " activities for trip " + tripFirebaseId);
                         
                         // IMPROVED: Only remove duplicates instead of clearing all Firebase activities
-                        List<TripActivity> existingActivities = activityDao.getActivitiesForTripSync(localTripId);
+                        List<TripActivity> existingActivities = tripCache.getActivitiesForTripSync(localTripId);
                         Log.d(TAG, "Found " + existingActivities.size() + " existing local activities for comparison");
                         
                         // Now process all Firebase activities
@@ -876,10 +1141,13 @@ public class TripRepository {
                     } catch (Exception e) {
                         Log.e(TAG, "Error processing Firebase activities", e);
                         onComplete.run(); // Complete anyway to avoid hanging
+                    } finally {
+                        AppTrace.end(traced);
                     }
                 });
             })
             .addOnFailureListener(e -> {
+                AppTrace.endAsync("firestore.activities.get", cookie);
                 Log.e(TAG, "Error fetching activities for trip " + tripFirebaseId, e);
                 onComplete.run(); // Complete anyway to avoid hanging
             });
@@ -891,7 +1159,7 @@ public class TripRepository {
     
     // CRITICAL FIX: Add synchronous method for safe deletion operations
     public List<TripActivity> getActivitiesForTripSync(int tripId) {
-        return activityDao.getActivitiesForTripSync(tripId);
+        return tripCache.getActivitiesForTripSync(tripId);
     }
 
     public void insertActivity(TripActivity activity, OnActivityOperationListener listener) {
@@ -1004,7 +1272,7 @@ public class TripRepository {
     private void deleteFromFirebaseBackground(TripActivity activity) {
         // Background Firebase deletion - doesn't affect UI responsiveness
         try {
-            Trip trip = tripDao.getTripByIdSync(activity.getTripId());
+            Trip trip = tripCache.getTripByIdSync(activity.getTripId());
             if (trip == null || trip.getFirebaseId() == null) {
                 Log.d(TAG, "No Firebase trip found, skipping Firebase deletion");
                 return;
@@ -1179,13 +1447,7 @@ public class TripRepository {
                 return;
             }
             
-            Map<String, Object> tripData = new HashMap<>();
-            tripData.put("title", trip.getTitle());
-            tripData.put("destination", trip.getDestination());
-            tripData.put("startDate", trip.getStartDate());
-            tripData.put("endDate", trip.getEndDate());
-            tripData.put("createdAt", trip.getCreatedAt());
-            tripData.put("updatedAt", trip.getUpdatedAt());
+            Map<String, Object> tripData = TripCodec.encode(trip);
             
             // Set up timeout handler
             final boolean[] operationCompleted = {false};
@@ -1218,15 +1480,18 @@ public class TripRepository {
                                 operationCompleted[0] = true;
                                 timeoutHandler.removeCallbacks(timeoutRunnable);
                                 
-                                try {
-                                    tripDao.markTripAsSynced(trip.getId());
-                                } catch (Exception e) {
-                                    Log.w(TAG, "Failed to mark trip as synced", e);
-                                }
-                                
-                                if (listener != null) {
-                                    listener.onSuccess(trip.getId());
-                                }
+                                // Room cannot be accessed from the main thread Firestore calls back on
+                                executor.execute(() -> {
+                                    try {
+                                        tripDao.markTripAsSynced(trip.getId());
+                                    } catch (Exception e) {
+                                        Log.w(TAG, "Failed to mark trip as synced", e);
+                                    }
+                                    
+                                    if (listener != null) {
+                                        runOnUiThread(() -> listener.onSuccess(trip.getId()));
+                                    }
+                                });
                             }
                         }
                     })
@@ -1254,16 +1519,22 @@ public class TripRepository {
                                 operationCompleted[0] = true;
                                 timeoutHandler.removeCallbacks(timeoutRunnable);
                                 
-                                try {
-                                    String firebaseId = documentReference.getId();
-                                    tripDao.updateTripFirebaseId(trip.getId(), firebaseId);
-                                } catch (Exception e) {
-                                    Log.w(TAG, "Failed to update Firebase ID", e);
-                                }
+                                String firebaseId = documentReference.getId();
+                                trip.setFirebaseId(firebaseId);
                                 
-                                if (listener != null) {
-                                    listener.onSuccess(trip.getId());
-                                }
+                                // Persist the Firebase ID before reporting success so follow-up
+                                // activity syncs (and later incremental syncs) see it
+                                executor.execute(() -> {
+                                    try {
+                                        tripDao.updateTripFirebaseId(trip.getId(), firebaseId);
+                                    } catch (Exception e) {
+                                        Log.w(TAG, "Failed to update Firebase ID", e);
+                                    }
+                                    
+                                    if (listener != null) {
+                                        runOnUiThread(() -> listener.onSuccess(trip.getId()));
+                                    }
+                                });
                             }
                         }
                     })
@@ -1309,7 +1580,7 @@ public class TripRepository {
                 // Trip synced successfully, now sync all activities
                 executor.execute(() -> {
                     try {
-                        List<TripActivity> activities = activityDao.getActivitiesForTripSync(tripId);
+                        List<TripActivity> activities = tripCache.getActivitiesForTripSync(tripId);
                         
                         if (activities.isEmpty()) {
                             Log.d(TAG, "No activities to sync for trip: " + trip.getTitle());
@@ -1411,23 +1682,13 @@ public class TripRepository {
     private void performFirebaseSync(TripActivity activity, OnActivityOperationListener listener) {
         executor.execute(() -> {
             try {
-                Trip trip = tripDao.getTripByIdSync(activity.getTripId());
+                Trip trip = tripCache.getTripByIdSync(activity.getTripId());
                 if (trip == null || trip.getFirebaseId() == null) {
                     if (listener != null) runOnUiThread(() -> listener.onError("Trip not synced to Firebase"));
                     return;
                 }
 
-                Map<String, Object> activityData = new HashMap<>();
-                activityData.put("title", activity.getTitle());
-                activityData.put("description", activity.getDescription());
-                activityData.put("location", activity.getLocation());
-                activityData.put("dateTime", activity.getDateTime());
-                activityData.put("dayNumber", activity.getDayNumber());
-                activityData.put("timeString", activity.getTimeString());
-                activityData.put("latitude", activity.getLatitude());
-                activityData.put("longitude", activity.getLongitude());
-                activityData.put("createdAt", activity.getCreatedAt());
-                activityData.put("updatedAt", activity.getUpdatedAt());
+                Map<String, Object> activityData = TripActivityCodec.encode(activity);
 
                 // Check for local image path first
                 String imagePath = activity.getImageLocalPath();
@@ -1455,8 +1716,11 @@ public class TripRepository {
                     StorageReference imageRef = storage.getReference().child("activity_images").child(imageName);
 
                     // Upload the file
+                    long uploadStart = Metrics.start();
+                    long uploadBytes = imageFile.length();
                     imageRef.putFile(Uri.fromFile(imageFile))
                             .addOnSuccessListener(taskSnapshot -> {
+                                Metrics.recordTransfer("upload.activityImage", uploadBytes, uploadStart);
                                 Log.d(TAG, "Image uploaded successfully");
                                 // Get the download URL
                                 imageRef.getDownloadUrl()
@@ -1465,7 +1729,7 @@ public class TripRepository {
                                             Log.d(TAG, "Got Firebase URL: " + firebaseUrl);
                                             activity.setImageUrl(firebaseUrl);
                                             activity.setImageLocalPath(null); // Clear local path
-                                            activityData.put("imageUrl", firebaseUrl);
+                                            activityData.put(TripActivityCodec.IMAGE_URL, firebaseUrl);
                                             saveActivityDataToFirestore(activity, trip, listener, activityData);
                                         })
                                         .addOnFailureListener(e -> {
@@ -1475,6 +1739,7 @@ public class TripRepository {
                                         });
                             })
                             .addOnFailureListener(e -> {
+                                Metrics.increment("upload.activityImage.errors");
                                 Log.e(TAG, "Failed to upload image", e);
                                 if (listener != null) runOnUiThread(() -> 
                                     listener.onError("Failed to upload image: " + e.getMessage()));
@@ -1482,12 +1747,12 @@ public class TripRepository {
                 } else if (activity.getImageUrl() != null && activity.getImageUrl().startsWith("https://")) {
                     // Already has a Firebase URL
                     Log.d(TAG, "Using existing Firebase URL: " + activity.getImageUrl());
-                    activityData.put("imageUrl", activity.getImageUrl());
+                    activityData.put(TripActivityCodec.IMAGE_URL, activity.getImageUrl());
                     saveActivityDataToFirestore(activity, trip, listener, activityData);
                 } else {
                     // No image
                     Log.d(TAG, "No image to upload");
-                    activityData.put("imageUrl", "");
+                    activityData.put(TripActivityCodec.IMAGE_URL, "");
                     saveActivityDataToFirestore(activity, trip, listener, activityData);
                 }
             } catch (Exception e) {
@@ -1517,7 +1782,9 @@ public class TripRepository {
             firestore.collection("users").document(userEmail)
                     .collection("trips").document(tripFirebaseId)
                     .collection("activities").document(activity.getFirebaseId())
-                    .set(activityData, com.google.firebase.firestore.SetOptions.merge()) // Use merge to avoid overwriting fields
+                    // Merge to keep fields written by other clients, clearing the version 1 names as the document is migrated
+                    .set(FirebaseDataHelper.withLegacyFieldsCleared(activityData, TripActivityCodec.LEGACY_KEYS),
+                         com.google.firebase.firestore.SetOptions.merge())
                     .addOnSuccessListener(aVoid -> {
                         Log.d(TAG, "Successfully updated activity in Firestore: " + activity.getTitle());
                         executor.execute(() -> {
@@ -1573,7 +1840,7 @@ public class TripRepository {
         executor.execute(() -> {
             try {
                 Log.d(TAG, "Checking for local duplicate activities in trip: " + tripId);
-                List<TripActivity> activities = activityDao.getActivitiesForTripSync(tripId);
+                List<TripActivity> activities = tripCache.getActivitiesForTripSync(tripId);
                 
                 Map<String, TripActivity> seenActivities = new HashMap<>();
                 List<TripActivity> duplicatesToDelete = new ArrayList<>();
@@ -1620,6 +1887,111 @@ public class TripRepository {
         });
     }
 
+    // Incremental sync: push only trips and activities that are not yet marked as synced
+    public void syncPendingChanges(OnPendingSyncListener listener) {
+        if (!userManager.isLoggedIn()) {
+            if (listener != null) {
+                listener.onError("User not logged in");
+            }
+            return;
+        }
+        
+        executor.execute(() -> {
+            try {
+                List<Trip> unsyncedTrips = tripDao.getUnsyncedTrips();
+                Set<Integer> unsyncedTripIds = new HashSet<>();
+                for (Trip trip : unsyncedTrips) {
+                    unsyncedTripIds.add(trip.getId());
+                }
+                
+                // Activities of unsynced trips are pushed together with their trip
+                List<TripActivity> pendingActivities = new ArrayList<>();
+                for (TripActivity activity : activityDao.getUnsyncedActivities()) {
+                    if (!unsyncedTripIds.contains(activity.getTripId())) {
+                        pendingActivities.add(activity);
+                    }
+                }
+                
+                final int totalOperations = unsyncedTrips.size() + pendingActivities.size();
+                Log.d(TAG, "Incremental sync: " + unsyncedTrips.size() + " trips, " + 
+                      pendingActivities.size() + " activities pending");
+                
+                if (totalOperations == 0) {
+                    if (listener != null) {
+                        runOnUiThread(() -> listener.onComplete(0, 0, 0));
+                    }
+                    return;
+                }
+                
+                final int[] completed = {0};
+                final int[] tripsSynced = {0};
+                final int[] activitiesSynced = {0};
+                final int[] failed = {0};
+                
+                Runnable checkCompletion = () -> {
+                    if (completed[0] >= totalOperations && listener != null) {
+                        final int trips = tripsSynced[0];
+                        final int activities = activitiesSynced[0];
+                        final int failures = failed[0];
+                        runOnUiThread(() -> listener.onComplete(trips, activities, failures));
+                    }
+                };
+                
+                for (Trip trip : unsyncedTrips) {
+                    syncTripWithActiviesToFirebase(trip, new OnTripOperationListener() {
+                        @Override
+                        public void onSuccess(int tripId) {
+                            synchronized (completed) {
+                                completed[0]++;
+                                tripsSynced[0]++;
+                                checkCompletion.run();
+                            }
+                        }
+                        
+                        @Override
+                        public void onError(String error) {
+                            synchronized (completed) {
+                                completed[0]++;
+                                failed[0]++;
+                                Log.w(TAG, "Incremental sync failed for trip " + trip.getTitle() + ": " + error);
+                                checkCompletion.run();
+                            }
+                        }
+                    });
+                }
+                
+                for (TripActivity activity : pendingActivities) {
+                    syncActivityToFirebase(activity, new OnActivityOperationListener() {
+                        @Override
+                        public void onSuccess(int activityId) {
+                            synchronized (completed) {
+                                completed[0]++;
+                                activitiesSynced[0]++;
+                                checkCompletion.run();
+                            }
+                        }
+                        
+                        @Override
+                        public void onError(String error) {
+                            synchronized (completed) {
+                                completed[0]++;
+                                failed[0]++;
+                                Log.w(TAG, "Incremental sync failed for activity " + activity.getTitle() + ": " + error);
+                                checkCompletion.run();
+                            }
+                        }
+                    });
+                }
+                
+            } catch (Exception e) {
+                Log.e(TAG, "Error during incremental sync", e);
+                if (listener != null) {
+                    runOnUiThread(() -> listener.onError("Incremental sync failed: " + e.getMessage()));
+                }
+            }
+        });
+    }
+
     // Force sync all activities from Firebase to local database
     public void forceSyncAllActivities(OnTripSyncListener listener) {
         if (!userManager.isLoggedIn()) {
@@ -1634,7 +2006,7 @@ public class TripRepository {
                 Log.d(TAG, "Starting force sync of all activities from Firebase");
                 
                 // Get all trips with Firebase IDs
-                List<Trip> allTrips = tripDao.getAllTripsSync();
+                List<Trip> allTrips = tripCache.getAllTripsSync();
                 int tripCount = 0;
                 
                 // Count trips that have Firebase IDs
@@ -1719,7 +2091,7 @@ public class TripRepository {
                 
                 // Get all activities from local database
                 List<TripActivity> allActivities = activityDao.getAllActivitiesSync();
-                List<Trip> allTrips = tripDao.getAllTripsSync();
+                List<Trip> allTrips = tripCache.getAllTripsSync();
                 
                 // Create a set of valid trip IDs
                 Set<Integer> validTripIds = new HashSet<>();
@@ -1769,38 +2141,43 @@ public class TripRepository {
     // Real-time Firebase listeners for automatic sync
     private void setupFirebaseTripsListener() {
         if (!userManager.isLoggedIn()) {
-            Log.d(TAG, "User not logged in, skipping real-time trip listener");
+            LISTENER_LOG.d("User not logged in, skipping real-time trip listener");
             return;
         }
         
         String userId = userManager.getUserEmail();
         if (userId == null || userId.isEmpty()) {
-            Log.w(TAG, "No user email, skipping real-time trip listener");
+            LISTENER_LOG.w("No user email, skipping real-time trip listener");
             return;
         }
         
-        Log.d(TAG, "Setting up real-time Firebase trips listener");
+        LISTENER_LOG.d("Setting up real-time Firebase trips listener");
         
         firestore.collection("users")
             .document(userId)
             .collection("trips")
             .addSnapshotListener((querySnapshot, error) -> {
                 if (error != null) {
-                    Log.w(TAG, "Real-time trips listener error: " + error.getMessage());
+                    LISTENER_LOG.w("Real-time trips listener error: {}", error.getMessage());
                     return;
                 }
                 
                 if (querySnapshot != null) {
-                    Log.d(TAG, "Real-time trips update received: " + querySnapshot.size() + " trips");
+                    LISTENER_LOG.d("Real-time trips update received: {} trips", querySnapshot.size());
+                    Metrics.recordValue("listener.trips.changes", querySnapshot.getDocumentChanges().size());
+                    AppTrace.counter("listener.trips.changes", querySnapshot.getDocumentChanges().size());
                     
                     executor.execute(() -> {
+                        boolean traced = AppTrace.begin("TripRepository.applyTripChanges");
                         try {
                             // Process changes without fetching all data again
                             for (com.google.firebase.firestore.DocumentChange change : querySnapshot.getDocumentChanges()) {
                                 processFirebaseTripChange(change);
                             }
                         } catch (Exception e) {
-                            Log.e(TAG, "Error processing real-time trip changes", e);
+                            LISTENER_LOG.e("Error processing real-time trip changes", e);
+                        } finally {
+                            AppTrace.end(traced);
                         }
                     });
                 }
@@ -1817,7 +2194,7 @@ public class TripRepository {
             return;
         }
         
-        Log.d(TAG, "Setting up real-time Firebase activities listener for trip: " + tripFirebaseId);
+        LISTENER_LOG.d("Setting up real-time Firebase activities listener for trip: {}", tripFirebaseId);
         
         firestore.collection("users")
             .document(userId)
@@ -1826,26 +2203,31 @@ public class TripRepository {
             .collection("activities")
             .addSnapshotListener((querySnapshot, error) -> {
                 if (error != null) {
-                    Log.w(TAG, "Real-time activities listener error: " + error.getMessage());
+                    LISTENER_LOG.w("Real-time activities listener error: {}", error.getMessage());
                     return;
                 }
                 
                 if (querySnapshot != null) {
-                    Log.d(TAG, "Real-time activities update received: " + querySnapshot.size() + " activities");
+                    LISTENER_LOG.d("Real-time activities update received: {} activities", querySnapshot.size());
+                    Metrics.recordValue("listener.activities.changes", querySnapshot.getDocumentChanges().size());
+                    AppTrace.counter("listener.activities.changes", querySnapshot.getDocumentChanges().size());
                     
                     // CRITICAL FIX: Check if real-time updates are enabled
                     if (!realTimeUpdatesEnabled) {
-                        Log.d(TAG, "Real-time updates DISABLED - skipping to prevent UI interference");
+                        LISTENER_LOG.d("Real-time updates DISABLED - skipping to prevent UI interference");
                         return;
                     }
                     
                     executor.execute(() -> {
+                        boolean traced = AppTrace.begin("TripRepository.applyActivityChanges");
                         try {
                             for (com.google.firebase.firestore.DocumentChange change : querySnapshot.getDocumentChanges()) {
                                 processFirebaseActivityChange(change, localTripId);
                             }
                         } catch (Exception e) {
-                            Log.e(TAG, "Error processing real-time activity changes", e);
+                            LISTENER_LOG.e("Error processing real-time activity changes", e);
+                        } finally {
+                            AppTrace.end(traced);
                         }
                     });
                 }
@@ -1859,24 +2241,24 @@ public class TripRepository {
             
             switch (change.getType()) {
                 case ADDED:
-                    Log.d(TAG, "Real-time: Trip added - " + firebaseId);
+                    LISTENER_LOG.d("Real-time: Trip added - {}", firebaseId);
                     processFirebaseTripDocument(doc);
                     break;
                 case MODIFIED:
-                    Log.d(TAG, "Real-time: Trip modified - " + firebaseId);
+                    LISTENER_LOG.d("Real-time: Trip modified - {}", firebaseId);
                     processFirebaseTripDocument(doc);
                     break;
                 case REMOVED:
-                    Log.d(TAG, "Real-time: Trip removed - " + firebaseId);
+                    LISTENER_LOG.d("Real-time: Trip removed - {}", firebaseId);
                     Trip existingTrip = tripDao.getTripByFirebaseId(firebaseId);
                     if (existingTrip != null) {
                         tripDao.deleteTrip(existingTrip);
-                        Log.d(TAG, "Real-time: Removed local trip - " + existingTrip.getTitle());
+                        LISTENER_LOG.d("Real-time: Removed local trip - {}", existingTrip.getTitle());
                     }
                     break;
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error processing Firebase trip change", e);
+            LISTENER_LOG.e("Error processing Firebase trip change", e);
         }
     }
 
@@ -1891,26 +2273,26 @@ public class TripRepository {
                 cleanupExpiredDeletions();
                 
                 if (activitiesBeingDeleted.contains(firebaseId)) {
-                    Log.d(TAG, "Real-time: Ignoring Firebase change for activity being deleted: " + firebaseId);
+                    LISTENER_LOG.d("Real-time: Ignoring Firebase change for activity being deleted: {}", firebaseId);
                     return;
                 }
             }
             
             switch (change.getType()) {
                 case ADDED:
-                    Log.d(TAG, "Real-time: Activity added - " + firebaseId);
+                    LISTENER_LOG.d("Real-time: Activity added - {}", firebaseId);
                     processFirebaseActivityDocument(doc, localTripId);
                     break;
                 case MODIFIED:
-                    Log.d(TAG, "Real-time: Activity modified - " + firebaseId);
+                    LISTENER_LOG.d("Real-time: Activity modified - {}", firebaseId);
                     processFirebaseActivityDocument(doc, localTripId);
                     break;
                 case REMOVED:
-                    Log.d(TAG, "Real-time: Activity removed - " + firebaseId);
+                    LISTENER_LOG.d("Real-time: Activity removed - {}", firebaseId);
                     TripActivity existingActivity = activityDao.getActivityByFirebaseId(firebaseId);
                     if (existingActivity != null) {
                         activityDao.deleteActivity(existingActivity);
-                        Log.d(TAG, "Real-time: Removed local activity - " + existingActivity.getTitle());
+                        LISTENER_LOG.d("Real-time: Removed local activity - {}", existingActivity.getTitle());
                     }
                     // Clean up deletion tracking when Firebase confirms deletion
                     synchronized (activitiesBeingDeleted) {
@@ -1920,34 +2302,21 @@ public class TripRepository {
                     break;
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error processing Firebase activity change", e);
+            LISTENER_LOG.e("Error processing Firebase activity change", e);
         }
     }
 
     private void processFirebaseTripDocument(com.google.firebase.firestore.QueryDocumentSnapshot doc) {
         try {
-            Trip trip = new Trip();
+            Trip trip = TripCodec.decode(doc.getData(), new Trip());
             trip.setFirebaseId(doc.getId());
-            trip.setTitle(doc.getString("title"));
-            trip.setDestination(doc.getString("destination"));
-            
-            Long startDate = doc.getLong("startDate");
-            Long endDate = doc.getLong("endDate");
-            if (startDate != null) trip.setStartDate(startDate);
-            if (endDate != null) trip.setEndDate(endDate);
-            
-            Long createdAt = doc.getLong("createdAt");
-            Long updatedAt = doc.getLong("updatedAt");
-            if (createdAt != null) trip.setCreatedAt(createdAt);
-            if (updatedAt != null) trip.setUpdatedAt(updatedAt);
-            
             trip.setSynced(true);
             
             // ENHANCED DUPLICATE DETECTION: Check by Firebase ID first
             Trip existingByFirebaseId = tripDao.getTripByFirebaseId(trip.getFirebaseId());
             
             // Also check for content-based duplicates (same title, destination, dates)
-            List<Trip> allTrips = tripDao.getAllTripsSync();
+            List<Trip> allTrips = tripCache.getAllTripsSync();
             Trip existingBySimilarity = null;
             
             for (Trip localTrip : allTrips) {
@@ -1966,7 +2335,7 @@ public class TripRepository {
                 // Update existing trip by Firebase ID
                 trip.setId(existingByFirebaseId.getId());
                 tripDao.updateTrip(trip);
-                Log.d(TAG, "Real-time: Updated existing trip (by Firebase ID) - " + trip.getTitle());
+                LISTENER_LOG.d("Real-time: Updated existing trip (by Firebase ID) - {}", trip.getTitle());
                 
             } else if (existingBySimilarity != null) {
                 // Found duplicate by content
@@ -1974,20 +2343,20 @@ public class TripRepository {
                     // Update local trip with Firebase ID - this prevents the duplicate
                     trip.setId(existingBySimilarity.getId());
                     tripDao.updateTrip(trip);
-                    Log.d(TAG, "Real-time: Updated local trip with Firebase ID - " + trip.getTitle());
+                    LISTENER_LOG.d("Real-time: Updated local trip with Firebase ID - {}", trip.getTitle());
                     
                 } else if (!existingBySimilarity.getFirebaseId().equals(trip.getFirebaseId())) {
                     // Different Firebase IDs for same content - remove the old one and use Firebase version
                     tripDao.deleteTrip(existingBySimilarity);
                     long tripId = tripDao.insertTrip(trip);
-                    Log.d(TAG, "Real-time: Replaced duplicate trip with different Firebase ID - " + trip.getTitle());
+                    LISTENER_LOG.d("Real-time: Replaced duplicate trip with different Firebase ID - {}", trip.getTitle());
                     setupFirebaseActivitiesListener(trip.getFirebaseId(), (int) tripId);
                     
                 } else {
                     // Same Firebase ID - this shouldn't happen but handle it
                     trip.setId(existingBySimilarity.getId());
                     tripDao.updateTrip(trip);
-                    Log.d(TAG, "Real-time: Updated trip (same Firebase ID) - " + trip.getTitle());
+                    LISTENER_LOG.d("Real-time: Updated trip (same Firebase ID) - {}", trip.getTitle());
                 }
                 
             } else {
@@ -2003,40 +2372,39 @@ public class TripRepository {
                 }
                 
                 if (similarCount >= 3) {
-                    Log.w(TAG, "Too many trips with same title '" + trip.getTitle() + "' - skipping to prevent spam");
+                    LISTENER_LOG.w("Too many trips with same title '{}' - skipping to prevent spam", trip.getTitle());
                     shouldInsert = false;
                 }
                 
                 if (shouldInsert) {
                     // Insert new trip
                     long tripId = tripDao.insertTrip(trip);
-                    Log.d(TAG, "Real-time: Inserted new trip - " + trip.getTitle() + " with local ID: " + tripId);
+                    LISTENER_LOG.d("Real-time: Inserted new trip - {} with local ID: {}", trip.getTitle(), tripId);
                     
                     // Set up activities listener for this trip
                     setupFirebaseActivitiesListener(trip.getFirebaseId(), (int) tripId);
                     
                     // Schedule cleanup after a delay to remove any potential duplicates
-                    new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-                        executor.execute(this::cleanupDuplicateTripsAfterSync);
-                    }, 2000);
+                    new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(
+                            this::cleanupDuplicateTripsAfterSync, 2000);
                 }
             }
             
         } catch (Exception e) {
-            Log.e(TAG, "Error processing Firebase trip document", e);
+            LISTENER_LOG.e("Error processing Firebase trip document", e);
         }
     }
 
     private void processFirebaseActivityDocument(com.google.firebase.firestore.QueryDocumentSnapshot doc, int localTripId) {
         // NUCLEAR PROTECTION: Absolutely prevent all local operations in Firebase-only mode
         if (isNuclearFirebaseMode) {
-            Log.w(TAG, "🔥🚨 NUCLEAR PROTECTION: Blocking processFirebaseActivityDocument in Firebase-only mode!");
+            LISTENER_LOG.w("🔥🚨 NUCLEAR PROTECTION: Blocking processFirebaseActivityDocument in Firebase-only mode!");
             return;
         }
         
         // CRITICAL FIX: Check if real-time updates are disabled to prevent local database modifications
         if (!realTimeUpdatesEnabled) {
-            Log.d(TAG, "Real-time updates DISABLED - skipping Firebase activity processing to prevent local DB changes");
+            LISTENER_LOG.d("Real-time updates DISABLED - skipping Firebase activity processing to prevent local DB changes");
             return;
         }
         
@@ -2049,38 +2417,21 @@ public class TripRepository {
                 cleanupExpiredDeletions();
                 
                 if (activitiesBeingDeleted.contains(firebaseId)) {
-                    Log.d(TAG, "Skipping processing of activity being deleted: " + firebaseId);
+                    LISTENER_LOG.d("Skipping processing of activity being deleted: {}", firebaseId);
                     return;
                 }
             }
             
-            TripActivity activity = new TripActivity();
+            TripActivity activity = TripActivityCodec.decode(doc.getData(), new TripActivity());
             activity.setFirebaseId(firebaseId);
             activity.setTripId(localTripId);
-            activity.setTitle(doc.getString("title"));
-            activity.setDescription(doc.getString("description"));
-            activity.setLocation(doc.getString("location"));
-            
-            Long dateTime = doc.getLong("dateTime");
-            if (dateTime != null) activity.setDateTime(dateTime);
-            
-            Long dayNumber = doc.getLong("dayNumber");
-            if (dayNumber != null) activity.setDayNumber(dayNumber.intValue());
-            
-            activity.setImageUrl(doc.getString("imageUrl"));
-            
-            Long createdAt = doc.getLong("createdAt");
-            Long updatedAt = doc.getLong("updatedAt");
-            if (createdAt != null) activity.setCreatedAt(createdAt);
-            if (updatedAt != null) activity.setUpdatedAt(updatedAt);
-            
             activity.setSynced(true);
             
             // Enhanced duplicate check - check by Firebase ID AND by content similarity
             TripActivity existingByFirebaseId = activityDao.getActivityByFirebaseId(activity.getFirebaseId());
             
             // Also check for duplicates by title and trip ID (in case Firebase ID is missing locally)
-            List<TripActivity> localActivities = activityDao.getActivitiesForTripSync(localTripId);
+            List<TripActivity> localActivities = tripCache.getActivitiesForTripSync(localTripId);
             TripActivity existingBySimilarity = null;
             for (TripActivity local : localActivities) {
                 if (local.getTitle().equals(activity.getTitle()) && 
@@ -2094,33 +2445,33 @@ public class TripRepository {
                 // Update existing activity by Firebase ID
                 activity.setId(existingByFirebaseId.getId());
                 activityDao.updateActivity(activity);
-                Log.d(TAG, "Updated existing activity (by Firebase ID): " + activity.getTitle());
+                LISTENER_LOG.d("Updated existing activity (by Firebase ID): {}", activity.getTitle());
             } else if (existingBySimilarity != null) {
                 // CRITICAL FIX: Check if this is truly a duplicate or just similar
                 if (existingBySimilarity.getFirebaseId() == null || existingBySimilarity.getFirebaseId().isEmpty()) {
                     // Update local activity with Firebase ID
                     activity.setId(existingBySimilarity.getId());
                     activityDao.updateActivity(activity);
-                    Log.d(TAG, "Updated local activity with Firebase ID: " + activity.getTitle() + " -> " + activity.getFirebaseId());
+                    LISTENER_LOG.d("Updated local activity with Firebase ID: {} -> {}", activity.getTitle(), activity.getFirebaseId());
                 } else if (!existingBySimilarity.getFirebaseId().equals(activity.getFirebaseId())) {
                     // Different Firebase IDs - this is a true duplicate, remove the old one
                     activityDao.deleteActivity(existingBySimilarity);
                     long activityId = activityDao.insertActivity(activity);
-                    Log.d(TAG, "Replaced duplicate activity with different Firebase ID: " + activity.getTitle());
+                    LISTENER_LOG.d("Replaced duplicate activity with different Firebase ID: {}", activity.getTitle());
                 } else {
                     // Same Firebase ID - just update
                     activity.setId(existingBySimilarity.getId());
                     activityDao.updateActivity(activity);
-                    Log.d(TAG, "Updated existing activity (same Firebase ID): " + activity.getTitle());
+                    LISTENER_LOG.d("Updated existing activity (same Firebase ID): {}", activity.getTitle());
                 }
             } else {
                 // Insert new activity only if no duplicates found
                 long activityId = activityDao.insertActivity(activity);
-                Log.d(TAG, "Inserted NEW Firebase activity: " + activity.getTitle() + " with local ID: " + activityId);
+                LISTENER_LOG.d("Inserted NEW Firebase activity: {} with local ID: {}", activity.getTitle(), activityId);
             }
             
         } catch (Exception e) {
-            Log.e(TAG, "Error processing Firebase activity document", e);
+            LISTENER_LOG.e("Error processing Firebase activity document", e);
         }
     }
 
@@ -2133,7 +2484,7 @@ public class TripRepository {
         
         executor.execute(() -> {
             try {
-                List<Trip> trips = tripDao.getAllTripsSync();
+                List<Trip> trips = tripCache.getAllTripsSync();
                 for (Trip trip : trips) {
                     if (trip.getFirebaseId() != null && !trip.getFirebaseId().isEmpty()) {
                         setupFirebaseActivitiesListener(trip.getFirebaseId(), trip.getId());
@@ -2160,7 +2511,7 @@ public class TripRepository {
                 Log.d(TAG, "Force syncing activities for trip ID: " + tripId);
                 
                 // Get trip's Firebase ID
-                Trip trip = tripDao.getTripByIdSync(tripId);
+                Trip trip = tripCache.getTripByIdSync(tripId);
                 if (trip == null || trip.getFirebaseId() == null || trip.getFirebaseId().isEmpty()) {
                     Log.w(TAG, "Trip not found or has no Firebase ID");
                     if (listener != null) {
@@ -2213,6 +2564,113 @@ public class TripRepository {
         }
     }
 
+    // Fetch policies for direct Firestore reads
+    
+    /**
+     * Run a Firestore query under a fetch policy, with Firestore's offline cache as the cache.
+     * key names the data for freshness, e.g. "activities/" + the trip's Firebase ID; reads of
+     * the same data should share it.
+     *
+     * onResult may be called twice, cache first and then server, but the server result is
+     * only delivered if it differs from the cached one, and an empty cache result is held back
+     * while a server read is still coming. Callbacks run on the main thread.
+     */
+    public void query(Query query, String key, FetchPolicy policy,
+                      OnSuccessListener<QuerySnapshot> onResult, OnFailureListener onFailure) {
+        // Taken now, so a read that lands after the user changed still counts for the old account
+        String freshness = freshnessKey(userManager.getUserEmail(), key);
+        boolean network = policy.readsNetwork(lastFetchedAt(freshness), android.os.SystemClock.elapsedRealtime());
+        FetchState state = new FetchState();
+        
+        if (policy.readsCache()) {
+            Metrics.increment("fetch.query.cache");
+            query.get(Source.CACHE)
+                .addOnSuccessListener(snapshot -> {
+                    if (network && snapshot.isEmpty()) return;
+                    if (state.deliver(snapshot, false)) {
+                        onResult.onSuccess(snapshot);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    // Nothing cached yet; the server read answers instead
+                    if (!network) {
+                        onFailure.onFailure(e);
+                    }
+                });
+        }
+        
+        if (!network) {
+            Metrics.increment("fetch.query.serverSkipped");
+            return;
+        }
+        Metrics.increment("fetch.query.server");
+        int cookie = AppTrace.beginAsync("firestore.query.server");
+        query.get(Source.SERVER)
+            .addOnSuccessListener(snapshot -> {
+                AppTrace.endAsync("firestore.query.server", cookie);
+                markFetched(freshness);
+                if (state.deliver(snapshot, true)) {
+                    onResult.onSuccess(snapshot);
+                } else {
+                    Metrics.increment("fetch.query.unchanged");
+                }
+            })
+            .addOnFailureListener(e -> {
+                AppTrace.endAsync("firestore.query.server", cookie);
+                Log.w(TAG, "Server read failed for " + key + " (" + policy + ")", e);
+                if (!state.delivered()) {
+                    onFailure.onFailure(e);
+                }
+            });
+    }
+    
+    private static String freshnessKey(String userEmail, String key) {
+        return userEmail + "|" + key;
+    }
+    
+    private long lastFetchedAt(String freshnessKey) {
+        Long at = fetchedAt.get(freshnessKey);
+        return at != null ? at : -1;
+    }
+    
+    private void markFetched(String freshnessKey) {
+        fetchedAt.put(freshnessKey, android.os.SystemClock.elapsedRealtime());
+    }
+    
+    // What one query() call has delivered so far; both Firestore callbacks run on the main thread
+    private static final class FetchState {
+        private List<DocumentSnapshot> shown;
+        private boolean fromServer;
+        
+        boolean delivered() {
+            return shown != null;
+        }
+        
+        /**
+         * Whether to pass this result on: a late cache result is dropped once the server has
+         * answered, and a server result that matches what is already shown is dropped too
+         */
+        boolean deliver(QuerySnapshot snapshot, boolean server) {
+            if (fromServer) return false;
+            List<DocumentSnapshot> documents = snapshot.getDocuments();
+            boolean changed = shown == null || !sameDocuments(shown, documents);
+            shown = documents;
+            fromServer = server;
+            return changed;
+        }
+        
+        private static boolean sameDocuments(List<DocumentSnapshot> a, List<DocumentSnapshot> b) {
+            if (a.size() != b.size()) return false;
+            for (int i = 0; i < a.size(); i++) {
+                if (!a.get(i).getId().equals(b.get(i).getId())
+                        || !Objects.equals(a.get(i).getData(), b.get(i).getData())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     // CRITICAL FIX: Methods to control real-time updates
     public void disableRealTimeUpdates() {
         Log.d(TAG, "🔴 DISABLING real-time Firebase updates to prevent UI interference");
@@ -2252,6 +2710,11 @@ public class TripRepository {
         void onSuccess();
         void onError(String error);
     }
+    
+    public interface OnPendingSyncListener {
+        void onComplete(int tripsSynced, int activitiesSynced, int failures);
+        void onError(String error);
+    }
 
     // NUCLEAR DELETE: Optimized deletion for Firebase-only mode
     public void deleteActivityNuclear(TripActivity activity, OnActivityOperationListener listener) {
@@ -2268,7 +2731,7 @@ public class TripRepository {
                 // In nuclear mode, prioritize Firebase deletion over local
                 if (userManager.isLoggedIn() && activity.getFirebaseId() != null && !activity.getFirebaseId().isEmpty()) {
                     // Delete from Firebase first in nuclear mode
-                    Trip trip = tripDao.getTripByIdSync(activity.getTripId());
+                    Trip trip = tripCache.getTripByIdSync(activity.getTripId());
                     if (trip != null && trip.getFirebaseId() != null) {
                         Log.d(TAG, "🔥 NUCLEAR: Deleting from Firebase first");
                         deleteActivityFromFirebase(activity, trip, new OnActivityOperationListener() {
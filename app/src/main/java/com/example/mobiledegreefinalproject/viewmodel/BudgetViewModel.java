@@ -0,0 +1,367 @@
+package com.example.mobiledegreefinalproject.viewmodel;
+
+import android.util.SparseArray;
+import android.util.SparseLongArray;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.example.mobiledegreefinalproject.AppTrace;
+import com.example.mobiledegreefinalproject.Metrics;
+import com.example.mobiledegreefinalproject.model.Expense;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Filtering and aggregation for the budget screen. Each change to the expense list or the
+ * category filter is computed once, off the main thread, into an ExpenseSnapshot that the
+ * expense list, the totals and the chart all read from.
+ *
+ * Setters are called on the main thread. A newer change supersedes any computation still
+ * queued or running, so quick chip switching only publishes the last result.
+ *
+ * Budget and spending totals are kept separately as running per-trip, per-category sums of sen
+ * in arrays indexed by Expense.Category ordinal, so they stay exact however often they change. The fragment reports each add, edit, delete and
+ * budget change, which costs O(1) however many expenses a trip has, and the totals for the
+ * selected trip (or all trips) are published as an immutable BudgetTotals.
+ *
+ * Trips whose dates are known also get a SpendTimeline, updated by the same reports, for the
+ * daily spending chart and forecast.
+ */
+public class BudgetViewModel extends ViewModel {
+
+    /**
+     * Totals scope covering every trip, matching the fragment's "All Trips" selection
+     */
+    public static final int ALL_TRIPS = -1;
+
+    private static final int CATEGORY_COUNT = Expense.Category.values().length;
+
+    private final ExecutorService executor = Metrics.newFixedThreadPool("budgetViewModel", 1);
+    private final MutableLiveData<ExpenseSnapshot> snapshot = new MutableLiveData<>(ExpenseSnapshot.EMPTY);
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private List<Expense> expenses = Collections.emptyList();
+    private Expense.Category filter;
+
+    private final MutableLiveData<BudgetTotals> totals = new MutableLiveData<>(BudgetTotals.EMPTY);
+    private final SparseArray<TripTotals> tripTotals = new SparseArray<>();
+    private final SparseArray<long[]> tripDates = new SparseArray<>();
+    private final long[] allSpent = new long[CATEGORY_COUNT];
+    private long allBudget;
+    private int scope = ALL_TRIPS;
+
+    public LiveData<ExpenseSnapshot> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * The last published snapshot; may lag a change that is still being computed
+     */
+    public ExpenseSnapshot getCurrentSnapshot() {
+        ExpenseSnapshot current = snapshot.getValue();
+        return current != null ? current : ExpenseSnapshot.EMPTY;
+    }
+
+    /**
+     * Replace the expenses being shown. The list is copied, so callers may keep mutating theirs.
+     */
+    public void setExpenses(List<Expense> expenses) {
+        this.expenses = expenses != null ? new ArrayList<>(expenses) : Collections.emptyList();
+        recompute();
+    }
+
+    /**
+     * Show only one category, or everything when null
+     */
+    public void setFilter(Expense.Category category) {
+        if (category == filter) return;
+        filter = category;
+        recompute();
+    }
+
+    public Expense.Category getFilter() {
+        return filter;
+    }
+
+    public LiveData<BudgetTotals> getTotals() {
+        return totals;
+    }
+
+    public BudgetTotals getCurrentTotals() {
+        BudgetTotals current = totals.getValue();
+        return current != null ? current : BudgetTotals.EMPTY;
+    }
+
+    /**
+     * Which trip the published totals cover, or ALL_TRIPS
+     */
+    public void setScope(int tripId) {
+        if (tripId == scope) return;
+        scope = tripId;
+        publishTotals();
+    }
+
+    public long getTotalBudgetAllTrips() {
+        return allBudget;
+    }
+
+    /**
+     * Daily spending for a trip, or null until its dates are set and its expenses reset
+     */
+    public SpendTimeline getTimeline(int tripId) {
+        TripTotals trip = tripTotals.get(tripId);
+        return trip != null ? trip.timeline : null;
+    }
+
+    /**
+     * Record a trip's dates; call before resetTotals so its timeline is built with the expenses
+     */
+    public void setTripDates(int tripId, long startDate, long endDate) {
+        tripDates.put(tripId, new long[]{startDate, endDate});
+        TripTotals trip = tripTotals.get(tripId);
+        if (trip != null && trip.timeline != null && !trip.timeline.covers(startDate, endDate)) {
+            // The days moved; rebuilt from the expenses on the next reset
+            trip.timeline = null;
+        }
+    }
+
+    /**
+     * Rebuild every trip's totals from scratch; only needed after a bulk load
+     */
+    public void resetTotals(SparseLongArray budgets, SparseArray<List<Expense>> tripExpenses) {
+        tripTotals.clear();
+        Arrays.fill(allSpent, 0);
+        allBudget = 0;
+
+        for (int i = 0; i < budgets.size(); i++) {
+            long budget = budgets.valueAt(i);
+            totalsFor(budgets.keyAt(i)).budget = budget;
+            allBudget += budget;
+        }
+        for (int i = 0; i < tripExpenses.size(); i++) {
+            List<Expense> expenses = tripExpenses.valueAt(i);
+            if (expenses == null) continue;
+            TripTotals trip = totalsFor(tripExpenses.keyAt(i));
+            for (Expense expense : expenses) {
+                add(trip, expense, 1);
+            }
+        }
+        publishTotals();
+    }
+
+    /**
+     * Rebuild one trip's spending after its expense list was replaced wholesale
+     */
+    public void resetTrip(int tripId, List<Expense> tripExpenses) {
+        TripTotals trip = totalsFor(tripId);
+        for (int i = 0; i < CATEGORY_COUNT; i++) {
+            allSpent[i] -= trip.spent[i];
+            trip.spent[i] = 0;
+        }
+        trip.timeline = newTimeline(tripId);
+        for (Expense expense : tripExpenses) {
+            add(trip, expense, 1);
+        }
+        publishTotals();
+    }
+
+    public void setTripBudget(int tripId, long budget) {
+        TripTotals trip = totalsFor(tripId);
+        allBudget += budget - trip.budget;
+        trip.budget = budget;
+        publishTotals();
+    }
+
+    public void expenseAdded(int tripId, Expense expense) {
+        add(totalsFor(tripId), expense, 1);
+        publishTotals();
+    }
+
+    public void expenseRemoved(int tripId, Expense expense) {
+        add(totalsFor(tripId), expense, -1);
+        publishTotals();
+    }
+
+    public void expenseReplaced(int tripId, Expense original, Expense edited) {
+        TripTotals trip = totalsFor(tripId);
+        add(trip, original, -1);
+        add(trip, edited, 1);
+        publishTotals();
+    }
+
+    public void removeTrip(int tripId) {
+        TripTotals trip = tripTotals.get(tripId);
+        if (trip == null) return;
+        for (int i = 0; i < CATEGORY_COUNT; i++) {
+            allSpent[i] -= trip.spent[i];
+        }
+        allBudget -= trip.budget;
+        tripTotals.remove(tripId);
+        tripDates.remove(tripId);
+        publishTotals();
+    }
+
+    private TripTotals totalsFor(int tripId) {
+        TripTotals trip = tripTotals.get(tripId);
+        if (trip == null) {
+            trip = new TripTotals();
+            trip.timeline = newTimeline(tripId);
+            tripTotals.put(tripId, trip);
+        }
+        return trip;
+    }
+
+    private SpendTimeline newTimeline(int tripId) {
+        long[] dates = tripDates.get(tripId);
+        return dates != null ? new SpendTimeline(dates[0], dates[1]) : null;
+    }
+
+    private void add(TripTotals trip, Expense expense, int sign) {
+        int index = categoryOf(expense).ordinal();
+        long amount = sign * expense.getAmountMinor();
+        trip.spent[index] += amount;
+        allSpent[index] += amount;
+        if (trip.timeline != null) {
+            trip.timeline.add(expense.getTimestamp(), amount);
+        }
+    }
+
+    private void publishTotals() {
+        if (scope == ALL_TRIPS) {
+            totals.setValue(new BudgetTotals(ALL_TRIPS, allBudget, allSpent.clone()));
+        } else {
+            TripTotals trip = tripTotals.get(scope);
+            totals.setValue(trip != null
+                    ? new BudgetTotals(scope, trip.budget, trip.spent.clone())
+                    : new BudgetTotals(scope, 0, new long[CATEGORY_COUNT]));
+        }
+    }
+
+    private static Expense.Category categoryOf(Expense expense) {
+        return expense.getCategory() != null ? expense.getCategory() : Expense.Category.OTHER;
+    }
+
+    private void recompute() {
+        int run = generation.incrementAndGet();
+        List<Expense> source = expenses;
+        Expense.Category category = filter;
+        executor.execute(() -> {
+            if (run != generation.get()) return;
+            long start = Metrics.start();
+            boolean traced = AppTrace.begin("BudgetViewModel.recompute");
+            try {
+                ExpenseSnapshot result = ExpenseSnapshot.build(source, category);
+                if (run == generation.get()) {
+                    snapshot.postValue(result);
+                }
+            } finally {
+                AppTrace.end(traced);
+                Metrics.recordLatency("budget.recompute", start);
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        executor.shutdownNow();
+    }
+
+    private static final class TripTotals {
+        long budget;
+        final long[] spent = new long[CATEGORY_COUNT];
+        SpendTimeline timeline;
+    }
+
+    /**
+     * Immutable result of one filter pass: the filter and the expenses it lets through
+     */
+    public static final class ExpenseSnapshot {
+        static final ExpenseSnapshot EMPTY = new ExpenseSnapshot(null, Collections.emptyList());
+
+        private final Expense.Category filter;
+        private final List<Expense> expenses;
+
+        private ExpenseSnapshot(Expense.Category filter, List<Expense> expenses) {
+            this.filter = filter;
+            this.expenses = expenses;
+        }
+
+        static ExpenseSnapshot build(List<Expense> source, Expense.Category filter) {
+            if (filter == null) {
+                // source is the private copy taken in setExpenses and is never modified
+                return new ExpenseSnapshot(null, Collections.unmodifiableList(source));
+            }
+            List<Expense> visible = new ArrayList<>();
+            for (Expense expense : source) {
+                if (categoryOf(expense) == filter) {
+                    visible.add(expense);
+                }
+            }
+            return new ExpenseSnapshot(filter, Collections.unmodifiableList(visible));
+        }
+
+        /**
+         * The category being shown, or null for all of them
+         */
+        public Expense.Category getFilter() {
+            return filter;
+        }
+
+        public List<Expense> getExpenses() {
+            return expenses;
+        }
+
+        public boolean isEmpty() {
+            return expenses.isEmpty();
+        }
+    }
+
+    /**
+     * Budget and spending for one trip or for all trips, per category and overall, in sen
+     */
+    public static final class BudgetTotals {
+        static final BudgetTotals EMPTY = new BudgetTotals(ALL_TRIPS, 0, new long[CATEGORY_COUNT]);
+
+        private final int tripId;
+        private final long budget;
+        private final long spent;
+        private final long[] categorySpent;
+
+        private BudgetTotals(int tripId, long budget, long[] categorySpent) {
+            this.tripId = tripId;
+            this.budget = budget;
+            this.categorySpent = categorySpent;
+            long sum = 0;
+            for (long value : categorySpent) {
+                sum += value;
+            }
+            this.spent = sum;
+        }
+
+        /**
+         * The trip these totals cover, or ALL_TRIPS
+         */
+        public int getTripId() {
+            return tripId;
+        }
+
+        public long getBudget() {
+            return budget;
+        }
+
+        public long getSpent() {
+            return spent;
+        }
+
+        public long getCategorySpent(Expense.Category category) {
+            return categorySpent[category.ordinal()];
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.mobiledegreefinalproject.viewmodel;
+
+import java.util.TimeZone;
+
+/**
+ * One trip's spending per calendar day from its start date to its end date, in sen, backed by a
+ * prefix-sum array so spend between two dates, the rolling burn rate, the end-of-trip forecast
+ * and the days left until the budget runs out are all O(1).
+ *
+ * Adding or removing an expense is also O(1): it only marks the prefix sums stale from that day
+ * on, and the next query brings them up to date in a single pass. Expenses dated before the trip
+ * (e.g. bookings) or after it count towards the totals but not towards any day.
+ *
+ * Not thread-safe; BudgetViewModel only touches it on the main thread.
+ */
+public final class SpendTimeline {
+
+    /**
+     * Returned by getDaysUntilOverBudget when the budget lasts until the trip ends
+     */
+    public static final int NEVER = -1;
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final TimeZone zone;
+    private final long startDate;
+    private final long endDate;
+    private final long firstDay; // local epoch day of the start date
+    private final long[] daily;
+    private final long[] prefix; // prefix[i] = spend on days 0..i-1
+    private int staleFrom;       // first day whose prefix sum is out of date; daily.length when none
+    private long beforeTrip;
+    private long afterTrip;
+
+    SpendTimeline(long startDate, long endDate) {
+        this(startDate, endDate, TimeZone.getDefault());
+    }
+
+    SpendTimeline(long startDate, long endDate, TimeZone zone) {
+        this.zone = zone;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.firstDay = epochDay(startDate);
+        int days = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 1, epochDay(endDate) - firstDay + 1));
+        this.daily = new long[days];
+        this.prefix = new long[days + 1];
+        this.staleFrom = days;
+    }
+
+    /**
+     * Whether this timeline was built for the given trip dates
+     */
+    boolean covers(long startDate, long endDate) {
+        return this.startDate == startDate && this.endDate == endDate;
+    }
+
+    /**
+     * Record spending (or, with a negative amount, remove it) at the given time
+     */
+    void add(long timestamp, long amount) {
+        int day = dayOf(timestamp);
+        if (day < 0) {
+            beforeTrip += amount;
+        } else if (day >= daily.length) {
+            afterTrip += amount;
+        } else {
+            daily[day] += amount;
+            staleFrom = Math.min(staleFrom, day);
+        }
+    }
+
+    public int getDayCount() {
+        return daily.length;
+    }
+
+    /**
+     * Trip day of a time: 0 on the start date, negative before it and getDayCount() or more after the end
+     */
+    public int dayOf(long timestamp) {
+        long day = epochDay(timestamp) - firstDay;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+
+    public long getDailySpend(int day) {
+        return day >= 0 && day < daily.length ? daily[day] : 0;
+    }
+
+    /**
+     * Everything spent up to and including the given trip day, including pre-trip spending
+     */
+    public long getSpentThrough(int day) {
+        if (day < 0) return beforeTrip;
+        return beforeTrip + prefix()[Math.min(day, daily.length - 1) + 1];
+    }
+
+    public long getTotalSpent() {
+        return beforeTrip + prefix()[daily.length] + afterTrip;
+    }
+
+    /**
+     * Spend dated from one day to another, both inclusive, counting only days within the trip
+     */
+    public long getSpendBetween(long from, long to) {
+        int first = Math.max(0, dayOf(from));
+        int last = Math.min(daily.length - 1, dayOf(to));
+        if (first > last) return 0;
+        long[] sums = prefix();
+        return sums[last + 1] - sums[first];
+    }
+
+    /**
+     * Average spend per day over the last windowDays trip days up to and including today,
+     * or 0 before the trip starts
+     */
+    public long getBurnRate(int windowDays, long now) {
+        int today = Math.min(dayOf(now), daily.length - 1);
+        if (today < 0) return 0;
+        int days = Math.min(windowDays, today + 1);
+        return windowSum(today, days) / days;
+    }
+
+    /**
+     * Total spend by the end of the trip if the rolling burn rate holds for the remaining days
+     */
+    public long getProjectedSpend(int windowDays, long now) {
+        int today = dayOf(now);
+        long spent = getTotalSpent();
+        if (today < 0 || today >= daily.length - 1) {
+            // Nothing to extrapolate from yet, or no days left
+            return spent;
+        }
+        int days = Math.min(windowDays, today + 1);
+        int remaining = daily.length - 1 - today;
+        return spent + windowSum(today, days) * remaining / days;
+    }
+
+    /**
+     * Days from today until spending at the rolling burn rate passes the budget: 0 when it
+     * already has, NEVER when it won't before the trip ends
+     */
+    public int getDaysUntilOverBudget(long budget, int windowDays, long now) {
+        long left = budget - getTotalSpent();
+        if (left < 0) return 0;
+
+        int today = dayOf(now);
+        if (today < 0 || today >= daily.length - 1) return NEVER;
+        int days = Math.min(windowDays, today + 1);
+        long sum = windowSum(today, days);
+        if (sum <= 0) return NEVER;
+
+        // First whole day on which left is exceeded, at sum / days per day
+        long daysUntil = left * days / sum + 1;
+        int remaining = daily.length - 1 - today;
+        return daysUntil <= remaining ? (int) daysUntil : NEVER;
+    }
+
+    // Spend over the `days` trip days ending with (and including) `today`
+    private long windowSum(int today, int days) {
+        long[] sums = prefix();
+        return sums[today + 1] - sums[today + 1 - days];
+    }
+
+    private long[] prefix() {
+        for (int day = staleFrom; day < daily.length; day++) {
+            prefix[day + 1] = prefix[day] + daily[day];
+        }
+        staleFrom = daily.length;
+        return prefix;
+    }
+
+    // Days since the epoch in local time, so days change at local midnight even across DST
+    private long epochDay(long timestamp) {
+        return Math.floorDiv(timestamp + zone.getOffset(timestamp), DAY_MS);
+    }
+}
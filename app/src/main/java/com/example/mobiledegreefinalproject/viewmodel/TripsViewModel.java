@@ -5,6 +5,8 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
 import com.example.mobiledegreefinalproject.database.Trip;
 import com.example.mobiledegreefinalproject.database.TripActivity;
@@ -16,9 +18,22 @@ public class TripsViewModel extends AndroidViewModel {
     
     private final TripRepository repository;
     
+    // The "now" the date-range lists were queried with; moved forward by refreshNow()
+    private final MutableLiveData<Long> now = new MutableLiveData<>(System.currentTimeMillis());
+    private final LiveData<List<Trip>> currentAndUpcomingTrips;
+    private final LiveData<List<Trip>> upcomingTrips;
+    private final LiveData<List<Trip>> ongoingTrips;
+    private final LiveData<List<Trip>> pastTrips;
+    
     public TripsViewModel(@NonNull Application application) {
         super(application);
         repository = TripRepository.getInstance(application);
+        
+        // Filtered in SQL on the date indices, so only the rows shown are loaded
+        currentAndUpcomingTrips = Transformations.switchMap(now, repository::getCurrentAndUpcomingTrips);
+        upcomingTrips = Transformations.switchMap(now, repository::getUpcomingTrips);
+        ongoingTrips = Transformations.switchMap(now, repository::getOngoingTrips);
+        pastTrips = Transformations.switchMap(now, repository::getPastTrips);
     }
     
     // Trip operations
@@ -26,6 +41,42 @@ public class TripsViewModel extends AndroidViewModel {
         return repository.getAllTrips();
     }
     
+    /**
+     * Trips that have not ended yet (ongoing and upcoming), by start date
+     */
+    public LiveData<List<Trip>> getCurrentAndUpcomingTrips() {
+        return currentAndUpcomingTrips;
+    }
+    
+    /**
+     * Trips that have not started yet, by start date
+     */
+    public LiveData<List<Trip>> getUpcomingTrips() {
+        return upcomingTrips;
+    }
+    
+    /**
+     * Trips under way now, ending soonest first
+     */
+    public LiveData<List<Trip>> getOngoingTrips() {
+        return ongoingTrips;
+    }
+    
+    /**
+     * Finished trips, most recent first
+     */
+    public LiveData<List<Trip>> getPastTrips() {
+        return pastTrips;
+    }
+    
+    /**
+     * Re-run the date-range queries against the current time, e.g. when a screen resumes,
+     * so trips that started or ended meanwhile move to the right list
+     */
+    public void refreshNow() {
+        now.setValue(System.currentTimeMillis());
+    }
+    
     public LiveData<Trip> getTripById(int tripId) {
         return repository.getTripById(tripId);
     }
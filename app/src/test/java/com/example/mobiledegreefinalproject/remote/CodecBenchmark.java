@@ -0,0 +1,108 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import com.example.mobiledegreefinalproject.database.Trip;
+import com.example.mobiledegreefinalproject.database.TripActivity;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decode time for 10,000 trip and activity documents in each schema version. The timings are
+ * printed rather than asserted; the checks make sure every document was actually decoded.
+ */
+public class CodecBenchmark {
+
+    private static final int DOCUMENTS = 10_000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 5;
+
+    @Test
+    public void decodeTrips_version2() {
+        List<Map<String, Object>> documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Trip trip = CodecTest.trip();
+            trip.setTitle("Trip " + i);
+            trip.setUpdatedAt(CodecTest.UPDATED + i);
+            documents.add(TripCodec.encode(trip));
+        }
+        benchmarkTrips("decode 10k trips, v2", documents);
+    }
+
+    @Test
+    public void decodeTrips_version1() {
+        List<Map<String, Object>> documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put(TripCodec.LEGACY_FIREBASE_ID, "trip" + i);
+            data.put(TripCodec.LEGACY_TITLE, "Trip " + i);
+            data.put(TripCodec.LEGACY_DESTINATION, "Japan");
+            data.put(TripCodec.LEGACY_START_DATE, CodecTest.START);
+            data.put(TripCodec.LEGACY_END_DATE, CodecTest.END);
+            data.put(TripCodec.LEGACY_MAP_IMAGE_URL, "");
+            data.put(TripCodec.LEGACY_LATITUDE, 35.01);
+            data.put(TripCodec.LEGACY_LONGITUDE, 135.76);
+            data.put(TripCodec.LEGACY_CREATED_AT, CodecTest.CREATED);
+            data.put(TripCodec.LEGACY_UPDATED_AT, CodecTest.UPDATED + i);
+            data.put(TripCodec.LEGACY_PLATFORM, "android");
+            data.put(TripCodec.LEGACY_SYNCED, true);
+            documents.add(data);
+        }
+        benchmarkTrips("decode 10k trips, v1", documents);
+    }
+
+    @Test
+    public void decodeActivities_version2() {
+        List<Map<String, Object>> documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            TripActivity activity = CodecTest.activity();
+            activity.setTitle("Activity " + i);
+            activity.setUpdatedAt(CodecTest.UPDATED + i);
+            documents.add(TripActivityCodec.encode(activity));
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            List<TripActivity> decoded = new ArrayList<>(DOCUMENTS);
+            long start = System.nanoTime();
+            for (Map<String, Object> data : documents) {
+                decoded.add(TripActivityCodec.decode(data, new TripActivity()));
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            if (run >= WARMUP_RUNS) best = Math.min(best, micros);
+
+            assertEquals(DOCUMENTS, decoded.size());
+            assertEquals(CodecTest.UPDATED + DOCUMENTS - 1, decoded.get(DOCUMENTS - 1).getUpdatedAt());
+        }
+        report("decode 10k activities, v2", best);
+    }
+
+    private static void benchmarkTrips(String name, List<Map<String, Object>> documents) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            List<Trip> decoded = new ArrayList<>(DOCUMENTS);
+            long start = System.nanoTime();
+            for (Map<String, Object> data : documents) {
+                decoded.add(TripCodec.decode(data, new Trip()));
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            if (run >= WARMUP_RUNS) best = Math.min(best, micros);
+
+            assertEquals(DOCUMENTS, decoded.size());
+            assertEquals("Trip " + (DOCUMENTS - 1), decoded.get(DOCUMENTS - 1).getTitle());
+            assertEquals(CodecTest.UPDATED + DOCUMENTS - 1, decoded.get(DOCUMENTS - 1).getUpdatedAt());
+        }
+        report(name, best);
+    }
+
+    private static void report(String name, long micros) {
+        System.out.println(String.format(Locale.US, "%s: best %d us, %.0f docs/s",
+                name, micros, DOCUMENTS * 1_000_000.0 / Math.max(1, micros)));
+    }
+}
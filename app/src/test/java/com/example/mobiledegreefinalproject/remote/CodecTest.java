@@ -0,0 +1,285 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import com.example.mobiledegreefinalproject.database.Trip;
+import com.example.mobiledegreefinalproject.database.TripActivity;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * TripCodec, TripActivityCodec and CodecValues on both schema versions
+ */
+public class CodecTest {
+
+    static final long START = 1_700_000_000_000L;
+    static final long END = START + 3 * 86_400_000L;
+    static final long CREATED = START - 86_400_000L;
+    static final long UPDATED = START - 3_600_000L;
+
+    // Trips
+
+    @Test
+    public void trip_roundTripsThroughVersion2() {
+        Trip trip = trip();
+
+        Map<String, Object> data = TripCodec.encode(trip);
+        Trip decoded = TripCodec.decode(data, new Trip());
+
+        assertEquals(TripCodec.SCHEMA_VERSION, data.get(TripCodec.VERSION));
+        assertFalse(TripCodec.isLegacy(data));
+        assertEquals("Kyoto", decoded.getTitle());
+        assertEquals("Japan", decoded.getDestination());
+        assertEquals(START, decoded.getStartDate());
+        assertEquals(END, decoded.getEndDate());
+        assertEquals("https://maps/kyoto.png", decoded.getMapImageUrl());
+        assertEquals(35.01, decoded.getLatitude(), 0);
+        assertEquals(135.76, decoded.getLongitude(), 0);
+        assertEquals(CREATED, decoded.getCreatedAt());
+        assertEquals(UPDATED, decoded.getUpdatedAt());
+    }
+
+    @Test
+    public void trip_encodeLeavesOutLocalFields() {
+        Map<String, Object> data = TripCodec.encode(trip());
+
+        assertEquals(10, data.size());
+        for (String key : TripCodec.LEGACY_KEYS) {
+            assertFalse(key, data.containsKey(key));
+        }
+    }
+
+    @Test
+    public void trip_encodesNullStringsAsEmpty() {
+        Trip trip = new Trip();
+
+        Map<String, Object> data = TripCodec.encode(trip);
+
+        assertEquals("", data.get(TripCodec.TITLE));
+        assertEquals("", data.get(TripCodec.DESTINATION));
+        assertEquals("", data.get(TripCodec.MAP_IMAGE_URL));
+    }
+
+    @Test
+    public void trip_decodesVersion1() {
+        Map<String, Object> data = new HashMap<>();
+        data.put(TripCodec.LEGACY_FIREBASE_ID, "abc123");
+        data.put(TripCodec.LEGACY_TITLE, "Kyoto");
+        data.put(TripCodec.LEGACY_DESTINATION, "Japan");
+        data.put(TripCodec.LEGACY_START_DATE, START);
+        data.put(TripCodec.LEGACY_END_DATE, String.valueOf(END));
+        data.put(TripCodec.LEGACY_MAP_IMAGE_URL, "https://maps/kyoto.png");
+        data.put(TripCodec.LEGACY_LATITUDE, 35.01);
+        data.put(TripCodec.LEGACY_LONGITUDE, "135.76");
+        data.put(TripCodec.LEGACY_CREATED_AT, CREATED);
+        data.put(TripCodec.LEGACY_UPDATED_AT, UPDATED);
+        data.put(TripCodec.LEGACY_PLATFORM, "android");
+        data.put(TripCodec.LEGACY_SYNCED, true);
+
+        Trip decoded = TripCodec.decode(data, new Trip());
+
+        assertTrue(TripCodec.isLegacy(data));
+        assertEquals("abc123", decoded.getFirebaseId());
+        assertEquals("Kyoto", decoded.getTitle());
+        assertEquals("Japan", decoded.getDestination());
+        assertEquals(START, decoded.getStartDate());
+        assertEquals(END, decoded.getEndDate());
+        assertEquals(135.76, decoded.getLongitude(), 0);
+        assertEquals(CREATED, decoded.getCreatedAt());
+        assertEquals(UPDATED, decoded.getUpdatedAt());
+        assertFalse(decoded.isSynced());
+    }
+
+    @Test
+    public void trip_appliesUpdatedAtLast() {
+        // The updatedAt key comes first, and every later setter stamps the current time
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put(TripCodec.UPDATED_AT, UPDATED);
+        data.put(TripCodec.TITLE, "Kyoto");
+        data.put(TripCodec.DESTINATION, "Japan");
+        data.put(TripCodec.START_DATE, START);
+        data.put(TripCodec.END_DATE, END);
+
+        assertEquals(UPDATED, TripCodec.decode(data, new Trip()).getUpdatedAt());
+    }
+
+    @Test
+    public void trip_keepsCurrentValuesForMissingNullOrMalformedFields() {
+        Trip into = trip();
+        Map<String, Object> data = new HashMap<>();
+        data.put(TripCodec.VERSION, 2);
+        data.put(TripCodec.TITLE, null);
+        data.put(TripCodec.START_DATE, "not a date");
+        data.put(TripCodec.LATITUDE, true);
+
+        Trip decoded = TripCodec.decode(data, into);
+
+        assertSame(into, decoded);
+        assertEquals("Kyoto", decoded.getTitle());
+        assertEquals(START, decoded.getStartDate());
+        assertEquals(35.01, decoded.getLatitude(), 0);
+        assertEquals(UPDATED, decoded.getUpdatedAt());
+    }
+
+    @Test
+    public void trip_isLegacyReadsTheVersionField() {
+        Map<String, Object> data = new HashMap<>();
+        assertTrue(TripCodec.isLegacy(data));
+        data.put(TripCodec.VERSION, 1L);
+        assertTrue(TripCodec.isLegacy(data));
+        data.put(TripCodec.VERSION, 2L);
+        assertFalse(TripCodec.isLegacy(data));
+        data.put(TripCodec.VERSION, "2");
+        assertFalse(TripCodec.isLegacy(data));
+        data.put(TripCodec.VERSION, 3);
+        assertFalse(TripCodec.isLegacy(data));
+        assertFalse(TripCodec.isLegacy(null));
+    }
+
+    // Activities
+
+    @Test
+    public void activity_roundTripsThroughVersion2() {
+        TripActivity activity = activity();
+
+        Map<String, Object> data = TripActivityCodec.encode(activity);
+        TripActivity decoded = TripActivityCodec.decode(data, new TripActivity());
+
+        assertFalse(TripActivityCodec.isLegacy(data));
+        assertEquals(11, data.size());
+        assertEquals("Fushimi Inari", decoded.getTitle());
+        assertEquals("Early, before the crowds", decoded.getDescription());
+        assertEquals("Fushimi", decoded.getLocation());
+        assertEquals("https://img/inari.jpg", decoded.getImageUrl());
+        assertEquals(START + 3_600_000L, decoded.getDateTime());
+        assertEquals(activity.getTimeString(), decoded.getTimeString());
+        assertEquals(2, decoded.getDayNumber());
+        assertEquals(34.97, decoded.getLatitude(), 0);
+        assertEquals(135.77, decoded.getLongitude(), 0);
+        assertEquals(CREATED, decoded.getCreatedAt());
+        assertEquals(UPDATED, decoded.getUpdatedAt());
+    }
+
+    @Test
+    public void activity_neverEncodesDeviceLocalOrDerivedFields() {
+        Map<String, Object> data = TripActivityCodec.encode(activity());
+
+        for (String key : TripActivityCodec.LEGACY_KEYS) {
+            assertFalse(key, data.containsKey(key));
+        }
+        assertFalse(data.containsValue("/data/user/0/images/inari.jpg"));
+    }
+
+    @Test
+    public void activity_decodesVersion1() {
+        Map<String, Object> data = new HashMap<>();
+        data.put(TripActivityCodec.LEGACY_FIREBASE_ID, "act1");
+        data.put(TripActivityCodec.LEGACY_TITLE, "Fushimi Inari");
+        data.put(TripActivityCodec.LEGACY_DESCRIPTION, "Early");
+        data.put(TripActivityCodec.LEGACY_LOCATION, "Fushimi");
+        data.put(TripActivityCodec.LEGACY_TIME_STRING, "stale");
+        data.put(TripActivityCodec.LEGACY_IMAGE_URL, "https://img/inari.jpg");
+        data.put(TripActivityCodec.LEGACY_IMAGE_LOCAL_PATH, "/another/device/inari.jpg");
+        data.put(TripActivityCodec.LEGACY_DATE_TIME, START);
+        data.put(TripActivityCodec.LEGACY_DAY_NUMBER, 2L);
+        data.put(TripActivityCodec.LEGACY_LATITUDE, 34.97);
+        data.put(TripActivityCodec.LEGACY_LONGITUDE, 135.77);
+        data.put(TripActivityCodec.LEGACY_CREATED_AT, CREATED);
+        data.put(TripActivityCodec.LEGACY_UPDATED_AT, UPDATED);
+
+        TripActivity decoded = TripActivityCodec.decode(data, new TripActivity());
+
+        assertTrue(TripActivityCodec.isLegacy(data));
+        assertEquals("act1", decoded.getFirebaseId());
+        assertEquals("Fushimi Inari", decoded.getTitle());
+        assertEquals(START, decoded.getDateTime());
+        assertEquals(2, decoded.getDayNumber());
+        assertEquals(CREATED, decoded.getCreatedAt());
+        assertEquals(UPDATED, decoded.getUpdatedAt());
+        // Rebuilt from dateTime rather than copied, and the other device's path is ignored
+        assertNotEquals("stale", decoded.getTimeString());
+        assertEquals(new TripActivity(0, "", "", START, 1).getTimeString(), decoded.getTimeString());
+        assertNull(decoded.getImageLocalPath());
+    }
+
+    @Test
+    public void activity_appliesUpdatedAtLast() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put(TripActivityCodec.LEGACY_UPDATED_AT, UPDATED);
+        data.put(TripActivityCodec.TITLE, "Fushimi Inari");
+        data.put(TripActivityCodec.DESCRIPTION, "Early");
+        data.put(TripActivityCodec.DATE_TIME, START);
+
+        assertEquals(UPDATED, TripActivityCodec.decode(data, new TripActivity()).getUpdatedAt());
+    }
+
+    @Test
+    public void activity_keepsCallerDefaults() {
+        TripActivity into = new TripActivity();
+        into.setTripId(7);
+        into.setImageLocalPath("/local/inari.jpg");
+        into.setDayNumber(1);
+        Map<String, Object> data = new HashMap<>();
+        data.put(TripActivityCodec.TITLE, "Fushimi Inari");
+        data.put(TripActivityCodec.DAY_NUMBER, "three");
+
+        TripActivity decoded = TripActivityCodec.decode(data, into);
+
+        assertEquals(7, decoded.getTripId());
+        assertEquals("/local/inari.jpg", decoded.getImageLocalPath());
+        assertEquals(1, decoded.getDayNumber());
+    }
+
+    // CodecValues
+
+    @Test
+    public void codecValues_coerceNumbersAndNumericStrings() {
+        assertEquals(42L, CodecValues.asLong(42, -1));
+        assertEquals(42L, CodecValues.asLong(42.9, -1));
+        assertEquals(42L, CodecValues.asLong("42", -1));
+        assertEquals(-1L, CodecValues.asLong("4.2", -1));
+        assertEquals(-1L, CodecValues.asLong(null, -1));
+
+        assertEquals(3, CodecValues.asInt(3L, -1));
+        assertEquals(3, CodecValues.asInt("3", -1));
+        assertEquals(-1, CodecValues.asInt("", -1));
+        assertEquals(-1, CodecValues.asInt(Boolean.TRUE, -1));
+
+        assertEquals(1.5, CodecValues.asDouble(1.5f, 0), 0);
+        assertEquals(2.0, CodecValues.asDouble(2L, 0), 0);
+        assertEquals(-3.25, CodecValues.asDouble("-3.25", 0), 0);
+        assertEquals(9.0, CodecValues.asDouble("north", 9), 0);
+
+        assertEquals("", CodecValues.orEmpty(null));
+        assertEquals("x", CodecValues.orEmpty("x"));
+    }
+
+    // Fixtures, shared with CodecBenchmark
+
+    static Trip trip() {
+        Trip trip = new Trip("Kyoto", "Japan", START, END);
+        trip.setMapImageUrl("https://maps/kyoto.png");
+        trip.setLatitude(35.01);
+        trip.setLongitude(135.76);
+        trip.setCreatedAt(CREATED);
+        trip.setUpdatedAt(UPDATED);
+        return trip;
+    }
+
+    static TripActivity activity() {
+        TripActivity activity = new TripActivity(1, "Fushimi Inari", "Early, before the crowds",
+                START + 3_600_000L, 2);
+        activity.setLocation("Fushimi");
+        activity.setImageUrl("https://img/inari.jpg");
+        activity.setImageLocalPath("/data/user/0/images/inari.jpg");
+        activity.setLatitude(34.97);
+        activity.setLongitude(135.77);
+        activity.setCreatedAt(CREATED);
+        activity.setUpdatedAt(UPDATED);
+        return activity;
+    }
+}
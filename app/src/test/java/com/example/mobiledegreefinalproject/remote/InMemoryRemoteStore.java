@@ -0,0 +1,452 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deterministic in-memory RemoteStore for running sync offline on a plain JVM.
+ *
+ * Every operation completes on a single callback thread after the configured latency
+ * (base + seeded random jitter) and can be made to fail, either at a fixed rate or for
+ * the next N operations. Given the same seed and call order, runs are reproducible.
+ * Read, write and upload counters can be used to measure throughput.
+ */
+public class InMemoryRemoteStore implements RemoteStore {
+
+    /**
+     * Thrown for failures injected by setFailureRate / failNextOperations
+     */
+    public static class InjectedFailureException extends IOException {
+        public InjectedFailureException(String operation) {
+            super("Injected failure: " + operation);
+        }
+    }
+
+    private static class CollectionSubscription {
+        final String collectionPath;
+        final CollectionListener listener;
+
+        CollectionSubscription(String collectionPath, CollectionListener listener) {
+            this.collectionPath = collectionPath;
+            this.listener = listener;
+        }
+    }
+
+    // Sorted by path, so documents of one collection are contiguous and ordered by ID
+    private final TreeMap<String, Map<String, Object>> documents = new TreeMap<>();
+    private final Map<String, byte[]> blobs = new HashMap<>();
+    private final List<CollectionSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService callbackExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final Random random;
+
+    private long baseLatencyMs;
+    private long jitterMs;
+    private double failureRate;
+    private int failNext;
+    private int nextId;
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public InMemoryRemoteStore() {
+        this(0L);
+    }
+
+    public InMemoryRemoteStore(long seed) {
+        this.random = new Random(seed);
+    }
+
+    // Simulated network conditions
+
+    public synchronized InMemoryRemoteStore setLatency(long baseLatencyMs, long jitterMs) {
+        this.baseLatencyMs = baseLatencyMs;
+        this.jitterMs = jitterMs;
+        return this;
+    }
+
+    /**
+     * Probability in [0, 1] that any single operation fails
+     */
+    public synchronized InMemoryRemoteStore setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    public synchronized InMemoryRemoteStore failNextOperations(int count) {
+        this.failNext = count;
+        return this;
+    }
+
+    // Counters
+
+    public long getReadCount() {
+        return reads.get();
+    }
+
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    public int getFailureCount() {
+        return failures.get();
+    }
+
+    public synchronized int getDocumentCount() {
+        return documents.size();
+    }
+
+    public synchronized void resetCounters() {
+        reads.set(0);
+        writes.set(0);
+        uploadedBytes.set(0);
+        failures.set(0);
+    }
+
+    public void shutdown() {
+        callbackExecutor.shutdownNow();
+    }
+
+    // RemoteStore
+
+    @Override
+    public void getDocument(String documentPath, Callback<RemoteDocument> callback) {
+        RemoteDocument document;
+        boolean fail;
+        long delay;
+        synchronized (this) {
+            fail = shouldFail();
+            delay = nextDelay();
+            document = fail ? null : new RemoteDocument(documentPath, copyOf(documents.get(documentPath)));
+            if (!fail) reads.incrementAndGet();
+        }
+        complete(callback, document, fail, "getDocument " + documentPath, delay);
+    }
+
+    @Override
+    public void setDocument(String documentPath, Map<String, Object> data, boolean merge, Callback<Void> callback) {
+        boolean fail;
+        long delay;
+        synchronized (this) {
+            fail = shouldFail();
+            delay = nextDelay();
+            if (!fail) {
+                write(documentPath, data, merge);
+            }
+        }
+        if (!fail) notifyCollection(parentOf(documentPath));
+        complete(callback, null, fail, "setDocument " + documentPath, delay);
+    }
+
+    @Override
+    public void setFields(String documentPath, Map<String, Object> fields, Callback<Void> callback) {
+        // Merges here are shallow already, so each field is replaced as a whole
+        setDocument(documentPath, fields, true, callback);
+    }
+
+    @Override
+    public synchronized String newDocumentId(String collectionPath) {
+        return generateId();
+    }
+
+    @Override
+    public void addDocument(String collectionPath, Map<String, Object> data, Callback<String> callback) {
+        String id;
+        boolean fail;
+        long delay;
+        synchronized (this) {
+            fail = shouldFail();
+            delay = nextDelay();
+            id = fail ? null : generateId();
+            if (!fail) {
+                write(collectionPath + "/" + id, data, false);
+            }
+        }
+        if (!fail) notifyCollection(collectionPath);
+        complete(callback, id, fail, "addDocument " + collectionPath, delay);
+    }
+
+    @Override
+    public void deleteDocument(String documentPath, Callback<Void> callback) {
+        boolean fail;
+        long delay;
+        synchronized (this) {
+            fail = shouldFail();
+            delay = nextDelay();
+            if (!fail) {
+                documents.remove(documentPath);
+                writes.incrementAndGet();
+            }
+        }
+        if (!fail) notifyCollection(parentOf(documentPath));
+        complete(callback, null, fail, "deleteDocument " + documentPath, delay);
+    }
+
+    @Override
+    public void queryPage(String collectionPath, String startAfterId, int limit,
+                          Callback<List<RemoteDocument>> callback) {
+        List<RemoteDocument> page;
+        boolean fail;
+        long delay;
+        synchronized (this) {
+            fail = shouldFail();
+            delay = nextDelay();
+            page = fail ? null : listCollection(collectionPath, startAfterId, limit);
+            if (!fail) reads.addAndGet(Math.max(1, page.size()));
+        }
+        complete(callback, page, fail, "queryPage " + collectionPath, delay);
+    }
+
+    @Override
+    public void queryGroupPage(String collectionId, String ancestorPath, String startAfterPath, int limit,
+                               Callback<List<RemoteDocument>> callback) {
+        List<RemoteDocument> page;
+        boolean fail;
+        long delay;
+        synchronized (this) {
+            fail = shouldFail();
+            delay = nextDelay();
+            page = fail ? null : listCollectionGroup(collectionId, ancestorPath, startAfterPath, limit);
+            if (!fail) reads.addAndGet(Math.max(1, page.size()));
+        }
+        complete(callback, page, fail, "queryGroupPage " + ancestorPath + "/**/" + collectionId, delay);
+    }
+
+    @Override
+    public void queryMatching(String collectionPath, List<Map<String, Object>> anyOf, int limit,
+                              Callback<List<RemoteDocument>> callback) {
+        List<RemoteDocument> matches;
+        boolean fail;
+        long delay;
+        synchronized (this) {
+            fail = shouldFail();
+            delay = nextDelay();
+            matches = fail ? null : new ArrayList<>();
+            if (!fail) {
+                for (RemoteDocument document : listCollection(collectionPath, null, Integer.MAX_VALUE)) {
+                    if (matchesAny(document, anyOf)) {
+                        matches.add(document);
+                        if (matches.size() == limit) break;
+                    }
+                }
+                reads.addAndGet(Math.max(1, matches.size()));
+            }
+        }
+        complete(callback, matches, fail, "queryMatching " + collectionPath, delay);
+    }
+
+    @Override
+    public Batch batch() {
+        List<Runnable> operations = new ArrayList<>();
+        List<String> touchedCollections = new ArrayList<>();
+        return new Batch() {
+            @Override
+            public Batch set(String documentPath, Map<String, Object> data, boolean merge) {
+                Map<String, Object> copy = copyOf(data);
+                operations.add(() -> write(documentPath, copy, merge));
+                touchedCollections.add(parentOf(documentPath));
+                return this;
+            }
+
+            @Override
+            public Batch delete(String documentPath) {
+                operations.add(() -> {
+                    documents.remove(documentPath);
+                    writes.incrementAndGet();
+                });
+                touchedCollections.add(parentOf(documentPath));
+                return this;
+            }
+
+            @Override
+            public void commit(Callback<Void> callback) {
+                boolean fail;
+                long delay;
+                synchronized (InMemoryRemoteStore.this) {
+                    fail = shouldFail();
+                    delay = nextDelay();
+                    // All-or-nothing, like a Firestore WriteBatch
+                    if (!fail) {
+                        for (Runnable operation : operations) {
+                            operation.run();
+                        }
+                    }
+                }
+                if (!fail) {
+                    for (String collectionPath : new java.util.LinkedHashSet<>(touchedCollections)) {
+                        notifyCollection(collectionPath);
+                    }
+                }
+                complete(callback, null, fail, "batch of " + operations.size(), delay);
+            }
+        };
+    }
+
+    @Override
+    public Registration listenToCollection(String collectionPath, CollectionListener listener) {
+        CollectionSubscription subscription = new CollectionSubscription(collectionPath, listener);
+        subscriptions.add(subscription);
+        notifySubscription(subscription);
+        return () -> subscriptions.remove(subscription);
+    }
+
+    @Override
+    public void uploadBlob(String blobPath, byte[] bytes, String contentType, Callback<String> callback) {
+        boolean fail;
+        long delay;
+        synchronized (this) {
+            fail = shouldFail();
+            // Transfer time grows with size: one extra latency unit per 256 KB
+            delay = nextDelay() * (1 + bytes.length / (256 * 1024));
+            if (!fail) {
+                blobs.put(blobPath, bytes.clone());
+                uploadedBytes.addAndGet(bytes.length);
+            }
+        }
+        complete(callback, "memory://" + blobPath, fail, "uploadBlob " + blobPath, delay);
+    }
+
+    // Internals - callers hold the lock unless noted
+
+    private boolean shouldFail() {
+        if (failNext > 0) {
+            failNext--;
+            failures.incrementAndGet();
+            return true;
+        }
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            failures.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private long nextDelay() {
+        return baseLatencyMs + (jitterMs > 0 ? (long) (random.nextDouble() * jitterMs) : 0);
+    }
+
+    private String generateId() {
+        // Fixed-width so generated IDs sort in creation order
+        return String.format(java.util.Locale.US, "mem%017d", ++nextId);
+    }
+
+    private void write(String documentPath, Map<String, Object> data, boolean merge) {
+        Map<String, Object> existing = documents.get(documentPath);
+        Map<String, Object> updated = merge && existing != null ? new HashMap<>(existing) : new HashMap<>();
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            if (field.getValue() == DELETE_FIELD) {
+                updated.remove(field.getKey());
+            } else {
+                updated.put(field.getKey(), field.getValue());
+            }
+        }
+        documents.put(documentPath, updated);
+        writes.incrementAndGet();
+    }
+
+    private List<RemoteDocument> listCollection(String collectionPath, String startAfterId, int limit) {
+        String prefix = collectionPath + "/";
+        String from = startAfterId != null ? prefix + startAfterId : prefix;
+        List<RemoteDocument> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : documents.tailMap(from, startAfterId == null).entrySet()) {
+            String path = entry.getKey();
+            if (!path.startsWith(prefix)) break;
+            // Skip documents in subcollections
+            if (path.indexOf('/', prefix.length()) >= 0) continue;
+            result.add(new RemoteDocument(path, copyOf(entry.getValue())));
+            if (result.size() == limit) break;
+        }
+        return result;
+    }
+
+    private static boolean matchesAny(RemoteDocument document, List<Map<String, Object>> anyOf) {
+        for (Map<String, Object> fields : anyOf) {
+            boolean matches = true;
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                if (!java.util.Objects.equals(document.get(field.getKey()), field.getValue())) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) return true;
+        }
+        return false;
+    }
+
+    private List<RemoteDocument> listCollectionGroup(String collectionId, String ancestorPath,
+                                                     String startAfterPath, int limit) {
+        String prefix = ancestorPath + "/";
+        String from = startAfterPath != null ? startAfterPath : prefix;
+        List<RemoteDocument> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : documents.tailMap(from, startAfterPath == null).entrySet()) {
+            String path = entry.getKey();
+            if (!path.startsWith(prefix)) break;
+            String collection = parentOf(path);
+            if (!collection.substring(collection.lastIndexOf('/') + 1).equals(collectionId)) continue;
+            result.add(new RemoteDocument(path, copyOf(entry.getValue())));
+            if (result.size() == limit) break;
+        }
+        return result;
+    }
+
+    // Called without the lock; snapshots the collection under it
+    private void notifyCollection(String collectionPath) {
+        for (CollectionSubscription subscription : subscriptions) {
+            if (subscription.collectionPath.equals(collectionPath)) {
+                notifySubscription(subscription);
+            }
+        }
+    }
+
+    private void notifySubscription(CollectionSubscription subscription) {
+        List<RemoteDocument> snapshot;
+        synchronized (this) {
+            snapshot = listCollection(subscription.collectionPath, null, Integer.MAX_VALUE);
+        }
+        callbackExecutor.execute(() -> {
+            if (subscriptions.contains(subscription)) {
+                subscription.listener.onChanged(snapshot);
+            }
+        });
+    }
+
+    private <T> void complete(Callback<T> callback, T result, boolean fail, String operation, long delayMs) {
+        Runnable delivery = () -> {
+            if (fail) {
+                callback.onError(new InjectedFailureException(operation));
+            } else {
+                callback.onSuccess(result);
+            }
+        };
+        if (delayMs > 0) {
+            callbackExecutor.schedule(delivery, delayMs, TimeUnit.MILLISECONDS);
+        } else {
+            callbackExecutor.execute(delivery);
+        }
+    }
+
+    private static String parentOf(String documentPath) {
+        int slash = documentPath.lastIndexOf('/');
+        return slash > 0 ? documentPath.substring(0, slash) : "";
+    }
+
+    private static Map<String, Object> copyOf(Map<String, Object> data) {
+        return data != null ? new HashMap<>(data) : null;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline throughput of the restore (PagedReader) and upload (BatchWriter) paths against
+ * InMemoryRemoteStore. Each case prints its timings and checks the number of round trips,
+ * which is what latency multiplies on a real network; wall-clock numbers are only reported.
+ */
+public class RemoteSyncBenchmark {
+
+    private static final String TRIPS = RemoteSyncTest.TRIPS;
+    private static final int DOCUMENTS = 2_000;
+    private static final int RUNS = 5;
+
+    private InMemoryRemoteStore store;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryRemoteStore(7);
+    }
+
+    @After
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    public void restore_pagesOfTwentyFive() throws Exception {
+        benchmarkRestore(25);
+    }
+
+    @Test
+    public void restore_pagesOfTwoHundredFifty() throws Exception {
+        benchmarkRestore(250);
+    }
+
+    @Test
+    public void restore_withSimulatedLatency() throws Exception {
+        RemoteSyncTest.seed(store, TRIPS, 500);
+        store.setLatency(2, 1);
+        store.resetCounters();
+
+        long start = System.nanoTime();
+        RemoteSyncTest.Result result = RemoteSyncTest.readAll(store, TRIPS, 25);
+        long micros = (System.nanoTime() - start) / 1000;
+
+        assertEquals(500, result.count);
+        // 20 full pages, then an empty query (billed as one read) that ends the read
+        assertEquals(20, result.pages);
+        assertEquals(501, store.getReadCount());
+        report("restore 500 docs, 2-3ms latency, page 25", 500, micros);
+    }
+
+    @Test
+    public void batchUpload() throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            InMemoryRemoteStore target = new InMemoryRemoteStore(run);
+            try {
+                BatchWriter writer = new BatchWriter(target);
+                long start = System.nanoTime();
+                for (int i = 0; i < DOCUMENTS; i++) {
+                    writer.set(TRIPS + "/" + RemoteSyncTest.id(i), RemoteSyncTest.document(i), false);
+                }
+                CountDownLatch done = new CountDownLatch(1);
+                writer.commit(new RemoteStore.Callback<Integer>() {
+                    @Override
+                    public void onSuccess(Integer result) {
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                assertTrue(done.await(30, TimeUnit.SECONDS));
+                best = Math.min(best, (System.nanoTime() - start) / 1000);
+
+                assertEquals(DOCUMENTS / BatchWriter.MAX_WRITES_PER_BATCH, writer.getBatchCount());
+                assertEquals(DOCUMENTS, target.getDocumentCount());
+            } finally {
+                target.shutdown();
+            }
+        }
+        report("batch upload " + DOCUMENTS + " docs", DOCUMENTS, best);
+    }
+
+    private void benchmarkRestore(int pageSize) throws Exception {
+        RemoteSyncTest.seed(store, TRIPS, DOCUMENTS);
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            store.resetCounters();
+            long start = System.nanoTime();
+            RemoteSyncTest.Result result = RemoteSyncTest.readAll(store, TRIPS, pageSize);
+            best = Math.min(best, (System.nanoTime() - start) / 1000);
+
+            assertEquals(DOCUMENTS, result.count);
+            assertEquals(DOCUMENTS / pageSize, result.pages);
+            assertEquals(DOCUMENTS + 1, store.getReadCount());
+        }
+        report("restore " + DOCUMENTS + " docs, page " + pageSize, DOCUMENTS, best);
+    }
+
+    private static void report(String name, int documents, long micros) {
+        System.out.println(String.format(Locale.US, "%s: %d us, %.0f docs/s",
+                name, micros, documents * 1_000_000.0 / Math.max(1, micros)));
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.mobiledegreefinalproject.remote;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The paged restore and batched upload paths, run against InMemoryRemoteStore on the JVM
+ */
+public class RemoteSyncTest {
+
+    static final String TRIPS = "user_data_json/u1/trips_json";
+    static final Executor DIRECT = Runnable::run;
+
+    private InMemoryRemoteStore store;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryRemoteStore(42);
+    }
+
+    @After
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    public void pagedReader_readsEveryDocumentInIdOrder() throws Exception {
+        seed(store, TRIPS, 103);
+
+        Result result = readAll(store, TRIPS, 25);
+
+        assertNull(result.error.get());
+        assertEquals(103, result.count);
+        assertEquals(103, result.ids.size());
+        for (int i = 1; i < result.ids.size(); i++) {
+            assertTrue(result.ids.get(i - 1).compareTo(result.ids.get(i)) < 0);
+        }
+        // 25 + 25 + 25 + 25 + 3: the short page ends the read without another query
+        assertEquals(5, result.pages);
+    }
+
+    @Test
+    public void pagedReader_exactMultipleOfPageSizeEndsWithEmptyPage() throws Exception {
+        seed(store, TRIPS, 50);
+
+        Result result = readAll(store, TRIPS, 25);
+
+        assertEquals(50, result.count);
+        assertEquals(2, result.pages);
+    }
+
+    @Test
+    public void pagedReader_emptyCollectionCompletesWithZero() throws Exception {
+        Result result = readAll(store, TRIPS, 25);
+
+        assertNull(result.error.get());
+        assertEquals(0, result.count);
+        assertEquals(0, result.pages);
+    }
+
+    @Test
+    public void pagedReader_ignoresSubcollectionDocuments() throws Exception {
+        seed(store, TRIPS, 3);
+        seed(store, TRIPS + "/t0000/activities", 4);
+
+        Result result = readAll(store, TRIPS, 25);
+
+        assertEquals(3, result.count);
+    }
+
+    @Test
+    public void pagedReader_reportsFailureMidway() throws Exception {
+        seed(store, TRIPS, 60);
+        store.resetCounters();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        int[] pages = {0};
+
+        PagedReader.readCollection(store, TRIPS, 25, DIRECT, new PagedReader.PageHandler() {
+            @Override
+            public void onPage(List<RemoteDocument> page) {
+                if (++pages[0] == 1) {
+                    store.failNextOperations(1);
+                }
+            }
+
+            @Override
+            public void onComplete(int documentCount) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, pages[0]);
+        assertTrue(error.get() instanceof InMemoryRemoteStore.InjectedFailureException);
+    }
+
+    @Test
+    public void pagedReader_handlerExceptionStopsTheRead() throws Exception {
+        seed(store, TRIPS, 60);
+        store.resetCounters();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        PagedReader.readCollection(store, TRIPS, 25, DIRECT, new PagedReader.PageHandler() {
+            @Override
+            public void onPage(List<RemoteDocument> page) {
+                throw new IllegalStateException("bad page");
+            }
+
+            @Override
+            public void onComplete(int documentCount) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("bad page", error.get().getMessage());
+        assertEquals(25, store.getReadCount());
+    }
+
+    @Test
+    public void batchWriter_splitsAtTheLimitAndWritesEverything() throws Exception {
+        BatchWriter writer = new BatchWriter(store);
+        for (int i = 0; i < 1201; i++) {
+            writer.set(TRIPS + "/" + id(i), document(i), false);
+        }
+
+        assertEquals(1201, writer.getWriteCount());
+        assertEquals(3, writer.getBatchCount());
+
+        AtomicReference<Integer> written = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        writer.commit(new RemoteStore.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                written.set(result);
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1201), written.get());
+        assertEquals(1201, store.getDocumentCount());
+    }
+
+    @Test
+    public void batchWriter_reportsOneErrorAfterEveryBatchFinished() throws Exception {
+        BatchWriter writer = new BatchWriter(store, 10);
+        for (int i = 0; i < 30; i++) {
+            writer.set(TRIPS + "/" + id(i), document(i), false);
+        }
+        store.failNextOperations(1);
+
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        writer.commit(new RemoteStore.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotNull(error.get());
+        // Batches are independent: the other two were applied
+        assertEquals(20, store.getDocumentCount());
+    }
+
+    @Test
+    public void batchWriter_withNoWritesSucceedsImmediately() {
+        boolean[] succeeded = {false};
+        new BatchWriter(store).commit(new RemoteStore.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                succeeded[0] = result == 0;
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        });
+
+        assertTrue(succeeded[0]);
+        assertEquals(0, store.getWriteCount());
+    }
+
+    @Test
+    public void queryMatching_findsDocumentsMatchingEitherAlternative() throws Exception {
+        Map<String, Object> current = new HashMap<>();
+        current.put("title", "Museum");
+        current.put("dateTime", 5L);
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put("activity_title", "Museum");
+        legacy.put("activity_date_time", 5L);
+        this.<Void>await(callback -> store.setDocument(TRIPS + "/a", current, false, callback));
+        this.<Void>await(callback -> store.setDocument(TRIPS + "/b", legacy, false, callback));
+        this.<Void>await(callback -> store.setDocument(TRIPS + "/c", document(1), false, callback));
+
+        List<Map<String, Object>> anyOf = new ArrayList<>();
+        anyOf.add(current);
+        anyOf.add(legacy);
+        List<RemoteDocument> matches = await(callback -> store.queryMatching(TRIPS, anyOf, 10, callback));
+
+        assertEquals(2, matches.size());
+        assertEquals("a", matches.get(0).getId());
+        assertEquals("b", matches.get(1).getId());
+        assertEquals(1, this.<List<RemoteDocument>>await(callback -> store.queryMatching(TRIPS, anyOf, 1, callback)).size());
+    }
+
+    @Test
+    public void deleteField_removesTheFieldOnMergeAndIsNeverStored() throws Exception {
+        String path = TRIPS + "/" + store.newDocumentId(TRIPS);
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put("trip_title", "Old");
+        legacy.put("keep", 1);
+        this.<Void>await(callback -> store.setDocument(path, legacy, false, callback));
+
+        Map<String, Object> update = new HashMap<>();
+        update.put("title", "New");
+        update.put("trip_title", RemoteStore.DELETE_FIELD);
+        this.<Void>await(callback -> store.setDocument(path, update, true, callback));
+
+        Map<String, Object> stored = this.<RemoteDocument>await(callback -> store.getDocument(path, callback)).getData();
+        assertEquals("New", stored.get("title"));
+        assertEquals(1, stored.get("keep"));
+        assertFalse(stored.containsKey("trip_title"));
+    }
+
+    @Test
+    public void setFields_replacesMapFieldsWholeAndKeepsOthers() throws Exception {
+        String path = "users/u1";
+        Map<String, Object> hashes = new HashMap<>();
+        hashes.put("t1", "h1");
+        hashes.put("t2", "h2");
+        Map<String, Object> first = new HashMap<>();
+        first.put("tripHashes", hashes);
+        first.put("name", "Ana");
+        this.<Void>await(callback -> store.setFields(path, first, callback));
+
+        Map<String, Object> second = new HashMap<>();
+        second.put("tripHashes", java.util.Collections.singletonMap("t1", "h1b"));
+        this.<Void>await(callback -> store.setFields(path, second, callback));
+
+        RemoteDocument stored = await(callback -> store.getDocument(path, callback));
+        assertEquals(java.util.Collections.singletonMap("t1", "h1b"), stored.get("tripHashes"));
+        assertEquals("Ana", stored.get("name"));
+    }
+
+    @Test
+    public void newDocumentId_isUniqueWithinACollection() {
+        assertNotEquals(store.newDocumentId(TRIPS), store.newDocumentId(TRIPS));
+    }
+
+    /**
+     * Run one store call and wait for its result, failing the test on error
+     */
+    private <T> T await(java.util.function.Consumer<RemoteStore.Callback<T>> call) throws InterruptedException {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        call.accept(new RemoteStore.Callback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                result.set(value);
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNull(error.get());
+        return result.get();
+    }
+
+    // Helpers, shared with RemoteSyncBenchmark
+
+    static String id(int i) {
+        return String.format(java.util.Locale.US, "t%04d", i);
+    }
+
+    static Map<String, Object> document(int i) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "Trip " + i);
+        data.put("destination", "Somewhere " + (i % 17));
+        data.put("startDate", 1_700_000_000_000L + i * 86_400_000L);
+        data.put("updatedAt", 1_700_000_000_000L + i);
+        return data;
+    }
+
+    static void seed(InMemoryRemoteStore store, String collectionPath, int count) throws InterruptedException {
+        BatchWriter writer = new BatchWriter(store);
+        for (int i = 0; i < count; i++) {
+            writer.set(collectionPath + "/" + id(i), document(i), false);
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        writer.commit(new RemoteStore.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    static final class Result {
+        final List<String> ids = new ArrayList<>();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        int pages;
+        int count = -1;
+    }
+
+    static Result readAll(RemoteStore store, String collectionPath, int pageSize) throws InterruptedException {
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch(1);
+        PagedReader.readCollection(store, collectionPath, pageSize, DIRECT, new PagedReader.PageHandler() {
+            @Override
+            public void onPage(List<RemoteDocument> page) {
+                result.pages++;
+                for (RemoteDocument document : page) {
+                    result.ids.add(document.getId());
+                }
+            }
+
+            @Override
+            public void onComplete(int documentCount) {
+                result.count = documentCount;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                result.error.set(e);
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        return result;
+    }
+}